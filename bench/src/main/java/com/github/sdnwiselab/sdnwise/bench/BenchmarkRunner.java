@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this module. It accepts the same arguments of the
+ * JMH command line and always enables the GC profiler, so that every result
+ * reports the bytes allocated per operation next to its time. For instance:
+ * <pre>
+ * java -jar sdn-wise-bench-X.X.X-jar-with-dependencies.jar PacketBenchmark
+ * </pre>
+ * runs only the packet benchmarks. Do not pass -prof gc, it is already on.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * This is a util class. No public constructor.
+     */
+    private BenchmarkRunner() {
+        // Nothing to do here
+    }
+
+    /**
+     * @param args the JMH command line arguments
+     * @throws CommandLineOptionException if the arguments are not valid
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(final String[] args)
+            throws CommandLineOptionException, RunnerException {
+        Options opt = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.bench;
+
+import com.github.sdnwiselab.sdnwise.flowtable.FlowTableEntry;
+import com.github.sdnwiselab.sdnwise.flowtable.Window;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the serialization of the flow table entries, both in the
+ * binary format sent to the nodes and in the textual format used by the
+ * controller.
+ *
+ * @author Sebastiano Milardo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowTableBenchmark {
+
+    /**
+     * A window in textual format.
+     */
+    private static final String WINDOW = "P.TYP == 10";
+
+    /**
+     * An entry with four windows and eight actions in textual format.
+     */
+    private static final String ENTRY = "IF (P.TYP == 10 && "
+            + "P.50 == 1 && "
+            + "R.10 > 1 && "
+            + "R.12 < 5) {"
+            + " ASK;"
+            + " SET P.10 = 40 + 1;"
+            + " FUNCTION 1 9 8 7 6 5 4 3 2 1 ;"
+            + " DROP;"
+            + " FORWARD_B;"
+            + " FORWARD_U 3;"
+            + " MATCH;"
+            + " SET P.11 = P.12 + P.13; "
+            + "} (TTL: 254, U: 0)";
+
+    /**
+     * The entry and its byte array.
+     */
+    private FlowTableEntry entry;
+    private byte[] bytes;
+
+    /**
+     * Creates the entry.
+     */
+    @Setup
+    public void setup() {
+        entry = FlowTableEntry.fromString(ENTRY);
+        bytes = entry.toByteArray();
+    }
+
+    /**
+     * Decodes an entry from a byte array.
+     *
+     * @return the entry
+     */
+    @Benchmark
+    public FlowTableEntry newFlowTableEntry() {
+        return new FlowTableEntry(bytes);
+    }
+
+    /**
+     * Encodes an entry to a byte array.
+     *
+     * @return the byte array
+     */
+    @Benchmark
+    public byte[] toByteArray() {
+        return entry.toByteArray();
+    }
+
+    /**
+     * Parses a window.
+     *
+     * @return the window
+     */
+    @Benchmark
+    public Window windowFromString() {
+        return Window.fromString(WINDOW);
+    }
+
+    /**
+     * Parses an entry.
+     *
+     * @return the entry
+     */
+    @Benchmark
+    public FlowTableEntry flowTableEntryFromString() {
+        return FlowTableEntry.fromString(ENTRY);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.bench;
+
+import com.github.sdnwiselab.sdnwise.flowtable.Window;
+import com.github.sdnwiselab.sdnwise.packet.DataPacket;
+import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
+import com.github.sdnwiselab.sdnwise.packet.OpenPathPacket;
+import com.github.sdnwiselab.sdnwise.packet.ReportPacket;
+import com.github.sdnwiselab.sdnwise.packet.RequestPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the encoding and decoding of the packets. The packets used
+ * are as large as the ones a node usually sends: a data packet with a 50
+ * bytes payload, a report with 10 neighbors, an open path with a 10 hops
+ * path and 2 windows, and a request split in two parts carrying a data
+ * packet with a 100 bytes payload.
+ *
+ * @author Sebastiano Milardo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketBenchmark {
+
+    /**
+     * Size of the payload of the data packets.
+     */
+    private static final int PAYLOAD_SIZE = 50, LARGE_PAYLOAD_SIZE = 100;
+
+    /**
+     * Number of neighbors in the report and of hops in the path.
+     */
+    private static final int NEIGHBORS = 10;
+
+    /**
+     * The byte array of the data packet.
+     */
+    private byte[] bytes;
+
+    /**
+     * The packets being decoded.
+     */
+    private NetworkPacket packet;
+    private ReportPacket report;
+    private OpenPathPacket openPath;
+    private RequestPacket[] request;
+
+    /**
+     * Creates the packets.
+     */
+    @Setup
+    public void setup() {
+        NodeAddress src = NodeAddress.valueOf(1);
+        NodeAddress dst = NodeAddress.valueOf(2);
+
+        byte[] payload = new byte[LARGE_PAYLOAD_SIZE];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        packet = new DataPacket(1, src, dst,
+                Arrays.copyOf(payload, PAYLOAD_SIZE));
+        bytes = packet.toByteArray();
+
+        HashMap<NodeAddress, Byte> neighbors = new HashMap<>();
+        List<NodeAddress> path = new LinkedList<>();
+        for (int i = 0; i < NEIGHBORS; i++) {
+            neighbors.put(NodeAddress.valueOf(i + 3), (byte) (i * 10));
+            path.add(NodeAddress.valueOf(i + 3));
+        }
+        report = new ReportPacket(1, src, dst, 2, 1);
+        report.setNeighbors(neighbors);
+
+        List<Window> windows = new LinkedList<>();
+        windows.add(Window.fromString("P.TYP == 10"));
+        windows.add(Window.fromString("R.10 > 1"));
+        openPath = new OpenPathPacket(1, src, dst, path);
+        openPath.setWindows(windows);
+
+        request = RequestPacket.createPackets(1, src, dst, (byte) 1,
+                new DataPacket(1, src, dst, payload).toByteArray());
+        if (request.length != 2) {
+            throw new IllegalStateException("The request is not split");
+        }
+    }
+
+    /**
+     * Decodes a NetworkPacket from a byte array.
+     *
+     * @return the packet
+     */
+    @Benchmark
+    public NetworkPacket newNetworkPacket() {
+        return new NetworkPacket(bytes);
+    }
+
+    /**
+     * Encodes a NetworkPacket to a byte array.
+     *
+     * @return the byte array
+     */
+    @Benchmark
+    public byte[] toByteArray() {
+        return packet.toByteArray();
+    }
+
+    /**
+     * Encodes a NetworkPacket to an int array.
+     *
+     * @return the int array
+     */
+    @Benchmark
+    public int[] toIntArray() {
+        return packet.toIntArray();
+    }
+
+    /**
+     * Reads the neighbors of a report packet.
+     *
+     * @return the neighbors
+     */
+    @Benchmark
+    public HashMap<NodeAddress, Byte> reportGetNeighbors() {
+        return report.getNeighbors();
+    }
+
+    /**
+     * Reads the path of an open path packet.
+     *
+     * @return the path
+     */
+    @Benchmark
+    public List<NodeAddress> openPathGetPath() {
+        return openPath.getPath();
+    }
+
+    /**
+     * Reads the windows of an open path packet.
+     *
+     * @return the windows
+     */
+    @Benchmark
+    public List<Window> openPathGetWindows() {
+        return openPath.getWindows();
+    }
+
+    /**
+     * Merges the two parts of a request packet.
+     *
+     * @return the original packet
+     */
+    @Benchmark
+    public NetworkPacket requestMergePackets() {
+        return RequestPacket.mergePackets(request[0], request[1]);
+    }
+}
@@ -65,6 +65,7 @@ public abstract class AbstractForwardAction extends AbstractAction {
      * @return the NodeAddress of the next hop
      */
     public final NodeAddress getNextHop() {
-        return new NodeAddress(getValue(NXH_INDEX), getValue(NXH_INDEX + 1));
+        return NodeAddress.valueOf(getValue(NXH_INDEX),
+                getValue(NXH_INDEX + 1));
     }
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.flowtable;
+
+import static com.github.sdnwiselab.sdnwise.flowtable.Stats.ENTRY_TTL_PERMANENT;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * This Class implements a FlowTable that can be read and changed by many
+ * threads. The content of the table is an immutable IndexedFlowTable: readers
+ * use the current one without locking, while every change builds a new one
+ * and publishes it. Changes are serialized among themselves and cost a copy
+ * of the table, which is fine since rules are installed far less often than
+ * packets are matched.
+ * <p>
+ * The table is unbounded unless a capacity is set. The recency of the
+ * entries is counted by the table itself, not by a clock, so the entries
+ * evicted are the same whether the node runs in real or in virtual time.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class ConcurrentFlowTable implements FlowTable {
+
+    /**
+     * The current content of the table.
+     */
+    private volatile IndexedFlowTable current =
+            new IndexedFlowTable().freeze();
+
+    /**
+     * The maximum number of entries. Guarded by this.
+     */
+    private int capacity = Integer.MAX_VALUE;
+
+    /**
+     * Chooses the entries to evict. Guarded by this.
+     */
+    private EvictionPolicy policy = EvictionPolicy.LRU;
+
+    /**
+     * Number of evicted entries.
+     */
+    private volatile long evictions;
+
+    /**
+     * Counts the entries added and executed, to stamp them.
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Creates an unbounded ConcurrentFlowTable.
+     */
+    public ConcurrentFlowTable() {
+    }
+
+    /**
+     * Creates a bounded ConcurrentFlowTable.
+     *
+     * @param cap the maximum number of entries, at least 1
+     * @param p the eviction policy
+     */
+    public ConcurrentFlowTable(final int cap, final EvictionPolicy p) {
+        setCapacity(cap, p);
+    }
+
+    @Override
+    public synchronized boolean add(final FlowTableEntry entry) {
+        IndexedFlowTable t = copy();
+        makeRoom(t, capacity - 1);
+        stamp(entry);
+        t.add(entry);
+        publish(t);
+        return true;
+    }
+
+    @Override
+    public FlowTableEntry get(final int index) {
+        return current.get(index);
+    }
+
+    @Override
+    public void hit(final FlowTableEntry entry) {
+        entry.getStats().increaseCounter();
+        stamp(entry);
+    }
+
+    @Override
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized int insert(final FlowTableEntry entry) {
+        IndexedFlowTable t = copy();
+        stamp(entry);
+        for (int i = 0; i < t.size(); i++) {
+            if (t.get(i).equalWindows(entry)) {
+                t.set(i, entry);
+                publish(t);
+                return i;
+            }
+        }
+        makeRoom(t, capacity - 1);
+        t.add(entry);
+        publish(t);
+        return -t.size();
+    }
+
+    @Override
+    public Iterator<FlowTableEntry> iterator() {
+        return current.iterator();
+    }
+
+    @Override
+    public synchronized void refresh(final int index) {
+        IndexedFlowTable t = copy();
+        t.refresh(index);
+        publish(t);
+    }
+
+    @Override
+    public synchronized FlowTableEntry remove(final int index) {
+        IndexedFlowTable t = copy();
+        FlowTableEntry old = t.remove(index);
+        publish(t);
+        return old;
+    }
+
+    @Override
+    public synchronized boolean removeIf(
+            final Predicate<? super FlowTableEntry> filter) {
+        IndexedFlowTable old = current;
+        IndexedFlowTable t = new IndexedFlowTable();
+        for (FlowTableEntry fte : old) {
+            if (!filter.test(fte)) {
+                t.add(fte);
+            }
+        }
+        if (t.size() == old.size()) {
+            return false;
+        }
+        publish(t);
+        return true;
+    }
+
+    @Override
+    public synchronized FlowTableEntry set(final int index,
+            final FlowTableEntry entry) {
+        IndexedFlowTable t = copy();
+        stamp(entry);
+        FlowTableEntry old = t.set(index, entry);
+        publish(t);
+        return old;
+    }
+
+    @Override
+    public synchronized void setCapacity(final int cap,
+            final EvictionPolicy p) {
+        if (cap < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + cap);
+        }
+        if (p == null) {
+            throw new IllegalArgumentException("Null eviction policy");
+        }
+        capacity = cap;
+        policy = p;
+        if (current.size() > cap) {
+            IndexedFlowTable t = copy();
+            while (t.size() > cap && evict(t)) {
+                // evict until the entries fit or none can be evicted
+            }
+            publish(t);
+        }
+    }
+
+    @Override
+    public int size() {
+        return current.size();
+    }
+
+    @Override
+    public IndexedFlowTable snapshot() {
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return current.toString();
+    }
+
+    /**
+     * Copies the current content of the table.
+     *
+     * @return a new IndexedFlowTable
+     */
+    private IndexedFlowTable copy() {
+        return new IndexedFlowTable(current);
+    }
+
+    /**
+     * Evicts entries until a table contains at most a given number of them.
+     *
+     * @param t the table
+     * @param max the number of entries allowed
+     * @throws IllegalStateException if no entry can be evicted
+     */
+    private void makeRoom(final IndexedFlowTable t, final int max) {
+        while (t.size() > max) {
+            if (!evict(t)) {
+                throw new IllegalStateException("Flow table full");
+            }
+        }
+    }
+
+    /**
+     * Evicts the entry chosen by the policy. The first entry and the
+     * permanent ones are never evicted.
+     *
+     * @param t the table
+     * @return false if no entry can be evicted
+     */
+    private boolean evict(final IndexedFlowTable t) {
+        int victim = -1;
+        for (int i = 1; i < t.size(); i++) {
+            FlowTableEntry fte = t.get(i);
+            if (fte.getStats().getTtl() != ENTRY_TTL_PERMANENT
+                    && (victim == -1
+                    || policy.compare(fte, t.get(victim)) < 0)) {
+                victim = i;
+            }
+        }
+        if (victim == -1) {
+            return false;
+        }
+        t.remove(victim);
+        evictions++;
+        return true;
+    }
+
+    /**
+     * Stamps an entry as the most recently used one.
+     *
+     * @param entry the entry
+     */
+    private void stamp(final FlowTableEntry entry) {
+        entry.getStats().setLastHit(clock.incrementAndGet());
+    }
+
+    /**
+     * Makes a new content of the table visible to the readers.
+     *
+     * @param t the new content, not to be changed anymore
+     */
+    private void publish(final IndexedFlowTable t) {
+        current = t.freeze();
+    }
+}
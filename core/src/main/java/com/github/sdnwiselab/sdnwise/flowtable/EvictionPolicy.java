@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.flowtable;
+
+import java.util.Comparator;
+
+/**
+ * Chooses which entry is removed from a full FlowTable. A policy orders the
+ * entries that can be evicted: the first one in this order is removed, and
+ * ties are broken in favour of the entry coming first in the table. The first
+ * entry of the table and permanent entries are never evicted, whatever the
+ * policy.
+ *
+ * @author Sebastiano Milardo
+ */
+public interface EvictionPolicy extends Comparator<FlowTableEntry> {
+
+    /**
+     * Evicts the least recently executed entry.
+     */
+    EvictionPolicy LRU = (a, b) -> Long.compare(a.getStats().getLastHit(),
+            b.getStats().getLastHit());
+
+    /**
+     * Evicts the least frequently executed entry, or the least recently
+     * executed one among equally used entries.
+     */
+    EvictionPolicy LFU = (a, b) -> {
+        int c = Integer.compare(a.getStats().getCounter(),
+                b.getStats().getCounter());
+        return c != 0 ? c : LRU.compare(a, b);
+    };
+
+    /**
+     * Evicts the entry closest to its expiration.
+     */
+    EvictionPolicy TTL = (a, b) -> Integer.compare(a.getStats().getTtl(),
+            b.getStats().getTtl());
+
+    /**
+     * Gets a policy given its name.
+     *
+     * @param name LRU, LFU or TTL
+     * @return the policy
+     */
+    static EvictionPolicy fromString(final String name) {
+        switch (name.toUpperCase()) {
+            case "LRU":
+                return LRU;
+            case "LFU":
+                return LFU;
+            case "TTL":
+                return TTL;
+            default:
+                throw new IllegalArgumentException("Unknown eviction policy: "
+                        + name);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.flowtable;
+
+import java.util.function.Predicate;
+
+/**
+ * Public Interface for the FlowTable of a node. The entries are kept in
+ * order: the first one matching a packet is the one applied. Iterating a
+ * FlowTable, or reading its snapshot, never fails because of concurrent
+ * changes.
+ * <p>
+ * A FlowTable may have a limited capacity, like the one of a real node. When
+ * a new entry does not fit, an entry chosen by the EvictionPolicy of the
+ * table is removed to make room. The first entry, the route towards the
+ * sink, and the permanent entries are never evicted.
+ *
+ * @author Sebastiano Milardo
+ */
+public interface FlowTable extends Iterable<FlowTableEntry> {
+
+    /**
+     * Appends an entry.
+     *
+     * @param entry the entry
+     * @return true
+     * @throws IllegalStateException if the table is full and no entry can be
+     * evicted
+     */
+    boolean add(FlowTableEntry entry);
+
+    /**
+     * Gets an entry.
+     *
+     * @param index the index of the entry
+     * @return the entry
+     */
+    FlowTableEntry get(int index);
+
+    /**
+     * Records that an entry has been executed: increases its usage counter
+     * and stamps it as the most recently used entry of the table.
+     *
+     * @param entry an entry of the table
+     */
+    void hit(FlowTableEntry entry);
+
+    /**
+     * Gets the maximum number of entries.
+     *
+     * @return the capacity of the table, Integer.MAX_VALUE if unbounded
+     */
+    int getCapacity();
+
+    /**
+     * Gets the number of entries evicted so far to make room for new ones.
+     *
+     * @return the number of evictions
+     */
+    long getEvictions();
+
+    /**
+     * Replaces the entry having the same windows of a new one, or appends the
+     * new entry if there is none.
+     *
+     * @param entry the new entry
+     * @return the index of the replaced entry, or -(index + 1) if the entry
+     * has been appended
+     * @throws IllegalStateException if the entry has to be appended, the
+     * table is full and no entry can be evicted
+     */
+    int insert(FlowTableEntry entry);
+
+    /**
+     * Tells the table that the windows of an entry have been changed in
+     * place.
+     *
+     * @param index the index of the entry
+     */
+    void refresh(int index);
+
+    /**
+     * Removes an entry.
+     *
+     * @param index the index of the entry
+     * @return the removed entry
+     */
+    FlowTableEntry remove(int index);
+
+    /**
+     * Removes the entries satisfying a predicate. The predicate is evaluated
+     * once for each entry, in order, and may change the Stats of the entry.
+     *
+     * @param filter returns true for the entries to be removed
+     * @return true if any entry has been removed
+     */
+    boolean removeIf(Predicate<? super FlowTableEntry> filter);
+
+    /**
+     * Replaces an entry.
+     *
+     * @param index the index of the entry
+     * @param entry the new entry
+     * @return the replaced entry
+     */
+    FlowTableEntry set(int index, FlowTableEntry entry);
+
+    /**
+     * Sets the capacity of the table and the policy used to make room when it
+     * is full. If the table contains more entries than the new capacity,
+     * entries are evicted until it fits or no more entries can be evicted.
+     *
+     * @param capacity the maximum number of entries, at least 1
+     * @param policy the eviction policy
+     */
+    void setCapacity(int capacity, EvictionPolicy policy);
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the number of entries
+     */
+    int size();
+
+    /**
+     * Gets the content of the table as an immutable IndexedFlowTable. Later
+     * changes to the table are not visible in the snapshot, so an index
+     * returned by its find method always refers to the same snapshot.
+     *
+     * @return a snapshot of the table
+     */
+    IndexedFlowTable snapshot();
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.flowtable;
+
+import static com.github.sdnwiselab.sdnwise.flowtable.FlowTableInterface.CONST;
+import static com.github.sdnwiselab.sdnwise.flowtable.FlowTableInterface.PACKET;
+import static com.github.sdnwiselab.sdnwise.flowtable.Window.EQUAL;
+import static com.github.sdnwiselab.sdnwise.flowtable.Window.W_SIZE_1;
+import static com.github.sdnwiselab.sdnwise.flowtable.Window.W_SIZE_2;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.DST_INDEX;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.TYP_INDEX;
+import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
+import com.github.sdnwiselab.sdnwise.util.AddressMap;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.BiPredicate;
+
+/**
+ * This Class represents a FlowTable that can be searched without checking
+ * every entry. Each entry is classified using its windows of the form
+ * "P.DST == constant" and "P.TYP == constant": an entry having them can only
+ * match packets with that destination and type, so the search for a packet
+ * checks only the entries classified under its destination and type and the
+ * ones not constrained on them. The candidates are checked in the order of
+ * the table, therefore the first entry that matches is the same one found by
+ * a linear scan.
+ * <p>
+ * The classification is updated by every change made through the List
+ * methods. The windows of an entry are read when the entry is added, so an
+ * entry whose windows are changed in place must be classified again with
+ * refresh. This class is not thread safe, but a frozen table, such as the
+ * snapshots of a ConcurrentFlowTable, cannot be changed and can be read by
+ * many threads.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class IndexedFlowTable extends AbstractList<FlowTableEntry>
+        implements RandomAccess {
+
+    /**
+     * Used as key for the entries not constrained on a field.
+     */
+    private static final int ANY = -1;
+
+    /**
+     * Number of possible packet types.
+     */
+    private static final int TYPES = 256;
+
+    /**
+     * The entries, in the order of the table.
+     */
+    private final ArrayList<Node> nodes = new ArrayList<>();
+
+    /**
+     * The entries constrained on the destination, by destination.
+     */
+    private final AddressMap<Bucket> byDst = new AddressMap<>();
+
+    /**
+     * The entries not constrained on the destination.
+     */
+    private final Bucket anyDst = new Bucket();
+
+    /**
+     * True if the table cannot be changed anymore.
+     */
+    private boolean frozen;
+
+    /**
+     * Creates an empty IndexedFlowTable.
+     */
+    public IndexedFlowTable() {
+    }
+
+    /**
+     * Creates an IndexedFlowTable containing the entries of a list.
+     *
+     * @param entries the entries, in the order of the table
+     */
+    public IndexedFlowTable(final List<FlowTableEntry> entries) {
+        addAll(entries);
+    }
+
+    @Override
+    public void add(final int index, final FlowTableEntry entry) {
+        checkNotFrozen();
+        if (index < 0 || index > nodes.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index
+                    + ", Size: " + nodes.size());
+        }
+        Node n = new Node(entry);
+        nodes.add(index, n);
+        renumber(index);
+        classify(n);
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        checkNotFrozen();
+        nodes.clear();
+        byDst.clear();
+        anyDst.clear();
+        modCount++;
+    }
+
+    /**
+     * Finds the first entry matching a packet.
+     *
+     * @param packet the packet
+     * @param matcher tells if an entry matches the packet. It must not
+     * modify the table
+     * @return the index of the entry, -1 if no entry matches
+     */
+    public int find(final NetworkPacket packet,
+            final BiPredicate<FlowTableEntry, NetworkPacket> matcher) {
+        // the type is a signed byte in the packet
+        int typ = packet.getTyp() & (TYPES - 1);
+        Bucket b = byDst.get(packet.getDst().intValue());
+        List<Node> l0 = null, l1 = null;
+        if (b != null) {
+            l0 = b.get(typ);
+            l1 = b.any;
+        }
+        List<Node> l2 = anyDst.get(typ), l3 = anyDst.any;
+        int c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+        for (;;) {
+            Node n0 = head(l0, c0), n1 = head(l1, c1), n2 = head(l2, c2),
+                    n3 = head(l3, c3);
+            Node n = first(first(n0, n1), first(n2, n3));
+            if (n == null) {
+                return -1;
+            } else if (n == n0) {
+                c0++;
+            } else if (n == n1) {
+                c1++;
+            } else if (n == n2) {
+                c2++;
+            } else {
+                c3++;
+            }
+            if (matcher.test(n.entry, packet)) {
+                return n.position;
+            }
+        }
+    }
+
+    @Override
+    public FlowTableEntry get(final int index) {
+        return nodes.get(index).entry;
+    }
+
+    /**
+     * Classifies again an entry whose windows have been changed in place.
+     *
+     * @param index the index of the entry
+     */
+    public void refresh(final int index) {
+        checkNotFrozen();
+        Node n = nodes.get(index);
+        declassify(n);
+        n.readKeys();
+        classify(n);
+    }
+
+    @Override
+    public FlowTableEntry remove(final int index) {
+        checkNotFrozen();
+        Node n = nodes.get(index);
+        declassify(n);
+        nodes.remove(index);
+        renumber(index);
+        modCount++;
+        return n.entry;
+    }
+
+    @Override
+    public FlowTableEntry set(final int index, final FlowTableEntry entry) {
+        checkNotFrozen();
+        Node old = nodes.get(index);
+        declassify(old);
+        Node n = new Node(entry);
+        n.position = index;
+        nodes.set(index, n);
+        classify(n);
+        return old.entry;
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Prevents any further change to the table.
+     *
+     * @return the table itself
+     */
+    IndexedFlowTable freeze() {
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * Throws an exception if the table is frozen.
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Frozen flow table");
+        }
+    }
+
+    /**
+     * Adds a node to the bucket of its keys.
+     *
+     * @param n the node
+     */
+    private void classify(final Node n) {
+        Bucket b = anyDst;
+        if (n.dst != ANY) {
+            b = byDst.get(n.dst);
+            if (b == null) {
+                b = new Bucket();
+                byDst.put(n.dst, b);
+            }
+        }
+        b.add(n);
+    }
+
+    /**
+     * Removes a node from the bucket of its keys.
+     *
+     * @param n the node
+     */
+    private void declassify(final Node n) {
+        if (n.dst == ANY) {
+            anyDst.remove(n);
+        } else {
+            Bucket b = byDst.get(n.dst);
+            b.remove(n);
+            if (b.size == 0) {
+                byDst.remove(n.dst);
+            }
+        }
+    }
+
+    /**
+     * Updates the positions of the nodes starting from an index.
+     *
+     * @param from the first index to update
+     */
+    private void renumber(final int from) {
+        for (int i = from; i < nodes.size(); i++) {
+            nodes.get(i).position = i;
+        }
+    }
+
+    /**
+     * Gets the node of a list at a given cursor.
+     *
+     * @param list the list, may be null
+     * @param cursor the cursor
+     * @return the node or null if the list is over
+     */
+    private static Node head(final List<Node> list, final int cursor) {
+        return list != null && cursor < list.size() ? list.get(cursor) : null;
+    }
+
+    /**
+     * Gets the node coming first in the table.
+     *
+     * @param a a node, may be null
+     * @param b a node, may be null
+     * @return the node with the lowest position, or null if both are null
+     */
+    private static Node first(final Node a, final Node b) {
+        if (a == null) {
+            return b;
+        } else if (b == null || a.position < b.position) {
+            return a;
+        }
+        return b;
+    }
+
+    /**
+     * Gets the constant a window compares a packet field with.
+     *
+     * @param w the window
+     * @param size the size of the field
+     * @param index the index of the field in the packet
+     * @return the constant, or ANY if the window is not an equality between
+     * the field and a constant
+     */
+    private static int constantOf(final Window w, final int size,
+            final int index) {
+        if (w.getOperator() != EQUAL || w.getSize() != size) {
+            return ANY;
+        }
+        if (w.getLhsLocation() == PACKET && w.getLhs() == index
+                && w.getRhsLocation() == CONST) {
+            return w.getRhs();
+        }
+        if (w.getRhsLocation() == PACKET && w.getRhs() == index
+                && w.getLhsLocation() == CONST) {
+            return w.getLhs();
+        }
+        return ANY;
+    }
+
+    /**
+     * An entry of the table, with its position and keys.
+     */
+    private static final class Node {
+
+        /**
+         * The entry.
+         */
+        private final FlowTableEntry entry;
+
+        /**
+         * The index of the entry in the table.
+         */
+        private int position;
+
+        /**
+         * The destination and type the entry is constrained on, or ANY.
+         */
+        private int dst, typ;
+
+        /**
+         * Creates a Node.
+         *
+         * @param e the entry
+         */
+        Node(final FlowTableEntry e) {
+            entry = e;
+            readKeys();
+        }
+
+        /**
+         * Reads the keys from the windows of the entry.
+         */
+        void readKeys() {
+            dst = ANY;
+            typ = ANY;
+            for (Window w : entry.getWindows()) {
+                if (dst == ANY) {
+                    dst = constantOf(w, W_SIZE_2, DST_INDEX);
+                }
+                if (typ == ANY) {
+                    int t = constantOf(w, W_SIZE_1, TYP_INDEX);
+                    if (t < TYPES) {
+                        typ = t;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The nodes having the same destination key, sorted by position and
+     * grouped by type key.
+     */
+    private static final class Bucket {
+
+        /**
+         * The nodes not constrained on the type.
+         */
+        private final ArrayList<Node> any = new ArrayList<>();
+
+        /**
+         * The nodes constrained on the type, by type. Allocated when needed.
+         */
+        private ArrayList<ArrayList<Node>> byTyp;
+
+        /**
+         * Number of nodes in the bucket.
+         */
+        private int size;
+
+        /**
+         * Adds a node, keeping the list sorted by position.
+         *
+         * @param n the node
+         */
+        void add(final Node n) {
+            ArrayList<Node> list;
+            if (n.typ == ANY) {
+                list = any;
+            } else {
+                if (byTyp == null) {
+                    byTyp = new ArrayList<>(TYPES);
+                    for (int i = 0; i < TYPES; i++) {
+                        byTyp.add(null);
+                    }
+                }
+                list = byTyp.get(n.typ);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    byTyp.set(n.typ, list);
+                }
+            }
+            list.add(-search(list, n.position) - 1, n);
+            size++;
+        }
+
+        /**
+         * Removes all the nodes.
+         */
+        void clear() {
+            any.clear();
+            byTyp = null;
+            size = 0;
+        }
+
+        /**
+         * Gets the nodes constrained on a type.
+         *
+         * @param typ the type
+         * @return the nodes, or null if there are none
+         */
+        List<Node> get(final int typ) {
+            return byTyp != null ? byTyp.get(typ) : null;
+        }
+
+        /**
+         * Removes a node.
+         *
+         * @param n the node
+         */
+        void remove(final Node n) {
+            ArrayList<Node> list = n.typ == ANY ? any : byTyp.get(n.typ);
+            list.remove(search(list, n.position));
+            size--;
+            if (n.typ != ANY && list.isEmpty()) {
+                byTyp.set(n.typ, null);
+            }
+        }
+
+        /**
+         * Searches a position in a sorted list of nodes.
+         *
+         * @param list the list
+         * @param position the position
+         * @return the index of the node, or -(insertion point + 1)
+         */
+        private static int search(final List<Node> list,
+                final int position) {
+            int lo = 0, hi = list.size() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int p = list.get(mid).position;
+                if (p < position) {
+                    lo = mid + 1;
+                } else if (p > position) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(lo + 1);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.flowtable;
+
+import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * This Class keeps track of the flows waiting for a rule from the controller.
+ * A flow is identified by the destination and the type of its packets, the
+ * same fields used to index the flow table. The first packet of a flow that
+ * misses the flow table opens a pending request, while the following ones
+ * are held in a bounded buffer instead of producing a new request each.
+ * <p>
+ * When a rule is installed, the flows whose first packet matches it are
+ * closed and their buffered packets are given back to be matched again. A
+ * request that is not answered within the timeout is sent again, doubling
+ * the timeout each time, up to a maximum number of retries. After that the
+ * flow is discarded together with its buffered packets.
+ * <p>
+ * The timeouts are counted in ticks, one tick being a call to the tick
+ * method. This class is thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class PendingRequestTable {
+
+    /**
+     * Outcome of a flow table miss.
+     */
+    public enum Miss {
+        /**
+         * A request for the packet must be sent to the controller.
+         */
+        REQUEST,
+        /**
+         * The packet has been held until the rule of its flow arrives.
+         */
+        HELD,
+        /**
+         * The buffer of the flow is full and the packet has been dropped.
+         */
+        DROPPED
+    }
+
+    /**
+     * Default values.
+     */
+    public static final int DFLT_MAX_FLOWS = 32, DFLT_BUFFER_SIZE = 10,
+            DFLT_TIMEOUT = 2, DFLT_MAX_RETRIES = 3;
+
+    /**
+     * The pending flows, in the order their requests were sent.
+     */
+    private final Map<Integer, Flow> flows = new LinkedHashMap<>();
+
+    /**
+     * Limits of the table.
+     */
+    private int maxFlows, bufferSize, timeout, maxRetries;
+
+    /**
+     * Statistics.
+     */
+    private long dropped, expired;
+
+    /**
+     * Creates a PendingRequestTable using the default values.
+     */
+    public PendingRequestTable() {
+        this(DFLT_MAX_FLOWS, DFLT_BUFFER_SIZE, DFLT_TIMEOUT,
+                DFLT_MAX_RETRIES);
+    }
+
+    /**
+     * Creates a PendingRequestTable.
+     *
+     * @param flowsMax the maximum number of pending flows
+     * @param bufSize the maximum number of packets held for each flow
+     * @param ticks the ticks waited before the first retry
+     * @param retries the maximum number of times a request is sent again
+     */
+    public PendingRequestTable(final int flowsMax, final int bufSize,
+            final int ticks, final int retries) {
+        setMaxFlows(flowsMax);
+        setBufferSize(bufSize);
+        setTimeout(ticks, retries);
+    }
+
+    /**
+     * Gets the key of the flow of a packet.
+     *
+     * @param packet the packet
+     * @return the destination and the type of the packet in a single int
+     */
+    private static int key(final NetworkPacket packet) {
+        return (packet.getDst().intValue() << Byte.SIZE)
+                | (packet.getTyp() & 0xFF);
+    }
+
+    /**
+     * Discards all the pending flows and their packets.
+     */
+    public synchronized void clear() {
+        flows.clear();
+    }
+
+    /**
+     * Gets the maximum number of packets held for each flow.
+     *
+     * @return the size of the buffer of a flow
+     */
+    public synchronized int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Gets the number of packets dropped because their buffer was full or
+     * their request expired.
+     *
+     * @return the number of dropped packets
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Gets the number of flows discarded after their last retry.
+     *
+     * @return the number of expired requests
+     */
+    public synchronized long getExpired() {
+        return expired;
+    }
+
+    /**
+     * Gets the maximum number of pending flows. When the table is full a miss
+     * of a new flow always produces a request, as if there was no table.
+     *
+     * @return the maximum number of pending flows
+     */
+    public synchronized int getMaxFlows() {
+        return maxFlows;
+    }
+
+    /**
+     * Gets the maximum number of times a request is sent again.
+     *
+     * @return the maximum number of retries
+     */
+    public synchronized int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Gets the ticks waited before the first retry.
+     *
+     * @return the initial timeout
+     */
+    public synchronized int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Records a flow table miss. The packet may be kept by the table, so it
+     * must not be changed or recycled afterwards.
+     *
+     * @param packet the packet that did not match any rule
+     * @return what the caller has to do with the packet
+     */
+    public synchronized Miss miss(final NetworkPacket packet) {
+        Flow f = flows.get(key(packet));
+        if (f == null) {
+            if (flows.size() < maxFlows) {
+                flows.put(key(packet), new Flow(packet, timeout));
+            }
+            return Miss.REQUEST;
+        }
+        if (f.held.size() >= bufferSize) {
+            dropped++;
+            return Miss.DROPPED;
+        }
+        f.held.add(packet);
+        return Miss.HELD;
+    }
+
+    /**
+     * Closes the flows whose first packet satisfies a predicate, typically
+     * because it matches a rule that has just been installed.
+     *
+     * @param matches checks the first packet of a flow
+     * @return the packets held by the closed flows, in arrival order
+     */
+    public synchronized List<NetworkPacket> release(
+            final Predicate<NetworkPacket> matches) {
+        if (flows.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<NetworkPacket> out = new ArrayList<>();
+        for (Iterator<Flow> it = flows.values().iterator(); it.hasNext();) {
+            Flow f = it.next();
+            if (matches.test(f.first)) {
+                it.remove();
+                out.addAll(f.held);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Sets the maximum number of packets held for each flow. It applies to
+     * the packets held from now on.
+     *
+     * @param bufSize the size of the buffer of a flow, 0 to hold no packet
+     */
+    public synchronized void setBufferSize(final int bufSize) {
+        if (bufSize < 0) {
+            throw new IllegalArgumentException("Invalid buffer size: "
+                    + bufSize);
+        }
+        bufferSize = bufSize;
+    }
+
+    /**
+     * Sets the maximum number of pending flows. It applies to the flows
+     * opened from now on.
+     *
+     * @param flowsMax the maximum number of pending flows, 0 to disable the
+     * coalescing of the requests
+     */
+    public synchronized void setMaxFlows(final int flowsMax) {
+        if (flowsMax < 0) {
+            throw new IllegalArgumentException("Invalid number of flows: "
+                    + flowsMax);
+        }
+        maxFlows = flowsMax;
+    }
+
+    /**
+     * Sets the timeout of the requests. It applies to the flows opened from
+     * now on.
+     *
+     * @param ticks the ticks waited before the first retry
+     * @param retries the maximum number of times a request is sent again
+     */
+    public synchronized void setTimeout(final int ticks, final int retries) {
+        if (ticks < 1 || retries < 0) {
+            throw new IllegalArgumentException("Invalid timeout: " + ticks
+                    + ", retries: " + retries);
+        }
+        timeout = ticks;
+        maxRetries = retries;
+    }
+
+    /**
+     * Gets the number of pending flows.
+     *
+     * @return the number of pending flows
+     */
+    public synchronized int size() {
+        return flows.size();
+    }
+
+    /**
+     * Advances the time of one tick. The requests timing out are sent again
+     * with a doubled timeout, or discarded if they have no retries left.
+     *
+     * @param resend sends again the request for the first packet of a flow
+     */
+    public void tick(final Consumer<NetworkPacket> resend) {
+        List<NetworkPacket> retry = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Flow> it = flows.values().iterator();
+                    it.hasNext();) {
+                Flow f = it.next();
+                if (--f.left > 0) {
+                    continue;
+                }
+                if (f.retries < maxRetries) {
+                    f.retries++;
+                    f.wait = f.wait > Integer.MAX_VALUE / 2
+                            ? Integer.MAX_VALUE : f.wait * 2;
+                    f.left = f.wait;
+                    retry.add(f.first);
+                } else {
+                    it.remove();
+                    expired++;
+                    dropped += f.held.size();
+                }
+            }
+        }
+        retry.forEach(resend);
+    }
+
+    /**
+     * A flow waiting for a rule.
+     */
+    private static final class Flow {
+
+        /**
+         * The packet that opened the flow.
+         */
+        private final NetworkPacket first;
+
+        /**
+         * The packets held until the rule arrives.
+         */
+        private final List<NetworkPacket> held = new ArrayList<>();
+
+        /**
+         * Current timeout, ticks left before it expires and retries done.
+         */
+        private int wait, left, retries;
+
+        /**
+         * Creates a Flow.
+         *
+         * @param packet the packet that opened the flow
+         * @param ticks the ticks waited before the first retry
+         */
+        Flow(final NetworkPacket packet, final int ticks) {
+            first = packet;
+            wait = ticks;
+            left = ticks;
+        }
+    }
+}
@@ -39,6 +39,11 @@ public final class Stats implements FlowTableInterface {
      */
     public static final int SDN_WISE_RL_TTL_MAX = 254;
 
+    /**
+     * The maximum value of the usage counter.
+     */
+    public static final int COUNTER_MAX = 255;
+
     /**
      * Stats field indexes.
      */
@@ -49,6 +54,12 @@ public final class Stats implements FlowTableInterface {
      */
     private final byte[] stats = new byte[SIZE];
 
+    /**
+     * The stamp given by the FlowTable the last time the entry has been
+     * executed or added. This value is not sent to a node.
+     */
+    private volatile long lastHit;
+
     /**
      * Simple constructor for the FlowTableStats object.
      *
@@ -116,12 +127,38 @@ public final class Stats implements FlowTableInterface {
     }
 
     /**
-     * Increases the usage counter.
+     * Gets the last time the entry has been executed, counted by its
+     * FlowTable. Entries never executed report the time they were added. A
+     * FlowTable counts with its own counter instead of a clock, so that the
+     * order of the entries does not depend on the speed of the node.
+     *
+     * @return a stamp greater than the ones of the entries used before, 0 if
+     * the entry has never been in a FlowTable
+     */
+    public long getLastHit() {
+        return lastHit;
+    }
+
+    /**
+     * Sets the last time the entry has been executed.
+     *
+     * @param stamp the stamp given by the FlowTable
+     * @return the object itself
+     */
+    Stats setLastHit(final long stamp) {
+        lastHit = stamp;
+        return this;
+    }
+
+    /**
+     * Increases the usage counter, up to COUNTER_MAX.
      *
      * @return the object itself
      */
     public Stats increaseCounter() {
-        stats[COUNT_INDEX]++;
+        if (getCounter() < COUNTER_MAX) {
+            stats[COUNT_INDEX]++;
+        }
         return this;
     }
 
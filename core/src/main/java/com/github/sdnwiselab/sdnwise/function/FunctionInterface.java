@@ -16,7 +16,7 @@
  */
 package com.github.sdnwiselab.sdnwise.function;
 
-import com.github.sdnwiselab.sdnwise.flowtable.FlowTableEntry;
+import com.github.sdnwiselab.sdnwise.flowtable.FlowTable;
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
 import com.github.sdnwiselab.sdnwise.util.Neighbor;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
@@ -39,9 +39,11 @@ public interface FunctionInterface {
      * controller.
      *
      * @param adcRegister an HashMap containing measurement info.
-     * @param flowTable an ArrayList containing the FlowTable of the node.
+     * @param flowTable the FlowTable of the node. It can be changed while
+     * the node is matching packets.
      * @param neighborTable a Set containing the Neighbors table of the node.
-     * @param statusRegister an int[] containing the status of the node.
+     * @param statusRegister a fixed size ArrayList containing the status of
+     * the node. Changes made to the list are written in the status register.
      * @param acceptedId an ArrayList of NodeAddress containing the aliases for
      * the address of the node.
      * @param flowTableQueue messages added in this queue will be matched in the
@@ -52,7 +54,7 @@ public interface FunctionInterface {
      */
     void function(
             HashMap<String, Object> adcRegister,
-            List<FlowTableEntry> flowTable,
+            FlowTable flowTable,
             Set<Neighbor> neighborTable,
             ArrayList<Integer> statusRegister,
             List<NodeAddress> acceptedId,
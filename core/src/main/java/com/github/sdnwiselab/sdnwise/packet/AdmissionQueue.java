@@ -0,0 +1,476 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import com.github.sdnwiselab.sdnwise.packet.TxScheduler.TrafficClass;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * This Class holds the packets received by a node, with their RSSI, until
+ * the node handles them. Admission never blocks: when the node falls behind,
+ * packets are dropped according to a DropPolicy and counted by DropReason,
+ * so the thread receiving from the radio is never stalled.
+ * <p>
+ * A Listener can be notified when the queue rises above a high water mark
+ * and when it falls back below a low water mark.
+ * <p>
+ * The queue owns the packets it is given: a dropped packet is released to its
+ * PacketPool, if it has one. This class is thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AdmissionQueue {
+
+    /**
+     * What happens when a packet arrives and the node is overloaded.
+     */
+    public enum DropPolicy {
+        /**
+         * The arriving packet is dropped if the queue is full.
+         */
+        TAIL_DROP,
+        /**
+         * Random early detection: packets are dropped with a probability
+         * growing with the average length of the queue, before it is full.
+         */
+        RED,
+        /**
+         * If the queue is full, the oldest packet of the least important
+         * traffic class is dropped, provided it is not more important than
+         * the arriving one. Data is less important than beacons, beacons are
+         * less important than control packets.
+         */
+        DROP_OLDEST
+    }
+
+    /**
+     * Why a packet has been dropped.
+     */
+    public enum DropReason {
+        /**
+         * The queue was full.
+         */
+        FULL,
+        /**
+         * Dropped early by RED.
+         */
+        EARLY,
+        /**
+         * Evicted to make room for a more important or newer packet.
+         */
+        EVICTED
+    }
+
+    /**
+     * Receives the changes of the congestion state of a queue.
+     */
+    public interface Listener {
+
+        /**
+         * Called when the queue rises above the high water mark or falls
+         * below the low water mark.
+         *
+         * @param congested true if the high water mark has been reached
+         * @param size the number of packets in the queue
+         */
+        void onWaterMark(boolean congested, int size);
+    }
+
+    /**
+     * Weight of a new sample in the average length used by RED, as a power
+     * of two: each sample weighs 1/8.
+     */
+    private static final int AVG_SHIFT = 3;
+
+    /**
+     * The ring of queued packets and their RSSI.
+     */
+    private final NetworkPacket[] packets;
+
+    /**
+     * The RSSI of the queued packets.
+     */
+    private final int[] rssi;
+
+    /**
+     * Position of the first packet and number of packets.
+     */
+    private int head, count;
+
+    /**
+     * The drop policy.
+     */
+    private DropPolicy policy = DropPolicy.TAIL_DROP;
+
+    /**
+     * RED thresholds, in packets.
+     */
+    private int minThreshold, maxThreshold;
+
+    /**
+     * RED maximum drop probability.
+     */
+    private double maxProbability;
+
+    /**
+     * The average length of the queue, with AVG_SHIFT fractional bits.
+     */
+    private int avg;
+
+    /**
+     * Random numbers for RED.
+     */
+    private final Random random = new Random();
+
+    /**
+     * The water marks.
+     */
+    private int highWater, lowWater;
+
+    /**
+     * The listener of the water marks, or null.
+     */
+    private Listener listener;
+
+    /**
+     * True if the high water mark has been reached and the low one has not
+     * been reached since.
+     */
+    private boolean congested;
+
+    /**
+     * The number of packets dropped for each reason.
+     */
+    private final AtomicLongArray dropped =
+            new AtomicLongArray(DropReason.values().length);
+
+    /**
+     * Creates an AdmissionQueue using TAIL_DROP. RED thresholds default to
+     * 1/4 and 3/4 of the capacity with a maximum probability of 0.1.
+     *
+     * @param capacity the maximum number of packets
+     */
+    public AdmissionQueue(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: "
+                    + capacity);
+        }
+        packets = new NetworkPacket[capacity];
+        rssi = new int[capacity];
+        minThreshold = capacity / 4;
+        maxThreshold = Math.max(minThreshold + 1, capacity * 3 / 4);
+        maxProbability = 0.1;
+        highWater = capacity;
+        lowWater = capacity / 2;
+    }
+
+    /**
+     * Queues a received packet, without blocking.
+     *
+     * @param np the packet
+     * @param r the RSSI of the packet
+     * @return false if the packet has been dropped
+     */
+    public boolean offer(final NetworkPacket np, final int r) {
+        NetworkPacket victim = null;
+        DropReason reason = null;
+        Listener l = null;
+        int size;
+        synchronized (this) {
+            avg += ((count << AVG_SHIFT) - avg) >> AVG_SHIFT;
+            if (count == packets.length) {
+                int k = policy == DropPolicy.DROP_OLDEST ? victim(np) : -1;
+                if (k < 0) {
+                    reason = DropReason.FULL;
+                } else {
+                    victim = removeAt(k);
+                }
+            } else if (policy == DropPolicy.RED && earlyDrop()) {
+                reason = DropReason.EARLY;
+            }
+            if (reason == null) {
+                int tail = (head + count) % packets.length;
+                packets[tail] = np;
+                rssi[tail] = r;
+                count++;
+                notifyAll();
+                if (!congested && count >= highWater) {
+                    congested = true;
+                    l = listener;
+                }
+            }
+            size = count;
+        }
+        if (victim != null) {
+            drop(victim, DropReason.EVICTED);
+        }
+        if (reason != null) {
+            drop(np, reason);
+            return false;
+        }
+        if (l != null) {
+            l.onWaterMark(true, size);
+        }
+        return true;
+    }
+
+    /**
+     * Drops a packet that was not queued, counting it as dropped for a
+     * reason, for example because another queue on its way was full.
+     *
+     * @param np the packet
+     * @param reason the reason of the drop
+     */
+    public void drop(final NetworkPacket np, final DropReason reason) {
+        dropped.incrementAndGet(reason.ordinal());
+        PacketPool p = np.pool;
+        if (p != null) {
+            p.release(np);
+        }
+    }
+
+    /**
+     * Handles the first packet of the queue, without waiting. The handler is
+     * called outside the lock of the queue.
+     *
+     * @param handler receives the packet and its RSSI
+     * @return false if the queue was empty
+     */
+    public boolean poll(final ObjIntConsumer<NetworkPacket> handler) {
+        NetworkPacket np;
+        int r;
+        Listener l;
+        int size;
+        synchronized (this) {
+            if (count == 0) {
+                return false;
+            }
+            r = rssi[head];
+            np = removeAt(0);
+            size = count;
+            l = leaveCongestion();
+        }
+        if (l != null) {
+            l.onWaterMark(false, size);
+        }
+        handler.accept(np, r);
+        return true;
+    }
+
+    /**
+     * Handles the first packet of the queue, waiting if the queue is empty.
+     * The handler is called outside the lock of the queue.
+     *
+     * @param handler receives the packet and its RSSI
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void take(final ObjIntConsumer<NetworkPacket> handler)
+            throws InterruptedException {
+        do {
+            synchronized (this) {
+                while (count == 0) {
+                    wait();
+                }
+            }
+        } while (!poll(handler));
+    }
+
+    /**
+     * Checks if the queue is empty.
+     *
+     * @return true if there are no packets
+     */
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Gets the number of queued packets.
+     *
+     * @return the number of packets
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Gets the maximum number of queued packets.
+     *
+     * @return the capacity of the queue
+     */
+    public int getCapacity() {
+        return packets.length;
+    }
+
+    /**
+     * Gets the number of packets dropped for a reason.
+     *
+     * @param reason the reason of the drop
+     * @return the number of packets dropped so far
+     */
+    public long getDropped(final DropReason reason) {
+        return dropped.get(reason.ordinal());
+    }
+
+    /**
+     * Gets the drop policy.
+     *
+     * @return the drop policy
+     */
+    public synchronized DropPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Sets the drop policy.
+     *
+     * @param p the drop policy
+     * @return this AdmissionQueue
+     */
+    public synchronized AdmissionQueue setPolicy(final DropPolicy p) {
+        if (p == null) {
+            throw new IllegalArgumentException("Invalid policy: null");
+        }
+        policy = p;
+        return this;
+    }
+
+    /**
+     * Sets the parameters of RED. Below the minimum threshold no packet is
+     * dropped early, above the maximum one every packet is.
+     *
+     * @param min the minimum threshold of the average length
+     * @param max the maximum threshold of the average length
+     * @param probability the drop probability at the maximum threshold
+     * @return this AdmissionQueue
+     */
+    public synchronized AdmissionQueue setRed(final int min, final int max,
+            final double probability) {
+        if (min < 0 || max <= min || max > packets.length) {
+            throw new IllegalArgumentException("Invalid thresholds: " + min
+                    + ", " + max);
+        }
+        if (!(probability > 0 && probability <= 1)) {
+            throw new IllegalArgumentException("Invalid probability: "
+                    + probability);
+        }
+        minThreshold = min;
+        maxThreshold = max;
+        maxProbability = probability;
+        return this;
+    }
+
+    /**
+     * Sets the water marks and their listener.
+     *
+     * @param high the length at which the queue becomes congested
+     * @param low the length at which the queue is no longer congested
+     * @param l the listener, or null
+     * @return this AdmissionQueue
+     */
+    public synchronized AdmissionQueue setWaterMarks(final int high,
+            final int low, final Listener l) {
+        if (low < 0 || high <= low || high > packets.length) {
+            throw new IllegalArgumentException("Invalid water marks: " + high
+                    + ", " + low);
+        }
+        highWater = high;
+        lowWater = low;
+        listener = l;
+        return this;
+    }
+
+    /**
+     * Decides if RED drops the arriving packet when the queue is not full.
+     * Called holding the lock.
+     *
+     * @return true if the packet must be dropped
+     */
+    private boolean earlyDrop() {
+        int min = minThreshold << AVG_SHIFT;
+        int max = maxThreshold << AVG_SHIFT;
+        if (avg < min) {
+            return false;
+        }
+        if (avg >= max) {
+            return true;
+        }
+        return random.nextDouble()
+                < maxProbability * (avg - min) / (max - min);
+    }
+
+    /**
+     * Finds the packet to evict with DROP_OLDEST. Called holding the lock.
+     *
+     * @param np the arriving packet
+     * @return the position of the packet to evict, or -1 if there is none
+     */
+    private int victim(final NetworkPacket np) {
+        int arriving = TxScheduler.classify(np).ordinal();
+        int best = -1, bestClass = arriving - 1;
+        for (int k = 0; k < count; k++) {
+            int c = TxScheduler.classify(
+                    packets[(head + k) % packets.length]).ordinal();
+            if (c > bestClass) {
+                best = k;
+                bestClass = c;
+                if (c == TrafficClass.DATA.ordinal()) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Removes a packet from the ring. Called holding the lock.
+     *
+     * @param k the position of the packet, starting from the first one
+     * @return the packet
+     */
+    private NetworkPacket removeAt(final int k) {
+        int n = packets.length;
+        int at = (head + k) % n;
+        NetworkPacket np = packets[at];
+        for (int j = k; j > 0; j--) {
+            int to = (head + j) % n;
+            int from = (head + j - 1) % n;
+            packets[to] = packets[from];
+            rssi[to] = rssi[from];
+        }
+        packets[head] = null;
+        head = (head + 1) % n;
+        count--;
+        return np;
+    }
+
+    /**
+     * Checks if the queue has just left the congested state. Called holding
+     * the lock.
+     *
+     * @return the listener to notify, or null
+     */
+    private Listener leaveCongestion() {
+        if (congested && count <= lowWater) {
+            congested = false;
+            return listener;
+        }
+        return null;
+    }
+}
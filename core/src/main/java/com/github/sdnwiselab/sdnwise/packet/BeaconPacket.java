@@ -60,7 +60,7 @@ public class BeaconPacket extends NetworkPacket {
      * @param data the NetworkPacket representing the beacon packet
      */
     public BeaconPacket(final NetworkPacket data) {
-        super(data.toByteArray());
+        super(data);
     }
 
     /**
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a flyweight view of a Beacon packet.
+ *
+ * @author Sebastiano Milardo
+ */
+public class BeaconPacketView extends PacketView {
+
+    /**
+     * Distance is at payload position 0, the residual charge at position 1.
+     */
+    private static final byte DIST_INDEX = 0,
+            BATT_INDEX = 1;
+
+    /**
+     * Creates a view of a Beacon packet starting at the given index of the
+     * buffer.
+     *
+     * @param b the buffer containing the packet
+     * @param off the index of the first byte of the packet
+     */
+    public BeaconPacketView(final ByteBuffer b, final int off) {
+        super(b, off);
+    }
+
+    /**
+     * Re-interprets a view as a Beacon packet.
+     *
+     * @param other the view sharing the buffer
+     */
+    BeaconPacketView(final PacketView other) {
+        super(other);
+    }
+
+    /**
+     * Getter for the number of hops between the source node and the sink.
+     *
+     * @return the number of hops between the source node and the sink
+     */
+    public final int getDistance() {
+        return Byte.toUnsignedInt(getPayloadAt(DIST_INDEX));
+    }
+
+    /**
+     * Returns an estimation of the residual charge of the batteries of the
+     * node. The possible values are: [0x00-0xFF] 0x00 = no charge, 0xFF = full
+     * charge.
+     *
+     * @return an estimation of the residual charge of the batteries of the node
+     */
+    public final int getBattery() {
+        return Byte.toUnsignedInt(getPayloadAt(BATT_INDEX));
+    }
+
+    /**
+     * Get the address of the sink to which this node is connected.
+     *
+     * @return the address of the sink
+     */
+    public final NodeAddress getSinkAddress() {
+        return getNxh();
+    }
+}
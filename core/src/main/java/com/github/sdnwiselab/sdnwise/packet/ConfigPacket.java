@@ -64,7 +64,7 @@ public class ConfigPacket extends NetworkPacket {
      * @param data the NetworkPacket representing the beacon packet
      */
     public ConfigPacket(final NetworkPacket data) {
-        super(data.toByteArray());
+        super(data);
     }
 
     /**
@@ -52,7 +52,7 @@ public class DataPacket extends NetworkPacket {
      * @param data the NetworkPacket representing the data packet.
      */
     public DataPacket(final NetworkPacket data) {
-        super(data.toByteArray());
+        super(data);
     }
 
     /**
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a flyweight view of a Data packet. It reads the payload
+ * directly from the buffer of the view.
+ *
+ * @author Sebastiano Milardo
+ */
+public class DataPacketView extends PacketView {
+
+    /**
+     * Creates a view of a Data packet starting at the given index of the
+     * buffer.
+     *
+     * @param b the buffer containing the packet
+     * @param off the index of the first byte of the packet
+     */
+    public DataPacketView(final ByteBuffer b, final int off) {
+        super(b, off);
+    }
+
+    /**
+     * Re-interprets a view as a Data packet.
+     *
+     * @param other the view sharing the buffer
+     */
+    DataPacketView(final PacketView other) {
+        super(other);
+    }
+
+    /**
+     * Copies the payload of the packet in a byte array.
+     *
+     * @param dst the destination array
+     * @param pos the starting position in the destination array
+     * @return the number of bytes copied
+     */
+    public final int copyData(final byte[] dst, final int pos) {
+        int size = getPayloadSize();
+        for (int i = 0; i < size; i++) {
+            dst[pos + i] = getPayloadAt(i);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the payload of the packet as a byte array.
+     *
+     * @return a copy of the payload of the packet
+     */
+    public final byte[] getData() {
+        byte[] tmp = new byte[getPayloadSize()];
+        copyData(tmp, 0);
+        return tmp;
+    }
+}
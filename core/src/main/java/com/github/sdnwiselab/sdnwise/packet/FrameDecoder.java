@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.LEN_INDEX;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.MAX_PACKET_LENGTH;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This Class decodes the packets contained in a stream of bytes, like the one
+ * coming from a serial port or from Cooja. Each packet is framed as:
+ * <pre>
+ * START_BYTE | NET | LEN | ... LEN - 2 bytes ... | STOP_BYTE
+ * </pre>
+ * The bytes are kept in a fixed ring buffer, filled with bulk reads. When a
+ * frame does not end with the stop byte, only its start byte is discarded and
+ * the search of the next start byte resumes from the following byte, so a
+ * valid frame hidden inside a corrupted one is not lost.
+ * <p>
+ * A FrameDecoder keeps the state of a single stream and is not thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class FrameDecoder {
+
+    /**
+     * Default framing bytes.
+     */
+    public static final byte START_BYTE = 0x7A, STOP_BYTE = 0x7E;
+
+    /**
+     * Length of a frame containing the longest packet.
+     */
+    private static final int MAX_FRAME_LENGTH = MAX_PACKET_LENGTH + 2;
+
+    /**
+     * Default and minimum capacity of the ring buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 4096,
+            MIN_CAPACITY = Integer.highestOneBit(MAX_FRAME_LENGTH - 1) << 1;
+
+    /**
+     * Position of the length in a frame.
+     */
+    private static final int FRAME_LEN_INDEX = LEN_INDEX + 1;
+
+    /**
+     * Framing bytes.
+     */
+    private final byte startByte, stopByte;
+
+    /**
+     * The ring buffer. Its length is a power of two.
+     */
+    private final byte[] ring;
+
+    /**
+     * Position of the first buffered byte and number of buffered bytes.
+     */
+    private int head, count;
+
+    /**
+     * Number of bytes discarded while looking for a valid frame.
+     */
+    private long discarded;
+
+    /**
+     * Creates a FrameDecoder using the default framing bytes and capacity.
+     */
+    public FrameDecoder() {
+        this(START_BYTE, STOP_BYTE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a FrameDecoder using the default capacity.
+     *
+     * @param start the byte starting a frame
+     * @param stop the byte ending a frame
+     */
+    public FrameDecoder(final byte start, final byte stop) {
+        this(start, stop, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a FrameDecoder.
+     *
+     * @param start the byte starting a frame
+     * @param stop the byte ending a frame
+     * @param capacity the size of the ring buffer, a power of two able to
+     * contain the longest frame
+     */
+    public FrameDecoder(final byte start, final byte stop,
+            final int capacity) {
+        if (capacity < MAX_FRAME_LENGTH || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Invalid capacity: "
+                    + capacity);
+        }
+        startByte = start;
+        stopByte = stop;
+        ring = new byte[capacity];
+    }
+
+    /**
+     * Gets the number of bytes waiting to be decoded.
+     *
+     * @return the number of buffered bytes
+     */
+    public int available() {
+        return count;
+    }
+
+    /**
+     * Discards all the buffered bytes.
+     */
+    public void clear() {
+        head = 0;
+        count = 0;
+    }
+
+    /**
+     * Reads from an InputStream into the free space of the buffer. It blocks
+     * only if the stream blocks and performs at most one read.
+     *
+     * @param in the InputStream
+     * @return the number of bytes read, or -1 at the end of the stream
+     * @throws IOException if the stream throws it
+     */
+    public int fill(final InputStream in) throws IOException {
+        if (count == ring.length) {
+            return 0;
+        }
+        int tail = (head + count) & (ring.length - 1);
+        int contiguous = tail >= head ? ring.length - tail : head - tail;
+        int n = in.read(ring, tail, contiguous);
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+
+    /**
+     * Gets the number of bytes discarded so far because they did not belong
+     * to a valid frame.
+     *
+     * @return the number of discarded bytes
+     */
+    public long getDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * Decodes the next complete frame. The packet, without the framing bytes,
+     * is copied at the beginning of dst.
+     *
+     * @param dst the destination array, at least MAX_PACKET_LENGTH long
+     * @return the length of the packet, or 0 if no complete frame is buffered
+     */
+    public int next(final byte[] dst) {
+        if (dst.length < MAX_PACKET_LENGTH) {
+            throw new IllegalArgumentException("Destination too short: "
+                    + dst.length);
+        }
+        while (count > 0) {
+            if (at(0) != startByte) {
+                skip(1);
+                discarded++;
+                continue;
+            }
+            if (count <= FRAME_LEN_INDEX) {
+                return 0;
+            }
+            int len = Byte.toUnsignedInt(at(FRAME_LEN_INDEX));
+            if (len < FRAME_LEN_INDEX || len > MAX_PACKET_LENGTH) {
+                skip(1);
+                discarded++;
+                continue;
+            }
+            if (count < len + 2) {
+                return 0;
+            }
+            if (at(len + 1) != stopByte) {
+                skip(1);
+                discarded++;
+                continue;
+            }
+            copy(1, dst, len);
+            skip(len + 2);
+            return len;
+        }
+        return 0;
+    }
+
+    /**
+     * Copies a byte in the buffer.
+     *
+     * @param b the byte
+     * @return false if the buffer is full and the byte was not copied
+     */
+    public boolean put(final byte b) {
+        if (count == ring.length) {
+            return false;
+        }
+        ring[(head + count) & (ring.length - 1)] = b;
+        count++;
+        return true;
+    }
+
+    /**
+     * Copies bytes in the buffer. If they do not fit, the remaining ones are
+     * not copied.
+     *
+     * @param src the source array
+     * @param off the offset of the first byte in src
+     * @param len the number of bytes to copy
+     * @return the number of bytes copied
+     */
+    public int put(final byte[] src, final int off, final int len) {
+        int n = Math.min(len, ring.length - count);
+        int tail = (head + count) & (ring.length - 1);
+        int first = Math.min(n, ring.length - tail);
+        System.arraycopy(src, off, ring, tail, first);
+        System.arraycopy(src, off + first, ring, 0, n - first);
+        count += n;
+        return n;
+    }
+
+    /**
+     * Reads the next packet from an InputStream, blocking until a complete
+     * frame has been received. Bytes following the frame are kept for the
+     * next call, so the same FrameDecoder must be used for the whole stream.
+     *
+     * @param in the InputStream
+     * @param dst the destination array, at least MAX_PACKET_LENGTH long
+     * @return the length of the packet, or -1 at the end of the stream
+     * @throws IOException if the stream throws it
+     */
+    public int read(final InputStream in, final byte[] dst)
+            throws IOException {
+        int len;
+        while ((len = next(dst)) == 0) {
+            if (fill(in) < 0) {
+                return -1;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Gets a buffered byte.
+     *
+     * @param i the position of the byte, starting from the first buffered one
+     * @return the byte
+     */
+    private byte at(final int i) {
+        return ring[(head + i) & (ring.length - 1)];
+    }
+
+    /**
+     * Copies buffered bytes to an array.
+     *
+     * @param from the position of the first byte, starting from the first
+     * buffered one
+     * @param dst the destination array
+     * @param len the number of bytes
+     */
+    private void copy(final int from, final byte[] dst, final int len) {
+        int start = (head + from) & (ring.length - 1);
+        int first = Math.min(len, ring.length - start);
+        System.arraycopy(ring, start, dst, 0, first);
+        System.arraycopy(ring, 0, dst, first, len - first);
+    }
+
+    /**
+     * Discards buffered bytes.
+     *
+     * @param n the number of bytes to discard
+     */
+    private void skip(final int n) {
+        head = (head + n) & (ring.length - 1);
+        count -= n;
+    }
+}
@@ -21,8 +21,8 @@ import com.github.sdnwiselab.sdnwise.util.NodeAddress;
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.LinkedList;
 
 /**
  * This class represents a generic SDN-WISE packet.
@@ -75,6 +75,22 @@ public class NetworkPacket implements Cloneable {
      */
     private final byte[] data;
 
+    /**
+     * The PacketPool owning this packet, or null if the packet is not pooled.
+     * This field and the following ones are managed by the PacketPool.
+     */
+    PacketPool pool;
+
+    /**
+     * True while a pooled packet is acquired.
+     */
+    boolean acquired;
+
+    /**
+     * Tracks a pooled packet while acquired, in debug mode only.
+     */
+    Object leakTracker;
+
     /**
      * NET values less than 63 are SDN-WISE.
      */
@@ -154,6 +170,25 @@ public class NetworkPacket implements Cloneable {
         setArray(d);
     }
 
+    /**
+     * Creates an empty NetworkPacket to be filled by a PacketPool.
+     */
+    NetworkPacket() {
+        data = new byte[MAX_PACKET_LENGTH];
+    }
+
+    /**
+     * Returns a NetworkPacket copying the content of another NetworkPacket.
+     * Only the first getLen() bytes are copied, with a single array copy. The
+     * copy is never pooled.
+     *
+     * @param np the NetworkPacket to be copied
+     */
+    public NetworkPacket(final NetworkPacket np) {
+        data = new byte[MAX_PACKET_LENGTH];
+        System.arraycopy(np.data, 0, data, 0, np.getLen());
+    }
+
     /**
      * Creates an empty NetworkPacket. The TTL and LEN values are set to
      * default.
@@ -206,67 +241,63 @@ public class NetworkPacket implements Cloneable {
     /**
      * Returns a NetworkPacket given a BufferedInputStream. It supports
      * streams where there could be bytes not belonging to a packet or
-     * malformed packets.
+     * malformed packets. The stream is read one byte at a time so that the
+     * bytes following the packet are left in the stream: to read a sequence of
+     * packets use a {@link FrameDecoder} instead.
      *
      * @param bis the BufferedInputStream
+     * @throws IOException if the stream throws it
      */
     public NetworkPacket(final BufferedInputStream bis) throws IOException {
         data = new byte[MAX_PACKET_LENGTH];
-        boolean startFlag = false;
-        boolean idFlag = false;
-        boolean found = false;
-        int expected = 0;
+        final FrameDecoder decoder = new FrameDecoder(FrameDecoder.START_BYTE,
+                FrameDecoder.STOP_BYTE, FrameDecoder.MIN_CAPACITY);
+        final byte[] frame = new byte[MAX_PACKET_LENGTH];
         int b;
-        byte a;
-        final LinkedList<Byte> receivedBytes = new LinkedList<>();
-        final LinkedList<Byte> packet = new LinkedList<>();
-        byte startByte = 0x7A;
-        byte stopByte = 0x7E;
-
-
-        while (!found && (b = bis.read()) != -1) {
-            receivedBytes.add((byte) b);
-            while (!receivedBytes.isEmpty()) {
-                a = receivedBytes.poll();
-                if (!startFlag && a == startByte) {
-                    startFlag = true;
-                    packet.add(a);
-                } else if (startFlag && !idFlag) {
-                    packet.add(a);
-                    idFlag = true;
-                } else if (startFlag && idFlag && expected == 0) {
-                    expected = Byte.toUnsignedInt(a);
-                    packet.add(a);
-                } else if (startFlag && idFlag && expected > 0
-                        && packet.size() < expected + 1) {
-                    packet.add(a);
-                } else if (startFlag && idFlag && expected > 0
-                        && packet.size() == expected + 1) {
-                    packet.add(a);
-                    if (a == stopByte) {
-                        packet.removeFirst();
-                        packet.removeLast();
-                        byte[] tmpData = new byte[packet.size()];
-                        for (int i = 0; i < tmpData.length; i++) {
-                            tmpData[i] = packet.poll();
-                        }
-                        setArray(tmpData);
-                        found = true;
-                        break;
-                    } else {
-                        while (!packet.isEmpty()) {
-                            receivedBytes.addFirst(packet.removeLast());
-                        }
-                        receivedBytes.poll();
-                    }
-                    startFlag = false;
-                    idFlag = false;
-                    expected = 0;
-                }
+        while ((b = bis.read()) != -1) {
+            decoder.put((byte) b);
+            int len = decoder.next(frame);
+            if (len > 0) {
+                setArray(Arrays.copyOf(frame, len));
+                break;
             }
         }
     }
 
+    /**
+     * Fills the NetworkPacket with a portion of a byte array, as
+     * setArray(byte[]) does with a whole array, without allocating.
+     *
+     * @param src the array containing the packet
+     * @param off the offset of the packet in src
+     * @param len the number of bytes available in src
+     */
+    final void load(final byte[] src, final int off, final int len) {
+        if (len <= 0 || Byte.toUnsignedInt(src[off + NET_INDEX]) < THRES
+                && (len > MAX_PACKET_LENGTH || len < DFLT_HDR_LEN)) {
+            throw new IllegalArgumentException("Invalid array size: " + len);
+        }
+        int n = Math.min(len, MAX_PACKET_LENGTH);
+        System.arraycopy(src, off, data, 0, n);
+        Arrays.fill(data, n, MAX_PACKET_LENGTH, (byte) 0);
+        if (isSdnWise()) {
+            int l = getLen();
+            if (l < DFLT_HDR_LEN) {
+                throw new IllegalArgumentException("Invalid length: " + l);
+            }
+            if (l < n) {
+                Arrays.fill(data, l, n, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Clears the content of the NetworkPacket.
+     */
+    final void reset() {
+        Arrays.fill(data, (byte) 0);
+    }
+
     /**
      * Fills the NetworkPacket with the content of an int array. Each element of
      * the array is casted to byte.
@@ -294,8 +325,15 @@ public class NetworkPacket implements Cloneable {
                 setTyp(array[TYP_INDEX]);
                 setTtl(array[TTL_INDEX]);
                 setNxh(array[NXH_INDEX], array[NXH_INDEX + 1]);
-                setPayload(Arrays.copyOfRange(array, DFLT_HDR_LEN,
-                        getLen()));
+                int len = getLen();
+                if (len < DFLT_HDR_LEN) {
+                    throw new IllegalArgumentException("Invalid length: "
+                            + len);
+                }
+                int available = Math.min(len, array.length);
+                System.arraycopy(array, DFLT_HDR_LEN, data, DFLT_HDR_LEN,
+                        available - DFLT_HDR_LEN);
+                Arrays.fill(data, available, len, (byte) 0);
             } else {
                 throw new IllegalArgumentException("Invalid array size: "
                         + array.length);
@@ -305,6 +343,53 @@ public class NetworkPacket implements Cloneable {
         }
     }
 
+    /**
+     * Gets a byte of the packet, without copying the packet.
+     *
+     * @param i the index of the byte
+     * @return the byte at position i
+     * @throws IndexOutOfBoundsException if i is negative or not less than
+     * getLen()
+     */
+    public final byte get(final int i) {
+        int len = getLen();
+        if (i < 0 || i >= len) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Length: "
+                    + len);
+        }
+        return data[i];
+    }
+
+    /**
+     * Sets a byte of the packet in place. If the length of an SDN-WISE packet
+     * is increased, the bytes added to the packet are set to 0, as
+     * setArray does.
+     *
+     * @param i the index of the byte
+     * @param value the new value of the byte
+     * @return the packet itself
+     * @throws IndexOutOfBoundsException if i is negative or not less than
+     * getLen()
+     */
+    public final NetworkPacket put(final int i, final byte value) {
+        int len = getLen();
+        if (i < 0 || i >= len) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Length: "
+                    + len);
+        }
+        if (i == LEN_INDEX && isSdnWise()) {
+            int v = Byte.toUnsignedInt(value);
+            if (v < DFLT_HDR_LEN || v > MAX_PACKET_LENGTH) {
+                throw new IllegalArgumentException("Invalid length: " + v);
+            }
+            if (v > len) {
+                Arrays.fill(data, len, v, (byte) 0);
+            }
+        }
+        data[i] = value;
+        return this;
+    }
+
     /**
      * Returns the length of the message.
      *
@@ -360,7 +445,7 @@ public class NetworkPacket implements Cloneable {
      * @return the NodeAddress of the source node
      */
     public final NodeAddress getSrc() {
-        return new NodeAddress(data[SRC_INDEX], data[SRC_INDEX + 1]);
+        return NodeAddress.valueOf(data[SRC_INDEX], data[SRC_INDEX + 1]);
     }
 
     /**
@@ -393,7 +478,7 @@ public class NetworkPacket implements Cloneable {
      * @return the NodeAddress of the destination node
      */
     public final NodeAddress getDst() {
-        return new NodeAddress(data[DST_INDEX], data[DST_INDEX + 1]);
+        return NodeAddress.valueOf(data[DST_INDEX], data[DST_INDEX + 1]);
     }
 
     /**
@@ -481,7 +566,7 @@ public class NetworkPacket implements Cloneable {
      * @return the NodeAddress of the the next hop towards the destination node
      */
     public final NodeAddress getNxh() {
-        return new NodeAddress(data[NXH_INDEX], data[NXH_INDEX + 1]);
+        return NodeAddress.valueOf(data[NXH_INDEX], data[NXH_INDEX + 1]);
     }
 
     /**
@@ -560,6 +645,17 @@ public class NetworkPacket implements Cloneable {
         return tmp;
     }
 
+    /**
+     * Returns a view over the content of this NetworkPacket. The view shares
+     * the storage of the packet, therefore no bytes are copied and changes
+     * made through the view are visible in the packet and vice versa.
+     *
+     * @return a PacketView backed by this packet
+     */
+    public final PacketView view() {
+        return PacketView.wrap(ByteBuffer.wrap(data));
+    }
+
     @Override
     public final NetworkPacket clone() throws CloneNotSupportedException {
         super.clone();
@@ -80,7 +80,7 @@ public class OpenPathPacket extends NetworkPacket {
      * @param data the NetworkPacket representing the open path packet.
      */
     public OpenPathPacket(final NetworkPacket data) {
-        super(data.toByteArray());
+        super(data);
     }
 
     /**
@@ -116,7 +116,7 @@ public class OpenPathPacket extends NetworkPacket {
         byte[] payload = getPayload();
         int p = (getPayloadAt(WINDOWS_SIZE_INDEX) * Window.SIZE) + 1;
         for (int i = p; i < payload.length - 1; i += 2) {
-            list.add(new NodeAddress(payload[i], payload[i + 1]));
+            list.add(NodeAddress.valueOf(payload[i], payload[i + 1]));
         }
         return list;
     }
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This Class recycles NetworkPackets. A packet obtained with acquire must be
+ * given back with release once it is no longer referenced, so that its
+ * buffer can be reused for another packet. Packets that are never released
+ * are simply collected by the garbage collector.
+ * <p>
+ * Releasing a packet that was not acquired from the pool has no effect, so
+ * the consumers of a queue can release every packet they take, whether it
+ * is pooled or not. Releasing a pooled packet twice throws an
+ * IllegalStateException.
+ * <p>
+ * In debug mode the pool records where each packet was acquired and logs a
+ * warning when a packet is collected without being released. The default
+ * pool runs in debug mode if the system property {@value #DEBUG_PROPERTY} is
+ * true.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class PacketPool {
+
+    /**
+     * Default number of free packets kept by a pool.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * System property enabling the debug mode of the default pool.
+     */
+    public static final String DEBUG_PROPERTY = "sdnwise.packetpool.debug";
+
+    /**
+     * To avoid garbage collection of the logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger("POOL");
+
+    /**
+     * The pool shared by the whole JVM.
+     */
+    private static final PacketPool DEFAULT = new PacketPool(DEFAULT_CAPACITY,
+            Boolean.getBoolean(DEBUG_PROPERTY));
+
+    /**
+     * The free packets.
+     */
+    private final ArrayBlockingQueue<NetworkPacket> free;
+
+    /**
+     * True if leak detection is enabled.
+     */
+    private final boolean debug;
+
+    /**
+     * The trackers of the acquired packets, in debug mode.
+     */
+    private final Set<LeakTracker> tracked = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Where the garbage collector enqueues the trackers of collected packets.
+     */
+    private final ReferenceQueue<NetworkPacket> collected =
+            new ReferenceQueue<>();
+
+    /**
+     * Statistics.
+     */
+    private final AtomicLong created = new AtomicLong(),
+            leaks = new AtomicLong();
+
+    /**
+     * Creates a PacketPool without leak detection.
+     *
+     * @param capacity the maximum number of free packets kept by the pool
+     */
+    public PacketPool(final int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Creates a PacketPool.
+     *
+     * @param capacity the maximum number of free packets kept by the pool
+     * @param dbg true to enable leak detection
+     */
+    public PacketPool(final int capacity, final boolean dbg) {
+        free = new ArrayBlockingQueue<>(capacity);
+        debug = dbg;
+    }
+
+    /**
+     * Gets the pool shared by the whole JVM.
+     *
+     * @return the default PacketPool
+     */
+    public static PacketPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets an empty packet from the pool. All its bytes are 0.
+     *
+     * @return a pooled NetworkPacket
+     */
+    public NetworkPacket acquire() {
+        NetworkPacket np = take();
+        np.reset();
+        return np;
+    }
+
+    /**
+     * Gets a packet from the pool and fills it with a portion of a byte
+     * array, as the NetworkPacket(byte[]) constructor does with a whole
+     * array.
+     *
+     * @param src the array containing the packet
+     * @param off the offset of the packet in src
+     * @param len the number of bytes available in src
+     * @return a pooled NetworkPacket
+     */
+    public NetworkPacket acquire(final byte[] src, final int off,
+            final int len) {
+        NetworkPacket np = take();
+        try {
+            np.load(src, off, len);
+        } catch (RuntimeException ex) {
+            release(np);
+            throw ex;
+        }
+        return np;
+    }
+
+    /**
+     * Gives a packet back to the pool. Packets not belonging to this pool
+     * are ignored.
+     *
+     * @param np the packet
+     * @return true if the packet belongs to this pool
+     * @throws IllegalStateException if the packet is already released
+     */
+    public boolean release(final NetworkPacket np) {
+        if (np.pool != this) {
+            return false;
+        }
+        if (!np.acquired) {
+            throw new IllegalStateException("Packet released twice");
+        }
+        np.acquired = false;
+        if (np.leakTracker != null) {
+            LeakTracker t = (LeakTracker) np.leakTracker;
+            tracked.remove(t);
+            t.clear();
+            np.leakTracker = null;
+        }
+        if (!free.offer(np)) {
+            np.pool = null;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a packet belongs to this pool.
+     *
+     * @param np the packet
+     * @return true if the packet belongs to this pool
+     */
+    public boolean isPooled(final NetworkPacket np) {
+        return np.pool == this;
+    }
+
+    /**
+     * Gets the number of free packets in the pool.
+     *
+     * @return the number of free packets
+     */
+    public int getAvailable() {
+        return free.size();
+    }
+
+    /**
+     * Gets the number of packets created by the pool.
+     *
+     * @return the number of packets created
+     */
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Gets the number of packets collected without being released. Always 0
+     * if the pool is not in debug mode.
+     *
+     * @return the number of leaked packets detected so far
+     */
+    public long getLeaks() {
+        reportLeaks();
+        return leaks.get();
+    }
+
+    /**
+     * Checks if the pool is in debug mode.
+     *
+     * @return true if leak detection is enabled
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Gets a free packet, or creates a new one, and marks it as acquired.
+     *
+     * @return the packet
+     */
+    private NetworkPacket take() {
+        NetworkPacket np = free.poll();
+        if (np == null) {
+            np = new NetworkPacket();
+            np.pool = this;
+            created.incrementAndGet();
+        }
+        np.acquired = true;
+        if (debug) {
+            reportLeaks();
+            LeakTracker t = new LeakTracker(np, collected);
+            tracked.add(t);
+            np.leakTracker = t;
+        }
+        return np;
+    }
+
+    /**
+     * Logs the packets collected without being released.
+     */
+    private void reportLeaks() {
+        Reference<? extends NetworkPacket> ref;
+        while ((ref = collected.poll()) != null) {
+            if (tracked.remove(ref)) {
+                leaks.incrementAndGet();
+                LOGGER.log(Level.WARNING, "NetworkPacket not released",
+                        ((LeakTracker) ref).site);
+            }
+        }
+    }
+
+    /**
+     * Records where a pooled packet was acquired.
+     */
+    private static final class LeakTracker
+            extends PhantomReference<NetworkPacket> {
+
+        /**
+         * The stack trace of the acquisition.
+         */
+        private final Throwable site;
+
+        /**
+         * Creates a LeakTracker.
+         *
+         * @param np the acquired packet
+         * @param q the queue notified when the packet is collected
+         */
+        LeakTracker(final NetworkPacket np,
+                final ReferenceQueue<NetworkPacket> q) {
+            super(np, q);
+            site = new Throwable("Acquired here");
+        }
+    }
+}
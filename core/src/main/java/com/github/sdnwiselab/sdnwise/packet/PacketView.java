@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.DFLT_HDR_LEN;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.DST_INDEX;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.LEN_INDEX;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.MAX_PACKET_LENGTH;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.NET_INDEX;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.NXH_INDEX;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.SRC_INDEX;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.THRES;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.TTL_INDEX;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.TYP_INDEX;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a flyweight view of an SDN-WISE packet. Differently from a
+ * NetworkPacket, a PacketView does not own its bytes: header and payload
+ * fields are read and written directly on a ByteBuffer supplied by the caller,
+ * starting at a given offset. The buffer can be a heap or a direct buffer and
+ * its position and limit are never modified by the view.
+ * <p>
+ * Typed views (e.g. {@link #asReport()}) re-interpret the same bytes, so that
+ * a packet received in a buffer can be inspected without being copied.
+ *
+ * @author Sebastiano Milardo
+ */
+public class PacketView {
+
+    /**
+     * The buffer containing the packet.
+     */
+    private final ByteBuffer buf;
+
+    /**
+     * The index of the first byte of the packet in the buffer.
+     */
+    private final int offset;
+
+    /**
+     * Creates a view of the packet starting at the current position of the
+     * buffer.
+     *
+     * @param b the buffer containing the packet
+     * @return a view of the packet
+     */
+    public static PacketView wrap(final ByteBuffer b) {
+        return new PacketView(b, b.position());
+    }
+
+    /**
+     * Creates a view of the packet starting at the given index of the buffer.
+     *
+     * @param b the buffer containing the packet
+     * @param off the index of the first byte of the packet
+     * @return a view of the packet
+     */
+    public static PacketView wrap(final ByteBuffer b, final int off) {
+        return new PacketView(b, off);
+    }
+
+    /**
+     * Creates a view of a packet.
+     *
+     * @param b the buffer containing the packet
+     * @param off the index of the first byte of the packet
+     */
+    protected PacketView(final ByteBuffer b, final int off) {
+        if (off < 0 || off + DFLT_HDR_LEN > b.capacity()) {
+            throw new IllegalArgumentException("Invalid offset: " + off);
+        }
+        buf = b;
+        offset = off;
+    }
+
+    /**
+     * Creates a view sharing the buffer and the offset of another view.
+     *
+     * @param other the view to be re-interpreted
+     */
+    protected PacketView(final PacketView other) {
+        buf = other.buf;
+        offset = other.offset;
+    }
+
+    /**
+     * Gets the buffer backing this view.
+     *
+     * @return the buffer containing the packet
+     */
+    public final ByteBuffer getBuffer() {
+        return buf;
+    }
+
+    /**
+     * Gets the index of the first byte of the packet in the buffer.
+     *
+     * @return the offset of the packet
+     */
+    public final int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets a byte of the packet.
+     *
+     * @param i the index of the byte, relative to the start of the packet
+     * @return the byte at position i
+     */
+    public final byte get(final int i) {
+        return buf.get(offset + i);
+    }
+
+    /**
+     * Sets a byte of the packet.
+     *
+     * @param i the index of the byte, relative to the start of the packet
+     * @param value the new value of the byte
+     * @return the view itself
+     */
+    public final PacketView put(final int i, final byte value) {
+        buf.put(offset + i, value);
+        return this;
+    }
+
+    /**
+     * Checks if this view contains an SDN-WISE packet.
+     *
+     * @return a boolean depending if is an SDN-WISE packet or not
+     */
+    public final boolean isSdnWise() {
+        return Byte.toUnsignedInt(get(NET_INDEX)) < THRES;
+    }
+
+    /**
+     * Returns the length of the message. For packets that are not SDN-WISE
+     * packets the length is the number of bytes available in the buffer, up
+     * to MAX_PACKET_LENGTH.
+     *
+     * @return an integer representing the length of the message
+     */
+    public final int getLen() {
+        if (isSdnWise()) {
+            return Byte.toUnsignedInt(get(LEN_INDEX));
+        } else {
+            return Math.min(MAX_PACKET_LENGTH, buf.capacity() - offset);
+        }
+    }
+
+    /**
+     * Sets the length of the message.
+     *
+     * @param value an integer representing the length of the message.
+     * @return the view itself
+     */
+    public final PacketView setLen(final byte value) {
+        int v = Byte.toUnsignedInt(value);
+        if (v <= MAX_PACKET_LENGTH && v > 0) {
+            put(LEN_INDEX, value);
+        } else {
+            throw new IllegalArgumentException("Invalid length: " + v);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the NetworkId of the message.
+     *
+     * @return an integer representing the NetworkId of the message
+     */
+    public final int getNet() {
+        return Byte.toUnsignedInt(get(NET_INDEX));
+    }
+
+    /**
+     * Sets the NetworkId of the message.
+     *
+     * @param value the networkId of the packet.
+     * @return the view itself
+     */
+    public final PacketView setNet(final byte value) {
+        return put(NET_INDEX, value);
+    }
+
+    /**
+     * Returns the address of the source node.
+     *
+     * @return the NodeAddress of the source node
+     */
+    public final NodeAddress getSrc() {
+        return NodeAddress.valueOf(get(SRC_INDEX), get(SRC_INDEX + 1));
+    }
+
+    /**
+     * Sets the address of the source node.
+     *
+     * @param address the NodeAddress of the source node.
+     * @return the view itself
+     */
+    public final PacketView setSrc(final NodeAddress address) {
+        put(SRC_INDEX, address.getHigh());
+        return put(SRC_INDEX + 1, address.getLow());
+    }
+
+    /**
+     * Returns the address of the destination node.
+     *
+     * @return the NodeAddress of the destination node
+     */
+    public final NodeAddress getDst() {
+        return NodeAddress.valueOf(get(DST_INDEX), get(DST_INDEX + 1));
+    }
+
+    /**
+     * Sets the address of the destination node.
+     *
+     * @param address the NodeAddress value of the destination
+     * @return the view itself
+     */
+    public final PacketView setDst(final NodeAddress address) {
+        put(DST_INDEX, address.getHigh());
+        return put(DST_INDEX + 1, address.getLow());
+    }
+
+    /**
+     * Returns the type of the message.
+     *
+     * @return an integer representing the type of the message
+     */
+    public final int getTyp() {
+        return get(TYP_INDEX);
+    }
+
+    /**
+     * Sets the type of the message.
+     *
+     * @param value an integer representing the type of the message
+     * @return the view itself
+     */
+    public final PacketView setTyp(final byte value) {
+        return put(TYP_INDEX, value);
+    }
+
+    /**
+     * Returns the Time To Live of the message.
+     *
+     * @return an integer representing the Time To Live of the message
+     */
+    public final int getTtl() {
+        return Byte.toUnsignedInt(get(TTL_INDEX));
+    }
+
+    /**
+     * Sets the Time To Live of the message.
+     *
+     * @param value an integer representing the Time To Live of the message.
+     * @return the view itself
+     */
+    public final PacketView setTtl(final byte value) {
+        return put(TTL_INDEX, value);
+    }
+
+    /**
+     * Decrements the Time To Live of the message by 1.
+     *
+     * @return the view itself
+     */
+    public final PacketView decrementTtl() {
+        byte ttl = get(TTL_INDEX);
+        if (ttl > 0) {
+            put(TTL_INDEX, (byte) (ttl - 1));
+        }
+        return this;
+    }
+
+    /**
+     * Returns the NodeAddress of the next hop towards the destination.
+     *
+     * @return the NodeAddress of the the next hop towards the destination node
+     */
+    public final NodeAddress getNxh() {
+        return NodeAddress.valueOf(get(NXH_INDEX), get(NXH_INDEX + 1));
+    }
+
+    /**
+     * Sets the NodeAddress of the next hop towards the destination.
+     *
+     * @param address the NodeAddress address of the next hop.
+     * @return the view itself
+     */
+    public final PacketView setNxh(final NodeAddress address) {
+        put(NXH_INDEX, address.getHigh());
+        return put(NXH_INDEX + 1, address.getLow());
+    }
+
+    /**
+     * Gets the payload size of the packet.
+     *
+     * @return the packet payload size.
+     */
+    public final int getPayloadSize() {
+        return getLen() - DFLT_HDR_LEN;
+    }
+
+    /**
+     * Gets a byte from the payload of the packet at position i.
+     *
+     * @param i the offset of the byte.
+     * @return the byte of the payload.
+     */
+    public final byte getPayloadAt(final int i) {
+        if (i + DFLT_HDR_LEN < getLen()) {
+            return get(DFLT_HDR_LEN + i);
+        } else {
+            throw new IllegalArgumentException("Index cannot be greater than "
+                    + "the maximum payload size");
+        }
+    }
+
+    /**
+     * Sets a single payload byte. The length of the packet is not modified,
+     * therefore i must be less than the payload size.
+     *
+     * @param d the new data to be set.
+     * @param i the i of the payload. The first byte of the payload is 0.
+     * @return the view itself
+     */
+    public final PacketView setPayloadAt(final byte d, final int i) {
+        if (i + DFLT_HDR_LEN < getLen()) {
+            return put(DFLT_HDR_LEN + i, d);
+        } else {
+            throw new IllegalArgumentException("Index cannot be greater than "
+                    + "the maximum payload size");
+        }
+    }
+
+    /**
+     * Copies the first getLen() bytes of the packet into a byte array.
+     *
+     * @param dst the destination array
+     * @param pos the starting position in the destination array
+     * @return the number of bytes copied
+     */
+    public final int copyTo(final byte[] dst, final int pos) {
+        int len = getLen();
+        for (int i = 0; i < len; i++) {
+            dst[pos + i] = get(i);
+        }
+        return len;
+    }
+
+    /**
+     * Returns a byte array representation of the packet. This method copies
+     * the content of the view.
+     *
+     * @return a byte array representation of the packet
+     */
+    public final byte[] toByteArray() {
+        byte[] tmp = new byte[getLen()];
+        copyTo(tmp, 0);
+        return tmp;
+    }
+
+    /**
+     * Returns a NetworkPacket containing a copy of the packet. To be used when
+     * the packet has to outlive the buffer.
+     *
+     * @return a NetworkPacket
+     */
+    public final NetworkPacket toNetworkPacket() {
+        return new NetworkPacket(toByteArray());
+    }
+
+    /**
+     * Re-interprets this view as a Data packet.
+     *
+     * @return a DataPacketView sharing the buffer of this view
+     */
+    public final DataPacketView asData() {
+        return new DataPacketView(this);
+    }
+
+    /**
+     * Re-interprets this view as a Beacon packet.
+     *
+     * @return a BeaconPacketView sharing the buffer of this view
+     */
+    public final BeaconPacketView asBeacon() {
+        return new BeaconPacketView(this);
+    }
+
+    /**
+     * Re-interprets this view as a Report packet.
+     *
+     * @return a ReportPacketView sharing the buffer of this view
+     */
+    public final ReportPacketView asReport() {
+        return new ReportPacketView(this);
+    }
+
+    /**
+     * Re-interprets this view as a Request packet.
+     *
+     * @return a RequestPacketView sharing the buffer of this view
+     */
+    public final RequestPacketView asRequest() {
+        return new RequestPacketView(this);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        int len = getLen();
+        for (int i = 0; i < len; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(Byte.toUnsignedInt(get(i)));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -57,7 +57,7 @@ public class RegProxyPacket extends NetworkPacket {
      * @param data the NetworkPacket representing the beacon packet.
      */
     public RegProxyPacket(final NetworkPacket data) {
-        super(data.toByteArray());
+        super(data);
     }
 
     /**
@@ -31,9 +31,19 @@ public class ReportPacket extends BeaconPacket {
     /**
      * The maximum number of neighbors allowed in a single packet is 35.
      */
-    private static final byte MAX_NEIG = 35,
-            NEIGH_INDEX = 2,
-            NEIGH_SIZE = 3;
+    public static final byte MAX_NEIG = 35;
+
+    /**
+     * Position and size of the neighbors in the payload.
+     */
+    private static final byte NEIGH_INDEX = 2, NEIGH_SIZE = 3;
+
+    /**
+     * Bit of the number of neighbors set in a delta report. A delta report
+     * contains only the neighbors changed since the previous report, and a
+     * neighbor with a link quality of 0 has been removed.
+     */
+    static final int DELTA_FLAG = 0x80;
 
     /**
      * This constructor initialize a report packet starting from a byte array.
@@ -80,7 +90,7 @@ public class ReportPacket extends BeaconPacket {
      * @param data the NetworkPacket representing the report packet.
      */
     public ReportPacket(final NetworkPacket data) {
-        super(data.toByteArray());
+        super(data);
     }
 
     /**
@@ -89,7 +99,40 @@ public class ReportPacket extends BeaconPacket {
      * @return the number of neighbors.
      */
     public final int getNeigborsSize() {
-        return Byte.toUnsignedInt(getPayloadAt(NEIGH_INDEX));
+        return Byte.toUnsignedInt(getPayloadAt(NEIGH_INDEX)) & ~DELTA_FLAG;
+    }
+
+    /**
+     * Checks if this is a delta report, containing only the neighbors changed
+     * since the previous report. A neighbor with a link quality of 0 has been
+     * removed.
+     *
+     * @return true if this is a delta report
+     */
+    public final boolean isDelta() {
+        return (countByte() & DELTA_FLAG) != 0;
+    }
+
+    /**
+     * Marks this report as a full or a delta report.
+     *
+     * @param delta true for a delta report
+     * @return the packet itself
+     */
+    public final ReportPacket setDelta(final boolean delta) {
+        int n = countByte() & ~DELTA_FLAG;
+        setPayloadAt((byte) (delta ? n | DELTA_FLAG : n), NEIGH_INDEX);
+        return this;
+    }
+
+    /**
+     * Gets the byte containing the number of neighbors and the delta flag.
+     *
+     * @return the byte, or 0 if the packet is too short to contain it
+     */
+    private int countByte() {
+        return getPayloadSize() > NEIGH_INDEX
+                ? Byte.toUnsignedInt(getPayloadAt(NEIGH_INDEX)) : 0;
     }
 
     /**
@@ -100,7 +143,8 @@ public class ReportPacket extends BeaconPacket {
      */
     public final ReportPacket setNeighbors(final int value) {
         if (value <= MAX_NEIG) {
-            setPayloadAt((byte) value, NEIGH_INDEX);
+            int flag = countByte() & DELTA_FLAG;
+            setPayloadAt((byte) (value | flag), NEIGH_INDEX);
             setPayloadSize((byte) (NEIGH_SIZE + value * NEIGH_SIZE));
         } else {
             throw new IllegalArgumentException("Too many neighbors");
@@ -116,7 +160,7 @@ public class ReportPacket extends BeaconPacket {
      */
     public final NodeAddress getNeighborAddress(final int i) {
         if (i <= MAX_NEIG) {
-            return new NodeAddress(
+            return NodeAddress.valueOf(
                     getPayloadAt(NEIGH_INDEX + 1 + (i * NEIGH_SIZE)),
                     getPayloadAt(NEIGH_INDEX + 2 + (i * NEIGH_SIZE)));
         } else {
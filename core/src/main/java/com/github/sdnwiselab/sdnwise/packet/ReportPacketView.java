@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a flyweight view of a Report packet. The neighbors are read
+ * one at a time from the buffer, without building the intermediate map
+ * returned by {@link ReportPacket#getNeighbors()}.
+ *
+ * @author Sebastiano Milardo
+ */
+public class ReportPacketView extends BeaconPacketView {
+
+    /**
+     * The maximum number of neighbors allowed in a single packet is 35.
+     */
+    private static final byte MAX_NEIG = 35,
+            NEIGH_INDEX = 2,
+            NEIGH_SIZE = 3;
+
+    /**
+     * Creates a view of a Report packet starting at the given index of the
+     * buffer.
+     *
+     * @param b the buffer containing the packet
+     * @param off the index of the first byte of the packet
+     */
+    public ReportPacketView(final ByteBuffer b, final int off) {
+        super(b, off);
+    }
+
+    /**
+     * Re-interprets a view as a Report packet.
+     *
+     * @param other the view sharing the buffer
+     */
+    ReportPacketView(final PacketView other) {
+        super(other);
+    }
+
+    /**
+     * Getter for the number of neighbors of the source node.
+     *
+     * @return the number of neighbors.
+     */
+    public final int getNeigborsSize() {
+        return Byte.toUnsignedInt(getPayloadAt(NEIGH_INDEX))
+                & ~ReportPacket.DELTA_FLAG;
+    }
+
+    /**
+     * Checks if this is a delta report. The value is returned as in
+     * {@link ReportPacket#isDelta()}.
+     *
+     * @return true if this is a delta report
+     */
+    public final boolean isDelta() {
+        return (getPayloadAt(NEIGH_INDEX) & ReportPacket.DELTA_FLAG) != 0;
+    }
+
+    /**
+     * Getter for the NodeAddress of the i-th node in the neighbor list.
+     *
+     * @param i the i-th node in the neighbors list
+     * @return the NodeAddress of the i-th node in the neighbors list
+     */
+    public final NodeAddress getNeighborAddress(final int i) {
+        if (i <= MAX_NEIG) {
+            return NodeAddress.valueOf(
+                    getPayloadAt(NEIGH_INDEX + 1 + (i * NEIGH_SIZE)),
+                    getPayloadAt(NEIGH_INDEX + 2 + (i * NEIGH_SIZE)));
+        } else {
+            throw new IllegalArgumentException(
+                    "Index exceeds max number of neighbors");
+        }
+    }
+
+    /**
+     * Getter for the rssi value between the i-th node in the neighbor list and
+     * the source node. The value is returned as in
+     * {@link ReportPacket#getLinkQuality(int)}.
+     *
+     * @param i the i-th node in the neighbors list
+     * @return the rssi value
+     */
+    public final int getLinkQuality(final int i) {
+        if (i <= MAX_NEIG) {
+            return getPayloadAt(NEIGH_INDEX + ((i + 1) * NEIGH_SIZE));
+        } else {
+            throw new IllegalArgumentException(
+                    "Index exceeds max number of neighbors");
+        }
+    }
+}
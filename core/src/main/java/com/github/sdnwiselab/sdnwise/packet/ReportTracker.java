@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import static com.github.sdnwiselab.sdnwise.packet.ReportPacket.MAX_NEIG;
+import com.github.sdnwiselab.sdnwise.util.AddressIntMap;
+import com.github.sdnwiselab.sdnwise.util.Neighbor;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This Class decides what a node reports to the controller, so that a node
+ * whose neighbors do not change sends almost nothing. It is called once per
+ * report period with the current neighbors of the node and:
+ * <ul>
+ * <li>sends a delta report with the neighbors added, removed or whose link
+ * quality changed by more than a threshold since they were last reported;
+ * </li>
+ * <li>suppresses the report if nothing changed, unless nothing has been sent
+ * for heartbeat periods, in which case an empty delta report tells the
+ * controller that the node is alive;</li>
+ * <li>sends a full report every keepAlive periods, so that the controller
+ * recovers from lost delta reports, and whenever a full report is not
+ * longer than the delta.</li>
+ * </ul>
+ * The heartbeat times the report period must be shorter than the timeout
+ * used by the controller to remove silent nodes. This class is thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class ReportTracker {
+
+    /**
+     * Default parameters.
+     */
+    public static final int DEFAULT_THRESHOLD = 5, DEFAULT_HEARTBEAT = 2,
+            DEFAULT_KEEP_ALIVE = 10;
+
+    /**
+     * The minimum change of link quality reported.
+     */
+    private final int threshold;
+
+    /**
+     * Report periods between two heartbeats and two full reports.
+     */
+    private final int heartbeat, keepAlive;
+
+    /**
+     * The link qualities known by the controller, at least 1, null if a
+     * full report has to be sent.
+     */
+    private AddressIntMap reported;
+
+    /**
+     * Report periods since the last report and the last full report.
+     */
+    private int sinceSent, sinceFull;
+
+    /**
+     * Statistics.
+     */
+    private long full, delta, suppressed;
+
+    /**
+     * Creates a ReportTracker with the default parameters.
+     */
+    public ReportTracker() {
+        this(DEFAULT_THRESHOLD, DEFAULT_HEARTBEAT, DEFAULT_KEEP_ALIVE);
+    }
+
+    /**
+     * Creates a ReportTracker.
+     *
+     * @param thrs the minimum change of link quality reported
+     * @param beat the report periods after which an empty delta is sent
+     * @param alive the report periods after which a full report is sent
+     */
+    public ReportTracker(final int thrs, final int beat, final int alive) {
+        if (thrs < 0) {
+            throw new IllegalArgumentException("Invalid threshold: " + thrs);
+        }
+        if (beat <= 0 || alive < beat) {
+            throw new IllegalArgumentException("Invalid periods: " + beat
+                    + ", " + alive);
+        }
+        threshold = thrs;
+        heartbeat = beat;
+        keepAlive = alive;
+    }
+
+    /**
+     * Fills the neighbors of a report for the current report period.
+     *
+     * @param rp the report, without neighbors
+     * @param current the current neighbors, at most MAX_NEIG
+     * @return false if the report must not be sent
+     */
+    public synchronized boolean fill(final ReportPacket rp,
+            final List<Neighbor> current) {
+        if (current.size() > MAX_NEIG) {
+            throw new IllegalArgumentException("Too many neighbors");
+        }
+        sinceSent++;
+        sinceFull++;
+        AddressIntMap now = new AddressIntMap(current.size());
+        for (Neighbor n : current) {
+            now.put(n.getAddr(), Math.max(1, n.getRssi()));
+        }
+        if (reported == null || sinceFull >= keepAlive) {
+            return fillFull(rp, current, now);
+        }
+        List<Neighbor> changes = new ArrayList<>();
+        for (Neighbor n : current) {
+            int old = reported.getOrDefault(n.getAddr(), 0);
+            int q = now.getOrDefault(n.getAddr(), 0);
+            if (old == 0 || Math.abs(old - q) > threshold) {
+                changes.add(new Neighbor(n.getAddr(), q, n.getBatt()));
+            }
+        }
+        reported.forEach((a, q) -> {
+            if (!now.containsKey(a)) {
+                changes.add(new Neighbor(NodeAddress.valueOf(a), 0, 0));
+            }
+        });
+        if (changes.isEmpty() && sinceSent < heartbeat) {
+            suppressed++;
+            return false;
+        }
+        if (changes.size() > MAX_NEIG
+                || (!changes.isEmpty() && changes.size() >= current.size())) {
+            return fillFull(rp, current, now);
+        }
+        write(rp.setDelta(true), changes);
+        for (Neighbor n : changes) {
+            if (n.getRssi() == 0) {
+                reported.remove(n.getAddr());
+            } else {
+                reported.put(n.getAddr(), n.getRssi());
+            }
+        }
+        sinceSent = 0;
+        delta++;
+        return true;
+    }
+
+    /**
+     * Forgets what the controller knows, so that the next report is full.
+     */
+    public synchronized void reset() {
+        reported = null;
+    }
+
+    /**
+     * Gets the number of full reports sent.
+     *
+     * @return the number of full reports
+     */
+    public synchronized long getFull() {
+        return full;
+    }
+
+    /**
+     * Gets the number of delta reports sent, heartbeats included.
+     *
+     * @return the number of delta reports
+     */
+    public synchronized long getDelta() {
+        return delta;
+    }
+
+    /**
+     * Gets the number of reports suppressed.
+     *
+     * @return the number of suppressed reports
+     */
+    public synchronized long getSuppressed() {
+        return suppressed;
+    }
+
+    /**
+     * Fills a full report.
+     *
+     * @param rp the report
+     * @param current the current neighbors
+     * @param now the link qualities of the current neighbors
+     * @return true
+     */
+    private boolean fillFull(final ReportPacket rp,
+            final List<Neighbor> current, final AddressIntMap now) {
+        List<Neighbor> all = new ArrayList<>();
+        for (Neighbor n : current) {
+            all.add(new Neighbor(n.getAddr(), now.getOrDefault(n.getAddr(), 0),
+                    n.getBatt()));
+        }
+        write(rp.setDelta(false), all);
+        reported = now;
+        sinceSent = 0;
+        sinceFull = 0;
+        full++;
+        return true;
+    }
+
+    /**
+     * Writes neighbors in a report.
+     *
+     * @param rp the report
+     * @param list the neighbors
+     */
+    private static void write(final ReportPacket rp,
+            final List<Neighbor> list) {
+        rp.setNeighbors(list.size());
+        int j = 0;
+        for (Neighbor n : list) {
+            rp.setNeighborAddressAt(n.getAddr(), j)
+                    .setLinkQualityAt((byte) n.getRssi(), j);
+            j++;
+        }
+    }
+}
@@ -18,7 +18,6 @@ package com.github.sdnwiselab.sdnwise.packet;
 
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.REQUEST;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
-import static com.github.sdnwiselab.sdnwise.util.Utils.concatByteArray;
 
 /**
  * This class models a Request packet.
@@ -93,13 +92,17 @@ public class RequestPacket extends NetworkPacket {
      */
     public static NetworkPacket mergePackets(final RequestPacket rp0,
             final RequestPacket rp1) {
+        RequestPacketView first, second;
         if (rp0.getPart() == 0) {
-            return new NetworkPacket(
-                    concatByteArray(rp0.getData(), rp1.getData()));
+            first = rp0.view().asRequest();
+            second = rp1.view().asRequest();
         } else {
-            return new NetworkPacket(
-                    concatByteArray(rp1.getData(), rp0.getData()));
+            first = rp1.view().asRequest();
+            second = rp0.view().asRequest();
         }
+        byte[] merged = new byte[first.getDataSize() + second.getDataSize()];
+        second.copyData(merged, first.copyData(merged, 0));
+        return new NetworkPacket(merged);
     }
 
     /**
@@ -118,7 +121,7 @@ public class RequestPacket extends NetworkPacket {
      * @param data the NetworkPacket representing the data packet.
      */
     public RequestPacket(final NetworkPacket data) {
-        super(data.toByteArray());
+        super(data);
     }
 
     /**
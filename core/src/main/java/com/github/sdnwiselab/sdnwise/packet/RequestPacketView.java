@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a flyweight view of a Request packet.
+ *
+ * @author Sebastiano Milardo
+ */
+public class RequestPacketView extends PacketView {
+
+    /**
+     * Indexes of the fields.
+     */
+    private static final byte ID_INDEX = 0, PART_INDEX = 1, TOTAL_INDEX = 2;
+
+    /**
+     * Creates a view of a Request packet starting at the given index of the
+     * buffer.
+     *
+     * @param b the buffer containing the packet
+     * @param off the index of the first byte of the packet
+     */
+    public RequestPacketView(final ByteBuffer b, final int off) {
+        super(b, off);
+    }
+
+    /**
+     * Re-interprets a view as a Request packet.
+     *
+     * @param other the view sharing the buffer
+     */
+    RequestPacketView(final PacketView other) {
+        super(other);
+    }
+
+    /**
+     * Gets the ID of the request.
+     *
+     * @return the id of the request
+     */
+    public final int getId() {
+        return getPayloadAt(ID_INDEX);
+    }
+
+    /**
+     * Gets the part number of the Request packet.
+     *
+     * @return the part number
+     */
+    public final int getPart() {
+        return getPayloadAt(PART_INDEX);
+    }
+
+    /**
+     * Gets the Total expected number of parts.
+     *
+     * @return the total number of parts
+     */
+    public final int getTotal() {
+        return getPayloadAt(TOTAL_INDEX);
+    }
+
+    /**
+     * Gets the size of the data payload of the request.
+     *
+     * @return data payload size in bytes
+     */
+    public final int getDataSize() {
+        return getPayloadSize() - (TOTAL_INDEX + 1);
+    }
+
+    /**
+     * Copies the data payload of the request in a byte array. Used to rebuild
+     * the original packet from its parts without intermediate copies.
+     *
+     * @param dst the destination array
+     * @param pos the starting position in the destination array
+     * @return the number of bytes copied
+     */
+    public final int copyData(final byte[] dst, final int pos) {
+        int size = getDataSize();
+        for (int i = 0; i < size; i++) {
+            dst[pos + i] = getPayloadAt(TOTAL_INDEX + 1 + i);
+        }
+        return size;
+    }
+}
@@ -44,7 +44,7 @@ public class ResponsePacket extends NetworkPacket {
      * @param data the NetworkPacket representing the response packet.
      */
     public ResponsePacket(final NetworkPacket data) {
-        super(data.toByteArray());
+        super(data);
     }
 
     /**
@@ -0,0 +1,517 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.BEACON;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.DATA;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.MAX_PACKET_LENGTH;
+import com.github.sdnwiselab.sdnwise.util.AddressIntMap;
+import com.github.sdnwiselab.sdnwise.util.AddressMap;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This Class schedules the packets sent by a node. Packets are divided in
+ * traffic classes served in strict priority order: control packets first,
+ * then beacons, then data. Each class has its own capacity, so data traffic
+ * can never fill the space of reports and rule requests.
+ * <p>
+ * Data packets are queued per flow, a flow being the packets with the same
+ * source address, and flows are served with deficit round robin: each flow
+ * gets a share of the bytes sent proportional to its weight. When the data
+ * class is full, the packet dropped is the oldest one of the longest flow, so
+ * a heavy flow cannot starve the others.
+ * <p>
+ * The scheduler owns the packets it is given: a dropped packet is released to
+ * its PacketPool, if it has one. The drops are counted per class. Consumers
+ * block on take as they would on a BlockingQueue.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class TxScheduler {
+
+    /**
+     * The traffic classes, in priority order.
+     */
+    public enum TrafficClass {
+        /**
+         * Reports, requests, responses, open paths, configs and reg proxies.
+         */
+        CONTROL,
+        /**
+         * Beacons.
+         */
+        BEACON,
+        /**
+         * Data packets and packets that are not SDN-WISE.
+         */
+        DATA
+    }
+
+    /**
+     * Default capacities of the classes, in packets.
+     */
+    public static final int DEFAULT_CONTROL_CAPACITY = 32,
+            DEFAULT_BEACON_CAPACITY = 4, DEFAULT_DATA_CAPACITY = 100;
+
+    /**
+     * Bytes a flow of weight 1 may send in a round.
+     */
+    private static final int QUANTUM = MAX_PACKET_LENGTH;
+
+    /**
+     * The classes, to avoid copying the array of values.
+     */
+    private static final TrafficClass[] CLASSES = TrafficClass.values();
+
+    /**
+     * The queues of the control and beacon classes.
+     */
+    private final ArrayDeque<NetworkPacket> control = new ArrayDeque<>(),
+            beacons = new ArrayDeque<>();
+
+    /**
+     * The data flows with queued packets, by source address.
+     */
+    private final AddressMap<Flow> flows = new AddressMap<>();
+
+    /**
+     * The data flow of the packets that are not SDN-WISE, if it has queued
+     * packets.
+     */
+    private Flow foreign;
+
+    /**
+     * The data flows with queued packets, in round robin order.
+     */
+    private final ArrayDeque<Flow> active = new ArrayDeque<>();
+
+    /**
+     * The weights of the flows different from 1, by source address.
+     */
+    private final AddressIntMap weights = new AddressIntMap();
+
+    /**
+     * The capacity of each class.
+     */
+    private final int[] capacity = new int[CLASSES.length];
+
+    /**
+     * The number of data packets queued.
+     */
+    private int dataSize;
+
+    /**
+     * The number of packets dropped in each class.
+     */
+    private final AtomicLongArray dropped =
+            new AtomicLongArray(CLASSES.length);
+
+    /**
+     * Guards the queues.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when a packet is queued.
+     */
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Creates a TxScheduler with the default capacities.
+     */
+    public TxScheduler() {
+        this(DEFAULT_CONTROL_CAPACITY, DEFAULT_BEACON_CAPACITY,
+                DEFAULT_DATA_CAPACITY);
+    }
+
+    /**
+     * Creates a TxScheduler.
+     *
+     * @param controlCapacity the capacity of the CONTROL class
+     * @param beaconCapacity the capacity of the BEACON class
+     * @param dataCapacity the capacity of the DATA class
+     */
+    public TxScheduler(final int controlCapacity, final int beaconCapacity,
+            final int dataCapacity) {
+        setCapacity(TrafficClass.CONTROL, controlCapacity);
+        setCapacity(TrafficClass.BEACON, beaconCapacity);
+        setCapacity(TrafficClass.DATA, dataCapacity);
+    }
+
+    /**
+     * Gets the traffic class of a packet.
+     *
+     * @param np the packet
+     * @return the TrafficClass of the packet
+     */
+    public static TrafficClass classify(final NetworkPacket np) {
+        if (!np.isSdnWise() || np.getTyp() == DATA) {
+            return TrafficClass.DATA;
+        }
+        return np.getTyp() == BEACON ? TrafficClass.BEACON
+                : TrafficClass.CONTROL;
+    }
+
+    /**
+     * Queues a packet to be sent. If its class is full the packet is dropped,
+     * unless it is a data packet and a longer flow exists, in which case the
+     * oldest packet of that flow is dropped instead.
+     *
+     * @param np the packet
+     * @return false if the packet has been dropped
+     */
+    public boolean offer(final NetworkPacket np) {
+        TrafficClass c = classify(np);
+        NetworkPacket drop = null;
+        boolean queued = true;
+        lock.lock();
+        try {
+            switch (c) {
+                case CONTROL:
+                    queued = offer(control, np, c);
+                    break;
+                case BEACON:
+                    queued = offer(beacons, np, c);
+                    break;
+                default:
+                    boolean sdnWise = np.isSdnWise();
+                    int src = sdnWise ? np.getSrc().intValue() : -1;
+                    Flow f = sdnWise ? flows.get(src) : foreign;
+                    if (dataSize >= capacity[c.ordinal()]) {
+                        Flow longest = longest();
+                        if (longest == null || f == longest
+                                || (f != null
+                                && f.queue.size() >= longest.queue.size())) {
+                            queued = false;
+                            break;
+                        }
+                        drop = longest.queue.pollFirst();
+                        dataSize--;
+                        if (longest.queue.isEmpty()) {
+                            remove(longest);
+                        }
+                    }
+                    if (f == null) {
+                        if (sdnWise) {
+                            f = new Flow(src, weights.getOrDefault(src, 1));
+                            flows.put(src, f);
+                        } else {
+                            f = new Flow(src, 1);
+                            foreign = f;
+                        }
+                        active.addLast(f);
+                    }
+                    f.queue.addLast(np);
+                    dataSize++;
+            }
+            if (queued) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!queued) {
+            drop = np;
+        }
+        if (drop != null) {
+            dropped.incrementAndGet(c.ordinal());
+            release(drop);
+        }
+        return queued;
+    }
+
+    /**
+     * Gets the next packet to be sent, without waiting.
+     *
+     * @return the packet or null if there are no packets
+     */
+    public NetworkPacket poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the next packet to be sent, waiting if there are no packets.
+     *
+     * @return the packet
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public NetworkPacket take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            NetworkPacket np;
+            while ((np = dequeue()) == null) {
+                notEmpty.await();
+            }
+            return np;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if there are no packets to be sent.
+     *
+     * @return true if all the classes are empty
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Gets the number of packets to be sent.
+     *
+     * @return the number of queued packets
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return control.size() + beacons.size() + dataSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of packets of a class to be sent.
+     *
+     * @param c the traffic class
+     * @return the number of queued packets of the class
+     */
+    public int size(final TrafficClass c) {
+        lock.lock();
+        try {
+            switch (c) {
+                case CONTROL:
+                    return control.size();
+                case BEACON:
+                    return beacons.size();
+                default:
+                    return dataSize;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the capacity of a class.
+     *
+     * @param c the traffic class
+     * @return the maximum number of queued packets of the class
+     */
+    public int getCapacity(final TrafficClass c) {
+        lock.lock();
+        try {
+            return capacity[c.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the capacity of a class. Packets already queued are kept even if
+     * they exceed the new capacity.
+     *
+     * @param c the traffic class
+     * @param value the maximum number of queued packets of the class
+     * @return this TxScheduler
+     */
+    public TxScheduler setCapacity(final TrafficClass c, final int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + value);
+        }
+        lock.lock();
+        try {
+            capacity[c.ordinal()] = value;
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of packets of a class dropped so far.
+     *
+     * @param c the traffic class
+     * @return the number of dropped packets
+     */
+    public long getDropped(final TrafficClass c) {
+        return dropped.get(c.ordinal());
+    }
+
+    /**
+     * Sets the weight of the data flow coming from a node. A flow of weight 2
+     * gets twice the bytes of a flow of weight 1. The weight applies to the
+     * packets queued after the call.
+     *
+     * @param src the source address of the flow
+     * @param weight the weight, 1 by default
+     * @return this TxScheduler
+     */
+    public TxScheduler setWeight(final NodeAddress src, final int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Invalid weight: " + weight);
+        }
+        lock.lock();
+        try {
+            if (weight == 1) {
+                weights.remove(src.intValue());
+            } else {
+                weights.put(src.intValue(), weight);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Queues a packet in a control or beacon queue.
+     *
+     * @param q the queue
+     * @param np the packet
+     * @param c the class of the queue
+     * @return false if the queue is full
+     */
+    private boolean offer(final ArrayDeque<NetworkPacket> q,
+            final NetworkPacket np, final TrafficClass c) {
+        if (q.size() >= capacity[c.ordinal()]) {
+            return false;
+        }
+        q.addLast(np);
+        return true;
+    }
+
+    /**
+     * Removes the next packet to be sent. Called holding the lock.
+     *
+     * @return the packet or null if there are no packets
+     */
+    private NetworkPacket dequeue() {
+        NetworkPacket np = control.pollFirst();
+        if (np == null) {
+            np = beacons.pollFirst();
+        }
+        if (np != null || active.isEmpty()) {
+            return np;
+        }
+        for (;;) {
+            Flow f = active.peekFirst();
+            int len = f.queue.peekFirst().getLen();
+            if (f.deficit < len) {
+                f.deficit += f.weight * QUANTUM;
+                active.addLast(active.pollFirst());
+                continue;
+            }
+            f.deficit -= len;
+            dataSize--;
+            np = f.queue.pollFirst();
+            if (f.queue.isEmpty()) {
+                remove(f);
+            }
+            return np;
+        }
+    }
+
+    /**
+     * Gets the data flow with the most queued packets. Called holding the
+     * lock.
+     *
+     * @return the longest flow or null if there are no data packets
+     */
+    private Flow longest() {
+        Flow longest = null;
+        for (Flow f : active) {
+            if (longest == null || f.queue.size() > longest.queue.size()) {
+                longest = f;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Forgets an empty data flow. Called holding the lock.
+     *
+     * @param f the flow
+     */
+    private void remove(final Flow f) {
+        active.remove(f);
+        if (f == foreign) {
+            foreign = null;
+        } else {
+            flows.remove(f.src);
+        }
+    }
+
+    /**
+     * Gives a dropped packet back to its pool.
+     *
+     * @param np the packet
+     */
+    private static void release(final NetworkPacket np) {
+        PacketPool p = np.pool;
+        if (p != null) {
+            p.release(np);
+        }
+    }
+
+    /**
+     * The queued packets of a data flow.
+     */
+    private static final class Flow {
+
+        /**
+         * The source address of the flow, -1 for packets not SDN-WISE.
+         */
+        private final int src;
+
+        /**
+         * The weight of the flow.
+         */
+        private final int weight;
+
+        /**
+         * The bytes the flow may still send in the current round.
+         */
+        private int deficit;
+
+        /**
+         * The queued packets.
+         */
+        private final ArrayDeque<NetworkPacket> queue = new ArrayDeque<>();
+
+        /**
+         * Creates a Flow.
+         *
+         * @param s the source address
+         * @param w the weight
+         */
+        Flow(final int s, final int w) {
+            src = s;
+            weight = w;
+        }
+    }
+}
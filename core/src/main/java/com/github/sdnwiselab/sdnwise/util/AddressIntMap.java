@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import static com.github.sdnwiselab.sdnwise.util.NodeAddress.ADDRESS_SPACE;
+import java.util.Arrays;
+
+/**
+ * This Class represents a map from NodeAddresses to int values. Keys and
+ * values are stored in two int arrays, using open addressing with linear
+ * probing, so neither keys nor values are boxed.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AddressIntMap {
+
+    /**
+     * Marks an empty slot of the table.
+     */
+    private static final int FREE = -1;
+
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The keys of the table.
+     */
+    private int[] keys;
+
+    /**
+     * The values of the table.
+     */
+    private int[] values;
+
+    /**
+     * Number of mappings.
+     */
+    private int size;
+
+    /**
+     * Creates an empty AddressIntMap.
+     */
+    public AddressIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty AddressIntMap able to hold a number of mappings without
+     * growing.
+     *
+     * @param expected the expected number of mappings
+     */
+    public AddressIntMap(final int expected) {
+        if (expected < 0) {
+            throw new IllegalArgumentException("Negative capacity");
+        }
+        allocate(capacityFor(expected));
+    }
+
+    /**
+     * Removes all the mappings.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    /**
+     * Checks if there is a mapping for an address.
+     *
+     * @param key the int value of the address
+     * @return true if the address is mapped
+     */
+    public boolean containsKey(final int key) {
+        return indexOf(key & (ADDRESS_SPACE - 1)) >= 0;
+    }
+
+    /**
+     * Checks if there is a mapping for an address.
+     *
+     * @param key the address
+     * @return true if the address is mapped
+     */
+    public boolean containsKey(final NodeAddress key) {
+        return containsKey(key.intValue());
+    }
+
+    /**
+     * Performs an action for each mapping.
+     *
+     * @param action the action to be performed
+     */
+    public void forEach(final EntryConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the value mapped to an address.
+     *
+     * @param key the int value of the address
+     * @param defaultValue the value returned if the address is not mapped
+     * @return the value or defaultValue if the address is not mapped
+     */
+    public int getOrDefault(final int key, final int defaultValue) {
+        int i = indexOf(key & (ADDRESS_SPACE - 1));
+        return i >= 0 ? values[i] : defaultValue;
+    }
+
+    /**
+     * Gets the value mapped to an address.
+     *
+     * @param key the address
+     * @param defaultValue the value returned if the address is not mapped
+     * @return the value or defaultValue if the address is not mapped
+     */
+    public int getOrDefault(final NodeAddress key, final int defaultValue) {
+        return getOrDefault(key.intValue(), defaultValue);
+    }
+
+    /**
+     * Adds a delta to the value mapped to an address. An address that is not
+     * mapped is considered mapped to 0.
+     *
+     * @param key the int value of the address
+     * @param delta the value to add
+     * @return the new value
+     */
+    public int increment(final int key, final int delta) {
+        int k = key & (ADDRESS_SPACE - 1);
+        int i = indexOf(k);
+        if (i >= 0) {
+            values[i] += delta;
+            return values[i];
+        }
+        put(k, delta);
+        return delta;
+    }
+
+    /**
+     * Checks if the map is empty.
+     *
+     * @return true if there are no mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Maps an address to a value.
+     *
+     * @param key the int value of the address
+     * @param value the value
+     * @return true if the address was not mapped before
+     */
+    public boolean put(final int key, final int value) {
+        int k = key & (ADDRESS_SPACE - 1);
+        int i = indexOf(k);
+        if (i >= 0) {
+            values[i] = value;
+            return false;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+            i = indexOf(k);
+        }
+        i = -i - 1;
+        keys[i] = k;
+        values[i] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Maps an address to a value.
+     *
+     * @param key the address
+     * @param value the value
+     * @return true if the address was not mapped before
+     */
+    public boolean put(final NodeAddress key, final int value) {
+        return put(key.intValue(), value);
+    }
+
+    /**
+     * Removes the mapping of an address.
+     *
+     * @param key the int value of the address
+     * @return true if the address was mapped
+     */
+    public boolean remove(final int key) {
+        int i = indexOf(key & (ADDRESS_SPACE - 1));
+        if (i < 0) {
+            return false;
+        }
+        int mask = keys.length - 1;
+        // backward shift deletion, keeps probe sequences without tombstones
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = FREE;
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes the mapping of an address.
+     *
+     * @param key the address
+     * @return true if the address was mapped
+     */
+    public boolean remove(final NodeAddress key) {
+        return remove(key.intValue());
+    }
+
+    /**
+     * Gets the number of mappings.
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(NodeAddress.valueOf(k)).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Allocates empty tables.
+     *
+     * @param capacity the capacity of the tables, a power of two
+     */
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+    }
+
+    /**
+     * Gets the table capacity for a number of mappings.
+     *
+     * @param expected the expected number of mappings
+     * @return a power of two that keeps the load factor below 3/4
+     */
+    private static int capacityFor(final int expected) {
+        int cap = 2;
+        while (cap * 3 < expected * 4 + 4 && cap < ADDRESS_SPACE * 2) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param key the int value of the address
+     * @return the slot of the key, or -(free slot + 1) if not present
+     */
+    private int indexOf(final int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                return i;
+            } else if (k == FREE) {
+                return -i - 1;
+            }
+        }
+    }
+
+    /**
+     * Moves all the mappings in tables of a new capacity.
+     *
+     * @param capacity the new capacity, a power of two
+     */
+    private void resize(final int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int j = -indexOf(oldKeys[i]) - 1;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the home slot of a key.
+     *
+     * @param key the int value of the address
+     * @return the home slot
+     */
+    private int slot(final int key) {
+        return ((key * 0x9E3779B9) >>> 16) & (keys.length - 1);
+    }
+
+    /**
+     * Represents an action on a mapping of an AddressIntMap.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        /**
+         * Performs the action.
+         *
+         * @param key the int value of the address
+         * @param value the value mapped to the address
+         */
+        void accept(int key, int value);
+    }
+}
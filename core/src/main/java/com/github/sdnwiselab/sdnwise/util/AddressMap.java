@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import static com.github.sdnwiselab.sdnwise.util.NodeAddress.ADDRESS_SPACE;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * This Class represents a map from NodeAddresses to objects. Keys are stored
+ * as int values in an open addressing table with linear probing, so lookups
+ * do not box and there is no entry object per mapping. Null values are not
+ * allowed.
+ * <p>
+ * As a Map, the views iterate on a snapshot of the keys and create an entry
+ * for each mapping, so forEach should be preferred on frequent paths.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <V> the type of the values
+ * @author Sebastiano Milardo
+ */
+public final class AddressMap<V> extends AbstractMap<NodeAddress, V> {
+
+    /**
+     * Marks an empty slot of the table.
+     */
+    private static final int FREE = -1;
+
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The keys of the table.
+     */
+    private int[] keys;
+
+    /**
+     * The values of the table.
+     */
+    private Object[] values;
+
+    /**
+     * Number of mappings.
+     */
+    private int size;
+
+    /**
+     * Creates an empty AddressMap.
+     */
+    public AddressMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty AddressMap able to hold a number of mappings without
+     * growing.
+     *
+     * @param expected the expected number of mappings
+     */
+    public AddressMap(final int expected) {
+        if (expected < 0) {
+            throw new IllegalArgumentException("Negative capacity");
+        }
+        allocate(capacityFor(expected));
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Checks if there is a mapping for an address.
+     *
+     * @param key the int value of the address
+     * @return true if the address is mapped
+     */
+    public boolean containsKey(final int key) {
+        return indexOf(key & (ADDRESS_SPACE - 1)) >= 0;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof NodeAddress
+                && containsKey(((NodeAddress) key).intValue());
+    }
+
+    @Override
+    public Set<Map.Entry<NodeAddress, V>> entrySet() {
+        return new AbstractSet<Map.Entry<NodeAddress, V>>() {
+            @Override
+            public void clear() {
+                AddressMap.this.clear();
+            }
+
+            @Override
+            public Iterator<Map.Entry<NodeAddress, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Performs an action for each mapping. The keys are the canonical
+     * NodeAddress instances.
+     *
+     * @param action the action to be performed
+     */
+    @Override
+    public void forEach(
+            final BiConsumer<? super NodeAddress, ? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                action.accept(NodeAddress.valueOf(keys[i]), value(i));
+            }
+        }
+    }
+
+    /**
+     * Gets the value mapped to an address.
+     *
+     * @param key the int value of the address
+     * @return the value or null if the address is not mapped
+     */
+    public V get(final int key) {
+        int i = indexOf(key & (ADDRESS_SPACE - 1));
+        return i >= 0 ? value(i) : null;
+    }
+
+    @Override
+    public V get(final Object key) {
+        return key instanceof NodeAddress
+                ? get(((NodeAddress) key).intValue()) : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Maps an address to a value.
+     *
+     * @param key the int value of the address
+     * @param value the value, not null
+     * @return the previous value or null if the address was not mapped
+     */
+    public V put(final int key, final V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values not allowed");
+        }
+        int k = key & (ADDRESS_SPACE - 1);
+        int i = indexOf(k);
+        if (i >= 0) {
+            V old = value(i);
+            values[i] = value;
+            return old;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+            i = indexOf(k);
+        }
+        i = -i - 1;
+        keys[i] = k;
+        values[i] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public V put(final NodeAddress key, final V value) {
+        return put(key.intValue(), value);
+    }
+
+    /**
+     * Removes the mapping of an address.
+     *
+     * @param key the int value of the address
+     * @return the removed value or null if the address was not mapped
+     */
+    public V remove(final int key) {
+        int i = indexOf(key & (ADDRESS_SPACE - 1));
+        if (i < 0) {
+            return null;
+        }
+        V old = value(i);
+        int mask = keys.length - 1;
+        // backward shift deletion, keeps probe sequences without tombstones
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = FREE;
+        values[hole] = null;
+        size--;
+        return old;
+    }
+
+    @Override
+    public V remove(final Object key) {
+        return key instanceof NodeAddress
+                ? remove(((NodeAddress) key).intValue()) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Allocates empty tables.
+     *
+     * @param capacity the capacity of the tables, a power of two
+     */
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        values = new Object[capacity];
+    }
+
+    /**
+     * Gets the table capacity for a number of mappings.
+     *
+     * @param expected the expected number of mappings
+     * @return a power of two that keeps the load factor below 3/4
+     */
+    private static int capacityFor(final int expected) {
+        int cap = 2;
+        while (cap * 3 < expected * 4 + 4 && cap < ADDRESS_SPACE * 2) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param key the int value of the address
+     * @return the slot of the key, or -(free slot + 1) if not present
+     */
+    private int indexOf(final int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                return i;
+            } else if (k == FREE) {
+                return -i - 1;
+            }
+        }
+    }
+
+    /**
+     * Moves all the mappings in tables of a new capacity.
+     *
+     * @param capacity the new capacity, a power of two
+     */
+    private void resize(final int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int j = -indexOf(oldKeys[i]) - 1;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the home slot of a key.
+     *
+     * @param key the int value of the address
+     * @return the home slot
+     */
+    private int slot(final int key) {
+        return ((key * 0x9E3779B9) >>> 16) & (keys.length - 1);
+    }
+
+    /**
+     * Gets the value in a slot.
+     *
+     * @param i the slot
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    private V value(final int i) {
+        return (V) values[i];
+    }
+
+    /**
+     * Iterates on a snapshot of the keys, so that removing a mapping does not
+     * move the ones still to be visited.
+     */
+    private final class EntryIterator
+            implements Iterator<Map.Entry<NodeAddress, V>> {
+
+        /**
+         * The keys mapped when the iterator was created.
+         */
+        private final int[] snapshot = new int[size];
+
+        /**
+         * The index of the next key and of the last key returned.
+         */
+        private int next, last = -1;
+
+        /**
+         * Creates an EntryIterator.
+         */
+        EntryIterator() {
+            int n = 0;
+            for (int k : keys) {
+                if (k != FREE) {
+                    snapshot[n++] = k;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < snapshot.length;
+        }
+
+        @Override
+        public Map.Entry<NodeAddress, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = snapshot[next++];
+            int key = last;
+            return new AbstractMap.SimpleEntry<NodeAddress, V>(
+                    NodeAddress.valueOf(key), get(key)) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public V setValue(final V value) {
+                    put(key, value);
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            AddressMap.this.remove(last);
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import static com.github.sdnwiselab.sdnwise.util.NodeAddress.ADDRESS_SPACE;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This Class represents a set of NodeAddresses as a bitset over the whole
+ * address space. Membership tests are O(1) and never box. The bitset is split
+ * in pages of 256 addresses that are allocated only when used, so a set
+ * containing a few addresses takes about one kilobyte.
+ * <p>
+ * The iteration order is the ascending order of the addresses and the
+ * elements returned are the canonical NodeAddress instances. This class is
+ * not thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AddressSet extends AbstractSet<NodeAddress> {
+
+    /**
+     * Number of addresses in a page and related masks.
+     */
+    private static final int PAGE_BITS = 8, PAGE_SIZE = 1 << PAGE_BITS,
+            PAGE_MASK = PAGE_SIZE - 1, WORD_BITS = 6,
+            WORD_MASK = (1 << WORD_BITS) - 1,
+            WORDS = PAGE_SIZE >>> WORD_BITS;
+
+    /**
+     * The pages of the bitset. A null page contains no address.
+     */
+    private final long[][] pages = new long[ADDRESS_SPACE >>> PAGE_BITS][];
+
+    /**
+     * Number of addresses in the set and number of structural modifications.
+     */
+    private int size, modCount;
+
+    /**
+     * Creates an empty AddressSet.
+     */
+    public AddressSet() {
+    }
+
+    /**
+     * Creates an AddressSet containing the addresses of a collection.
+     *
+     * @param c the addresses to be added
+     */
+    public AddressSet(final Collection<? extends NodeAddress> c) {
+        addAll(c);
+    }
+
+    /**
+     * Adds an address to the set.
+     *
+     * @param a the int value of the address
+     * @return true if the set did not already contain the address
+     */
+    public boolean add(final int a) {
+        int v = a & (ADDRESS_SPACE - 1);
+        long[] page = pages[v >>> PAGE_BITS];
+        if (page == null) {
+            page = new long[WORDS];
+            pages[v >>> PAGE_BITS] = page;
+        }
+        int w = (v & PAGE_MASK) >>> WORD_BITS;
+        long bit = 1L << (v & WORD_MASK);
+        if ((page[w] & bit) != 0) {
+            return false;
+        }
+        page[w] |= bit;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean add(final NodeAddress a) {
+        return add(a.intValue());
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = null;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Checks if an address is in the set.
+     *
+     * @param a the int value of the address
+     * @return true if the set contains the address
+     */
+    public boolean contains(final int a) {
+        int v = a & (ADDRESS_SPACE - 1);
+        long[] page = pages[v >>> PAGE_BITS];
+        return page != null
+                && (page[(v & PAGE_MASK) >>> WORD_BITS]
+                & (1L << (v & WORD_MASK))) != 0;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof NodeAddress
+                && contains(((NodeAddress) o).intValue());
+    }
+
+    /**
+     * Gets the address in a given position of the ascending order.
+     *
+     * @param index the position of the address
+     * @return the NodeAddress in that position
+     * @throws IndexOutOfBoundsException if index is negative or not less than
+     * the size of the set
+     */
+    public NodeAddress get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index
+                    + ", Size: " + size);
+        }
+        int left = index;
+        for (int p = 0; p < pages.length; p++) {
+            long[] page = pages[p];
+            if (page == null) {
+                continue;
+            }
+            for (int w = 0; w < WORDS; w++) {
+                int n = Long.bitCount(page[w]);
+                if (left >= n) {
+                    left -= n;
+                    continue;
+                }
+                long word = page[w];
+                for (int j = 0; j < left; j++) {
+                    word &= word - 1;
+                }
+                return NodeAddress.valueOf((p << PAGE_BITS)
+                        | (w << WORD_BITS) | Long.numberOfTrailingZeros(word));
+            }
+        }
+        throw new ConcurrentModificationException();
+    }
+
+    @Override
+    public Iterator<NodeAddress> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Removes an address from the set.
+     *
+     * @param a the int value of the address
+     * @return true if the set contained the address
+     */
+    public boolean remove(final int a) {
+        int v = a & (ADDRESS_SPACE - 1);
+        long[] page = pages[v >>> PAGE_BITS];
+        if (page == null) {
+            return false;
+        }
+        int w = (v & PAGE_MASK) >>> WORD_BITS;
+        long bit = 1L << (v & WORD_MASK);
+        if ((page[w] & bit) == 0) {
+            return false;
+        }
+        page[w] &= ~bit;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return o instanceof NodeAddress
+                && remove(((NodeAddress) o).intValue());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a List view of this set, in ascending order. The view is
+     * backed by the set: adding an address already in the set has no effect
+     * and returns false, and positional access costs a scan of the set. It is
+     * meant for APIs that only read a List of addresses; use an AliasList
+     * where the insertion order matters.
+     *
+     * @return a List view of the set
+     */
+    public List<NodeAddress> asList() {
+        return new AbstractList<NodeAddress>() {
+            @Override
+            public boolean add(final NodeAddress a) {
+                return AddressSet.this.add(a);
+            }
+
+            @Override
+            public void clear() {
+                AddressSet.this.clear();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return AddressSet.this.contains(o);
+            }
+
+            @Override
+            public NodeAddress get(final int index) {
+                return AddressSet.this.get(index);
+            }
+
+            @Override
+            public Iterator<NodeAddress> iterator() {
+                return AddressSet.this.iterator();
+            }
+
+            @Override
+            public NodeAddress remove(final int index) {
+                NodeAddress a = AddressSet.this.get(index);
+                AddressSet.this.remove(a.intValue());
+                return a;
+            }
+
+            @Override
+            public boolean remove(final Object o) {
+                return AddressSet.this.remove(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Gets the first address in the set not less than a given value.
+     *
+     * @param from the int value where the search starts
+     * @return the int value of the address or -1 if there is none
+     */
+    private int nextAddress(final int from) {
+        for (int v = from; v < ADDRESS_SPACE; v = (v | WORD_MASK) + 1) {
+            long[] page = pages[v >>> PAGE_BITS];
+            if (page == null) {
+                v |= PAGE_MASK;
+                continue;
+            }
+            long word = page[(v & PAGE_MASK) >>> WORD_BITS]
+                    & (-1L << (v & WORD_MASK));
+            if (word != 0) {
+                return (v & ~WORD_MASK) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Iterates over the addresses in ascending order.
+     */
+    private final class Itr implements Iterator<NodeAddress> {
+
+        /**
+         * The next address to return or -1, and the last one returned or -1.
+         */
+        private int cursor = nextAddress(0), last = -1;
+
+        /**
+         * The modCount expected by the iterator.
+         */
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return cursor >= 0;
+        }
+
+        @Override
+        public NodeAddress next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (cursor < 0) {
+                throw new NoSuchElementException();
+            }
+            last = cursor;
+            cursor = last + 1 < ADDRESS_SPACE ? nextAddress(last + 1)
+                    : -1;
+            return NodeAddress.valueOf(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            AddressSet.this.remove(last);
+            expectedModCount = modCount;
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This Class represents the aliases accepted by a node: a List of
+ * NodeAddresses in insertion order, possibly with duplicates, as addressed by
+ * the controller through their index. Membership tests, done for every
+ * incoming packet, use an AddressSet and are O(1).
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AliasList extends AbstractList<NodeAddress> {
+
+    /**
+     * The aliases in insertion order.
+     */
+    private final List<NodeAddress> list = new ArrayList<>();
+
+    /**
+     * The distinct aliases.
+     */
+    private final AddressSet set = new AddressSet();
+
+    /**
+     * Checks if an address is an alias.
+     *
+     * @param a the int value of the address
+     * @return true if the address is in the list
+     */
+    public boolean contains(final int a) {
+        return set.contains(a);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return set.contains(o);
+    }
+
+    @Override
+    public NodeAddress get(final int index) {
+        return list.get(index);
+    }
+
+    @Override
+    public int size() {
+        return list.size();
+    }
+
+    @Override
+    public void add(final int index, final NodeAddress a) {
+        list.add(index, NodeAddress.valueOf(a));
+        set.add(a);
+        modCount++;
+    }
+
+    @Override
+    public NodeAddress set(final int index, final NodeAddress a) {
+        NodeAddress old = list.set(index, NodeAddress.valueOf(a));
+        set.add(a);
+        forget(old);
+        return old;
+    }
+
+    @Override
+    public NodeAddress remove(final int index) {
+        NodeAddress old = list.remove(index);
+        forget(old);
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        list.clear();
+        set.clear();
+        modCount++;
+    }
+
+    /**
+     * Removes an address from the set if it is no longer in the list.
+     *
+     * @param a the address
+     */
+    private void forget(final NodeAddress a) {
+        if (!list.contains(a)) {
+            set.remove(a.intValue());
+        }
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import static com.github.sdnwiselab.sdnwise.util.MetricsWriter.MAGIC;
+import static com.github.sdnwiselab.sdnwise.util.MetricsWriter.ROW_LEN;
+import static com.github.sdnwiselab.sdnwise.util.MetricsWriter.VERSION;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a file written by a MetricsWriter and aggregates the measures of
+ * all the nodes in network wide time series. The blocks are memory mapped
+ * one at a time and their columns are read directly from the mapping, so
+ * files of any size can be read.
+ * <p>
+ * Run as a program, it prints the time series of a file as CSV:
+ * <pre>
+ * java com.github.sdnwiselab.sdnwise.util.MetricsReader metrics.bin
+ * </pre>
+ *
+ * @author Sebastiano Milardo
+ */
+public final class MetricsReader {
+
+    /**
+     * Receives the rows of a metrics file.
+     */
+    public interface Visitor {
+
+        /**
+         * Receives the measures of a node.
+         *
+         * @param second the seconds elapsed since the node started
+         * @param address the int value of the address of the node
+         * @param battery the charge of the battery
+         * @param batteryLevel the charge of the battery from 0 to 255
+         * @param entries the number of entries in the flow table
+         * @param sent the bytes sent
+         * @param received the bytes received
+         * @param sentData the bytes of payload of the data packets sent
+         * @param receivedData the bytes of payload of the data packets
+         * received
+         */
+        void visit(int second, int address, float battery, int batteryLevel,
+                int entries, int sent, int received, int sentData,
+                int receivedData);
+    }
+
+    /**
+     * The path of the file.
+     */
+    private final Path path;
+
+    /**
+     * The positions of the blocks.
+     */
+    private final long[] blocks;
+
+    /**
+     * The number of rows of each block.
+     */
+    private final int[] blockRows;
+
+    /**
+     * The number of rows.
+     */
+    private final long rows;
+
+    /**
+     * Opens a metrics file.
+     *
+     * @param p the path of the file
+     * @throws IOException if the file cannot be read or is not a metrics
+     * file
+     */
+    public MetricsReader(final Path p) throws IOException {
+        path = p;
+        long[] pos = new long[16];
+        int[] len = new int[16];
+        int n = 0;
+        long count = 0;
+        try (FileChannel ch = open()) {
+            ByteBuffer hdr = ByteBuffer.allocate(8);
+            if (!read(ch, hdr, 0) || hdr.getInt(0) != MAGIC
+                    || hdr.getInt(4) != VERSION) {
+                throw new IOException("Not a metrics file: " + path);
+            }
+            long size = ch.size();
+            long off = 8;
+            hdr.limit(4);
+            // a block cut by a crash is ignored
+            while (read(ch, hdr, off)) {
+                int r = hdr.getInt(0);
+                long end = off + 4 + (long) r * ROW_LEN;
+                if (r <= 0 || end > size) {
+                    break;
+                }
+                if (n == pos.length) {
+                    pos = Arrays.copyOf(pos, n * 2);
+                    len = Arrays.copyOf(len, n * 2);
+                }
+                pos[n] = off;
+                len[n++] = r;
+                count += r;
+                off = end;
+            }
+        }
+        blocks = Arrays.copyOf(pos, n);
+        blockRows = Arrays.copyOf(len, n);
+        rows = count;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return the number of measures in the file
+     */
+    public long size() {
+        return rows;
+    }
+
+    /**
+     * Visits all the rows, in the order they were written.
+     *
+     * @param v the visitor
+     * @throws IOException if the file cannot be read
+     */
+    public void forEach(final Visitor v) throws IOException {
+        try (FileChannel ch = open()) {
+            for (int b = 0; b < blocks.length; b++) {
+                int r = blockRows[b];
+                visit(ch.map(FileChannel.MapMode.READ_ONLY, blocks[b] + 4,
+                        (long) r * ROW_LEN), r, v);
+            }
+        }
+    }
+
+    /**
+     * Visits the rows of a block.
+     *
+     * @param buf the columns of the block
+     * @param r the number of rows of the block
+     * @param v the visitor
+     */
+    private static void visit(final ByteBuffer buf, final int r,
+            final Visitor v) {
+        int addr = r * 4;
+        int bat = addr + r * 2;
+        int lvl = bat + r * 4;
+        int ft = lvl + r;
+        int snt = ft + r * 2;
+        int rcv = snt + r * 4;
+        int sntD = rcv + r * 4;
+        int rcvD = sntD + r * 4;
+        for (int i = 0; i < r; i++) {
+            v.visit(buf.getInt(i * 4),
+                    buf.getShort(addr + i * 2) & 0xFFFF,
+                    buf.getFloat(bat + i * 4),
+                    buf.get(lvl + i) & 0xFF,
+                    buf.getShort(ft + i * 2) & 0xFFFF,
+                    buf.getInt(snt + i * 4),
+                    buf.getInt(rcv + i * 4),
+                    buf.getInt(sntD + i * 4),
+                    buf.getInt(rcvD + i * 4));
+        }
+    }
+
+    /**
+     * Aggregates the measures of all the nodes for each second.
+     *
+     * @return the network wide time series
+     * @throws IOException if the file cannot be read
+     */
+    public Series aggregate() throws IOException {
+        Series s = new Series();
+        forEach(s::add);
+        return s;
+    }
+
+    /**
+     * Prints the network wide time series of a metrics file as CSV.
+     *
+     * @param args the path of the metrics file
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: MetricsReader file");
+            return;
+        }
+        new MetricsReader(Paths.get(args[0])).aggregate()
+                .printCsv(System.out);
+    }
+
+    /**
+     * Opens the file for reading.
+     *
+     * @return the channel
+     * @throws IOException if the file cannot be opened
+     */
+    private FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Reads from a position of a channel until the buffer is full.
+     *
+     * @param ch the channel
+     * @param dst the buffer, read from its start up to its limit
+     * @param off the position in the file
+     * @return false if the file ends before the buffer is full
+     * @throws IOException if the file cannot be read
+     */
+    private static boolean read(final FileChannel ch, final ByteBuffer dst,
+            final long off) throws IOException {
+        dst.position(0);
+        long p = off;
+        while (dst.hasRemaining()) {
+            int n = ch.read(dst, p);
+            if (n < 0) {
+                return false;
+            }
+            p += n;
+        }
+        return true;
+    }
+
+    /**
+     * The sums of the measures of all the nodes for each second.
+     */
+    public static final class Series {
+
+        /**
+         * Number of columns.
+         */
+        private static final int MOTES = 0, ALIVE = 1, ENTRIES = 2,
+                SENT = 3, RECEIVED = 4, SENT_DATA = 5, RECEIVED_DATA = 6,
+                COLUMNS = 7;
+
+        /**
+         * The integer sums, COLUMNS values for each second.
+         */
+        private long[] sums = new long[COLUMNS * 64];
+
+        /**
+         * The sum of the charges of the batteries for each second.
+         */
+        private double[] battery = new double[64];
+
+        /**
+         * The number of seconds.
+         */
+        private int length;
+
+        /**
+         * Creates an empty Series.
+         */
+        Series() {
+        }
+
+        /**
+         * Adds the measures of a node.
+         *
+         * @param sec the seconds elapsed since the node started
+         * @param address the int value of the address of the node
+         * @param bat the charge of the battery
+         * @param batteryLevel the charge of the battery from 0 to 255
+         * @param entries the number of entries in the flow table
+         * @param sent the bytes sent
+         * @param received the bytes received
+         * @param sentData the bytes of payload of the data packets sent
+         * @param receivedData the bytes of payload of the data packets
+         * received
+         */
+        void add(final int sec, final int address, final float bat,
+                final int batteryLevel, final int entries, final int sent,
+                final int received, final int sentData,
+                final int receivedData) {
+            if (sec < 0) {
+                return;
+            }
+            if (sec >= battery.length) {
+                int n = Math.max(sec + 1, battery.length * 2);
+                battery = Arrays.copyOf(battery, n);
+                sums = Arrays.copyOf(sums, n * COLUMNS);
+            }
+            length = Math.max(length, sec + 1);
+            int b = sec * COLUMNS;
+            sums[b + MOTES]++;
+            if (batteryLevel > 0) {
+                sums[b + ALIVE]++;
+            }
+            sums[b + ENTRIES] += entries;
+            sums[b + SENT] += sent;
+            sums[b + RECEIVED] += received;
+            sums[b + SENT_DATA] += sentData;
+            sums[b + RECEIVED_DATA] += receivedData;
+            battery[sec] += bat;
+        }
+
+        /**
+         * Gets the number of seconds.
+         *
+         * @return the last second measured plus 1
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the number of nodes measured in a second.
+         *
+         * @param sec the second
+         * @return the number of nodes
+         */
+        public long getMotes(final int sec) {
+            return get(sec, MOTES);
+        }
+
+        /**
+         * Gets the number of nodes alive in a second.
+         *
+         * @param sec the second
+         * @return the number of nodes with a charged battery
+         */
+        public long getAlive(final int sec) {
+            return get(sec, ALIVE);
+        }
+
+        /**
+         * Gets the charge left in the network in a second.
+         *
+         * @param sec the second
+         * @return the sum of the charges of the batteries
+         */
+        public double getBattery(final int sec) {
+            check(sec);
+            return battery[sec];
+        }
+
+        /**
+         * Gets the number of flow table entries in the network in a second.
+         *
+         * @param sec the second
+         * @return the sum of the sizes of the flow tables
+         */
+        public long getFlowTableEntries(final int sec) {
+            return get(sec, ENTRIES);
+        }
+
+        /**
+         * Gets the bytes sent by the network until a second.
+         *
+         * @param sec the second
+         * @return the sum of the bytes sent by the nodes
+         */
+        public long getSentBytes(final int sec) {
+            return get(sec, SENT);
+        }
+
+        /**
+         * Gets the bytes received by the network until a second.
+         *
+         * @param sec the second
+         * @return the sum of the bytes received by the nodes
+         */
+        public long getReceivedBytes(final int sec) {
+            return get(sec, RECEIVED);
+        }
+
+        /**
+         * Gets the bytes of payload of the data packets sent by the network
+         * until a second.
+         *
+         * @param sec the second
+         * @return the sum of the data bytes sent by the nodes
+         */
+        public long getSentDataBytes(final int sec) {
+            return get(sec, SENT_DATA);
+        }
+
+        /**
+         * Gets the bytes of payload of the data packets received by the
+         * network until a second.
+         *
+         * @param sec the second
+         * @return the sum of the data bytes received by the nodes
+         */
+        public long getReceivedDataBytes(final int sec) {
+            return get(sec, RECEIVED_DATA);
+        }
+
+        /**
+         * Prints the series as CSV, a line per second.
+         *
+         * @param out the stream
+         */
+        public void printCsv(final PrintStream out) {
+            out.println("second,motes,alive,battery,flow_table_entries,"
+                    + "sent_bytes,received_bytes,sent_data_bytes,"
+                    + "received_data_bytes");
+            StringBuilder sb = new StringBuilder();
+            for (int s = 0; s < length; s++) {
+                sb.setLength(0);
+                sb.append(s).append(',').append(getMotes(s)).append(',')
+                        .append(getAlive(s)).append(',')
+                        .append(battery[s]);
+                for (int c = ENTRIES; c < COLUMNS; c++) {
+                    sb.append(',').append(sums[s * COLUMNS + c]);
+                }
+                out.println(sb);
+            }
+        }
+
+        /**
+         * Gets a sum.
+         *
+         * @param sec the second
+         * @param col the column
+         * @return the sum
+         */
+        private long get(final int sec, final int col) {
+            check(sec);
+            return sums[sec * COLUMNS + col];
+        }
+
+        /**
+         * Checks a second.
+         *
+         * @param sec the second
+         */
+        private void check(final int sec) {
+            if (sec < 0 || sec >= length) {
+                throw new IndexOutOfBoundsException("Second: " + sec);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the measures taken every second by the nodes of a run to a single
+ * binary file. The measures are buffered and written in blocks, each one
+ * storing its rows column by column, so a reader can aggregate a column
+ * without decoding the others. The file is big endian and made of:
+ * <pre>
+ * MAGIC | VERSION
+ * blocks: ROWS | SECOND (int) x ROWS | ADDRESS (short) x ROWS
+ *       | BATTERY (float) x ROWS | BATTERY_LEVEL (byte) x ROWS
+ *       | FLOW_TABLE_SIZE (short) x ROWS | SENT (int) x ROWS
+ *       | RECEIVED (int) x ROWS | SENT_DATA (int) x ROWS
+ *       | RECEIVED_DATA (int) x ROWS
+ * </pre>
+ * The counters of bytes are the totals since the node started. This class
+ * is thread safe, so the nodes of a process can share a MetricsWriter.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class MetricsWriter implements Closeable {
+
+    /**
+     * The first bytes of a metrics file and the version of the format.
+     */
+    public static final int MAGIC = 0x53574D53, VERSION = 1;
+
+    /**
+     * Default number of rows in a block.
+     */
+    public static final int DFLT_BLOCK_ROWS = 4096;
+
+    /**
+     * Length of a row, in bytes.
+     */
+    static final int ROW_LEN = 4 + 2 + 4 + 1 + 2 + 4 * 4;
+
+    /**
+     * The file.
+     */
+    private final FileChannel out;
+
+    /**
+     * The buffered columns.
+     */
+    private final int[] second, sent, received, sentData, receivedData;
+
+    /**
+     * The buffered columns.
+     */
+    private final short[] address, flowTableSize;
+
+    /**
+     * The buffered column of the battery.
+     */
+    private final float[] battery;
+
+    /**
+     * The buffered column of the battery level.
+     */
+    private final byte[] batteryLevel;
+
+    /**
+     * The encoded block.
+     */
+    private final ByteBuffer block;
+
+    /**
+     * The number of buffered rows.
+     */
+    private int rows;
+
+    /**
+     * Creates a MetricsWriter with blocks of DFLT_BLOCK_ROWS rows.
+     *
+     * @param path the path of the file, truncated if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public MetricsWriter(final Path path) throws IOException {
+        this(path, DFLT_BLOCK_ROWS);
+    }
+
+    /**
+     * Creates a MetricsWriter.
+     *
+     * @param path the path of the file, truncated if it exists
+     * @param blockRows the maximum number of rows in a block
+     * @throws IOException if the file cannot be written
+     */
+    public MetricsWriter(final Path path, final int blockRows)
+            throws IOException {
+        if (blockRows < 1) {
+            throw new IllegalArgumentException("Invalid block rows: "
+                    + blockRows);
+        }
+        second = new int[blockRows];
+        sent = new int[blockRows];
+        received = new int[blockRows];
+        sentData = new int[blockRows];
+        receivedData = new int[blockRows];
+        address = new short[blockRows];
+        flowTableSize = new short[blockRows];
+        battery = new float[blockRows];
+        batteryLevel = new byte[blockRows];
+        block = ByteBuffer.allocate(4 + blockRows * ROW_LEN);
+        out = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        block.putInt(MAGIC).putInt(VERSION).flip();
+        write();
+    }
+
+    /**
+     * Adds the measures of a node.
+     *
+     * @param sec the seconds elapsed since the node started
+     * @param addr the address of the node
+     * @param level the charge of the battery
+     * @param byteLevel the charge of the battery from 0 to 255
+     * @param entries the number of entries in the flow table
+     * @param sentBytes the bytes sent
+     * @param receivedBytes the bytes received
+     * @param sentDataBytes the bytes of payload of the data packets sent
+     * @param receivedDataBytes the bytes of payload of the data packets
+     * received
+     * @throws IOException if a block cannot be written
+     */
+    public synchronized void record(final int sec, final NodeAddress addr,
+            final double level, final int byteLevel, final int entries,
+            final int sentBytes, final int receivedBytes,
+            final int sentDataBytes, final int receivedDataBytes)
+            throws IOException {
+        if (!out.isOpen()) {
+            throw new IllegalStateException("Writer closed");
+        }
+        second[rows] = sec;
+        address[rows] = (short) addr.intValue();
+        battery[rows] = (float) level;
+        batteryLevel[rows] = (byte) byteLevel;
+        flowTableSize[rows] = (short) Math.min(entries, 0xFFFF);
+        sent[rows] = sentBytes;
+        received[rows] = receivedBytes;
+        sentData[rows] = sentDataBytes;
+        receivedData[rows] = receivedDataBytes;
+        rows++;
+        if (rows == second.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered rows as a block.
+     *
+     * @throws IOException if the block cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        block.clear();
+        block.putInt(rows);
+        for (int i = 0; i < rows; i++) {
+            block.putInt(second[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            block.putShort(address[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            block.putFloat(battery[i]);
+        }
+        block.put(batteryLevel, 0, rows);
+        for (int i = 0; i < rows; i++) {
+            block.putShort(flowTableSize[i]);
+        }
+        for (int[] col : new int[][]{sent, received, sentData,
+            receivedData}) {
+            for (int i = 0; i < rows; i++) {
+                block.putInt(col[i]);
+            }
+        }
+        block.flip();
+        rows = 0;
+        write();
+    }
+
+    /**
+     * Writes the buffered rows and closes the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (out.isOpen()) {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the encoded block.
+     *
+     * @throws IOException if the block cannot be written
+     */
+    private void write() throws IOException {
+        while (block.hasRemaining()) {
+            out.write(block);
+        }
+    }
+}
@@ -18,7 +18,7 @@ package com.github.sdnwiselab.sdnwise.util;
 
 /**
  * This Class represents the Neighbor of a NodeAddress, specifying its rssi and
- * level battery value.
+ * level battery value. Two Neighbors are equal if they have the same address.
  *
  * @author Sebastiano Milardo
  */
@@ -87,4 +87,14 @@ public final class Neighbor {
     public int getBatt() {
         return batt;
     }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof Neighbor && addr.equals(((Neighbor) obj).addr);
+    }
+
+    @Override
+    public int hashCode() {
+        return addr.hashCode();
+    }
 }
@@ -0,0 +1,444 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This Class represents the neighbor table of a node. It contains at most a
+ * fixed number of neighbors, one for each address, and is updated without
+ * locks, so the radio thread never waits for a report or a function reading
+ * the table.
+ * <p>
+ * Each neighbor is kept in a single long: its address, its RSSI smoothed with
+ * an exponentially weighted moving average, its battery level and the time it
+ * was last heard. The time is counted in ticks of the table, usually seconds.
+ * A neighbor not heard for more than maxAge ticks is expired: it is not
+ * returned anymore and its slot can be reused. When the table is full, a new
+ * neighbor replaces the one with the weakest RSSI, if it is stronger.
+ * <p>
+ * As a Set, the table contains Neighbors with the smoothed RSSI. Iterators
+ * work on a snapshot of the table.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class NeighborTable extends AbstractSet<Neighbor> {
+
+    /**
+     * Default number of neighbors in a table.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Weight of a new sample in the average RSSI, as a power of two: each
+     * sample weighs 1/4.
+     */
+    private static final int SMOOTHING_SHIFT = 2;
+
+    /**
+     * Layout of a slot: the address plus a bit telling the slot is used, the
+     * RSSI as a fixed point number with 8 fractional bits, the battery level
+     * and the tick of the last update.
+     */
+    private static final int KEY_BITS = 17, RSSI_SHIFT = KEY_BITS,
+            RSSI_BITS = 16, BATT_SHIFT = RSSI_SHIFT + RSSI_BITS,
+            BYTE_BITS = 8, SEEN_SHIFT = BATT_SHIFT + BYTE_BITS,
+            SEEN_BITS = Long.SIZE - SEEN_SHIFT,
+            KEY_MASK = (1 << KEY_BITS) - 1, USED = 1 << (KEY_BITS - 1),
+            RSSI_MASK = (1 << RSSI_BITS) - 1, BYTE_MASK = (1 << BYTE_BITS) - 1,
+            SEEN_MASK = (1 << SEEN_BITS) - 1;
+
+    /**
+     * The slots of the table. A slot equal to 0 is free.
+     */
+    private final AtomicLongArray slots;
+
+    /**
+     * The current tick.
+     */
+    private final AtomicInteger clock = new AtomicInteger();
+
+    /**
+     * The number of ticks after which a neighbor expires.
+     */
+    private volatile int maxAge;
+
+    /**
+     * Creates a NeighborTable of DEFAULT_CAPACITY neighbors.
+     *
+     * @param age the number of ticks after which a neighbor expires
+     */
+    public NeighborTable(final int age) {
+        this(DEFAULT_CAPACITY, age);
+    }
+
+    /**
+     * Creates a NeighborTable.
+     *
+     * @param capacity the maximum number of neighbors, a power of two
+     * @param age the number of ticks after which a neighbor expires
+     */
+    public NeighborTable(final int capacity, final int age) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Invalid capacity: "
+                    + capacity);
+        }
+        slots = new AtomicLongArray(capacity);
+        setMaxAge(age);
+    }
+
+    /**
+     * Adds a neighbor to the table or updates it. The RSSI of a neighbor
+     * already in the table is averaged with the previous ones.
+     *
+     * @param addr the address of the neighbor
+     * @param rssi the RSSI of the last packet received from the neighbor
+     * @param battery the battery level of the neighbor
+     * @return true if the neighbor was not in the table
+     */
+    public boolean update(final NodeAddress addr, final int rssi,
+            final int battery) {
+        if (rssi < 0 || rssi > BYTE_MASK) {
+            throw new IllegalArgumentException("Invalid RSSI: " + rssi);
+        }
+        if (battery < 0 || battery > BYTE_MASK) {
+            throw new IllegalArgumentException("Invalid battery: " + battery);
+        }
+        int key = addr.intValue() | USED;
+        int mask = slots.length() - 1;
+        int start = addr.hashCode() & mask;
+        retry:
+        for (;;) {
+            int now = clock.get();
+            int target = -1, victim = -1;
+            long victimValue = 0;
+            for (int k = 0; k <= mask; k++) {
+                int i = (start + k) & mask;
+                long cur = slots.get(i);
+                boolean live = cur != 0 && !isExpired(cur, now);
+                if (cur != 0 && key(cur) == key) {
+                    int smoothed = live ? smooth(cur, rssi) : rssi << 8;
+                    if (slots.compareAndSet(i, cur,
+                            pack(key, smoothed, battery, now))) {
+                        return !live;
+                    }
+                    continue retry;
+                }
+                if (!live) {
+                    if (target < 0) {
+                        target = i;
+                    }
+                } else if (victim < 0
+                        || rssiFixed(cur) < rssiFixed(victimValue)) {
+                    victim = i;
+                    victimValue = cur;
+                }
+            }
+            if (target < 0) {
+                if (rssi << 8 <= rssiFixed(victimValue)) {
+                    return false;
+                }
+                target = victim;
+            }
+            long old = slots.get(target);
+            if ((target != victim || old != victimValue)
+                    && old != 0 && !isExpired(old, now)) {
+                continue;
+            }
+            if (!slots.compareAndSet(target, old,
+                    pack(key, rssi << 8, battery, now))) {
+                continue;
+            }
+            // another thread may have added the same address meanwhile, in
+            // a slot before or after this one: the lowest slot is kept and,
+            // if it is not this one, the sample is added again to it
+            for (int i = 0; i <= mask; i++) {
+                long cur = slots.get(i);
+                if (i == target || cur == 0 || key(cur) != key) {
+                    continue;
+                }
+                if (i < target) {
+                    clear(target, key);
+                    continue retry;
+                }
+                clear(i, key);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Gets a neighbor.
+     *
+     * @param addr the address of the neighbor
+     * @return the Neighbor or null if it is not in the table
+     */
+    public Neighbor get(final NodeAddress addr) {
+        int key = addr.intValue() | USED;
+        int now = clock.get();
+        for (int i = 0; i < slots.length(); i++) {
+            long cur = slots.get(i);
+            if (cur != 0 && key(cur) == key && !isExpired(cur, now)) {
+                return toNeighbor(cur);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a neighbor.
+     *
+     * @param addr the address of the neighbor
+     * @return true if the neighbor was in the table
+     */
+    public boolean remove(final NodeAddress addr) {
+        int key = addr.intValue() | USED;
+        int now = clock.get();
+        boolean found = false;
+        for (int i = 0; i < slots.length(); i++) {
+            long cur = slots.get(i);
+            if (cur != 0 && key(cur) == key) {
+                found |= !isExpired(cur, now);
+                clear(i, key);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the neighbors with the strongest smoothed RSSI. Neighbors with the
+     * same RSSI are sorted by address.
+     *
+     * @param n the maximum number of neighbors
+     * @return the neighbors, strongest first
+     */
+    public List<Neighbor> best(final int n) {
+        List<Neighbor> list = snapshot();
+        list.sort((a, b) -> a.getRssi() != b.getRssi()
+                ? Integer.compare(b.getRssi(), a.getRssi())
+                : a.getAddr().compareTo(b.getAddr()));
+        return list.size() > n ? new ArrayList<>(list.subList(0, n)) : list;
+    }
+
+    /**
+     * Advances the clock of the table by one tick.
+     */
+    public void tick() {
+        clock.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of ticks after which a neighbor expires.
+     *
+     * @return the maximum age of a neighbor
+     */
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Sets the number of ticks after which a neighbor expires.
+     *
+     * @param age the maximum age of a neighbor
+     */
+    public void setMaxAge(final int age) {
+        if (age <= 0 || age > SEEN_MASK >>> 1) {
+            throw new IllegalArgumentException("Invalid age: " + age);
+        }
+        maxAge = age;
+    }
+
+    /**
+     * Gets the maximum number of neighbors in the table.
+     *
+     * @return the capacity of the table
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    @Override
+    public boolean add(final Neighbor n) {
+        return update(n.getAddr(), n.getRssi(), n.getBatt());
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, 0);
+        }
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Neighbor && get(((Neighbor) o).getAddr()) != null;
+    }
+
+    @Override
+    public Iterator<Neighbor> iterator() {
+        Iterator<Neighbor> it = snapshot().iterator();
+        return new Iterator<Neighbor>() {
+            private Neighbor last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Neighbor next() {
+                last = it.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                NeighborTable.this.remove(last.getAddr());
+                last = null;
+            }
+        };
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return o instanceof Neighbor && remove(((Neighbor) o).getAddr());
+    }
+
+    @Override
+    public int size() {
+        int now = clock.get();
+        int n = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            long cur = slots.get(i);
+            if (cur != 0 && !isExpired(cur, now)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Frees a slot if it still contains a given address.
+     *
+     * @param i the index of the slot
+     * @param key the address plus the USED bit
+     */
+    private void clear(final int i, final int key) {
+        long cur;
+        do {
+            cur = slots.get(i);
+        } while (cur != 0 && key(cur) == key
+                && !slots.compareAndSet(i, cur, 0));
+    }
+
+    /**
+     * Checks if a slot has not been updated for more than maxAge ticks.
+     *
+     * @param slot the slot
+     * @param now the current tick
+     * @return true if the neighbor in the slot is expired
+     */
+    private boolean isExpired(final long slot, final int now) {
+        return ((now - (int) (slot >>> SEEN_SHIFT)) & SEEN_MASK) > maxAge;
+    }
+
+    /**
+     * Gets the live neighbors in slot order.
+     *
+     * @return a new list of Neighbors
+     */
+    private List<Neighbor> snapshot() {
+        int now = clock.get();
+        List<Neighbor> list = new ArrayList<>();
+        for (int i = 0; i < slots.length(); i++) {
+            long cur = slots.get(i);
+            if (cur != 0 && !isExpired(cur, now)) {
+                list.add(toNeighbor(cur));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Averages a new RSSI sample with the one in a slot.
+     *
+     * @param slot the slot
+     * @param rssi the new sample
+     * @return the smoothed RSSI with 8 fractional bits
+     */
+    private static int smooth(final long slot, final int rssi) {
+        int old = rssiFixed(slot);
+        return old + (((rssi << 8) - old) >> SMOOTHING_SHIFT);
+    }
+
+    /**
+     * Packs a neighbor in a slot.
+     *
+     * @param key the address plus the USED bit
+     * @param rssi the RSSI with 8 fractional bits
+     * @param battery the battery level
+     * @param now the current tick
+     * @return the slot
+     */
+    private static long pack(final int key, final int rssi, final int battery,
+            final int now) {
+        return key | (long) rssi << RSSI_SHIFT
+                | (long) battery << BATT_SHIFT
+                | (long) (now & SEEN_MASK) << SEEN_SHIFT;
+    }
+
+    /**
+     * Gets the address plus the USED bit of a slot.
+     *
+     * @param slot the slot
+     * @return the key of the slot
+     */
+    private static int key(final long slot) {
+        return (int) slot & KEY_MASK;
+    }
+
+    /**
+     * Gets the RSSI of a slot.
+     *
+     * @param slot the slot
+     * @return the RSSI with 8 fractional bits
+     */
+    private static int rssiFixed(final long slot) {
+        return (int) (slot >>> RSSI_SHIFT) & RSSI_MASK;
+    }
+
+    /**
+     * Creates the Neighbor contained in a slot.
+     *
+     * @param slot the slot
+     * @return a Neighbor with the rounded smoothed RSSI
+     */
+    private static Neighbor toNeighbor(final long slot) {
+        return new Neighbor(NodeAddress.valueOf(key(slot) & ~USED),
+                Math.min((rssiFixed(slot) + 0x80) >> 8, BYTE_MASK),
+                (int) (slot >>> BATT_SHIFT) & BYTE_MASK);
+    }
+}
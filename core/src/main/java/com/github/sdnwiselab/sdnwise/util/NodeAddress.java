@@ -16,7 +16,6 @@
  */
 package com.github.sdnwiselab.sdnwise.util;
 
-import static com.github.sdnwiselab.sdnwise.util.Utils.mergeBytes;
 import java.io.Serializable;
 
 /**
@@ -24,25 +23,56 @@ import java.io.Serializable;
  * address used by all the nodes in a SDN-WISE Network. The NodeAddress is two
  * byte long. There is a reserved address for broadcast communication which is
  * 255.255.
+ * <p>
+ * A canonical instance for each of the 65536 possible addresses is created
+ * when the class is loaded. Hot paths should obtain addresses through the
+ * {@code valueOf} factories, which never allocate, so that instances coming
+ * from the same address can also be compared by reference.
  *
  * @author Sebastiano Milardo
  */
 public final class NodeAddress implements Comparable<NodeAddress>, Serializable {
 
+    /**
+     * Number of distinct addresses. A NodeAddress is two bytes long.
+     */
+    public static final int ADDRESS_SPACE = 1 << (2 * Byte.SIZE);
+
+    /**
+     * Mask used to reduce an int to a valid address value.
+     */
+    private static final int MASK = ADDRESS_SPACE - 1;
+
+    /**
+     * Mask used to get the unsigned value of a byte.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * The canonical instances, indexed by address value.
+     */
+    private static final NodeAddress[] CACHE = new NodeAddress[ADDRESS_SPACE];
+
+    static {
+        for (int i = 0; i < ADDRESS_SPACE; i++) {
+            CACHE[i] = new NodeAddress(i);
+        }
+    }
+
     /**
      * The default broadcast address.
      */
-    public static final NodeAddress BROADCAST_ADDR = new NodeAddress("255.255");
+    public static final NodeAddress BROADCAST_ADDR = CACHE[MASK];
 
     /**
      * The serialVersionUID as specified in the Serializable interface.
      */
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     /**
-     * A byte array containing the address. A NodeAddress is two bytes long.
+     * The unsigned value of the address, between 0 and 65535.
      */
-    private final byte[] addr = new byte[2];
+    private final int addr;
 
     /**
      * Constructor method to create a Node Address from an int.
@@ -50,8 +80,7 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
      * @param a int value to set a Node Address.
      */
     public NodeAddress(final int a) {
-        addr[0] = (byte) (a >>> Byte.SIZE);
-        addr[1] = (byte) a;
+        addr = a & MASK;
     }
 
     /**
@@ -62,8 +91,9 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
      */
     public NodeAddress(final byte[] a) {
         if (a.length == 2) {
-            addr[0] = a[0];
-            addr[1] = a[1];
+            addr = value(a[0], a[1]);
+        } else {
+            addr = 0;
         }
     }
 
@@ -75,12 +105,9 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
     public NodeAddress(final String a) {
         String[] add = a.split("\\s*\\.\\s*");
         if (add.length == 2) {
-            addr[0] = (byte) Integer.parseInt(add[0]);
-            addr[1] = (byte) Integer.parseInt(add[1]);
+            addr = value(Integer.parseInt(add[0]), Integer.parseInt(add[1]));
         } else {
-            int adr = Integer.parseInt(a);
-            addr[0] = (byte) (adr >>> Byte.SIZE);
-            addr[1] = (byte) adr;
+            addr = Integer.parseInt(a) & MASK;
         }
     }
 
@@ -91,19 +118,62 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
      * @param addr1 int value to set second part of a Node Address.
      */
     public NodeAddress(final int addr0, final int addr1) {
-        addr[0] = (byte) addr0;
-        addr[1] = (byte) addr1;
+        addr = value(addr0, addr1);
+    }
+
+    /**
+     * Returns the canonical NodeAddress for an int. Only the 16 least
+     * significant bits are considered. This method does not allocate.
+     *
+     * @param a int value of the address
+     * @return the canonical NodeAddress
+     */
+    public static NodeAddress valueOf(final int a) {
+        return CACHE[a & MASK];
+    }
+
+    /**
+     * Returns the canonical NodeAddress for a pair of bytes. This method does
+     * not allocate.
+     *
+     * @param high the high part of the address
+     * @param low the low part of the address
+     * @return the canonical NodeAddress
+     */
+    public static NodeAddress valueOf(final int high, final int low) {
+        return CACHE[value(high, low)];
+    }
+
+    /**
+     * Returns the canonical instance equal to a NodeAddress.
+     *
+     * @param a a NodeAddress, possibly created with a constructor
+     * @return the canonical NodeAddress
+     */
+    public static NodeAddress valueOf(final NodeAddress a) {
+        return CACHE[a.addr];
+    }
+
+    /**
+     * Merges the high and low part of an address.
+     *
+     * @param high the high part of the address
+     * @param low the low part of the address
+     * @return the address value, between 0 and 65535
+     */
+    private static int value(final int high, final int low) {
+        return ((high & BYTE_MASK) << Byte.SIZE) | (low & BYTE_MASK);
     }
 
     @Override
     public int compareTo(final NodeAddress other) {
-        return Integer.valueOf(intValue()).compareTo(other.intValue());
+        return Integer.compare(addr, other.addr);
     }
 
     @Override
     public boolean equals(final Object obj) {
-        return obj instanceof NodeAddress
-                && ((NodeAddress) obj).intValue() == intValue();
+        return obj == this || obj instanceof NodeAddress
+                && ((NodeAddress) obj).addr == addr;
     }
 
     /**
@@ -112,7 +182,7 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
      * @return a byte array of Node Address.
      */
     public byte[] getArray() {
-        return new byte[]{addr[0], addr[1]};
+        return new byte[]{getHigh(), getLow()};
     }
 
     /**
@@ -121,7 +191,7 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
      * @return a byte value of High Part of a NodeAddress.
      */
     public byte getHigh() {
-        return addr[0];
+        return (byte) (addr >>> Byte.SIZE);
     }
 
     /**
@@ -130,12 +200,12 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
      * @return a byte value of Low Part of a NodeAddress.
      */
     public byte getLow() {
-        return addr[1];
+        return (byte) addr;
     }
 
     @Override
     public int hashCode() {
-        return Integer.valueOf(intValue()).hashCode();
+        return addr;
     }
 
     /**
@@ -144,7 +214,7 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
      * @return int value of the NodeAddress.
      */
     public int intValue() {
-        return mergeBytes(addr[0], addr[1]);
+        return addr;
     }
 
     /**
@@ -153,7 +223,7 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
      * @return true if equal to 255.255 false otherwise
      */
     public boolean isBroadcast() {
-        return equals(BROADCAST_ADDR);
+        return addr == MASK;
     }
 
     /**
@@ -162,11 +232,20 @@ public final class NodeAddress implements Comparable<NodeAddress>, Serializable
      * @return a byte array of Node Address.
      */
     public Byte[] toByteArray() {
-        return new Byte[]{addr[0], addr[1]};
+        return new Byte[]{getHigh(), getLow()};
     }
 
     @Override
     public String toString() {
-        return Byte.toUnsignedInt(addr[0]) + "." + Byte.toUnsignedInt(addr[1]);
+        return (addr >>> Byte.SIZE) + "." + (addr & BYTE_MASK);
+    }
+
+    /**
+     * Replaces a deserialized NodeAddress with the canonical instance.
+     *
+     * @return the canonical NodeAddress
+     */
+    private Object readResolve() {
+        return CACHE[addr];
     }
 }
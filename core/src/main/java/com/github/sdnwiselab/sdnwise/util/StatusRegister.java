@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * This Class represents the status register of a node: a fixed number of int
+ * values, all 0 when the register is created. The values are kept in an int
+ * array that grows only up to the highest register set to a non zero value,
+ * so a node that never uses its status register takes almost no memory.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class StatusRegister {
+
+    /**
+     * Shared by all the empty registers.
+     */
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Minimum number of values allocated when the register grows.
+     */
+    private static final int MIN_GROWTH = 16;
+
+    /**
+     * Number of values in the register.
+     */
+    private final int size;
+
+    /**
+     * The values set so far. Values beyond its length are 0.
+     */
+    private int[] values = EMPTY;
+
+    /**
+     * Creates a StatusRegister with all values set to 0.
+     *
+     * @param length the number of values in the register
+     */
+    public StatusRegister(final int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length");
+        }
+        size = length;
+    }
+
+    /**
+     * Sets all the values to 0 and releases the memory used.
+     */
+    public void clear() {
+        values = EMPTY;
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param i the index of the value
+     * @return the value
+     * @throws IndexOutOfBoundsException if i is negative or not less than
+     * size()
+     */
+    public int get(final int i) {
+        checkIndex(i);
+        return i < values.length ? values[i] : 0;
+    }
+
+    /**
+     * Sets a value.
+     *
+     * @param i the index of the value
+     * @param value the new value
+     * @return the previous value
+     * @throws IndexOutOfBoundsException if i is negative or not less than
+     * size()
+     */
+    public int set(final int i, final int value) {
+        checkIndex(i);
+        if (i >= values.length) {
+            if (value == 0) {
+                return 0;
+            }
+            int capacity = Math.max(i + 1,
+                    Math.max(MIN_GROWTH, values.length * 2));
+            values = Arrays.copyOf(values, Math.min(capacity, size));
+        }
+        int old = values[i];
+        values[i] = value;
+        return old;
+    }
+
+    /**
+     * Gets the number of values in the register.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a fixed size List view of the register, for the code still
+     * expecting a list of Integers. Changes made through the view are written
+     * in the register.
+     *
+     * @return a List view of the register
+     */
+    public List<Integer> asList() {
+        return new ListView();
+    }
+
+    /**
+     * Returns the same view as asList, as an ArrayList. It is meant for the
+     * functions compiled against the FunctionInterface taking an ArrayList:
+     * the view holds no elements of its own and changing its size throws an
+     * UnsupportedOperationException.
+     *
+     * @return an ArrayList view of the register
+     */
+    public ArrayList<Integer> asArrayList() {
+        return new ArrayListView(new ListView());
+    }
+
+    /**
+     * Checks if an index is in the register.
+     *
+     * @param i the index
+     */
+    private void checkIndex(final int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+                    + size);
+        }
+    }
+
+    /**
+     * A List view of the register.
+     */
+    private final class ListView extends AbstractList<Integer>
+            implements RandomAccess {
+
+        @Override
+        public Integer get(final int index) {
+            return StatusRegister.this.get(index);
+        }
+
+        @Override
+        public Integer set(final int index, final Integer element) {
+            return StatusRegister.this.set(index, element);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * An ArrayList forwarding every call to a List view of the register. The
+     * storage inherited from ArrayList stays empty.
+     */
+    private static final class ArrayListView extends ArrayList<Integer> {
+
+        /**
+         * The serialVersionUID as specified in the Serializable interface.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The view receiving the calls.
+         */
+        private final List<Integer> view;
+
+        /**
+         * Creates an ArrayListView.
+         *
+         * @param v the view receiving the calls
+         */
+        ArrayListView(final List<Integer> v) {
+            super(0);
+            view = v;
+        }
+
+        @Override
+        public int size() {
+            return view.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return view.isEmpty();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return view.contains(o);
+        }
+
+        @Override
+        public int indexOf(final Object o) {
+            return view.indexOf(o);
+        }
+
+        @Override
+        public int lastIndexOf(final Object o) {
+            return view.lastIndexOf(o);
+        }
+
+        @Override
+        public Object clone() {
+            return new ArrayList<>(view);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return view.toArray();
+        }
+
+        @Override
+        public <T> T[] toArray(final T[] a) {
+            return view.toArray(a);
+        }
+
+        @Override
+        public Integer get(final int index) {
+            return view.get(index);
+        }
+
+        @Override
+        public Integer set(final int index, final Integer element) {
+            return view.set(index, element);
+        }
+
+        @Override
+        public boolean add(final Integer e) {
+            return view.add(e);
+        }
+
+        @Override
+        public void add(final int index, final Integer element) {
+            view.add(index, element);
+        }
+
+        @Override
+        public Integer remove(final int index) {
+            return view.remove(index);
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            return view.remove(o);
+        }
+
+        @Override
+        public void clear() {
+            view.clear();
+        }
+
+        @Override
+        public boolean addAll(final Collection<? extends Integer> c) {
+            return view.addAll(c);
+        }
+
+        @Override
+        public boolean addAll(final int index,
+                final Collection<? extends Integer> c) {
+            return view.addAll(index, c);
+        }
+
+        @Override
+        protected void removeRange(final int fromIndex, final int toIndex) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeAll(final Collection<?> c) {
+            return view.removeAll(c);
+        }
+
+        @Override
+        public boolean retainAll(final Collection<?> c) {
+            return view.retainAll(c);
+        }
+
+        @Override
+        public boolean containsAll(final Collection<?> c) {
+            return view.containsAll(c);
+        }
+
+        @Override
+        public ListIterator<Integer> listIterator(final int index) {
+            return view.listIterator(index);
+        }
+
+        @Override
+        public ListIterator<Integer> listIterator() {
+            return view.listIterator();
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return view.iterator();
+        }
+
+        @Override
+        public List<Integer> subList(final int fromIndex, final int toIndex) {
+            return view.subList(fromIndex, toIndex);
+        }
+
+        @Override
+        public void forEach(final Consumer<? super Integer> action) {
+            view.forEach(action);
+        }
+
+        @Override
+        public Spliterator<Integer> spliterator() {
+            return view.spliterator();
+        }
+
+        @Override
+        public boolean removeIf(final Predicate<? super Integer> filter) {
+            return view.removeIf(filter);
+        }
+
+        @Override
+        public void replaceAll(final UnaryOperator<Integer> operator) {
+            view.replaceAll(operator);
+        }
+
+        @Override
+        public void sort(final Comparator<? super Integer> c) {
+            view.sort(c);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return view.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return view.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return view.toString();
+        }
+    }
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This Class represents the topology of an emulated network in a compact
+ * binary form: the nodes with their address and position, and for each node
+ * the nodes hearing it with the RSSI of the link. The same bytes are used in
+ * memory and in a topology file, so a file can be memory mapped and shared
+ * by all the nodes of a process instead of reading a neighbor file per node.
+ * <p>
+ * The file is big endian and made of a header followed by three tables:
+ * <pre>
+ * MAGIC | VERSION | NODES | LINKS | BASE_PORT
+ * NODES times: ADDRESS (int) | X (float) | Y (float)
+ * NODES + 1 times: OFFSET of the first link of the node (int)
+ * LINKS times: NEIGHBOR index (3 bytes) | RSSI (1 byte)
+ * </pre>
+ * A node of an emulated network listens on the base port plus the int value
+ * of its address, so the nodes are at most as many as the addresses and the
+ * port of every node must be a valid UDP port. A Topology is immutable and
+ * thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class Topology {
+
+    /**
+     * The extension of the topology files.
+     */
+    public static final String FILE_EXTENSION = ".topo";
+
+    /**
+     * The first bytes of a topology file and the version of the format.
+     */
+    public static final int MAGIC = 0x53575450, VERSION = 1;
+
+    /**
+     * Maximum number of nodes, one per address.
+     */
+    public static final int MAX_NODES = NodeAddress.ADDRESS_SPACE;
+
+    /**
+     * Maximum port of a node.
+     */
+    public static final int MAX_PORT = 0xFFFF;
+
+    /**
+     * Lengths of the header and of the records, in bytes.
+     */
+    private static final int HEADER_LEN = 20, NODE_LEN = 12, OFFSET_LEN = 4,
+            LINK_LEN = 4;
+
+    /**
+     * Positions in the header.
+     */
+    private static final int NODES_INDEX = 8, LINKS_INDEX = 12,
+            PORT_INDEX = 16;
+
+    /**
+     * The last topology mapped from each path, with the identity of the file
+     * it was mapped from.
+     */
+    private static final Map<Path, Mapping> MAPPED =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The bytes of the topology.
+     */
+    private final ByteBuffer buf;
+
+    /**
+     * Number of nodes and links, and base port.
+     */
+    private final int nodes, links, basePort;
+
+    /**
+     * The index of each node by address, -1 if there is no such node.
+     */
+    private final int[] index = new int[NodeAddress.ADDRESS_SPACE];
+
+    /**
+     * Creates a Topology from its bytes.
+     *
+     * @param b the bytes of the topology, from position 0
+     * @throws IllegalArgumentException if the bytes are not a valid topology
+     */
+    private Topology(final ByteBuffer b) {
+        buf = b;
+        if (b.capacity() < HEADER_LEN || b.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a topology");
+        }
+        if (b.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported version: "
+                    + b.getInt(4));
+        }
+        nodes = b.getInt(NODES_INDEX);
+        links = b.getInt(LINKS_INDEX);
+        basePort = b.getInt(PORT_INDEX);
+        if (nodes < 0 || nodes > MAX_NODES || links < 0
+                || b.capacity() < length(nodes, links)) {
+            throw new IllegalArgumentException("Truncated topology");
+        }
+        if (basePort < 0 || basePort > MAX_PORT) {
+            throw new IllegalArgumentException("Invalid port: " + basePort);
+        }
+        Arrays.fill(index, -1);
+        for (int i = 0; i < nodes; i++) {
+            int a = getAddressValue(i);
+            if (a < 0 || a >= NodeAddress.ADDRESS_SPACE) {
+                throw new IllegalArgumentException("Invalid address: " + a);
+            }
+            if (basePort + a > MAX_PORT) {
+                throw new IllegalArgumentException("Invalid port: "
+                        + (basePort + a) + " for node " + a);
+            }
+            index[a] = i;
+        }
+    }
+
+    /**
+     * Maps a topology file. The same Topology is returned for every call
+     * with the same path, so all the nodes of a process share the mapping,
+     * until the file is replaced: a file written again is mapped again.
+     *
+     * @param path the path of the topology file
+     * @return the Topology contained in the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid topology
+     */
+    public static Topology map(final Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        List<Object> id = identity(key);
+        Mapping m = MAPPED.get(key);
+        if (m == null || !m.id.equals(id)) {
+            Topology t;
+            try (FileChannel ch = FileChannel.open(key,
+                    StandardOpenOption.READ)) {
+                t = new Topology(ch.map(FileChannel.MapMode.READ_ONLY, 0,
+                        ch.size()));
+            }
+            m = MAPPED.merge(key, new Mapping(id, t),
+                    (a, b) -> a.id.equals(b.id) ? a : b);
+        }
+        return m.topology;
+    }
+
+    /**
+     * Gets what identifies the content of a file: its size, its last
+     * modification time and its key, that changes when the file is replaced.
+     *
+     * @param path the path of the file
+     * @return the identity of the file
+     * @throws IOException if the attributes of the file cannot be read
+     */
+    private static List<Object> identity(final Path path) throws IOException {
+        BasicFileAttributes a = Files.readAttributes(path,
+                BasicFileAttributes.class);
+        return Arrays.asList(a.size(), a.lastModifiedTime(), a.fileKey());
+    }
+
+    /**
+     * Checks if a path names a topology file.
+     *
+     * @param path the path
+     * @return true if the path has the topology file extension
+     */
+    public static boolean isTopologyFile(final String path) {
+        return path != null && path.endsWith(FILE_EXTENSION);
+    }
+
+    /**
+     * Writes the topology to a file. The file is written aside and then
+     * moved in place, so the topologies already mapped from the previous
+     * file stay valid.
+     *
+     * @param path the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        Path tmp = Files.createTempFile(key.getParent(),
+                key.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer b = buf.duplicate();
+                b.clear().limit(length(nodes, links));
+                while (b.hasRemaining()) {
+                    ch.write(b);
+                }
+            }
+            try {
+                Files.move(tmp, key, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, key, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+            MAPPED.remove(key);
+        }
+    }
+
+    /**
+     * Gets the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return nodes;
+    }
+
+    /**
+     * Gets the number of links.
+     *
+     * @return the number of links
+     */
+    public int getLinks() {
+        return links;
+    }
+
+    /**
+     * Gets the port of the node with address 0.
+     *
+     * @return the base port
+     */
+    public int getBasePort() {
+        return basePort;
+    }
+
+    /**
+     * Gets the index of a node.
+     *
+     * @param addr the address of the node
+     * @return the index of the node, or -1 if it is not in the topology
+     */
+    public int indexOf(final NodeAddress addr) {
+        return index[addr.intValue()];
+    }
+
+    /**
+     * Gets the address of a node.
+     *
+     * @param i the index of the node
+     * @return the address of the node
+     */
+    public NodeAddress getAddress(final int i) {
+        return NodeAddress.valueOf(getAddressValue(i));
+    }
+
+    /**
+     * Gets the port of a node in an emulated network.
+     *
+     * @param i the index of the node
+     * @return the base port plus the int value of the address of the node
+     */
+    public int getPort(final int i) {
+        return basePort + getAddressValue(i);
+    }
+
+    /**
+     * Gets the x coordinate of a node.
+     *
+     * @param i the index of the node
+     * @return the x coordinate of the node
+     */
+    public float getX(final int i) {
+        return buf.getFloat(nodeAt(i) + 4);
+    }
+
+    /**
+     * Gets the y coordinate of a node.
+     *
+     * @param i the index of the node
+     * @return the y coordinate of the node
+     */
+    public float getY(final int i) {
+        return buf.getFloat(nodeAt(i) + 8);
+    }
+
+    /**
+     * Gets the number of nodes hearing a node.
+     *
+     * @param i the index of the node
+     * @return the number of links of the node
+     */
+    public int getDegree(final int i) {
+        return offset(i + 1) - offset(i);
+    }
+
+    /**
+     * Gets a node hearing a node.
+     *
+     * @param i the index of the node
+     * @param k the position of the link among the links of the node
+     * @return the index of the neighbor
+     */
+    public int getNeighbor(final int i, final int k) {
+        return buf.getInt(linkAt(i, k)) >>> 8;
+    }
+
+    /**
+     * Gets the RSSI of a link.
+     *
+     * @param i the index of the node
+     * @param k the position of the link among the links of the node
+     * @return the RSSI measured by the neighbor
+     */
+    public int getRssi(final int i, final int k) {
+        return buf.getInt(linkAt(i, k)) & 0xFF;
+    }
+
+    /**
+     * Gets the int value of the address of a node.
+     *
+     * @param i the index of the node
+     * @return the int value of the address
+     */
+    private int getAddressValue(final int i) {
+        return buf.getInt(nodeAt(i));
+    }
+
+    /**
+     * Gets the position of a node record.
+     *
+     * @param i the index of the node
+     * @return the position of the record in the buffer
+     */
+    private int nodeAt(final int i) {
+        if (i < 0 || i >= nodes) {
+            throw new IndexOutOfBoundsException("Node: " + i);
+        }
+        return HEADER_LEN + i * NODE_LEN;
+    }
+
+    /**
+     * Gets the first link of a node.
+     *
+     * @param i the index of the node, up to the number of nodes
+     * @return the position of the first link among all the links
+     */
+    private int offset(final int i) {
+        return buf.getInt(HEADER_LEN + nodes * NODE_LEN + i * OFFSET_LEN);
+    }
+
+    /**
+     * Gets the position of a link record.
+     *
+     * @param i the index of the node
+     * @param k the position of the link among the links of the node
+     * @return the position of the record in the buffer
+     */
+    private int linkAt(final int i, final int k) {
+        nodeAt(i);
+        int first = offset(i);
+        if (k < 0 || k >= offset(i + 1) - first) {
+            throw new IndexOutOfBoundsException("Link: " + k);
+        }
+        return HEADER_LEN + nodes * NODE_LEN + (nodes + 1) * OFFSET_LEN
+                + (first + k) * LINK_LEN;
+    }
+
+    /**
+     * Gets the length of a topology.
+     *
+     * @param n the number of nodes
+     * @param m the number of links
+     * @return the length in bytes
+     */
+    private static int length(final int n, final int m) {
+        long len = HEADER_LEN + (long) n * NODE_LEN
+                + (long) (n + 1) * OFFSET_LEN + (long) m * LINK_LEN;
+        if (len > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Topology too large");
+        }
+        return (int) len;
+    }
+
+    /**
+     * Builds a Topology. The nodes are added first, then the links. This
+     * class is not thread safe.
+     */
+    public static final class Builder {
+
+        /**
+         * The int values of the addresses of the nodes.
+         */
+        private int[] addrs = new int[16];
+
+        /**
+         * The coordinates of the nodes.
+         */
+        private float[] xs = new float[16], ys = new float[16];
+
+        /**
+         * The links, as source index, neighbor index and RSSI packed in a
+         * long.
+         */
+        private long[] edges = new long[16];
+
+        /**
+         * The number of nodes and links.
+         */
+        private int n, m;
+
+        /**
+         * The base port.
+         */
+        private int port;
+
+        /**
+         * The addresses already used.
+         */
+        private final AddressSet used = new AddressSet();
+
+        /**
+         * Sets the port of the node with address 0.
+         *
+         * @param p the base port
+         * @return this Builder
+         */
+        public Builder setBasePort(final int p) {
+            if (p < 0 || p > MAX_PORT) {
+                throw new IllegalArgumentException("Invalid port: " + p);
+            }
+            port = p;
+            return this;
+        }
+
+        /**
+         * Adds a node.
+         *
+         * @param addr the address of the node
+         * @param x the x coordinate of the node
+         * @param y the y coordinate of the node
+         * @return the index of the node
+         */
+        public int addNode(final NodeAddress addr, final double x,
+                final double y) {
+            if (n == MAX_NODES) {
+                throw new IllegalStateException("Too many nodes");
+            }
+            if (!used.add(addr.intValue())) {
+                throw new IllegalArgumentException("Duplicate address: "
+                        + addr);
+            }
+            if (n == addrs.length) {
+                addrs = Arrays.copyOf(addrs, n * 2);
+                xs = Arrays.copyOf(xs, n * 2);
+                ys = Arrays.copyOf(ys, n * 2);
+            }
+            addrs[n] = addr.intValue();
+            xs[n] = (float) x;
+            ys[n] = (float) y;
+            return n++;
+        }
+
+        /**
+         * Adds a link. The neighbor hears the node with the given RSSI.
+         *
+         * @param i the index of the node
+         * @param j the index of the neighbor
+         * @param rssi the RSSI, from 0 to 255
+         * @return this Builder
+         */
+        public Builder addLink(final int i, final int j, final int rssi) {
+            if (i < 0 || i >= n || j < 0 || j >= n || i == j) {
+                throw new IllegalArgumentException("Invalid link: " + i
+                        + " -> " + j);
+            }
+            if (rssi < 0 || rssi > 0xFF) {
+                throw new IllegalArgumentException("Invalid RSSI: " + rssi);
+            }
+            if (m == edges.length) {
+                edges = Arrays.copyOf(edges, m * 2);
+            }
+            edges[m++] = ((long) i << 32) | ((long) j << 8) | rssi;
+            return this;
+        }
+
+        /**
+         * Adds a link in both directions.
+         *
+         * @param i the index of a node
+         * @param j the index of the other node
+         * @param rssi the RSSI, from 0 to 255
+         * @return this Builder
+         */
+        public Builder addLinks(final int i, final int j, final int rssi) {
+            addLink(i, j, rssi);
+            return addLink(j, i, rssi);
+        }
+
+        /**
+         * Gets the number of nodes added so far.
+         *
+         * @return the number of nodes
+         */
+        public int size() {
+            return n;
+        }
+
+        /**
+         * Gets the x coordinate of a node added so far.
+         *
+         * @param i the index of the node
+         * @return the x coordinate of the node
+         */
+        public float getX(final int i) {
+            return xs[i];
+        }
+
+        /**
+         * Gets the y coordinate of a node added so far.
+         *
+         * @param i the index of the node
+         * @return the y coordinate of the node
+         */
+        public float getY(final int i) {
+            return ys[i];
+        }
+
+        /**
+         * Builds the Topology. The links of each node are sorted by
+         * neighbor.
+         *
+         * @return the Topology
+         * @throws IllegalArgumentException if the port of a node is greater
+         * than MAX_PORT
+         */
+        public Topology build() {
+            long[] sorted = Arrays.copyOf(edges, m);
+            Arrays.sort(sorted);
+            ByteBuffer b = ByteBuffer.allocate(length(n, m));
+            b.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m).putInt(port);
+            for (int i = 0; i < n; i++) {
+                b.putInt(addrs[i]).putFloat(xs[i]).putFloat(ys[i]);
+            }
+            int k = 0;
+            for (int i = 0; i <= n; i++) {
+                while (k < m && (int) (sorted[k] >>> 32) < i) {
+                    k++;
+                }
+                b.putInt(k);
+            }
+            for (long e : sorted) {
+                b.putInt((int) e);
+            }
+            return new Topology(b);
+        }
+    }
+
+    /**
+     * A Topology mapped from a file, with the identity of the file.
+     */
+    private static final class Mapping {
+
+        /**
+         * The identity of the file.
+         */
+        private final List<Object> id;
+
+        /**
+         * The Topology.
+         */
+        private final Topology topology;
+
+        /**
+         * Creates a Mapping.
+         *
+         * @param i the identity of the file
+         * @param t the Topology mapped from the file
+         */
+        Mapping(final List<Object> i, final Topology t) {
+            id = i;
+            topology = t;
+        }
+    }
+}
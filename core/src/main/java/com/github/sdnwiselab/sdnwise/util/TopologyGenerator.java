@@ -0,0 +1,440 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates synthetic topologies. The nodes get consecutive addresses from
+ * the first address, which is usually the one of the sink, and the RSSI of a
+ * link decreases linearly with its length, from MAX_RSSI for two nodes in
+ * the same place to MIN_RSSI at the range of the radio.
+ * <p>
+ * In the random geometric and clustered topologies two nodes are linked if
+ * they are within range, so the topology may be disconnected if it is too
+ * sparse. The candidate neighbors are found with a grid of cells as large as
+ * the range, so the generation takes linear time. The same seed always
+ * generates the same topology. This class is not thread safe.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class TopologyGenerator {
+
+    /**
+     * Default range of the radio in meters.
+     */
+    public static final double DFLT_RANGE = 100;
+
+    /**
+     * RSSI of the shortest and of the longest link.
+     */
+    public static final int MAX_RSSI = 255, MIN_RSSI = 180;
+
+    /**
+     * Default first address.
+     */
+    public static final int DFLT_FIRST_ADDRESS = 1;
+
+    /**
+     * Generates the random positions.
+     */
+    private final Random random;
+
+    /**
+     * The range of the radio.
+     */
+    private double range = DFLT_RANGE;
+
+    /**
+     * The first address and the base port.
+     */
+    private int first = DFLT_FIRST_ADDRESS, basePort;
+
+    /**
+     * Creates a TopologyGenerator.
+     *
+     * @param seed the seed of the random positions
+     */
+    public TopologyGenerator(final long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Sets the range of the radio.
+     *
+     * @param r the range in meters, greater than 0
+     * @return this TopologyGenerator
+     */
+    public TopologyGenerator setRange(final double r) {
+        if (!(r > 0)) {
+            throw new IllegalArgumentException("Invalid range: " + r);
+        }
+        range = r;
+        return this;
+    }
+
+    /**
+     * Sets the address of the first node.
+     *
+     * @param a the int value of the address
+     * @return this TopologyGenerator
+     */
+    public TopologyGenerator setFirstAddress(final int a) {
+        if (a < 0 || a >= NodeAddress.ADDRESS_SPACE) {
+            throw new IllegalArgumentException("Invalid address: " + a);
+        }
+        first = a;
+        return this;
+    }
+
+    /**
+     * Sets the port of the node with address 0 in an emulated network.
+     *
+     * @param p the base port
+     * @return this TopologyGenerator
+     */
+    public TopologyGenerator setBasePort(final int p) {
+        if (p < 0 || p > Topology.MAX_PORT) {
+            throw new IllegalArgumentException("Invalid port: " + p);
+        }
+        basePort = p;
+        return this;
+    }
+
+    /**
+     * Generates a topology from its description: the kind of topology
+     * followed by its parameters, separated by colons. The kinds are
+     * grid:ROWS:COLS:SPACING, line:N:SPACING, tree:N:FANOUT:SPACING,
+     * random:N:WIDTH:HEIGHT[:RANGE] and
+     * clustered:CLUSTERS:N:WIDTH:HEIGHT:RADIUS[:RANGE].
+     *
+     * @param spec the description of the topology
+     * @return the Topology
+     * @throws IllegalArgumentException if the description is not valid
+     */
+    public Topology generate(final String spec) {
+        String[] p = spec.split(":");
+        switch (p[0]) {
+            case "grid":
+                checkParams(spec, p, 3, 3);
+                return grid(Integer.parseInt(p[1]), Integer.parseInt(p[2]),
+                        Double.parseDouble(p[3]));
+            case "line":
+                checkParams(spec, p, 2, 2);
+                return line(Integer.parseInt(p[1]), Double.parseDouble(p[2]));
+            case "tree":
+                checkParams(spec, p, 3, 3);
+                return tree(Integer.parseInt(p[1]), Integer.parseInt(p[2]),
+                        Double.parseDouble(p[3]));
+            case "random":
+                checkParams(spec, p, 3, 4);
+                if (p.length > 4) {
+                    setRange(Double.parseDouble(p[4]));
+                }
+                return randomGeometric(Integer.parseInt(p[1]),
+                        Double.parseDouble(p[2]), Double.parseDouble(p[3]));
+            case "clustered":
+                checkParams(spec, p, 5, 6);
+                if (p.length > 6) {
+                    setRange(Double.parseDouble(p[6]));
+                }
+                return clustered(Integer.parseInt(p[1]),
+                        Integer.parseInt(p[2]), Double.parseDouble(p[3]),
+                        Double.parseDouble(p[4]), Double.parseDouble(p[5]));
+            default:
+                throw new IllegalArgumentException("Unknown topology: "
+                        + p[0]);
+        }
+    }
+
+    /**
+     * Generates a grid, where each node is linked to the nodes on its left,
+     * right, top and bottom. The first node is in a corner.
+     *
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param spacing the distance between two adjacent nodes
+     * @return the Topology
+     */
+    public Topology grid(final int rows, final int cols,
+            final double spacing) {
+        checkSize((long) rows * cols);
+        Topology.Builder b = builder();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                addNode(b, c * spacing, r * spacing);
+            }
+        }
+        int rssi = rssi(spacing);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int i = r * cols + c;
+                if (c + 1 < cols) {
+                    b.addLinks(i, i + 1, rssi);
+                }
+                if (r + 1 < rows) {
+                    b.addLinks(i, i + cols, rssi);
+                }
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * Generates a line, where each node is linked to the previous and to the
+     * next one. The first node is at one end.
+     *
+     * @param n the number of nodes
+     * @param spacing the distance between two adjacent nodes
+     * @return the Topology
+     */
+    public Topology line(final int n, final double spacing) {
+        return grid(1, n, spacing);
+    }
+
+    /**
+     * Generates a complete tree, where each node is linked to its parent and
+     * to its children. The first node is the root.
+     *
+     * @param n the number of nodes
+     * @param fanout the number of children of each node, at least 1
+     * @param spacing the distance between two levels of the tree
+     * @return the Topology
+     */
+    public Topology tree(final int n, final int fanout,
+            final double spacing) {
+        checkSize(n);
+        if (fanout < 1) {
+            throw new IllegalArgumentException("Invalid fanout: " + fanout);
+        }
+        Topology.Builder b = builder();
+        int level = 0;
+        long levelStart = 0, levelSize = 1;
+        for (int i = 0; i < n; i++) {
+            if (i == levelStart + levelSize) {
+                level++;
+                levelStart = i;
+                levelSize *= fanout;
+            }
+            double width = levelSize * spacing;
+            addNode(b, (i - levelStart + 0.5) * spacing - width / 2,
+                    level * spacing);
+        }
+        for (int i = 1; i < n; i++) {
+            int parent = (i - 1) / fanout;
+            b.addLinks(parent, i, rssi(distance(b, parent, i)));
+        }
+        return b.build();
+    }
+
+    /**
+     * Generates nodes placed at random in a rectangle. The first node is in
+     * the center of the rectangle.
+     *
+     * @param n the number of nodes
+     * @param width the width of the rectangle
+     * @param height the height of the rectangle
+     * @return the Topology
+     */
+    public Topology randomGeometric(final int n, final double width,
+            final double height) {
+        checkSize(n);
+        Topology.Builder b = builder();
+        List<double[]> pos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            pos.add(i == 0 ? new double[]{width / 2, height / 2}
+                    : new double[]{random.nextDouble() * width,
+                        random.nextDouble() * height});
+        }
+        return linkInRange(b, pos);
+    }
+
+    /**
+     * Generates clusters of nodes. The centers of the clusters are placed at
+     * random in a rectangle and the nodes of each cluster at random in a
+     * disk around its center. The first node is in the center of the
+     * rectangle.
+     *
+     * @param clusters the number of clusters, at least 1
+     * @param n the number of nodes
+     * @param width the width of the rectangle
+     * @param height the height of the rectangle
+     * @param radius the radius of a cluster
+     * @return the Topology
+     */
+    public Topology clustered(final int clusters, final int n,
+            final double width, final double height, final double radius) {
+        checkSize(n);
+        if (clusters < 1) {
+            throw new IllegalArgumentException("Invalid clusters: "
+                    + clusters);
+        }
+        double[][] centers = new double[clusters][];
+        for (int c = 0; c < clusters; c++) {
+            centers[c] = new double[]{random.nextDouble() * width,
+                random.nextDouble() * height};
+        }
+        List<double[]> pos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (i == 0) {
+                pos.add(new double[]{width / 2, height / 2});
+                continue;
+            }
+            double[] c = centers[i % clusters];
+            double r = radius * Math.sqrt(random.nextDouble());
+            double a = 2 * Math.PI * random.nextDouble();
+            pos.add(new double[]{c[0] + r * Math.cos(a),
+                c[1] + r * Math.sin(a)});
+        }
+        return linkInRange(builder(), pos);
+    }
+
+    /**
+     * Adds the nodes and links the ones within range.
+     *
+     * @param b the builder
+     * @param pos the positions of the nodes
+     * @return the Topology
+     */
+    private Topology linkInRange(final Topology.Builder b,
+            final List<double[]> pos) {
+        Map<Long, List<Integer>> grid = new HashMap<>();
+        for (double[] p : pos) {
+            int i = addNode(b, p[0], p[1]);
+            grid.computeIfAbsent(cell(p[0], p[1], 0, 0),
+                    k -> new ArrayList<>()).add(i);
+        }
+        for (int i = 0; i < pos.size(); i++) {
+            double[] p = pos.get(i);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    List<Integer> c = grid.get(cell(p[0], p[1], dx, dy));
+                    if (c == null) {
+                        continue;
+                    }
+                    for (int j : c) {
+                        double d = distance(b, i, j);
+                        if (j != i && d <= range) {
+                            b.addLink(i, j, rssi(d));
+                        }
+                    }
+                }
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * Gets the key of a cell of the grid.
+     *
+     * @param x the x coordinate of a point
+     * @param y the y coordinate of a point
+     * @param dx the offset of the cell from the one of the point
+     * @param dy the offset of the cell from the one of the point
+     * @return the key of the cell
+     */
+    private long cell(final double x, final double y, final int dx,
+            final int dy) {
+        long cx = (long) Math.floor(x / range) + dx;
+        long cy = (long) Math.floor(y / range) + dy;
+        return (cx << 32) ^ (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets a new builder.
+     *
+     * @return the builder
+     */
+    private Topology.Builder builder() {
+        return new Topology.Builder().setBasePort(basePort);
+    }
+
+    /**
+     * Adds the next node.
+     *
+     * @param b the builder
+     * @param x the x coordinate of the node
+     * @param y the y coordinate of the node
+     * @return the index of the node
+     */
+    private int addNode(final Topology.Builder b, final double x,
+            final double y) {
+        return b.addNode(NodeAddress.valueOf(first + b.size()), x, y);
+    }
+
+    /**
+     * Checks the number of parameters of a topology description.
+     *
+     * @param spec the description
+     * @param p the kind of topology followed by its parameters
+     * @param min the minimum number of parameters
+     * @param max the maximum number of parameters
+     */
+    private static void checkParams(final String spec, final String[] p,
+            final int min, final int max) {
+        if (p.length - 1 < min || p.length - 1 > max) {
+            throw new IllegalArgumentException("Invalid topology: " + spec);
+        }
+    }
+
+    /**
+     * Checks that the nodes fit in the address space and that their ports
+     * are valid.
+     *
+     * @param n the number of nodes
+     */
+    private void checkSize(final long n) {
+        if (n < 1 || n > Topology.MAX_NODES
+                || first + n > NodeAddress.ADDRESS_SPACE) {
+            throw new IllegalArgumentException("Invalid number of nodes: "
+                    + n);
+        }
+        long last = basePort + first + n - 1;
+        if (last > Topology.MAX_PORT) {
+            throw new IllegalArgumentException("Invalid port: " + last
+                    + " for node " + (first + n - 1));
+        }
+    }
+
+    /**
+     * Computes the distance between two nodes.
+     *
+     * @param b the builder
+     * @param i the index of a node
+     * @param j the index of the other node
+     * @return the distance
+     */
+    private static double distance(final Topology.Builder b, final int i,
+            final int j) {
+        return Math.hypot(b.getX(i) - b.getX(j), b.getY(i) - b.getY(j));
+    }
+
+    /**
+     * Computes the RSSI of a link.
+     *
+     * @param d the length of the link
+     * @return the RSSI
+     */
+    private int rssi(final double d) {
+        double v = MAX_RSSI - (MAX_RSSI - MIN_RSSI) * d / range;
+        return (int) Math.max(MIN_RSSI, Math.round(v));
+    }
+}
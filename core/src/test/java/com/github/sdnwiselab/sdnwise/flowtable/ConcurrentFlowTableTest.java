@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.flowtable;
+
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the ConcurrentFlowTable class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class ConcurrentFlowTableTest {
+
+    /**
+     * Test of insert method, of class ConcurrentFlowTable.
+     */
+    @Test
+    public void testInsert() {
+        ConcurrentFlowTable instance = new ConcurrentFlowTable();
+        FlowTableEntry a = FlowTableEntry.fromString(
+                "IF (P.DST == 1) { DROP; }");
+        FlowTableEntry b = FlowTableEntry.fromString(
+                "IF (P.DST == 2) { DROP; }");
+        FlowTableEntry c = FlowTableEntry.fromString(
+                "IF (P.DST == 1) { FORWARD_U 3; }");
+        assertEquals(-1, instance.insert(a));
+        assertEquals(-2, instance.insert(b));
+        assertEquals(0, instance.insert(c));
+        assertEquals(2, instance.size());
+        assertSame(c, instance.get(0));
+    }
+
+    /**
+     * Test of removeIf method, of class ConcurrentFlowTable.
+     */
+    @Test
+    public void testRemoveIf() {
+        ConcurrentFlowTable instance = new ConcurrentFlowTable();
+        for (int i = 0; i < 10; i++) {
+            instance.add(FlowTableEntry.fromString(
+                    "IF (P.DST == " + i + ") { DROP; }"));
+        }
+        assertFalse(instance.removeIf(e -> false));
+        assertTrue(instance.removeIf(e -> e.getWindows().get(0).getRhs()
+                % 2 == 0));
+        assertEquals(5, instance.size());
+        assertEquals(1, instance.get(0).getWindows().get(0).getRhs());
+    }
+
+    /**
+     * Test of setCapacity method, of class ConcurrentFlowTable.
+     */
+    @Test
+    public void testSetCapacity() {
+        ConcurrentFlowTable instance = new ConcurrentFlowTable(3,
+                EvictionPolicy.LFU);
+        for (int i = 0; i < 3; i++) {
+            instance.add(entry(i));
+        }
+        instance.hit(instance.get(1));
+        instance.add(entry(3));
+        assertEquals(1, instance.getEvictions());
+        assertEquals(1, instance.get(1).getWindows().get(0).getRhs());
+        assertEquals(3, instance.get(2).getWindows().get(0).getRhs());
+
+        instance.setCapacity(3, EvictionPolicy.TTL);
+        instance.get(1).getStats().decrementTtl(10);
+        assertEquals(-3, instance.insert(entry(4)));
+        assertEquals(3, instance.get(1).getWindows().get(0).getRhs());
+
+        instance.setCapacity(2, EvictionPolicy.LRU);
+        assertEquals(2, instance.size());
+        assertEquals(4, instance.get(1).getWindows().get(0).getRhs());
+        assertEquals(3, instance.getEvictions());
+        assertEquals(0, instance.get(0).getWindows().get(0).getRhs());
+    }
+
+    /**
+     * Test of hit method, of class ConcurrentFlowTable.
+     */
+    @Test
+    public void testHit() {
+        ConcurrentFlowTable instance = new ConcurrentFlowTable(3,
+                EvictionPolicy.LRU);
+        for (int i = 0; i < 3; i++) {
+            instance.add(entry(i));
+        }
+        assertEquals(2, instance.get(1).getStats().getLastHit());
+        instance.hit(instance.get(1));
+        instance.hit(instance.get(0));
+        assertEquals(5, instance.get(0).getStats().getLastHit());
+        assertEquals(1, instance.get(1).getStats().getCounter());
+        // entry 2 is now the least recently used, however slow the node is
+        instance.add(entry(3));
+        assertEquals(1, instance.getEvictions());
+        assertEquals(1, instance.get(1).getWindows().get(0).getRhs());
+        assertEquals(3, instance.get(2).getWindows().get(0).getRhs());
+        assertEquals(6, instance.get(2).getStats().getLastHit());
+    }
+
+    /**
+     * Test of add method on a table full of permanent entries, of class
+     * ConcurrentFlowTable.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testAddFull() {
+        ConcurrentFlowTable instance = new ConcurrentFlowTable(2,
+                EvictionPolicy.LRU);
+        instance.add(entry(0));
+        FlowTableEntry e = entry(1);
+        e.getStats().setPermanent();
+        instance.add(e);
+        instance.add(entry(2));
+    }
+
+    /**
+     * Test of snapshot method, of class ConcurrentFlowTable.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshot() {
+        ConcurrentFlowTable instance = new ConcurrentFlowTable();
+        instance.add(new FlowTableEntry());
+        IndexedFlowTable snapshot = instance.snapshot();
+        instance.remove(0);
+        assertEquals(1, snapshot.size());
+        assertEquals(0, instance.size());
+        snapshot.remove(0);
+    }
+
+    /**
+     * Creates an entry matching a destination.
+     *
+     * @param dst the destination
+     * @return the entry
+     */
+    private static FlowTableEntry entry(final int dst) {
+        return FlowTableEntry.fromString("IF (P.DST == " + dst
+                + ") { DROP; }");
+    }
+
+    /**
+     * Test of concurrent changes and iterations, of class
+     * ConcurrentFlowTable.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        ConcurrentFlowTable instance = new ConcurrentFlowTable();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                instance.add(FlowTableEntry.fromString(
+                        "IF (P.DST == " + i + ") { DROP; }"));
+                if (i % 3 == 0) {
+                    instance.remove(0);
+                }
+            }
+        });
+        Thread reader = new Thread(() -> {
+            try {
+                while (writer.isAlive()) {
+                    for (FlowTableEntry e : instance) {
+                        e.getWindows();
+                    }
+                }
+            } catch (RuntimeException ex) {
+                error.set(ex);
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        assertNull(error.get());
+        assertEquals(1333, instance.size());
+    }
+}
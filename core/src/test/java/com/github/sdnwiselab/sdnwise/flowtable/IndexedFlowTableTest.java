@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.flowtable;
+
+import static com.github.sdnwiselab.sdnwise.flowtable.Window.W_SIZE_2;
+import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests for the IndexedFlowTable class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class IndexedFlowTableTest {
+
+    /**
+     * Number of different values used for each field.
+     */
+    private static final int VALUES = 4;
+
+    /**
+     * Test of find method, of class IndexedFlowTable.
+     */
+    @Test
+    public void testFind() {
+        IndexedFlowTable instance = new IndexedFlowTable();
+        instance.add(FlowTableEntry.fromString(
+                "IF (P.TYP == 3) { DROP; }"));
+        instance.add(FlowTableEntry.fromString(
+                "IF (P.DST == 1 && P.TYP == 3) { DROP; }"));
+        instance.add(FlowTableEntry.fromString(
+                "IF (P.DST == 1) { DROP; }"));
+        assertEquals(0, instance.find(packet(1, 0, 3),
+                IndexedFlowTableTest::matches));
+        assertEquals(2, instance.find(packet(1, 0, 2),
+                IndexedFlowTableTest::matches));
+        assertEquals(-1, instance.find(packet(2, 0, 2),
+                IndexedFlowTableTest::matches));
+        instance.remove(0);
+        assertEquals(0, instance.find(packet(1, 0, 3),
+                IndexedFlowTableTest::matches));
+        instance.get(0).getWindows().get(0).setRhs(2);
+        instance.refresh(0);
+        assertEquals(1, instance.find(packet(1, 0, 3),
+                IndexedFlowTableTest::matches));
+        assertEquals(0, instance.find(packet(2, 0, 3),
+                IndexedFlowTableTest::matches));
+    }
+
+    /**
+     * Test of find method with types greater than 127, of class
+     * IndexedFlowTable.
+     */
+    @Test
+    public void testFindHighType() {
+        IndexedFlowTable instance = new IndexedFlowTable();
+        instance.add(FlowTableEntry.fromString(
+                "IF (P.TYP == 200) { DROP; }"));
+        instance.add(FlowTableEntry.fromString(
+                "IF (P.SRC == 5) { DROP; }"));
+        assertEquals(0, instance.find(packet(1, 5, 200),
+                IndexedFlowTableTest::matches));
+        assertEquals(1, instance.find(packet(1, 5, 201),
+                IndexedFlowTableTest::matches));
+        assertEquals(-1, instance.find(packet(1, 0, 255),
+                IndexedFlowTableTest::matches));
+    }
+
+    /**
+     * Test of find method after random changes, of class IndexedFlowTable.
+     */
+    @Test
+    public void testFindAfterChanges() {
+        IndexedFlowTable instance = new IndexedFlowTable();
+        List<FlowTableEntry> expResult = new ArrayList<>();
+        Random rnd = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            int op = rnd.nextInt(4);
+            if (op == 0 && !expResult.isEmpty()) {
+                int index = rnd.nextInt(expResult.size());
+                assertEquals(expResult.remove(index), instance.remove(index));
+            } else if (op == 1 && !expResult.isEmpty()) {
+                int index = rnd.nextInt(expResult.size());
+                FlowTableEntry e = randomEntry(rnd);
+                assertEquals(expResult.set(index, e), instance.set(index, e));
+            } else {
+                int index = rnd.nextInt(expResult.size() + 1);
+                FlowTableEntry e = randomEntry(rnd);
+                expResult.add(index, e);
+                instance.add(index, e);
+            }
+            assertEquals(expResult, instance);
+
+            NetworkPacket p = packet(rnd.nextInt(VALUES),
+                    rnd.nextInt(VALUES), rnd.nextInt(VALUES));
+            assertEquals(linearFind(expResult, p),
+                    instance.find(p, IndexedFlowTableTest::matches));
+        }
+    }
+
+    /**
+     * Creates an entry with random windows on destination, source and type.
+     *
+     * @param rnd the random generator
+     * @return the entry
+     */
+    private static FlowTableEntry randomEntry(final Random rnd) {
+        FlowTableEntry e = new FlowTableEntry();
+        for (String field : new String[]{"P.DST", "P.SRC", "P.TYP"}) {
+            if (rnd.nextBoolean()) {
+                e.addWindow(Window.fromString(field + " == "
+                        + rnd.nextInt(VALUES)));
+            }
+        }
+        e.addAction(new DropAction());
+        return e;
+    }
+
+    /**
+     * Creates a packet.
+     *
+     * @param dst the destination
+     * @param src the source
+     * @param typ the type
+     * @return the packet
+     */
+    private static NetworkPacket packet(final int dst, final int src,
+            final int typ) {
+        return new NetworkPacket(1, new NodeAddress(src),
+                new NodeAddress(dst)).setTyp((byte) typ);
+    }
+
+    /**
+     * Checks if all the windows of an entry, all equalities between a packet
+     * field and a constant, are satisfied.
+     *
+     * @param e the entry
+     * @param p the packet
+     * @return true if the entry matches
+     */
+    private static boolean matches(final FlowTableEntry e,
+            final NetworkPacket p) {
+        int[] b = p.toIntArray();
+        for (Window w : e.getWindows()) {
+            int v = b[w.getLhs()];
+            if (w.getSize() == W_SIZE_2) {
+                v = (v << Byte.SIZE) | b[w.getLhs() + 1];
+            }
+            if (v != w.getRhs()) {
+                return false;
+            }
+        }
+        return !e.getWindows().isEmpty();
+    }
+
+    /**
+     * Finds the first entry matching a packet scanning the whole list.
+     *
+     * @param list the entries
+     * @param p the packet
+     * @return the index of the entry, -1 if no entry matches
+     */
+    private static int linearFind(final List<FlowTableEntry> list,
+            final NetworkPacket p) {
+        for (int i = 0; i < list.size(); i++) {
+            if (matches(list.get(i), p)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.flowtable;
+
+import com.github.sdnwiselab.sdnwise.flowtable.PendingRequestTable.Miss;
+import com.github.sdnwiselab.sdnwise.packet.DataPacket;
+import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the PendingRequestTable class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class PendingRequestTableTest {
+
+    /**
+     * Creates a data packet.
+     *
+     * @param dst the destination of the packet
+     * @return the packet
+     */
+    private static NetworkPacket packet(final int dst) {
+        return new DataPacket(1, new NodeAddress(2), new NodeAddress(dst),
+                new byte[]{1});
+    }
+
+    /**
+     * Test of miss method, of class PendingRequestTable.
+     */
+    @Test
+    public void testMiss() {
+        PendingRequestTable instance = new PendingRequestTable(1, 2, 2, 0);
+        assertEquals(Miss.REQUEST, instance.miss(packet(5)));
+        assertEquals(Miss.HELD, instance.miss(packet(5)));
+        assertEquals(Miss.HELD, instance.miss(packet(5)));
+        assertEquals(Miss.DROPPED, instance.miss(packet(5)));
+        // the table is full, other flows are not coalesced
+        assertEquals(Miss.REQUEST, instance.miss(packet(6)));
+        assertEquals(Miss.REQUEST, instance.miss(packet(6)));
+        assertEquals(1, instance.size());
+        assertEquals(1, instance.getDropped());
+    }
+
+    /**
+     * Test of release method, of class PendingRequestTable.
+     */
+    @Test
+    public void testRelease() {
+        PendingRequestTable instance = new PendingRequestTable();
+        NetworkPacket a = packet(5);
+        NetworkPacket b = packet(5);
+        instance.miss(packet(5));
+        instance.miss(packet(6));
+        instance.miss(a);
+        instance.miss(b);
+        List<NetworkPacket> out = instance.release(
+                p -> p.getDst().intValue() == 5);
+        assertEquals(Arrays.asList(a, b), out);
+        assertEquals(1, instance.size());
+        assertTrue(instance.release(p -> false).isEmpty());
+        assertEquals(Miss.REQUEST, instance.miss(packet(5)));
+    }
+
+    /**
+     * Test of tick method, of class PendingRequestTable.
+     */
+    @Test
+    public void testTick() {
+        PendingRequestTable instance = new PendingRequestTable(4, 4, 1, 2);
+        NetworkPacket first = packet(5);
+        instance.miss(first);
+        instance.miss(packet(5));
+        List<NetworkPacket> sent = new ArrayList<>();
+        List<Integer> at = new ArrayList<>();
+        for (int t = 1; t <= 8; t++) {
+            int n = sent.size();
+            instance.tick(sent::add);
+            if (sent.size() > n) {
+                at.add(t);
+            }
+        }
+        // retries after 1 and 2 more ticks, expires after 4 more
+        assertEquals(Arrays.asList(1, 3), at);
+        assertSame(first, sent.get(0));
+        assertEquals(0, instance.size());
+        assertEquals(1, instance.getExpired());
+        assertEquals(1, instance.getDropped());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import com.github.sdnwiselab.sdnwise.packet.AdmissionQueue.DropPolicy;
+import com.github.sdnwiselab.sdnwise.packet.AdmissionQueue.DropReason;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the AdmissionQueue class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AdmissionQueueTest {
+
+    /**
+     * A node address.
+     */
+    private static final NodeAddress A = NodeAddress.valueOf(1);
+
+    /**
+     * Creates a data packet.
+     *
+     * @return the packet
+     */
+    private static NetworkPacket data() {
+        return new DataPacket(1, A, A, new byte[1]);
+    }
+
+    /**
+     * Test of offer and poll methods, of class AdmissionQueue.
+     */
+    @Test
+    public void testTailDrop() {
+        AdmissionQueue instance = new AdmissionQueue(2);
+        NetworkPacket first = data();
+        assertTrue(instance.offer(first, 200));
+        assertTrue(instance.offer(data(), 100));
+        assertFalse(instance.offer(data(), 100));
+        assertEquals(1, instance.getDropped(DropReason.FULL));
+        int[] rssi = new int[1];
+        assertTrue(instance.poll((np, r) -> {
+            assertSame(first, np);
+            rssi[0] = r;
+        }));
+        assertEquals(200, rssi[0]);
+        assertEquals(1, instance.size());
+    }
+
+    /**
+     * Test of offer method with DROP_OLDEST, of class AdmissionQueue.
+     */
+    @Test
+    public void testDropOldest() {
+        AdmissionQueue instance = new AdmissionQueue(3)
+                .setPolicy(DropPolicy.DROP_OLDEST);
+        NetworkPacket report = new ReportPacket(1, A, A, 1, 255);
+        NetworkPacket beacon = new BeaconPacket(1, A, A, 1, 255);
+        NetworkPacket old = data();
+        NetworkPacket young = data();
+        instance.offer(report, 0);
+        instance.offer(old, 0);
+        instance.offer(beacon, 0);
+        // a data packet evicts the oldest data packet
+        assertTrue(instance.offer(young, 0));
+        // a beacon evicts the remaining data packet
+        assertTrue(instance.offer(new BeaconPacket(1, A, A, 1, 255), 0));
+        // a data packet finds nothing less important
+        assertFalse(instance.offer(data(), 0));
+        assertEquals(2, instance.getDropped(DropReason.EVICTED));
+        assertEquals(1, instance.getDropped(DropReason.FULL));
+        List<NetworkPacket> order = new ArrayList<>();
+        while (instance.poll((np, r) -> order.add(np))) {
+            continue;
+        }
+        assertEquals(3, order.size());
+        assertSame(report, order.get(0));
+        assertSame(beacon, order.get(1));
+    }
+
+    /**
+     * Test of setRed method, of class AdmissionQueue.
+     */
+    @Test
+    public void testRed() {
+        AdmissionQueue instance = new AdmissionQueue(100)
+                .setPolicy(DropPolicy.RED).setRed(10, 20, 1);
+        int admitted = 0;
+        for (int i = 0; i < 200; i++) {
+            if (instance.offer(data(), 0)) {
+                admitted++;
+            }
+        }
+        // the average never reaches the capacity
+        assertTrue(admitted < 100);
+        assertEquals(0, instance.getDropped(DropReason.FULL));
+        assertEquals(200 - admitted, instance.getDropped(DropReason.EARLY));
+    }
+
+    /**
+     * Test of offer method, of class AdmissionQueue, with RED and a full
+     * queue.
+     */
+    @Test
+    public void testRedFull() {
+        AdmissionQueue instance = new AdmissionQueue(4)
+                .setPolicy(DropPolicy.RED).setRed(3, 4, 1e-9);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(instance.offer(data(), 0));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertFalse(instance.offer(data(), 0));
+        }
+        assertEquals(10, instance.getDropped(DropReason.FULL));
+        assertEquals(0, instance.getDropped(DropReason.EARLY));
+    }
+
+    /**
+     * Test of setWaterMarks method, of class AdmissionQueue.
+     */
+    @Test
+    public void testWaterMarks() {
+        List<String> events = new ArrayList<>();
+        AdmissionQueue instance = new AdmissionQueue(10)
+                .setWaterMarks(3, 1, (c, size) -> events.add(c + ":" + size));
+        for (int i = 0; i < 5; i++) {
+            instance.offer(data(), 0);
+        }
+        while (instance.poll((np, r) -> { })) {
+            continue;
+        }
+        assertEquals(2, events.size());
+        assertEquals("true:3", events.get(0));
+        assertEquals("false:1", events.get(1));
+    }
+
+    /**
+     * Test of drop method with pooled packets, of class AdmissionQueue.
+     */
+    @Test
+    public void testDropReleases() {
+        PacketPool pool = new PacketPool(4);
+        AdmissionQueue instance = new AdmissionQueue(1);
+        byte[] raw = data().toByteArray();
+        assertTrue(instance.offer(pool.acquire(raw, 0, raw.length), 0));
+        assertFalse(instance.offer(pool.acquire(raw, 0, raw.length), 0));
+        assertEquals(1, pool.getAvailable());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import static com.github.sdnwiselab.sdnwise.packet.FrameDecoder.START_BYTE;
+import static com.github.sdnwiselab.sdnwise.packet.FrameDecoder.STOP_BYTE;
+import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.MAX_PACKET_LENGTH;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.util.Arrays;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests for the FrameDecoder class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class FrameDecoderTest {
+
+    /**
+     * A data packet used in the tests.
+     */
+    private final byte[] packet = new DataPacket(1, new NodeAddress("0.1"),
+            new NodeAddress("0.2"), "Hello".getBytes()).toByteArray();
+
+    /**
+     * Frames a packet.
+     *
+     * @param p the packet
+     * @return the framed packet
+     */
+    private static byte[] frame(final byte[] p) {
+        byte[] f = new byte[p.length + 2];
+        f[0] = START_BYTE;
+        System.arraycopy(p, 0, f, 1, p.length);
+        f[f.length - 1] = STOP_BYTE;
+        return f;
+    }
+
+    /**
+     * Test of next method, of class FrameDecoder, with garbage and a broken
+     * frame before a valid one.
+     */
+    @Test
+    public void testResync() {
+        byte[] valid = frame(packet);
+        byte[] broken = Arrays.copyOf(valid, valid.length);
+        broken[broken.length - 1] = 0;
+        byte[] stream = new byte[3 + broken.length + valid.length];
+        stream[0] = 1;
+        stream[1] = START_BYTE;
+        stream[2] = (byte) 0xFF;
+        System.arraycopy(broken, 0, stream, 3, broken.length);
+        System.arraycopy(valid, 0, stream, 3 + broken.length, valid.length);
+
+        FrameDecoder instance = new FrameDecoder();
+        byte[] dst = new byte[MAX_PACKET_LENGTH];
+        instance.put(stream, 0, stream.length);
+        assertEquals(packet.length, instance.next(dst));
+        assertArrayEquals(packet, Arrays.copyOf(dst, packet.length));
+        assertEquals(0, instance.next(dst));
+        assertEquals(0, instance.available());
+        assertEquals(3 + broken.length, instance.getDiscarded());
+    }
+
+    /**
+     * Test of read method, of class FrameDecoder, with frames wrapping
+     * around the ring buffer.
+     */
+    @Test
+    public void testRead() throws IOException {
+        int n = 50;
+        byte[] f = frame(packet);
+        byte[] stream = new byte[f.length * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(f, 0, stream, i * f.length, f.length);
+        }
+        InputStream in = new ByteArrayInputStream(stream);
+        FrameDecoder instance = new FrameDecoder(START_BYTE, STOP_BYTE,
+                FrameDecoder.MIN_CAPACITY);
+        byte[] dst = new byte[MAX_PACKET_LENGTH];
+        for (int i = 0; i < n; i++) {
+            assertEquals(packet.length, instance.read(in, dst));
+            assertArrayEquals(packet, Arrays.copyOf(dst, packet.length));
+        }
+        assertEquals(-1, instance.read(in, dst));
+    }
+
+    /**
+     * Test of NetworkPacket(BufferedInputStream) constructor, which must not
+     * consume the bytes following a packet.
+     */
+    @Test
+    public void testNetworkPacketFromStream() throws IOException {
+        byte[] f = frame(packet);
+        byte[] stream = new byte[f.length * 2];
+        System.arraycopy(f, 0, stream, 0, f.length);
+        System.arraycopy(f, 0, stream, f.length, f.length);
+        BufferedInputStream bis = new BufferedInputStream(
+                new ByteArrayInputStream(stream));
+        assertArrayEquals(packet, new NetworkPacket(bis).toByteArray());
+        assertArrayEquals(packet, new NetworkPacket(bis).toByteArray());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests for the NetworkPacket class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class NetworkPacketTest {
+
+    /**
+     * Test of get and put methods, of class NetworkPacket.
+     */
+    @Test
+    public void testGetPut() {
+        DataPacket instance = new DataPacket(1, new NodeAddress("0.2"),
+                new NodeAddress("0.3"), new byte[]{1, 2, 3});
+        assertEquals(3, instance.get(NetworkPacket.DST_INDEX + 1));
+        instance.put(NetworkPacket.DFLT_HDR_LEN, (byte) -1);
+        assertEquals(-1, instance.get(NetworkPacket.DFLT_HDR_LEN));
+        assertEquals(-1, instance.getData()[0]);
+
+        instance.put(NetworkPacket.LEN_INDEX, (byte) 11);
+        instance.put(NetworkPacket.LEN_INDEX, (byte) 13);
+        assertArrayEquals(new byte[]{-1, 0, 0}, instance.getData());
+    }
+
+    /**
+     * Test of get method out of the packet, of class NetworkPacket.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        new DataPacket(1, new NodeAddress("0.2"), new NodeAddress("0.3"),
+                new byte[]{1, 2, 3}).get(NetworkPacket.DFLT_HDR_LEN + 3);
+    }
+
+    /**
+     * Test of put method with an invalid length, of class NetworkPacket.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutInvalidLength() {
+        new DataPacket(1, new NodeAddress("0.2"), new NodeAddress("0.3"),
+                new byte[]{1, 2, 3}).put(NetworkPacket.LEN_INDEX, (byte) 5);
+    }
+}
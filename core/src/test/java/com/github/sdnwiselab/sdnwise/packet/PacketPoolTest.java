@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the PacketPool class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class PacketPoolTest {
+
+    /**
+     * Test of acquire and release methods, of class PacketPool.
+     */
+    @Test
+    public void testRecycle() {
+        PacketPool instance = new PacketPool(1, true);
+        byte[] packet = new DataPacket(1, new NodeAddress("0.1"),
+                new NodeAddress("0.2"), "Hello".getBytes()).toByteArray();
+        byte[] buf = new byte[packet.length + 3];
+        System.arraycopy(packet, 0, buf, 3, packet.length);
+
+        NetworkPacket np = instance.acquire(buf, 3, packet.length);
+        assertArrayEquals(packet, np.toByteArray());
+        assertEquals(new NodeAddress("0.2"), np.getDst());
+        assertTrue(instance.isPooled(np));
+        assertTrue(instance.release(np));
+        assertEquals(1, instance.getAvailable());
+
+        NetworkPacket other = instance.acquire();
+        assertSame(np, other);
+        assertEquals(0, other.getLen());
+        assertEquals(1, instance.getCreated());
+        assertEquals(0, instance.getLeaks());
+        instance.release(other);
+    }
+
+    /**
+     * Test of release method, of class PacketPool, with packets not
+     * belonging to the pool.
+     */
+    @Test
+    public void testReleaseForeign() {
+        PacketPool instance = new PacketPool(1);
+        NetworkPacket np = instance.acquire();
+        assertFalse(instance.release(new NetworkPacket(np)));
+        assertFalse(new PacketPool(1).release(np));
+        assertTrue(instance.release(np));
+    }
+
+    /**
+     * Test of release method, of class PacketPool, releasing twice.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleRelease() {
+        PacketPool instance = new PacketPool(1);
+        NetworkPacket np = instance.acquire();
+        instance.release(np);
+        instance.release(np);
+    }
+
+    /**
+     * Test of acquire method, of class PacketPool, with a malformed packet.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAcquireInvalid() {
+        PacketPool instance = new PacketPool(1);
+        instance.acquire(new byte[]{1, 3, 0}, 0, 3);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests for the PacketView class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class PacketViewTest {
+
+    /**
+     * Test of the header getters, of class PacketView.
+     */
+    @Test
+    public void testHeader() {
+        DataPacket dp = new DataPacket(1, new NodeAddress("0.2"),
+                new NodeAddress("0.3"), new byte[]{1, 2, 3});
+        ByteBuffer bb = ByteBuffer.allocateDirect(64);
+        bb.position(7);
+        bb.put(dp.toByteArray());
+        PacketView instance = PacketView.wrap(bb, 7);
+        assertEquals(1, instance.getNet());
+        assertEquals(13, instance.getLen());
+        assertEquals(new NodeAddress("0.2"), instance.getSrc());
+        assertEquals(new NodeAddress("0.3"), instance.getDst());
+        assertEquals(NetworkPacket.DATA, instance.getTyp());
+        assertArrayEquals(new byte[]{1, 2, 3}, instance.asData().getData());
+        assertArrayEquals(dp.toByteArray(), instance.toByteArray());
+    }
+
+    /**
+     * Test of the setters, of class PacketView. Changes made through the view
+     * must be visible in the packet backing it.
+     */
+    @Test
+    public void testSharedStorage() {
+        DataPacket dp = new DataPacket(1, new NodeAddress("0.2"),
+                new NodeAddress("0.3"), new byte[]{1, 2, 3});
+        PacketView instance = dp.view();
+        instance.setNxh(new NodeAddress("0.9")).decrementTtl()
+                .setPayloadAt((byte) 7, 1);
+        assertEquals(new NodeAddress("0.9"), dp.getNxh());
+        assertEquals(NetworkPacket.DFLT_TTL_MAX - 1, dp.getTtl());
+        assertArrayEquals(new byte[]{1, 7, 3}, dp.getData());
+    }
+
+    /**
+     * Test of asReport method, of class PacketView.
+     */
+    @Test
+    public void testAsReport() {
+        ReportPacket rp = new ReportPacket(1, new NodeAddress("0.2"),
+                new NodeAddress("0.0"), 2, 1);
+        HashMap<NodeAddress, Byte> map = new HashMap<>();
+        map.put(new NodeAddress("0.3"), (byte) 1);
+        map.put(new NodeAddress("0.4"), (byte) 2);
+        rp.setNeighbors(map);
+        ReportPacketView instance = PacketView.wrap(
+                ByteBuffer.wrap(rp.toByteArray())).asReport();
+        assertEquals(rp.getBattery(), instance.getBattery());
+        assertEquals(rp.getDistance(), instance.getDistance());
+        assertEquals(rp.getNeigborsSize(), instance.getNeigborsSize());
+        for (int i = 0; i < rp.getNeigborsSize(); i++) {
+            assertEquals(rp.getNeighborAddress(i),
+                    instance.getNeighborAddress(i));
+            assertEquals(rp.getLinkQuality(i), instance.getLinkQuality(i));
+        }
+    }
+
+    /**
+     * Test of mergePackets method, of class RequestPacket.
+     */
+    @Test
+    public void testMergePackets() {
+        byte[] payload = new byte[100];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        DataPacket dp = new DataPacket(1, new NodeAddress("0.2"),
+                new NodeAddress("0.0"), payload);
+        byte[] original = dp.toByteArray();
+        RequestPacket[] rps = RequestPacket.createPackets(1,
+                new NodeAddress("0.1"), new NodeAddress("0.1"), (byte) 1,
+                original);
+        assertEquals(2, rps.length);
+        NetworkPacket merged = RequestPacket.mergePackets(rps[1], rps[0]);
+        assertArrayEquals(original, merged.toByteArray());
+    }
+}
@@ -20,6 +20,8 @@ import com.github.sdnwiselab.sdnwise.util.NodeAddress;
 import java.util.Arrays;
 import java.util.HashMap;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 /**
@@ -45,4 +47,24 @@ public final class ReportPacketTest {
         String result = Arrays.toString(instance.toByteArray());
         assertEquals(expResult, result);
     }
+
+    /**
+     * Test of setDelta method, of class ReportPacket.
+     */
+    @Test
+    public void testSetDelta() {
+        ReportPacket instance = new ReportPacket(1, new NodeAddress("0.2"),
+                new NodeAddress("0.0"), 2, 1);
+        assertFalse(instance.isDelta());
+        instance.setDelta(true).setNeighbors(2);
+        assertTrue(instance.isDelta());
+        assertEquals(2, instance.getNeigborsSize());
+        ReportPacketView view = new NetworkPacket(instance.toByteArray())
+                .view().asReport();
+        assertTrue(view.isDelta());
+        assertEquals(2, view.getNeigborsSize());
+        instance.setDelta(false);
+        assertFalse(instance.isDelta());
+        assertEquals(2, instance.getNeigborsSize());
+    }
 }
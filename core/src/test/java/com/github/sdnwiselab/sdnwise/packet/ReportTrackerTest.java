@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import com.github.sdnwiselab.sdnwise.util.Neighbor;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the ReportTracker class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class ReportTrackerTest {
+
+    /**
+     * Creates an empty report.
+     *
+     * @return the report
+     */
+    private static ReportPacket report() {
+        return new ReportPacket(1, NodeAddress.valueOf(1),
+                NodeAddress.valueOf(0), 1, 255);
+    }
+
+    /**
+     * Creates a neighbor.
+     *
+     * @param addr the int value of the address
+     * @param rssi the rssi
+     * @return the neighbor
+     */
+    private static Neighbor nb(final int addr, final int rssi) {
+        return new Neighbor(NodeAddress.valueOf(addr), rssi, 255);
+    }
+
+    /**
+     * Test of fill method, of class ReportTracker.
+     */
+    @Test
+    public void testFill() {
+        ReportTracker instance = new ReportTracker(5, 3, 6);
+        List<Neighbor> current = new ArrayList<>(Arrays.asList(
+                nb(2, 100), nb(3, 100), nb(4, 100), nb(5, 100)));
+        ReportPacket rp = report();
+        assertTrue(instance.fill(rp, current));
+        assertFalse(rp.isDelta());
+        assertEquals(4, rp.getNeigborsSize());
+
+        // small changes are suppressed
+        current.set(0, nb(2, 104));
+        assertFalse(instance.fill(report(), current));
+
+        // a removed and a changed neighbor
+        current.remove(3);
+        current.set(1, nb(3, 90));
+        rp = report();
+        assertTrue(instance.fill(rp, current));
+        assertTrue(rp.isDelta());
+        assertEquals(2, rp.getNeigborsSize());
+        assertEquals(NodeAddress.valueOf(3), rp.getNeighborAddress(0));
+        assertEquals(90, rp.getLinkQuality(0));
+        assertEquals(NodeAddress.valueOf(5), rp.getNeighborAddress(1));
+        assertEquals(0, rp.getLinkQuality(1));
+        assertEquals(1, instance.getSuppressed());
+
+        // a full report is sent when it is not longer than the delta
+        current.remove(2);
+        current.remove(1);
+        rp = report();
+        assertTrue(instance.fill(rp, current));
+        assertFalse(rp.isDelta());
+        assertEquals(1, rp.getNeigborsSize());
+    }
+
+    /**
+     * Test of fill method without changes, of class ReportTracker.
+     */
+    @Test
+    public void testHeartbeat() {
+        ReportTracker instance = new ReportTracker(5, 2, 4);
+        List<Neighbor> current = Arrays.asList(nb(2, 100), nb(3, 100));
+        assertTrue(instance.fill(report(), current));
+        assertFalse(instance.fill(report(), current));
+        ReportPacket rp = report();
+        assertTrue(instance.fill(rp, current));
+        assertTrue(rp.isDelta());
+        assertEquals(0, rp.getNeigborsSize());
+        assertFalse(instance.fill(report(), current));
+        rp = report();
+        assertTrue(instance.fill(rp, current));
+        assertFalse(rp.isDelta());
+        assertEquals(2, rp.getNeigborsSize());
+        assertEquals(2, instance.getFull());
+        assertEquals(1, instance.getDelta());
+        assertEquals(2, instance.getSuppressed());
+    }
+
+    /**
+     * Test of reset method, of class ReportTracker.
+     */
+    @Test
+    public void testReset() {
+        ReportTracker instance = new ReportTracker();
+        List<Neighbor> current = Arrays.asList(nb(2, 100));
+        assertTrue(instance.fill(report(), current));
+        assertFalse(instance.fill(report(), current));
+        instance.reset();
+        ReportPacket rp = report();
+        assertTrue(instance.fill(rp, current));
+        assertFalse(rp.isDelta());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.packet;
+
+import com.github.sdnwiselab.sdnwise.packet.TxScheduler.TrafficClass;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the TxScheduler class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class TxSchedulerTest {
+
+    /**
+     * Creates a data packet.
+     *
+     * @param src the source address
+     * @param len the length of the payload
+     * @return the packet
+     */
+    private static DataPacket data(final int src, final int len) {
+        return new DataPacket(1, NodeAddress.valueOf(src),
+                NodeAddress.valueOf(0), new byte[len]);
+    }
+
+    /**
+     * Test of classify method, of class TxScheduler.
+     */
+    @Test
+    public void testClassify() {
+        NodeAddress a = NodeAddress.valueOf(1);
+        assertEquals(TrafficClass.DATA, TxScheduler.classify(data(1, 1)));
+        assertEquals(TrafficClass.BEACON, TxScheduler.classify(
+                new BeaconPacket(1, a, a, 1, 255)));
+        assertEquals(TrafficClass.CONTROL, TxScheduler.classify(
+                new ReportPacket(1, a, a, 1, 255)));
+    }
+
+    /**
+     * Test of poll method, of class TxScheduler.
+     */
+    @Test
+    public void testPriority() {
+        TxScheduler instance = new TxScheduler();
+        NodeAddress a = NodeAddress.valueOf(1);
+        NetworkPacket d = data(1, 10);
+        NetworkPacket b = new BeaconPacket(1, a, a, 1, 255);
+        NetworkPacket r = new ReportPacket(1, a, a, 1, 255);
+        assertTrue(instance.offer(d));
+        assertTrue(instance.offer(b));
+        assertTrue(instance.offer(r));
+        assertEquals(3, instance.size());
+        assertSame(r, instance.poll());
+        assertSame(b, instance.poll());
+        assertSame(d, instance.poll());
+        assertNull(instance.poll());
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test of setWeight method, of class TxScheduler.
+     */
+    @Test
+    public void testWeightedFairness() {
+        TxScheduler instance = new TxScheduler();
+        instance.setWeight(NodeAddress.valueOf(2), 2);
+        for (int i = 0; i < 30; i++) {
+            instance.offer(data(1, 48));
+            instance.offer(data(2, 48));
+        }
+        int[] sent = new int[3];
+        for (int i = 0; i < 30; i++) {
+            sent[instance.poll().getSrc().intValue()]++;
+        }
+        assertEquals(10, sent[1]);
+        assertEquals(20, sent[2]);
+    }
+
+    /**
+     * Test of setWeight method, of class TxScheduler, with packets that are
+     * not SDN-WISE and packets from the broadcast address.
+     */
+    @Test
+    public void testForeignFlow() {
+        TxScheduler instance = new TxScheduler();
+        int broadcast = NodeAddress.BROADCAST_ADDR.intValue();
+        instance.setWeight(NodeAddress.BROADCAST_ADDR, 2);
+        for (int i = 0; i < 30; i++) {
+            NetworkPacket foreign = data(1, 48);
+            foreign.setNet(NetworkPacket.THRES);
+            assertFalse(foreign.isSdnWise());
+            instance.offer(foreign);
+            instance.offer(data(broadcast, 48));
+        }
+        // the two flows are kept apart, with their own weights: a packet
+        // that is not SDN-WISE is as long as its buffer, a whole quantum
+        int fromBroadcast = 0;
+        for (int i = 0; i < 30; i++) {
+            if (instance.poll().isSdnWise()) {
+                fromBroadcast++;
+            }
+        }
+        assertEquals(24, fromBroadcast);
+        assertEquals(30, instance.size(TrafficClass.DATA));
+    }
+
+    /**
+     * Test of offer method with a full class, of class TxScheduler.
+     */
+    @Test
+    public void testDrops() {
+        TxScheduler instance = new TxScheduler(1, 1, 4);
+        NodeAddress a = NodeAddress.valueOf(1);
+        assertTrue(instance.offer(new ReportPacket(1, a, a, 1, 255)));
+        assertFalse(instance.offer(new ReportPacket(1, a, a, 1, 255)));
+        assertEquals(1, instance.getDropped(TrafficClass.CONTROL));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(instance.offer(data(1, 10)));
+        }
+        // the heavy flow cannot grow, a light flow takes its oldest slot
+        assertFalse(instance.offer(data(1, 10)));
+        assertTrue(instance.offer(data(2, 10)));
+        assertEquals(2, instance.getDropped(TrafficClass.DATA));
+        assertEquals(4, instance.size(TrafficClass.DATA));
+        assertEquals(0, instance.getDropped(TrafficClass.BEACON));
+    }
+
+    /**
+     * Test of offer method with pooled packets, of class TxScheduler.
+     */
+    @Test
+    public void testDropReleases() {
+        PacketPool pool = new PacketPool(4);
+        TxScheduler instance = new TxScheduler(1, 1, 1);
+        NodeAddress a = NodeAddress.valueOf(1);
+        NetworkPacket first = pool.acquire(
+                new BeaconPacket(1, a, a, 1, 255).toByteArray(), 0, 10);
+        NetworkPacket second = pool.acquire(
+                new BeaconPacket(1, a, a, 1, 255).toByteArray(), 0, 10);
+        assertTrue(instance.offer(first));
+        assertFalse(instance.offer(second));
+        assertEquals(1, pool.getAvailable());
+        assertSame(first, instance.poll());
+    }
+}
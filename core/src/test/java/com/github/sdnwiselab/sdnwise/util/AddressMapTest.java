@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the AddressMap and AddressIntMap classes.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AddressMapTest {
+
+    /**
+     * Test of put, get and remove methods, of class AddressMap.
+     */
+    @Test
+    public void testPutGetRemove() {
+        AddressMap<String> instance = new AddressMap<>(0);
+        Map<Integer, String> expResult = new HashMap<>();
+        Random rnd = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            int key = rnd.nextInt(2000);
+            if (rnd.nextBoolean()) {
+                assertEquals(expResult.put(key, "v" + i),
+                        instance.put(key, "v" + i));
+            } else {
+                assertEquals(expResult.remove(key), instance.remove(key));
+            }
+            assertEquals(expResult.size(), instance.size());
+        }
+        for (int key = 0; key < 2000; key++) {
+            assertEquals(expResult.get(key), instance.get(key));
+            assertEquals(expResult.containsKey(key),
+                    instance.containsKey(new NodeAddress(key)));
+        }
+        instance.clear();
+        assertTrue(instance.isEmpty());
+        assertNull(instance.get(new NodeAddress("0.1")));
+    }
+
+    /**
+     * Test of forEach method, of class AddressMap.
+     */
+    @Test
+    public void testForEach() {
+        AddressMap<Integer> instance = new AddressMap<>();
+        instance.put(new NodeAddress("0.1"), 1);
+        instance.put(new NodeAddress("1.0"), 256);
+        int[] sum = new int[1];
+        instance.forEach((k, v) -> {
+            assertEquals(k.intValue(), v.intValue());
+            sum[0] += v;
+        });
+        assertEquals(257, sum[0]);
+    }
+
+    /**
+     * Test of entrySet method, of class AddressMap.
+     */
+    @Test
+    public void testEntrySet() {
+        AddressMap<Integer> instance = new AddressMap<>();
+        Map<NodeAddress, Integer> expResult = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            instance.put(i * 3, i);
+            expResult.put(new NodeAddress(i * 3), i);
+        }
+        assertEquals(expResult, instance);
+        assertEquals(instance, expResult);
+        assertEquals(expResult.hashCode(), instance.hashCode());
+        // the mappings moved by a removal are still visited once
+        int visited = 0;
+        for (Iterator<Map.Entry<NodeAddress, Integer>> it =
+                instance.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<NodeAddress, Integer> e = it.next();
+            visited++;
+            if (e.getValue() % 2 == 0) {
+                it.remove();
+                expResult.remove(e.getKey());
+            } else {
+                expResult.put(e.getKey(), -e.getValue());
+                e.setValue(-e.getValue());
+            }
+        }
+        assertEquals(100, visited);
+        assertEquals(expResult, instance);
+        assertEquals(Integer.valueOf(-1), instance.get(new NodeAddress(3)));
+        assertFalse(instance.containsKey(new NodeAddress(0)));
+        assertNull(instance.get("0.3"));
+        assertEquals(-1, (int) instance.remove((Object) new NodeAddress(3)));
+        assertEquals(49, instance.keySet().size());
+    }
+
+    /**
+     * Test of put, getOrDefault, increment and remove methods, of class
+     * AddressIntMap.
+     */
+    @Test
+    public void testIntMap() {
+        AddressIntMap instance = new AddressIntMap();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(instance.put(i * 7, i));
+        }
+        assertFalse(instance.put(new NodeAddress(7), -1));
+        assertEquals(-1, instance.getOrDefault(7, 0));
+        assertEquals(10, instance.increment(14, 8));
+        assertEquals(5, instance.increment(1, 5));
+        assertTrue(instance.remove(0));
+        assertFalse(instance.remove(0));
+        assertEquals(1000, instance.size());
+        assertEquals(42, instance.getOrDefault(0, 42));
+        assertEquals(999, instance.getOrDefault(999 * 7, 0));
+    }
+}
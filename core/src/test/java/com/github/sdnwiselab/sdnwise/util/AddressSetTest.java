@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the AddressSet class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AddressSetTest {
+
+    /**
+     * Test of add, contains and remove methods, of class AddressSet.
+     */
+    @Test
+    public void testMembership() {
+        AddressSet instance = new AddressSet();
+        assertTrue(instance.add(new NodeAddress("1.2")));
+        assertFalse(instance.add(0x0102));
+        assertTrue(instance.add(NodeAddress.BROADCAST_ADDR));
+        assertEquals(2, instance.size());
+        assertTrue(instance.contains(new NodeAddress("1.2")));
+        assertTrue(instance.contains(0xFFFF));
+        assertFalse(instance.contains(0x0103));
+        assertFalse(instance.contains("1.2"));
+        assertTrue(instance.remove(0x0102));
+        assertFalse(instance.remove(new NodeAddress("1.2")));
+        assertEquals(1, instance.size());
+    }
+
+    /**
+     * Test of iterator and get methods, of class AddressSet.
+     */
+    @Test
+    public void testOrder() {
+        AddressSet instance = new AddressSet(Arrays.asList(
+                new NodeAddress(70000), new NodeAddress(3),
+                new NodeAddress(64), new NodeAddress(300)));
+        int[] expResult = {3, 64, 300, 70000 & 0xFFFF};
+        int i = 0;
+        for (NodeAddress a : instance) {
+            assertSame(NodeAddress.valueOf(expResult[i]), a);
+            assertSame(a, instance.get(i));
+            i++;
+        }
+        assertEquals(expResult.length, i);
+
+        Iterator<NodeAddress> it = instance.iterator();
+        it.next();
+        it.remove();
+        assertEquals(NodeAddress.valueOf(64), instance.get(0));
+    }
+
+    /**
+     * Test of asList method, of class AddressSet.
+     */
+    @Test
+    public void testAsList() {
+        AddressSet instance = new AddressSet();
+        List<NodeAddress> list = instance.asList();
+        list.add(new NodeAddress(9));
+        list.add(new NodeAddress(5));
+        assertEquals(2, instance.size());
+        assertEquals(new NodeAddress(5), list.get(0));
+        assertEquals(new NodeAddress(5), list.remove(0));
+        assertEquals(Arrays.asList(new NodeAddress(9)), list);
+        assertTrue(instance.contains(9));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the AliasList class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AliasListTest {
+
+    /**
+     * Test of add and get methods, of class AliasList.
+     */
+    @Test
+    public void testInsertionOrder() {
+        AliasList instance = new AliasList();
+        assertTrue(instance.add(new NodeAddress(9)));
+        assertTrue(instance.add(new NodeAddress(5)));
+        assertTrue(instance.add(new NodeAddress(9)));
+        assertEquals(3, instance.size());
+        assertEquals(Arrays.asList(new NodeAddress(9), new NodeAddress(5),
+                new NodeAddress(9)), instance);
+        assertEquals(new NodeAddress(5), instance.get(1));
+    }
+
+    /**
+     * Test of remove method, of class AliasList.
+     */
+    @Test
+    public void testRemove() {
+        AliasList instance = new AliasList();
+        instance.add(new NodeAddress(9));
+        instance.add(new NodeAddress(5));
+        instance.add(new NodeAddress(9));
+        assertEquals(new NodeAddress(9), instance.remove(0));
+        assertTrue(instance.contains(9));
+        assertEquals(new NodeAddress(5), instance.get(0));
+        assertEquals(new NodeAddress(5), instance.remove(0));
+        assertFalse(instance.contains(5));
+        assertTrue(instance.contains(new NodeAddress(9)));
+        instance.remove(0);
+        assertFalse(instance.contains(9));
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test of set method, of class AliasList.
+     */
+    @Test
+    public void testSet() {
+        AliasList instance = new AliasList();
+        instance.add(new NodeAddress(9));
+        instance.add(new NodeAddress(5));
+        assertEquals(new NodeAddress(9), instance.set(0, new NodeAddress(5)));
+        assertFalse(instance.contains(9));
+        assertTrue(instance.contains(5));
+        instance.clear();
+        assertFalse(instance.contains(5));
+    }
+}
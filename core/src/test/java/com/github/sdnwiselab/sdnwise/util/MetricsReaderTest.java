@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests for the MetricsReader class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class MetricsReaderTest {
+
+    /**
+     * Test of forEach and aggregate methods, of class MetricsReader.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    public void testAggregate() throws IOException {
+        Path path = Files.createTempFile("metrics", ".bin");
+        try {
+            try (MetricsWriter w = new MetricsWriter(path, 3)) {
+                for (int s = 0; s < 4; s++) {
+                    for (int a = 1; a <= 2; a++) {
+                        w.record(s, new NodeAddress(a), 100 - s * a,
+                                a == 2 && s == 3 ? 0 : 200, s + a,
+                                10 * s, 20 * s, s, 2 * s);
+                    }
+                }
+            }
+            MetricsReader instance = new MetricsReader(path);
+            assertEquals(8, instance.size());
+
+            List<String> rows = new ArrayList<>();
+            instance.forEach((sec, addr, bat, lvl, ft, snt, rcv, sntD, rcvD)
+                    -> rows.add(sec + ":" + addr + ":" + bat + ":" + lvl
+                            + ":" + ft + ":" + snt + ":" + rcvD));
+            assertEquals("0:1:100.0:200:1:0:0", rows.get(0));
+            assertEquals("3:2:94.0:0:5:30:6", rows.get(7));
+
+            MetricsReader.Series result = instance.aggregate();
+            assertEquals(4, result.getLength());
+            assertEquals(2, result.getMotes(3));
+            assertEquals(1, result.getAlive(3));
+            assertEquals(97 + 94, result.getBattery(3), 0);
+            assertEquals(4 + 5, result.getFlowTableEntries(3));
+            assertEquals(60, result.getSentBytes(3));
+            assertEquals(80, result.getReceivedBytes(2));
+            assertEquals(4, result.getSentDataBytes(2));
+            assertEquals(12, result.getReceivedDataBytes(3));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Test of forEach method, of class MetricsReader, with a block cut by a
+     * crash.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    public void testTruncated() throws IOException {
+        Path path = Files.createTempFile("metrics", ".bin");
+        try {
+            try (MetricsWriter w = new MetricsWriter(path, 3)) {
+                for (int s = 0; s < 7; s++) {
+                    w.record(s, new NodeAddress(1), 100, 200, 1, 0, 0, 0, 0);
+                }
+            }
+            try (FileChannel ch = FileChannel.open(path,
+                    StandardOpenOption.WRITE)) {
+                ch.truncate(ch.size() - 10);
+            }
+            MetricsReader instance = new MetricsReader(path);
+            assertEquals(6, instance.size());
+            List<Integer> seconds = new ArrayList<>();
+            instance.forEach((sec, addr, bat, lvl, ft, snt, rcv, sntD, rcvD)
+                    -> seconds.add(sec));
+            assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), seconds);
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
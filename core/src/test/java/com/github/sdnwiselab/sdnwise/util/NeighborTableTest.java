@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests for the NeighborTable class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class NeighborTableTest {
+
+    /**
+     * Test of update method, of class NeighborTable.
+     */
+    @Test
+    public void testUpdate() {
+        NeighborTable instance = new NeighborTable(8, 10);
+        NodeAddress a = NodeAddress.valueOf(5);
+        assertTrue(instance.update(a, 200, 100));
+        assertFalse(instance.update(a, 100, 90));
+        assertEquals(1, instance.size());
+        Neighbor n = instance.get(a);
+        assertEquals(175, n.getRssi());
+        assertEquals(90, n.getBatt());
+        assertNull(instance.get(NodeAddress.valueOf(6)));
+        try {
+            instance.update(a, 256, 0);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Invalid RSSI: 256", ex.getMessage());
+        }
+    }
+
+    /**
+     * Test of tick method, of class NeighborTable.
+     */
+    @Test
+    public void testAging() {
+        NeighborTable instance = new NeighborTable(8, 2);
+        NodeAddress a = NodeAddress.valueOf(1);
+        NodeAddress b = NodeAddress.valueOf(2);
+        instance.update(a, 200, 0);
+        instance.tick();
+        instance.update(b, 200, 0);
+        instance.tick();
+        instance.tick();
+        assertNull(instance.get(a));
+        assertEquals(b, instance.get(b).getAddr());
+        assertEquals(1, instance.size());
+        // an expired neighbor starts a new average
+        assertTrue(instance.update(a, 100, 0));
+        assertEquals(100, instance.get(a).getRssi());
+    }
+
+    /**
+     * Test of best method, of class NeighborTable.
+     */
+    @Test
+    public void testBest() {
+        NeighborTable instance = new NeighborTable(4, 10);
+        for (int i = 1; i <= 4; i++) {
+            instance.update(NodeAddress.valueOf(i), 180 + i * 10, 0);
+        }
+        // a full table keeps the strongest neighbors
+        assertFalse(instance.update(NodeAddress.valueOf(9), 185, 0));
+        assertTrue(instance.update(NodeAddress.valueOf(10), 250, 0));
+        assertEquals(4, instance.size());
+        assertNull(instance.get(NodeAddress.valueOf(1)));
+        List<Neighbor> best = instance.best(3);
+        assertEquals(3, best.size());
+        assertEquals(NodeAddress.valueOf(10), best.get(0).getAddr());
+        assertEquals(NodeAddress.valueOf(4), best.get(1).getAddr());
+        assertEquals(NodeAddress.valueOf(3), best.get(2).getAddr());
+    }
+
+    /**
+     * Test of add, contains, iterator and remove methods, of class
+     * NeighborTable.
+     */
+    @Test
+    public void testSet() {
+        Set<Neighbor> instance = new NeighborTable(10);
+        NodeAddress a = NodeAddress.valueOf(0x0102);
+        assertTrue(instance.add(new Neighbor(a, 200, 1)));
+        assertFalse(instance.add(new Neighbor(a, 200, 2)));
+        assertEquals(1, instance.size());
+        assertTrue(instance.contains(new Neighbor(a, 0, 0)));
+        instance.add(new Neighbor(NodeAddress.valueOf(3), 190, 1));
+        Iterator<Neighbor> it = instance.iterator();
+        while (it.hasNext()) {
+            if (it.next().getAddr().equals(a)) {
+                it.remove();
+            }
+        }
+        assertFalse(instance.contains(new Neighbor(a, 0, 0)));
+        assertEquals(1, instance.size());
+        instance.clear();
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test of update method with concurrent writers, of class NeighborTable.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testConcurrentUpdate() throws InterruptedException {
+        NeighborTable instance = new NeighborTable(64, 10);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread th = new Thread(() -> {
+                for (int k = 0; k < 10000; k++) {
+                    instance.update(NodeAddress.valueOf(k % 48), 200, 0);
+                }
+            });
+            threads.add(th);
+            th.start();
+        }
+        for (Thread th : threads) {
+            th.join();
+        }
+        assertEquals(48, instance.size());
+        for (int i = 0; i < 48; i++) {
+            assertEquals(200, instance.get(NodeAddress.valueOf(i)).getRssi());
+        }
+    }
+
+    /**
+     * Test of update method with writers adding the same new neighbor while
+     * another one comes and goes in its slot, of class NeighborTable.
+     *
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void testConcurrentInsert() throws Exception {
+        NeighborTable instance = new NeighborTable(8, 10);
+        // both addresses start from slot 0, so the writers may pick
+        // different slots depending on when they see the other neighbor
+        NodeAddress addr = NodeAddress.valueOf(8);
+        NodeAddress other = NodeAddress.valueOf(0);
+        int writers = 3;
+        CyclicBarrier barrier = new CyclicBarrier(writers + 2);
+        AtomicInteger round = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t <= writers; t++) {
+            boolean toggler = t == writers;
+            Thread th = new Thread(() -> {
+                try {
+                    while (true) {
+                        barrier.await();
+                        if (round.get() < 0) {
+                            return;
+                        }
+                        if (toggler) {
+                            for (int k = 0; k < 4; k++) {
+                                instance.update(other, 100, 0);
+                                instance.remove(other);
+                            }
+                        } else {
+                            instance.update(addr, 200, 0);
+                        }
+                        barrier.await();
+                    }
+                } catch (InterruptedException | BrokenBarrierException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(th);
+            th.start();
+        }
+        for (int r = 0; r < 20000; r++) {
+            instance.clear();
+            round.set(r);
+            barrier.await();
+            barrier.await();
+            assertEquals(1, instance.size());
+            assertEquals(addr, instance.best(8).get(0).getAddr());
+        }
+        round.set(-1);
+        barrier.await();
+        for (Thread th : threads) {
+            th.join();
+        }
+    }
+}
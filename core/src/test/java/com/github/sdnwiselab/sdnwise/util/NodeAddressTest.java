@@ -18,6 +18,7 @@ package com.github.sdnwiselab.sdnwise.util;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import org.junit.Test;
 
 /**
@@ -115,4 +116,17 @@ public final class NodeAddressTest {
         boolean result = instance.isBroadcast();
         assertEquals(expResult, result);
     }
+
+    /**
+     * Test of valueOf method, of class NodeAddress.
+     */
+    @Test
+    public void testValueOf() {
+        NodeAddress instance = NodeAddress.valueOf(0x0102);
+        assertSame(instance, NodeAddress.valueOf((byte) 1, (byte) 2));
+        assertSame(instance, NodeAddress.valueOf(new NodeAddress("1.2")));
+        assertSame(NodeAddress.BROADCAST_ADDR, NodeAddress.valueOf(-1));
+        assertEquals(new NodeAddress("1.2"), instance);
+        assertEquals("1.2", instance.toString());
+    }
 }
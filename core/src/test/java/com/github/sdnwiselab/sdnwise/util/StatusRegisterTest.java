@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests for the StatusRegister class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class StatusRegisterTest {
+
+    /**
+     * Test of get and set methods, of class StatusRegister.
+     */
+    @Test
+    public void testGetSet() {
+        StatusRegister instance = new StatusRegister(10000);
+        assertEquals(10000, instance.size());
+        assertEquals(0, instance.get(9999));
+        assertEquals(0, instance.set(5000, 0));
+        assertEquals(0, instance.set(9999, 7));
+        assertEquals(7, instance.set(9999, 8));
+        assertEquals(8, instance.get(9999));
+        assertEquals(0, instance.get(5000));
+        instance.clear();
+        assertEquals(0, instance.get(9999));
+    }
+
+    /**
+     * Test of get method out of the register, of class StatusRegister.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        new StatusRegister(10).get(10);
+    }
+
+    /**
+     * Test of asList method, of class StatusRegister.
+     */
+    @Test
+    public void testAsList() {
+        StatusRegister instance = new StatusRegister(100);
+        List<Integer> list = instance.asList();
+        assertEquals(100, list.size());
+        assertEquals(Integer.valueOf(0), list.set(50, 300));
+        assertEquals(300, instance.get(50));
+        instance.set(99, 1);
+        assertEquals(Integer.valueOf(1), list.get(99));
+    }
+
+    /**
+     * Test of asArrayList method, of class StatusRegister.
+     */
+    @Test
+    public void testAsArrayList() {
+        StatusRegister instance = new StatusRegister(4);
+        ArrayList<Integer> list = instance.asArrayList();
+        assertEquals(4, list.size());
+        assertEquals(Integer.valueOf(0), list.set(2, 7));
+        assertEquals(7, instance.get(2));
+        instance.set(3, 1);
+        assertEquals(Arrays.asList(0, 0, 7, 1), list);
+        assertEquals(Arrays.asList(0, 0, 7, 1), new ArrayList<>(list));
+        int sum = 0;
+        for (int v : list) {
+            sum += v;
+        }
+        assertEquals(8, sum);
+        try {
+            list.add(5);
+            fail("The register has a fixed size");
+        } catch (UnsupportedOperationException ex) {
+            assertEquals(4, list.size());
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests for the Topology class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class TopologyTest {
+
+    /**
+     * Test of build method, of class Topology.Builder.
+     */
+    @Test
+    public void testBuild() {
+        Topology.Builder b = new Topology.Builder().setBasePort(7770);
+        int s = b.addNode(new NodeAddress(1), 0, 0);
+        int m = b.addNode(new NodeAddress("1.0"), 10, 20);
+        int n = b.addNode(new NodeAddress(3), -5, 0);
+        b.addLink(s, n, 190).addLinks(s, m, 200);
+        Topology instance = b.build();
+        assertEquals(3, instance.size());
+        assertEquals(3, instance.getLinks());
+        assertEquals(m, instance.indexOf(new NodeAddress(256)));
+        assertEquals(-1, instance.indexOf(new NodeAddress(2)));
+        assertSame(NodeAddress.valueOf(3), instance.getAddress(n));
+        assertEquals(7770 + 256, instance.getPort(m));
+        assertEquals(20, instance.getY(m), 0);
+        assertEquals(2, instance.getDegree(s));
+        assertEquals(m, instance.getNeighbor(s, 0));
+        assertEquals(200, instance.getRssi(s, 0));
+        assertEquals(n, instance.getNeighbor(s, 1));
+        assertEquals(190, instance.getRssi(s, 1));
+        assertEquals(1, instance.getDegree(m));
+        assertEquals(0, instance.getDegree(n));
+    }
+
+    /**
+     * Test of write and map methods, of class Topology.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    public void testMap() throws IOException {
+        Topology expResult = new TopologyGenerator(1).setRange(15)
+                .randomGeometric(500, 200, 200);
+        Path path = Files.createTempFile("topology",
+                Topology.FILE_EXTENSION);
+        try {
+            expResult.write(path);
+            Topology result = Topology.map(path);
+            assertSame(result, Topology.map(path));
+            assertEquals(expResult.size(), result.size());
+            assertEquals(expResult.getLinks(), result.getLinks());
+            for (int i = 0; i < result.size(); i++) {
+                assertEquals(expResult.getAddress(i), result.getAddress(i));
+                assertEquals(expResult.getX(i), result.getX(i), 0);
+                assertEquals(expResult.getDegree(i), result.getDegree(i));
+                for (int k = 0; k < result.getDegree(i); k++) {
+                    assertEquals(expResult.getNeighbor(i, k),
+                            result.getNeighbor(i, k));
+                    assertEquals(expResult.getRssi(i, k),
+                            result.getRssi(i, k));
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Test of map method after the file is written again, of class Topology.
+     *
+     * @throws IOException if the file cannot be read or written
+     */
+    @Test
+    public void testMapRewritten() throws IOException {
+        Path path = Files.createTempFile("topology",
+                Topology.FILE_EXTENSION);
+        try {
+            new TopologyGenerator(0).grid(100, 100, 10).write(path);
+            Topology before = Topology.map(path);
+            new TopologyGenerator(0).grid(2, 2, 10).write(path);
+            Topology after = Topology.map(path);
+            assertNotSame(before, after);
+            assertSame(after, Topology.map(path));
+            assertEquals(4, after.size());
+            // the nodes still using the old mapping can read it
+            assertEquals(10000, before.size());
+            assertEquals(new NodeAddress(10000), before.getAddress(9999));
+            try (Stream<Path> files = Files.list(path.getParent())) {
+                assertFalse(files.anyMatch(f -> f.getFileName().toString()
+                        .startsWith(path.getFileName() + ".")));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Test of grid, line, tree and clustered methods, of class
+     * TopologyGenerator.
+     */
+    @Test
+    public void testGenerator() {
+        TopologyGenerator instance = new TopologyGenerator(7);
+        Topology grid = instance.grid(10, 20, 30);
+        assertEquals(200, grid.size());
+        assertEquals(2 * (10 * 19 + 9 * 20), grid.getLinks());
+        assertEquals(2, grid.getDegree(0));
+        assertEquals(4, grid.getDegree(21));
+        assertSame(NodeAddress.valueOf(1), grid.getAddress(0));
+
+        Topology line = instance.line(5, 10);
+        assertEquals(8, line.getLinks());
+        assertEquals(1, line.getDegree(4));
+
+        Topology tree = instance.tree(13, 3, 10);
+        assertEquals(24, tree.getLinks());
+        assertEquals(3, tree.getDegree(0));
+        assertEquals(4, tree.getDegree(1));
+        assertEquals(1, tree.getDegree(12));
+
+        Topology clustered = instance.clustered(4, 1000, 1000, 1000, 50);
+        assertEquals(1000, clustered.size());
+        for (int i = 0; i < clustered.size(); i++) {
+            for (int k = 0; k < clustered.getDegree(i); k++) {
+                int j = clustered.getNeighbor(i, k);
+                assertTrue(Math.hypot(clustered.getX(i) - clustered.getX(j),
+                        clustered.getY(i) - clustered.getY(j))
+                        <= TopologyGenerator.DFLT_RANGE + 1e-3);
+                assertTrue(clustered.getRssi(i, k)
+                        >= TopologyGenerator.MIN_RSSI);
+            }
+        }
+    }
+
+    /**
+     * Test of generate method, of class TopologyGenerator.
+     */
+    @Test
+    public void testGenerate() {
+        TopologyGenerator instance = new TopologyGenerator(3);
+        Topology grid = instance.generate("grid:2:3:10");
+        assertEquals(6, grid.size());
+        assertEquals(2 * (2 * 2 + 3), grid.getLinks());
+        assertEquals(4, instance.generate("line:4:10").size());
+        assertEquals(7, instance.generate("tree:7:2:10").size());
+        assertEquals(50, instance.generate("random:50:100:100:30").size());
+        assertEquals(60, instance.generate("clustered:3:60:500:500:20")
+                .size());
+        assertInvalid(() -> instance.generate("ring:5:10"));
+        assertInvalid(() -> instance.generate("grid:2:3"));
+        assertInvalid(() -> instance.generate("line:4:10:20"));
+        assertInvalid(() -> instance.generate("line:four:10"));
+    }
+
+    /**
+     * Test of the limits on the nodes and on their ports, of class
+     * TopologyGenerator.
+     */
+    @Test
+    public void testGeneratorLimits() {
+        TopologyGenerator instance = new TopologyGenerator(1)
+                .setFirstAddress(0);
+        assertEquals(Topology.MAX_NODES, instance.line(Topology.MAX_NODES,
+                1).size());
+        assertInvalid(() -> instance.line(Topology.MAX_NODES + 1, 1));
+        instance.setFirstAddress(1).setBasePort(Topology.MAX_PORT - 10);
+        assertEquals(Topology.MAX_PORT, instance.line(10, 1).getPort(9));
+        assertInvalid(() -> instance.line(11, 1));
+    }
+
+    /**
+     * Test of map method with a port out of range, of class Topology.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Test
+    public void testMapInvalidPort() throws IOException {
+        Topology t = new Topology.Builder().setBasePort(Topology.MAX_PORT)
+                .build();
+        Path path = Files.createTempFile("topology",
+                Topology.FILE_EXTENSION);
+        try {
+            t.write(path);
+            byte[] b = Files.readAllBytes(path);
+            // one node with address 1, which would listen on port 65536
+            ByteBuffer bb = ByteBuffer.allocate(b.length + 16);
+            bb.put(b, 0, 20).putInt(1).putFloat(0).putFloat(0).putInt(0)
+                    .putInt(0).putInt(8, 1);
+            Files.write(path, bb.array());
+            assertInvalid(() -> Topology.map(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Checks that an action throws an IllegalArgumentException.
+     *
+     * @param action the action
+     */
+    private static void assertInvalid(final Action action) {
+        try {
+            action.run();
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException | IOException ex) {
+            assertTrue(ex instanceof IllegalArgumentException);
+        }
+    }
+
+    /**
+     * An action that may throw an IOException.
+     */
+    private interface Action {
+
+        /**
+         * Runs the action.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        void run() throws IOException;
+    }
+}
@@ -26,6 +26,11 @@ import java.util.logging.Logger;
  * Representation of an abstract adapter. It is an observable class for the
  * adaptation, but it is also an observer for changes coming from the specific
  * adapter type.
+ * <p>
+ * Each packet received is notified to the observers as a byte array of its
+ * own, exactly as long as the packet. The observers rely on the length of
+ * the array and may keep it, so the adapters cannot reuse it or hand out a
+ * pooled NetworkPacket instead.
  *
  * @author Sebastiano Milardo
  */
@@ -16,6 +16,7 @@
  */
 package com.github.sdnwiselab.sdnwise.adapter;
 
+import com.github.sdnwiselab.sdnwise.packet.FrameDecoder;
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
 import gnu.io.CommPortIdentifier;
 import gnu.io.PortInUseException;
@@ -26,8 +27,8 @@ import gnu.io.UnsupportedCommOperationException;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Enumeration;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Observable;
 import java.util.TooManyListenersException;
@@ -185,25 +186,13 @@ public class AdapterCom extends AbstractAdapter {
             SerialPortEventListener {
 
         /**
-         * Flags.
+         * Decodes the frames coming from the serial port.
          */
-        private boolean startFlag, idFlag;
-        /**
-         * Expected.
-         */
-        private int expected, b;
-        /**
-         * Current char.
-         */
-        private byte a;
-        /**
-         * Incoming buffer.
-         */
-        private final LinkedList<Byte> receivedBytes;
+        private final FrameDecoder decoder;
         /**
          * Incoming packet.
          */
-        private final LinkedList<Byte> packet;
+        private final byte[] packet = new byte[NetworkPacket.MAX_PACKET_LENGTH];
         /**
          * Receiving InputStream.
          */
@@ -215,8 +204,7 @@ public class AdapterCom extends AbstractAdapter {
          * @param is the InputStream object
          */
         InternalSerialListener(final InputStream is) {
-            packet = new LinkedList<>();
-            receivedBytes = new LinkedList<>();
+            decoder = new FrameDecoder(startByte, stopByte);
             in = is;
         }
 
@@ -224,51 +212,16 @@ public class AdapterCom extends AbstractAdapter {
         public void serialEvent(final SerialPortEvent event) {
             if (event.getEventType() == SerialPortEvent.DATA_AVAILABLE) {
                 try {
-                    for (int i = 0; i < in.available(); i++) {
-                        b = in.read();
-                        //System.out.print((char)b); // DEBUG ONLY
-                        if (b > -1) {
-                            receivedBytes.add((byte) b);
+                    int len;
+                    do {
+                        if (decoder.fill(in) < 0) {
+                            break;
                         }
-                    }
-
-                    while (!receivedBytes.isEmpty()) {
-                        a = receivedBytes.poll();
-                        if (!startFlag && a == startByte) {
-                            startFlag = true;
-                            packet.add(a);
-                        } else if (startFlag && !idFlag) {
-                            packet.add(a);
-                            idFlag = true;
-                        } else if (startFlag && idFlag && expected == 0) {
-                            expected = Byte.toUnsignedInt(a);
-                            packet.add(a);
-                        } else if (startFlag && idFlag && expected > 0
-                                && packet.size() < expected + 1) {
-                            packet.add(a);
-                        } else if (startFlag && idFlag && expected > 0
-                                && packet.size() == expected + 1) {
-                            packet.add(a);
-                            if (a == stopByte) {
-                                packet.removeFirst();
-                                packet.removeLast();
-                                byte[] bytePacket = new byte[packet.size()];
-                                for (int i = 0; i < bytePacket.length; i++) {
-                                    bytePacket[i] = packet.poll();
-                                }
-                                setChanged();
-                                notifyObservers(bytePacket);
-                            } else {
-                                while (!packet.isEmpty()) {
-                                    receivedBytes.addFirst(packet.removeLast());
-                                }
-                                receivedBytes.poll();
-                            }
-                            startFlag = false;
-                            idFlag = false;
-                            expected = 0;
+                        while ((len = decoder.next(packet)) > 0) {
+                            setChanged();
+                            notifyObservers(Arrays.copyOf(packet, len));
                         }
-                    }
+                    } while (in.available() > 0);
                 } catch (IOException e) {
                     log(Level.SEVERE, e.toString());
                 }
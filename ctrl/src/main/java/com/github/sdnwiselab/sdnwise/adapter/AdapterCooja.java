@@ -16,11 +16,13 @@
  */
 package com.github.sdnwiselab.sdnwise.adapter;
 
+import com.github.sdnwiselab.sdnwise.packet.FrameDecoder;
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
 
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -169,13 +171,12 @@ public class AdapterCooja extends AbstractAdapter {
             try {
                 socket = new Socket(ip, port);
                 InputStream in = socket.getInputStream();
-                BufferedInputStream bis = new BufferedInputStream(in);
-                while (!isStopped()) {
-                    byte[] data = new NetworkPacket(bis).toByteArray();
-                    if (data.length > 0) {
-                        setChanged();
-                        notifyObservers(data);
-                    }
+                FrameDecoder decoder = new FrameDecoder();
+                byte[] packet = new byte[NetworkPacket.MAX_PACKET_LENGTH];
+                int len;
+                while (!isStopped() && (len = decoder.read(in, packet)) > 0) {
+                    setChanged();
+                    notifyObservers(Arrays.copyOf(packet, len));
                 }
             } catch (IOException ex) {
                 log(Level.SEVERE, ex.toString());
@@ -283,13 +284,13 @@ public class AdapterCooja extends AbstractAdapter {
             public void run() {
                 try {
                     InputStream in = clientSocket.getInputStream();
-                    BufferedInputStream bis = new BufferedInputStream(in);
-                    while (!isStopped()) {
-                        byte[] data = new NetworkPacket(bis).toByteArray();
-                        if (data.length > 0) {
-                            setChanged();
-                            notifyObservers(data);
-                        }
+                    FrameDecoder decoder = new FrameDecoder();
+                    byte[] packet = new byte[NetworkPacket.MAX_PACKET_LENGTH];
+                    int len;
+                    while (!isStopped()
+                            && (len = decoder.read(in, packet)) > 0) {
+                        setChanged();
+                        notifyObservers(Arrays.copyOf(packet, len));
                     }
                 } catch (IOException ex) {
                     log(Level.SEVERE, ex.toString());
@@ -46,11 +46,12 @@ import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.REG_PROXY;
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.REPORT;
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.REQUEST;
 import com.github.sdnwiselab.sdnwise.packet.OpenPathPacket;
-import com.github.sdnwiselab.sdnwise.packet.ReportPacket;
+import com.github.sdnwiselab.sdnwise.packet.PacketPool;
 import com.github.sdnwiselab.sdnwise.packet.RequestPacket;
 import com.github.sdnwiselab.sdnwise.packet.ResponsePacket;
 import com.github.sdnwiselab.sdnwise.stats.LifeTimeMonitorController;
 import com.github.sdnwiselab.sdnwise.topology.NetworkGraph;
+import com.github.sdnwiselab.sdnwise.util.AddressMap;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
 import static com.github.sdnwiselab.sdnwise.util.Utils.mergeBytes;
 import static com.github.sdnwiselab.sdnwise.util.Utils.splitInteger;
@@ -61,7 +62,6 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -127,10 +127,14 @@ public abstract class AbstractController extends ControlPlaneLayer implements
      */
     protected static final int RESPONSE_TIMEOUT = 300;
     /**
-     * Incoming queue.
+     * Incoming queue. It contains pooled packets, released once managed.
      */
     private final ArrayBlockingQueue<NetworkPacket> bQ
             = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    /**
+     * Recycles the incoming packets.
+     */
+    private final PacketPool pool = PacketPool.getDefault();
     /**
      * Query cache.
      */
@@ -154,8 +158,8 @@ public abstract class AbstractController extends ControlPlaneLayer implements
     /**
      * Computed paths cache.
      */
-    private final HashMap<NodeAddress, LinkedList<NodeAddress>> results
-            = new HashMap<>();
+    private final AddressMap<LinkedList<NodeAddress>> results
+            = new AddressMap<>();
 
     /**
      * Sink Address.
@@ -408,11 +412,11 @@ public abstract class AbstractController extends ControlPlaneLayer implements
     }
 
     /**
-     * Gets an HashMap with the already computed path.
+     * Gets a Map with the already computed path.
      *
-     * @return an hash map with the computed results
+     * @return a map with the computed results
      */
-    public final HashMap<NodeAddress, LinkedList<NodeAddress>> getResults() {
+    public final Map<NodeAddress, LinkedList<NodeAddress>> getResults() {
         return results;
     }
 
@@ -430,7 +434,7 @@ public abstract class AbstractController extends ControlPlaneLayer implements
         LifeTimeMonitorController.Instance().start();
         switch (data.getTyp()) {
             case REPORT:
-                networkGraph.updateMap(new ReportPacket(data));
+                networkGraph.updateMap(data.view().asReport());
                 break;
 
             case REQUEST:
@@ -579,9 +583,12 @@ public abstract class AbstractController extends ControlPlaneLayer implements
     public final void update(final Observable o, final Object arg) {
         for (AbstractAdapter adapter : getLower()) {
             if (o.equals(adapter)) {
+                byte[] data = (byte[]) arg;
+                NetworkPacket np = pool.acquire(data, 0, data.length);
                 try {
-                    bQ.put(new NetworkPacket((byte[]) arg));
+                    bQ.put(np);
                 } catch (InterruptedException ex) {
+                    pool.release(np);
                     log(Level.SEVERE, ex.toString());
                 }
             } else if (o.equals(networkGraph)) {
@@ -703,7 +710,12 @@ public abstract class AbstractController extends ControlPlaneLayer implements
         public void run() {
             while (true) {
                 try {
-                    managePacket(bQ.take());
+                    NetworkPacket np = bQ.take();
+                    try {
+                        managePacket(np);
+                    } finally {
+                        pool.release(np);
+                    }
                 } catch (InterruptedException ex) {
                     Logger.getGlobal().log(Level.SEVERE, ex.toString());
                 }
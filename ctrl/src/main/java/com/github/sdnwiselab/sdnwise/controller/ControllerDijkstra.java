@@ -27,9 +27,9 @@ import com.github.sdnwiselab.sdnwise.topology.NetworkGraph;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
 import java.net.InetSocketAddress;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import org.graphstream.algorithm.Dijkstra;
 import org.graphstream.graph.Node;
@@ -120,7 +120,7 @@ public final class ControllerDijkstra extends AbstractController {
 
         log(Level.INFO, data.toString());
         NetworkGraph network = getNetworkGraph();
-        HashMap<NodeAddress, LinkedList<NodeAddress>> results = getResults();
+        Map<NodeAddress, LinkedList<NodeAddress>> results = getResults();
 
         String dst = data.getNet() + "." + data.getDst();
         String src = data.getNet() + "." + req.getSrc();
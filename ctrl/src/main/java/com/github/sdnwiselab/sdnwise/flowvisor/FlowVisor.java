@@ -23,11 +23,13 @@ import com.github.sdnwiselab.sdnwise.controlplane.ControlPlaneLayer;
 import com.github.sdnwiselab.sdnwise.controlplane.ControlPlaneLogger;
 import com.github.sdnwiselab.sdnwise.packet.DataPacket;
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
+import com.github.sdnwiselab.sdnwise.packet.PacketView;
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.DATA;
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.REPORT;
 import com.github.sdnwiselab.sdnwise.packet.ReportPacket;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -78,7 +80,9 @@ public class FlowVisor extends ControlPlaneLayer {
 
     /**
      * This method permits to register a Controller to this FlowVisor and its
-     * Nodes.
+     * Nodes. The set is not copied, so later changes to it apply to the
+     * controller. An AddressSet makes the lookups done for each packet
+     * cheaper than other sets.
      *
      * @param controller Controller Identity to register
      * @param set Set of Nodes to register
@@ -124,8 +128,7 @@ public class FlowVisor extends ControlPlaneLayer {
             // if it is a data packet send to the application, else send it to
             // the controller
             byte[] data = (byte[]) arg;
-            NetworkPacket np = new NetworkPacket(data);
-            switch (np.getTyp()) {
+            switch (PacketView.wrap(ByteBuffer.wrap(data)).getTyp()) {
                 case DATA:
                     manageData(data);
                     break;
@@ -183,9 +186,11 @@ public class FlowVisor extends ControlPlaneLayer {
      */
     private void manageRequests(final byte[] data) {
         NetworkPacket pkt = new NetworkPacket(data);
+        NodeAddress src = pkt.getSrc();
+        NodeAddress dst = pkt.getDst();
         controllerMapping.entrySet().stream().filter((set) -> (set.getValue()
-                .contains(pkt.getSrc())
-                && set.getValue().contains(pkt.getDst()))).map((set) -> {
+                .contains(src)
+                && set.getValue().contains(dst))).map((set) -> {
             ((AdapterUdp) getUpper()).send(data, set.getKey().getAddress()
                     .getHostAddress(),
                     set.getKey().getPort());
@@ -203,12 +208,13 @@ public class FlowVisor extends ControlPlaneLayer {
      */
     private void manageData(final byte[] data) {
         DataPacket pkt = new DataPacket(data);
+        NodeAddress src = pkt.getSrc();
+        NodeAddress dst = pkt.getDst();
 
         applicationMapping.keySet().stream().forEach((app) -> {
             Set<NodeAddress> nodes = controllerMapping.get(applicationMapping
                     .get(app));
-            if (nodes.contains(pkt.getSrc())
-                    && nodes.contains(pkt.getDst())) {
+            if (nodes.contains(src) && nodes.contains(dst)) {
                 ((AdapterUdp) getUpper()).send(data, app.getAddress()
                         .getHostAddress(), app.getPort());
                 log(Level.INFO, "Sending data to " + app.getAddress() + ":"
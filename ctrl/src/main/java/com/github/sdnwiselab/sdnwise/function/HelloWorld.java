@@ -16,7 +16,7 @@
  */
 package com.github.sdnwiselab.sdnwise.function;
 
-import com.github.sdnwiselab.sdnwise.flowtable.FlowTableEntry;
+import com.github.sdnwiselab.sdnwise.flowtable.FlowTable;
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
 import com.github.sdnwiselab.sdnwise.util.Neighbor;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
@@ -35,7 +35,7 @@ public class HelloWorld implements FunctionInterface {
     @Override
     public final void function(
             final HashMap<String, Object> adcRegister,
-            final List<FlowTableEntry> flowTable,
+            final FlowTable flowTable,
             final Set<Neighbor> neighborTable,
             final ArrayList<Integer> statusRegister,
             final List<NodeAddress> acceptedId,
@@ -24,17 +24,25 @@ import com.github.sdnwiselab.sdnwise.controller.ControllerFactory;
 import com.github.sdnwiselab.sdnwise.controller.ControllerGui;
 import com.github.sdnwiselab.sdnwise.flowvisor.FlowVisor;
 import com.github.sdnwiselab.sdnwise.flowvisor.FlowVisorFactory;
+import com.github.sdnwiselab.sdnwise.mote.standalone.AbstractMote;
+import com.github.sdnwiselab.sdnwise.mote.standalone.LocalRadioMedium;
 import com.github.sdnwiselab.sdnwise.mote.standalone.Mote;
+import com.github.sdnwiselab.sdnwise.mote.standalone.MoteRuntime;
 import com.github.sdnwiselab.sdnwise.mote.standalone.Sink;
 import com.github.sdnwiselab.sdnwise.packet.DataPacket;
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
 import com.github.sdnwiselab.sdnwise.stats.LifeTimeMonitorController;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import com.github.sdnwiselab.sdnwise.util.Topology;
+import com.github.sdnwiselab.sdnwise.util.TopologyGenerator;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -54,15 +62,17 @@ public final class SdnWise {
      */
     private static final String CONFIG_FILE = "/config.json";
     /**
-     * Set to true to start an emulated network.
+     * Keys of the controller map describing the emulated network: the path
+     * of its topology file and, optionally, the description of a topology to
+     * generate in that file.
      */
-    private static final boolean EMULATED = false;
+    private static final String TOPOLOGY = "TOPOLOGY",
+            TOPOLOGY_GENERATOR = "TOPOLOGY_GENERATOR";
     /**
      * Emulation constants.
      */
-    private static final int NO_OF_MOTES = 12,
-            ADA_PORT = 9990, BASE_NODE_PORT = 7770, SETUP_TIME = 60000,
-            TIMEOUT = 100;
+    private static final int ADA_PORT = 9990, BASE_NODE_PORT = 7770,
+            SETUP_TIME = 60000, TIMEOUT = 100;
 
     private static final String RANDOM_TEXT = "asdadaasdasdasdaqwewqeqasdasdasdasdasdasdasdasdasdasdasdasdasdasda" +
             "asdasasdasdasdasdasdasdasd";
@@ -137,7 +147,10 @@ public final class SdnWise {
 
     /**
      * Creates a SDN-WISE network. This method creates a Controller, a FlowVisor
-     * and an Adaptation plus a simulated network
+     * and an Adaptation plus an emulated network, if the "map" of the
+     * Controller contains a "TOPOLOGY" value with the path of a topology
+     * file. If it also contains a "TOPOLOGY_GENERATOR" value, such as
+     * "grid:3:4:50", the topology is generated in that file first.
      *
      * @param conf contains the configuration parameters for the Control plane
      */
@@ -174,8 +187,15 @@ public final class SdnWise {
         }
         startAdaptation(conf);
 
-        if (EMULATED) {
-            startVirtualNetwork();
+        Map<String, String> map = conf.getController().getMap();
+        if (map.containsKey(TOPOLOGY)) {
+            try {
+                startVirtualNetwork(map.get(TOPOLOGY),
+                        map.get(TOPOLOGY_GENERATOR),
+                        new InetSocketAddress("localhost", ADA_PORT));
+            } catch (IOException | IllegalArgumentException ex) {
+                Logger.getGlobal().log(Level.SEVERE, ex.toString());
+            }
 
             // Wait for the nodes to be discovered
             try {
@@ -260,45 +280,58 @@ public final class SdnWise {
     }
 
     /**
-     * Creates a virtual Network of SDN-WISE nodes. The links between the nodes
-     * are specified in each Node#.txt file in the resources directory. These
-     * files contain the id of the neighbor, its ip address and port on which it
-     * is listening and the rssi between the nodes. For example if in Node0.txt
-     * we find 0.1,localhost,7771,215 it means that node 0.0 has 0.1 as
-     * neighbor, which is listening on localhost:7771 and the rssi between 0.0
-     * and 0.1 is 215.
+     * Creates a virtual Network of SDN-WISE nodes from a topology file, as
+     * the one written by a TopologyGenerator. The first node of the topology
+     * is the Sink. All the nodes share the same Topology and run on a
+     * single MoteRuntime, exchanging their packets in memory, so the size of
+     * the network is only limited by the topology.
+     *
+     * @param topologyFile the path of the topology file
+     * @param generator the description of a topology to generate in the file
+     * first, as accepted by TopologyGenerator.generate, or null to use the
+     * file as it is
+     * @param adaptation the address of the Adaptation the Sink connects to
+     * @return the MoteRuntime running the nodes
+     * @throws IOException if the topology file cannot be read or written
+     * @throws IllegalArgumentException if the topology is not valid
      */
-    public static void startVirtualNetwork() {
-        Thread th = new Thread(new Sink(
-                // its own id
-                (byte) 1,
-                // its own address
-                new NodeAddress("0.1"),
-                // listener port
-                BASE_NODE_PORT + 1,
-                // controller address
-                new InetSocketAddress("localhost", ADA_PORT),
-                // neigh file
-                "Node1.txt",
-                "FINEST",
-                "00000001",
-                "00:01:02:03:04:05",
-                1)
-        );
-        th.start();
-
-        for (int i = 2; i <= NO_OF_MOTES; i++) {
-            new Thread(new Mote(
-                    // its own id
-                    (byte) 1,
-                    // its own address
-                    new NodeAddress(i),
-                    // listener port
-                    BASE_NODE_PORT + i,
-                    // neigh file
-                    "Node" + i + ".txt",
-                    "FINEST")).start();
+    public static MoteRuntime startVirtualNetwork(final String topologyFile,
+            final String generator, final InetSocketAddress adaptation)
+            throws IOException {
+        if (!Topology.isTopologyFile(topologyFile)) {
+            throw new IllegalArgumentException("The topology file must end "
+                    + "with " + Topology.FILE_EXTENSION);
+        }
+        Topology topo;
+        if (generator != null) {
+            topo = new TopologyGenerator(0).setBasePort(BASE_NODE_PORT)
+                    .generate(generator);
+            topo.write(Paths.get(topologyFile));
+        } else {
+            topo = Topology.map(Paths.get(topologyFile));
+        }
+        MoteRuntime runtime = new MoteRuntime(
+                Runtime.getRuntime().availableProcessors(),
+                new LocalRadioMedium());
+        try {
+            for (int i = 0; i < topo.size(); i++) {
+                AbstractMote node;
+                if (i == 0) {
+                    node = new Sink((byte) 1, topo.getAddress(i),
+                            topo.getPort(i), adaptation, null, "FINEST",
+                            "00000001", "00:01:02:03:04:05", 1);
+                } else {
+                    node = new Mote((byte) 1, topo.getAddress(i),
+                            topo.getPort(i), null, "FINEST");
+                }
+                node.setTopology(topo);
+                runtime.add(node);
+            }
+        } catch (IOException | RuntimeException ex) {
+            runtime.close();
+            throw ex;
         }
+        return runtime;
     }
 
     /**
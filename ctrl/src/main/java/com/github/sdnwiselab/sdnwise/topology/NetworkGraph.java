@@ -18,12 +18,14 @@ package com.github.sdnwiselab.sdnwise.topology;
 
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
 import com.github.sdnwiselab.sdnwise.packet.ReportPacket;
+import com.github.sdnwiselab.sdnwise.packet.ReportPacketView;
 import com.github.sdnwiselab.sdnwise.stats.BatteryInfoNode;
 import com.github.sdnwiselab.sdnwise.stats.ForecastNotFoundException;
 import com.github.sdnwiselab.sdnwise.stats.LifeTimeMonitorController;
 import com.github.sdnwiselab.sdnwise.stats.StatManager;
 import com.github.sdnwiselab.sdnwise.stats.StatService;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Observable;
 import java.util.Set;
@@ -275,22 +277,38 @@ public class NetworkGraph extends Observable {
         return batt;
     }
 
+    /**
+     * Invoked when a message with topology updates is received by the
+     * controller, as {@link #updateMap(ReportPacketView)}. Kept for the
+     * callers holding a ReportPacket.
+     *
+     * @param packet the Report packet received
+     */
+    public final void updateMap(final ReportPacket packet) {
+        updateMap(new ReportPacketView(ByteBuffer.wrap(packet.toByteArray()),
+                0));
+    }
+
     /**
      * Invoked when a message with topology updates is received by the
      * controller. It updates the network topology according to the message and
-     * checks if all the nodes in the network are still alive.
+     * checks if all the nodes in the network are still alive. The report is
+     * read in place, therefore the view is valid only during this call.
+     * <p>
+     * A delta report only adds, updates or removes the links it contains, the
+     * links of the node not in the report are kept.
      *
-     * @param packet the NetworkPacket received
+     * @param packet a view of the Report packet received
      */
-    public final synchronized void updateMap(final ReportPacket packet) {
+    public final synchronized void updateMap(final ReportPacketView packet) {
         long now = System.currentTimeMillis();
         boolean modified = checkConsistency(now);
 
         int net = packet.getNet();
         int currentBatt = packet.getBattery();
-        String nodeId = packet.getSrc().toString();
-        String fullNodeId = net + "." + nodeId;
         NodeAddress addr = packet.getSrc();
+        String nodeId = addr.toString();
+        String fullNodeId = net + "." + nodeId;
         int batt = getNodeBattery(fullNodeId,currentBatt);
         Node node = getNode(fullNodeId);
         LOGGER.log(Level.INFO, "Src: "+fullNodeId + " battery: "+currentBatt);
@@ -299,11 +317,15 @@ public class NetworkGraph extends Observable {
         if (batt < 14) {
             LifeTimeMonitorController.Instance().end();
         }
+        boolean delta = packet.isDelta();
         if (node == null) {
             node = addNode(fullNodeId);
             setupNode(node, batt, now, net, addr);
 
             for (int i = 0; i < packet.getNeigborsSize(); i++) {
+                if (delta && packet.getLinkQuality(i) == 0) {
+                    continue;
+                }
                 NodeAddress otheraddr = packet.getNeighborAddress(i);
                 String other = net + "." + otheraddr.toString();
                 if (getNode(other) == null) {
@@ -323,11 +345,21 @@ public class NetworkGraph extends Observable {
                 modified = true;
             }
             Set<Edge> oldEdges = new HashSet<>();
-            oldEdges.addAll(node.getEnteringEdgeSet());
+            if (!delta) {
+                oldEdges.addAll(node.getEnteringEdgeSet());
+            }
 
             for (int i = 0; i < packet.getNeigborsSize(); i++) {
                 NodeAddress otheraddr = packet.getNeighborAddress(i);
                 String other = net + "." + otheraddr.toString();
+                if (delta && packet.getLinkQuality(i) == 0) {
+                    Edge removed = getEdge(other + "-" + fullNodeId);
+                    if (removed != null) {
+                        removeEdge(removed);
+                        modified = true;
+                    }
+                    continue;
+                }
                 if (getNode(other) == null) {
                     Node tmp = addNode(other);
                     setupNode(tmp, 0, now, net, otheraddr);
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.loader;
+
+import com.github.sdnwiselab.sdnwise.mote.standalone.MoteRuntime;
+import com.github.sdnwiselab.sdnwise.util.Topology;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the SdnWise class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class SdnWiseTest {
+
+    /**
+     * Test of startVirtualNetwork method, of class SdnWise.
+     *
+     * @throws IOException if the topology cannot be written
+     */
+    @Test(timeout = 20000)
+    public void testStartVirtualNetwork() throws IOException {
+        Path dir = Files.createTempDirectory("sdnwise");
+        Path file = dir.resolve("grid" + Topology.FILE_EXTENSION);
+        try (ServerSocket adaptation = new ServerSocket(0, 1,
+                InetAddress.getLoopbackAddress())) {
+            adaptation.setSoTimeout(10000);
+            try (MoteRuntime instance = SdnWise.startVirtualNetwork(
+                    file.toString(), "grid:2:3:10",
+                    new InetSocketAddress(adaptation.getInetAddress(),
+                            adaptation.getLocalPort()));
+                    Socket sink = adaptation.accept()) {
+                Topology topo = Topology.map(file);
+                assertEquals(6, topo.size());
+                assertEquals(6, instance.size());
+                assertEquals(6, instance.getAlive());
+                assertTrue(sink.isConnected());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Test of startVirtualNetwork method when a second network is generated
+     * in the same file, of class SdnWise.
+     *
+     * @throws IOException if the topology cannot be written
+     */
+    @Test(timeout = 20000)
+    public void testStartVirtualNetworkAgain() throws IOException {
+        Path dir = Files.createTempDirectory("sdnwise");
+        Path file = dir.resolve("grid" + Topology.FILE_EXTENSION);
+        try (ServerSocket adaptation = new ServerSocket(0, 2,
+                InetAddress.getLoopbackAddress())) {
+            adaptation.setSoTimeout(10000);
+            InetSocketAddress isa = new InetSocketAddress(
+                    adaptation.getInetAddress(), adaptation.getLocalPort());
+            try (MoteRuntime first = SdnWise.startVirtualNetwork(
+                    file.toString(), "grid:30:30:10", isa);
+                    Socket sink = adaptation.accept()) {
+                assertEquals(900, first.size());
+                try (MoteRuntime second = SdnWise.startVirtualNetwork(
+                        file.toString(), "grid:2:2:10", isa);
+                        Socket other = adaptation.accept()) {
+                    assertEquals(4, second.size());
+                    assertEquals(4, Topology.map(file).size());
+                    assertEquals(900, first.getAlive());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Test of startVirtualNetwork method with a file that is not a
+     * topology, of class SdnWise.
+     *
+     * @throws IOException if the topology cannot be read
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testStartVirtualNetworkInvalid() throws IOException {
+        SdnWise.startVirtualNetwork("Node1.txt", null,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+}
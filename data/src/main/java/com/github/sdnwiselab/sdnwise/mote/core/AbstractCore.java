@@ -19,6 +19,8 @@ package com.github.sdnwiselab.sdnwise.mote.core;
 import com.github.sdnwiselab.sdnwise.flowtable.AbstractAction;
 import static com.github.sdnwiselab.sdnwise.flowtable.AbstractAction.Action.FORWARD_U;
 import com.github.sdnwiselab.sdnwise.flowtable.AbstractForwardAction;
+import com.github.sdnwiselab.sdnwise.flowtable.ConcurrentFlowTable;
+import com.github.sdnwiselab.sdnwise.flowtable.FlowTable;
 import com.github.sdnwiselab.sdnwise.flowtable.FlowTableEntry;
 import static com.github.sdnwiselab.sdnwise.flowtable.FlowTableInterface.CONST;
 import static com.github.sdnwiselab.sdnwise.flowtable.FlowTableInterface.NULL;
@@ -26,6 +28,8 @@ import static com.github.sdnwiselab.sdnwise.flowtable.FlowTableInterface.PACKET;
 import static com.github.sdnwiselab.sdnwise.flowtable.FlowTableInterface.STATUS;
 import com.github.sdnwiselab.sdnwise.flowtable.ForwardUnicastAction;
 import com.github.sdnwiselab.sdnwise.flowtable.FunctionAction;
+import com.github.sdnwiselab.sdnwise.flowtable.IndexedFlowTable;
+import com.github.sdnwiselab.sdnwise.flowtable.PendingRequestTable;
 import com.github.sdnwiselab.sdnwise.flowtable.SetAction;
 import static com.github.sdnwiselab.sdnwise.flowtable.SetAction.ADD;
 import static com.github.sdnwiselab.sdnwise.flowtable.SetAction.AND;
@@ -55,6 +59,8 @@ import static com.github.sdnwiselab.sdnwise.mote.core.Constants.SDN_WISE_DFLT_CN
 import static com.github.sdnwiselab.sdnwise.mote.core.Constants.SDN_WISE_DFLT_CNT_UPDTABLE_MAX;
 import static com.github.sdnwiselab.sdnwise.mote.core.Constants.SDN_WISE_DFLT_RSSI_MIN;
 import static com.github.sdnwiselab.sdnwise.mote.core.Constants.SDN_WISE_STATUS_LEN;
+import com.github.sdnwiselab.sdnwise.packet.AdmissionQueue;
+import com.github.sdnwiselab.sdnwise.packet.AdmissionQueue.DropReason;
 import com.github.sdnwiselab.sdnwise.packet.BeaconPacket;
 import com.github.sdnwiselab.sdnwise.packet.ConfigPacket;
 import com.github.sdnwiselab.sdnwise.packet.ConfigPacket.ConfigProperty;
@@ -71,24 +77,28 @@ import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.REPORT;
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.REQUEST;
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.RESPONSE;
 import com.github.sdnwiselab.sdnwise.packet.OpenPathPacket;
+import com.github.sdnwiselab.sdnwise.packet.PacketPool;
 import com.github.sdnwiselab.sdnwise.packet.ReportPacket;
+import com.github.sdnwiselab.sdnwise.packet.ReportTracker;
 import com.github.sdnwiselab.sdnwise.packet.RequestPacket;
 import com.github.sdnwiselab.sdnwise.packet.ResponsePacket;
+import com.github.sdnwiselab.sdnwise.packet.TxScheduler;
+import com.github.sdnwiselab.sdnwise.util.AliasList;
 import com.github.sdnwiselab.sdnwise.util.Neighbor;
+import com.github.sdnwiselab.sdnwise.util.NeighborTable;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import com.github.sdnwiselab.sdnwise.util.StatusRegister;
 import static com.github.sdnwiselab.sdnwise.util.Utils.mergeBytes;
 import static com.github.sdnwiselab.sdnwise.util.Utils.splitInteger;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -119,36 +129,48 @@ public abstract class AbstractCore {
     private int cntBeacon, cntReport, cntUpdTable, cntBeaconMax, cntReportMax,
             cntUpdtableMax;
     /**
-     * Requests count.
+     * Requests count. The requests are sent by the thread handling the
+     * packets and, when they are sent again, by the timer, so two requests
+     * must never get the same id.
      */
-    private byte requestId;
+    private final AtomicInteger requestId = new AtomicInteger();
     /**
      * Routing.
      */
     private int sinkDistance, sinkRssi;
     /**
-     * Accepted IDs.
+     * Accepted IDs, addressed by the controller in insertion order.
      */
-    private final List<NodeAddress> acceptedId = new LinkedList<>();
+    private final AliasList acceptedId = new AliasList();
     /**
-     * WISE Flow Table.
+     * WISE Flow Table. Packets are matched against its snapshots, so the
+     * threads changing it never block the matching.
      */
-    private final List<FlowTableEntry> flowTable = new LinkedList<>();
+    private final FlowTable flowTable = new ConcurrentFlowTable();
+    /**
+     * Checks if a FlowTableEntry matches a packet.
+     */
+    private final BiPredicate<FlowTableEntry, NetworkPacket> ruleMatcher =
+            this::matchRule;
+    /**
+     * Flows waiting for a rule. Only one request at a time is sent for each
+     * flow, the following packets wait here for the rule.
+     */
+    private final PendingRequestTable pendingRequests =
+            new PendingRequestTable();
     /**
      * Contains the NetworkPacket that will be processed by the WISE Flow Table.
      */
     private final ArrayBlockingQueue<NetworkPacket> ftQueue
             = new ArrayBlockingQueue<>(100);
     /**
-     * Function Buffer.
+     * Function Buffer. Created when the first part of a function arrives.
      */
-    private final HashMap<Integer, LinkedList<byte[]>> functionBuffer
-            = new HashMap<>();
+    private HashMap<Integer, LinkedList<byte[]>> functionBuffer;
     /**
-     * Function Array.
+     * Function Array. Created when it is first needed.
      */
-    private final HashMap<Integer, FunctionInterface> functions
-            = new HashMap<>();
+    private HashMap<Integer, FunctionInterface> functions;
     /**
      * A Mote becomes active after it receives a beacon. A Sink is always
      * active.
@@ -159,6 +181,10 @@ public abstract class AbstractCore {
      */
     private final ArrayBlockingQueue<Pair<Level, String>> logQueue
             = new ArrayBlockingQueue<>(100);
+    /**
+     * The messages below this level are discarded before being built.
+     */
+    private volatile Level logLevel = Level.ALL;
     /**
      * The address of the node.
      */
@@ -169,9 +195,14 @@ public abstract class AbstractCore {
     private int myNet;
     /**
      * Contains the NodeAddress, RSSI, and battery of the Neigbors of the node.
+     * A neighbor is forgotten if it is not heard for two report periods.
+     */
+    private final NeighborTable neighborTable =
+            new NeighborTable(2 * SDN_WISE_DFLT_CNT_REPORT_MAX);
+    /**
+     * Decides the content of the reports, null if every report is full.
      */
-    private final Set<Neighbor> neighborTable =
-            Collections.synchronizedSet(new HashSet<>());;
+    private volatile ReportTracker reportTracker;
     /**
      * A packet having an RSSI less than this value is dropped.
      */
@@ -182,22 +213,44 @@ public abstract class AbstractCore {
     private int ruleTtl;
     /**
      * Contains the NetworkPacket and the RSSI coming from the radio/controller.
+     * Packets taken from this queue are released to the pool once handled.
+     * Admission never blocks: when the node falls behind, packets are dropped.
      */
-    private final ArrayBlockingQueue<Pair<NetworkPacket, Integer>> rxQueue
-            = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final AdmissionQueue rxQueue = new AdmissionQueue(QUEUE_SIZE)
+            .setWaterMarks(QUEUE_SIZE * 3 / 4, QUEUE_SIZE / 4,
+                    (congested, size) -> offerLog(congested ? Level.WARNING
+                            : Level.INFO, () -> "RX queue "
+                            + (congested ? "congested: " : "recovered: ")
+                            + size + " packets"));
+    /**
+     * Recycles the incoming packets.
+     */
+    private final PacketPool pool = PacketPool.getDefault();
     /**
-     * Simulates sensor readings.
+     * Simulates sensor readings. Created when it is first needed.
      */
-    private final HashMap<String, Object> sensors = new HashMap<>();
+    private HashMap<String, Object> sensors;
     /**
      * Status Registers.
      */
-    private final ArrayList<Integer> statusRegister = new ArrayList<>();
+    private final StatusRegister statusRegister =
+            new StatusRegister(SDN_WISE_STATUS_LEN);
     /**
-     * Contains the NetworkPacket that will be sent over the radio.
+     * Schedules the NetworkPackets that will be sent over the radio. The
+     * consumer releases each packet to the pool once it has been sent.
+     */
+    private final TxScheduler txScheduler = new TxScheduler();
+    /**
+     * Contains the NetworkPackets sent by the functions. They are moved to
+     * the txScheduler when the function returns.
      */
     private final ArrayBlockingQueue<NetworkPacket> txQueue
             = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    /**
+     * Called when a packet is received by a node driven by an event loop,
+     * null if the node runs its own threads.
+     */
+    private volatile Runnable wakeUp;
 
     /**
      * Creates the core of the node.
@@ -208,7 +261,7 @@ public abstract class AbstractCore {
      */
     AbstractCore(final byte net, final NodeAddress address,
             final Dischargeable bat) {
-        myAddress = address;
+        myAddress = NodeAddress.valueOf(address);
         myNet = net;
         battery = bat;
     }
@@ -268,26 +321,29 @@ public abstract class AbstractCore {
      */
     public final NetworkPacket getNetworkPacketToBeSend() throws
             InterruptedException {
-        return txQueue.take();
+        return txScheduler.take();
     }
 
     /**
      * When received, if it matches some conditions, a NetworkPacket is added in
-     * the incoming rxQueue.
+     * the incoming rxQueue. Otherwise, if it is pooled, it is released.
      *
      * @param np a NetworkPacket
      * @param rssi the RSSI of the NetworkPacket
      */
     public final void rxRadioPacket(final NetworkPacket np, final int rssi) {
+        NodeAddress nxh = np.getNxh();
         if (np.getDst().isBroadcast()
-                || np.getNxh().equals(myAddress)
-                || acceptedId.contains(np.getNxh())
+                || nxh.equals(myAddress)
+                || acceptedId.contains(nxh)
                 || !np.isSdnWise()) {
-            try {
-                rxQueue.put(new Pair<>(np, rssi));
-            } catch (InterruptedException ex) {
-                log(Level.SEVERE, ex.toString());
+            // the caller must never block, dropped packets are released
+            Runnable wake = wakeUp;
+            if (rxQueue.offer(np, rssi) && wake != null) {
+                wake.run();
             }
+        } else {
+            pool.release(np);
         }
     }
 
@@ -297,12 +353,95 @@ public abstract class AbstractCore {
      */
     public final void start() {
         initFlowTable();
-        initStatusRegister();
         initSdnWise();
         new Thread(new IncomingQueuePacketManager()).start();
         new Thread(new FlowTableQueuePacketManager()).start();
     }
 
+    /**
+     * Starts the Core of the node without starting any thread. The node is
+     * driven by an event loop that calls handleNext and timer, and takes the
+     * packets to be sent and the log messages with the poll methods. At most
+     * one thread at a time may drive the node.
+     *
+     * @param wake called, without blocking, when a packet is received and
+     * the node has to be driven again
+     */
+    public final void start(final Runnable wake) {
+        wakeUp = wake;
+        initFlowTable();
+        initSdnWise();
+    }
+
+    /**
+     * Checks if the node is driven by an event loop, that is if it was
+     * started with a wake callback. A driven node must never wait for a
+     * queue to have room, since it may be emptied by the same thread.
+     *
+     * @return true if the node is driven by an event loop
+     */
+    protected final boolean isDriven() {
+        return wakeUp != null;
+    }
+
+    /**
+     * Handles the next packet waiting in the incoming queues, without
+     * blocking. Used when the node is driven by an event loop.
+     *
+     * @return false if there were no packets to handle
+     */
+    public final boolean handleNext() {
+        NetworkPacket np = ftQueue.poll();
+        if (np != null) {
+            handle(np, MAX_RSSI);
+            return true;
+        }
+        return rxQueue.poll(this::handle);
+    }
+
+    /**
+     * Handles an incoming packet and releases it.
+     *
+     * @param np the NetworkPacket
+     * @param rssi the RSSI of the NetworkPacket
+     */
+    private void handle(final NetworkPacket np, final int rssi) {
+        try {
+            rxHandler(np, rssi);
+        } finally {
+            pool.release(np);
+        }
+    }
+
+    /**
+     * Checks if the node has packets to handle or to send, or messages to
+     * log.
+     *
+     * @return true if one of the queues of the node is not empty
+     */
+    public final boolean hasWork() {
+        return !rxQueue.isEmpty() || !ftQueue.isEmpty()
+                || !txScheduler.isEmpty() || !logQueue.isEmpty();
+    }
+
+    /**
+     * Returns a log to be printed, without waiting.
+     *
+     * @return a Level, String pair or null if there are no logs
+     */
+    public final Pair<Level, String> pollLogToBePrinted() {
+        return logQueue.poll();
+    }
+
+    /**
+     * Gets a NetworkPacket that has to be send, without waiting.
+     *
+     * @return a NetworkPacket or null if there are no packets to send
+     */
+    public final NetworkPacket pollNetworkPacketToBeSend() {
+        return txScheduler.poll();
+    }
+
     /**
      * This method is called every second, and it is used to decide when to send
      * a Beacon, a Report, and to age the entries of the FlowTable.
@@ -312,6 +451,7 @@ public abstract class AbstractCore {
             cntBeacon++;
             cntReport++;
             cntUpdTable++;
+            neighborTable.tick();
 
             if ((cntBeacon) >= cntBeaconMax) {
                 cntBeacon = 0;
@@ -320,13 +460,18 @@ public abstract class AbstractCore {
 
             if ((cntReport) >= cntReportMax) {
                 cntReport = 0;
-                controllerTX(prepareReport());
+                ReportPacket rp = prepareReport();
+                if (rp != null) {
+                    controllerTX(rp);
+                }
             }
 
             if ((cntUpdTable) >= cntUpdtableMax) {
                 cntUpdTable = 0;
                 updateTable();
             }
+
+            pendingRequests.tick(this::sendRequest);
         }
     }
 
@@ -429,18 +574,18 @@ public abstract class AbstractCore {
             case CONST:
                 return value;
             case PACKET:
-                int[] intPacket = packet.toIntArray();
+                int len = packet.getLen();
                 if (size == W_SIZE_1) {
-                    if (value >= intPacket.length) {
+                    if (value >= len) {
                         return -1;
                     }
-                    return intPacket[value];
+                    return Byte.toUnsignedInt(packet.get(value));
                 }
                 if (size == W_SIZE_2) {
-                    if (value + 1 >= intPacket.length) {
+                    if (value + 1 >= len) {
                         return -1;
                     }
-                    return mergeBytes(intPacket[value], intPacket[value + 1]);
+                    return mergeBytes(packet.get(value), packet.get(value + 1));
                 }
                 return -1;
             case STATUS:
@@ -478,15 +623,6 @@ public abstract class AbstractCore {
         flowTable.add(toSink);
     }
 
-    /**
-     * Initialize the Status Register.
-     */
-    private void initStatusRegister() {
-        for (int i = 0; i < SDN_WISE_STATUS_LEN; i++) {
-            statusRegister.add(0);
-        }
-    }
-
     /**
      * Checks if there is a match for a packet.
      *
@@ -499,10 +635,12 @@ public abstract class AbstractCore {
         if (rule.getWindows().isEmpty()) {
             return false;
         }
-
-        int target = rule.getWindows().size();
-        return (rule.getWindows().stream().filter(w -> matchWindow(w, packet))
-                .count() == target);
+        for (Window w : rule.getWindows()) {
+            if (!matchWindow(w, packet)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -533,23 +671,26 @@ public abstract class AbstractCore {
     /**
      * Creates a Report packet.
      *
-     * @return a Report packet
+     * @return a Report packet, or null if the ReportTracker suppresses it
      */
     private ReportPacket prepareReport() {
 
         ReportPacket rp = new ReportPacket(myNet, myAddress,
                 getActualSinkAddress(), sinkDistance, battery.getByteLevel());
 
-        rp.setNeighbors(this.neighborTable.size()).setNxh(getNextHopVsSink());
+        List<Neighbor> best = neighborTable.best(ReportPacket.MAX_NEIG);
+        ReportTracker tracker = reportTracker;
+        if (tracker != null) {
+            rp.setNxh(getNextHopVsSink());
+            return tracker.fill(rp, best) ? rp : null;
+        }
+        rp.setNeighbors(best.size()).setNxh(getNextHopVsSink());
 
         int j = 0;
-        synchronized (neighborTable) {
-            for (Neighbor n : neighborTable) {
-                rp.setNeighborAddressAt(n.getAddr(), j)
-                        .setLinkQualityAt((byte) n.getRssi(), j);
-                j++;
-            }
-            neighborTable.clear();
+        for (Neighbor n : best) {
+            rp.setNeighborAddressAt(n.getAddr(), j)
+                    .setLinkQualityAt((byte) n.getRssi(), j);
+            j++;
         }
         return rp;
     }
@@ -557,6 +698,10 @@ public abstract class AbstractCore {
     public void forceToSendReport(){
         if (getBattery().getByteLevel()< 14) {
             cntReport = 0;
+            ReportTracker tracker = reportTracker;
+            if (tracker != null) {
+                tracker.reset();
+            }
             controllerTX(prepareReport());
         }
     }
@@ -568,110 +713,82 @@ public abstract class AbstractCore {
      * @param np the matched NetworkPacket
      */
     private void runAction(final AbstractAction act, final NetworkPacket np) {
-        try {
-            switch (act.getType()) {
+        switch (act.getType()) {
 
-                case FORWARD_U:
-                case FORWARD_B:
-                    np.setNxh(((AbstractForwardAction) act).getNextHop());
-                    radioTX(np);
-                    break;
-                case SET:
-                    SetAction ftam = (SetAction) act;
-                    int operator = ftam.getOperator();
-                    int lhs = getOperand(np, W_SIZE_1, ftam.getLhsLocation(),
-                            ftam.getLhs());
-                    int rhs = getOperand(np, W_SIZE_1, ftam.getRhsLocation(),
-                            ftam.getRhs());
-                    if (lhs == -1 || rhs == -1) {
+            case FORWARD_U:
+            case FORWARD_B:
+                np.setNxh(((AbstractForwardAction) act).getNextHop());
+                radioTX(np);
+                break;
+            case SET:
+                SetAction ftam = (SetAction) act;
+                int operator = ftam.getOperator();
+                int lhs = getOperand(np, W_SIZE_1, ftam.getLhsLocation(),
+                        ftam.getLhs());
+                int rhs = getOperand(np, W_SIZE_1, ftam.getRhsLocation(),
+                        ftam.getRhs());
+                if (lhs == -1 || rhs == -1) {
+                    throw new IllegalArgumentException(
+                            "Operators out of bound");
+                }
+                int res = doOperation(operator, lhs, rhs);
+                if (ftam.getResLocation() == PACKET) {
+                    if (ftam.getRes() >= np.getLen()) {
                         throw new IllegalArgumentException(
-                                "Operators out of bound");
-                    }
-                    int res = doOperation(operator, lhs, rhs);
-                    if (ftam.getResLocation() == PACKET) {
-                        int[] packet = np.toIntArray();
-                        if (ftam.getRes() >= packet.length) {
-                            throw new IllegalArgumentException(
-                                    "Result out of bound");
-                        }
-                        packet[ftam.getRes()] = res;
-                        np.setArray(packet);
-                    } else {
-                        statusRegister.set(ftam.getRes(), res);
-                        log(Level.INFO, "SET R." + ftam.getRes() + " = "
-                                + res + ". Done.");
-                    }
-                    break;
-                case FUNCTION:
-                    FunctionAction ftac = (FunctionAction) act;
-                    FunctionInterface srvI = functions.get(ftac.getId());
-                    if (srvI != null) {
-                        log(Level.INFO, "Function called: " + myAddress);
-                        srvI.function(sensors, flowTable, neighborTable,
-                                statusRegister, acceptedId, ftQueue, txQueue,
-                                ftac.getArgs(), np);
-                    }
-                    break;
-                case ASK:
-                    RequestPacket[] rps = RequestPacket.createPackets(
-                            (byte) myNet, myAddress, getActualSinkAddress(),
-                            requestId++, np.toByteArray());
-
-                    for (RequestPacket rp : rps) {
-                        controllerTX(rp);
+                                "Result out of bound");
                     }
-                    break;
-                case MATCH:
-                    ftQueue.put(np);
-                    break;
-                default:
-                    break;
-            } //switch
-        } catch (InterruptedException ex) {
-            log(Level.SEVERE, ex.toString());
-        }
-    }
+                    np.put(ftam.getRes(), (byte) res);
+                } else {
+                    statusRegister.set(ftam.getRes(), res);
+                    log(Level.INFO, () -> "SET R." + ftam.getRes()
+                            + " = " + res + ". Done.");
+                }
+                break;
+            case FUNCTION:
+                FunctionAction ftac = (FunctionAction) act;
+                FunctionInterface srvI = getFunction(ftac.getId());
+                if (srvI != null) {
+                    log(Level.INFO, () -> "Function called: "
+                            + myAddress);
+                    runFunction(srvI, ftac.getArgs(), np);
+                }
+                break;
+            case ASK:
+                RequestPacket[] rps = RequestPacket.createPackets(
+                        (byte) myNet, myAddress, getActualSinkAddress(),
+                        nextRequestId(), np.toByteArray());
 
-    /**
-     * Returns the index of a rule in the FlowTable.
-     *
-     * @param rule the FlowTableEntry to search for
-     * @return the index of the FlowTableEntry, -1 if not found
-     */
-    private int searchRule(final FlowTableEntry rule) {
-        int i = 0;
-        for (FlowTableEntry fte : flowTable) {
-            if (fte.equalWindows(rule)) {
-                return i;
-            }
-            i++;
-        }
-        return -1;
+                for (RequestPacket rp : rps) {
+                    controllerTX(rp);
+                }
+                break;
+            case MATCH:
+                if (!ftQueue.offer(np)) {
+                    rxQueue.drop(np, DropReason.FULL);
+                }
+                break;
+            default:
+                break;
+        } //switch
     }
 
     /**
      * Decrement the time to live of the FlowTableEntries.
      */
     private void updateTable() {
-        int i = 0;
-        for (Iterator<FlowTableEntry> it = flowTable.iterator();
-                it.hasNext();) {
-            i++;
-            FlowTableEntry fte = it.next();
+        flowTable.removeIf(fte -> {
             int ttl = fte.getStats().getTtl();
-            if (ttl != ENTRY_TTL_PERMANENT) {
-                log(Level.INFO,"Current ttl: "+ttl);
-                if (ttl >= ENTRY_TTL_DECR) {
-                    fte.getStats().decrementTtl(ENTRY_TTL_DECR);
-                } else {
-                    it.remove();
-                    log(Level.INFO, "Removing rule at position " + i);
-                    if (i == 0) {
-                        reset();
-                    }
-                }
+            if (ttl == ENTRY_TTL_PERMANENT) {
+                return false;
             }
-        }
+            log(Level.INFO, () -> "Current ttl: " + ttl);
+            if (ttl >= ENTRY_TTL_DECR) {
+                fte.getStats().decrementTtl(ENTRY_TTL_DECR);
+                return false;
+            }
+            log(Level.INFO, () -> "Removing rule " + fte);
+            return true;
+        });
     }
 
     /**
@@ -757,9 +874,11 @@ public abstract class AbstractCore {
     protected final void initSdnWise() {
         cntBeaconMax = SDN_WISE_DFLT_CNT_BEACON_MAX;
         cntReportMax = SDN_WISE_DFLT_CNT_REPORT_MAX;
+        neighborTable.setMaxAge(2 * cntReportMax);
         cntUpdtableMax = SDN_WISE_DFLT_CNT_UPDTABLE_MAX;
         rssiMin = SDN_WISE_DFLT_RSSI_MIN;
         ruleTtl = DFLT_TTL_MAX;
+        pendingRequests.clear();
         initSdnWiseSpecific();
     }
 
@@ -775,17 +894,34 @@ public abstract class AbstractCore {
      * @param rule the FlowTableEntry to add
      */
     protected final void insertRule(final FlowTableEntry rule) {
-        int i = searchRule(rule);
-        if (i != -1) {
-            flowTable.set(i, rule);
-            log(Level.INFO, "Replacing rule " + rule
+        long evictions = flowTable.getEvictions();
+        int i;
+        try {
+            i = flowTable.insert(rule);
+        } catch (IllegalStateException ex) {
+            log(Level.WARNING, () -> "Flow table full, dropping rule "
+                    + rule);
+            return;
+        }
+        long evicted = flowTable.getEvictions() - evictions;
+        if (evicted != 0) {
+            log(Level.INFO, () -> "Flow table full, evicted " + evicted
+                    + " rule(s)");
+        }
+        if (i >= 0) {
+            log(Level.INFO, () -> "Replacing rule " + rule
                     + " at position " + i);
         } else {
-            flowTable.add(rule);
-            log(Level.INFO, "Inserting rule " + rule
-                    + " at position " + (flowTable.size() - 1));
+            log(Level.INFO, () -> "Inserting rule " + rule
+                    + " at position " + (-i - 1));
+        }
+        List<NetworkPacket> held = pendingRequests.release(
+                p -> matchRule(rule, p));
+        if (!held.isEmpty()) {
+            log(Level.FINE, () -> "Releasing " + held.size()
+                    + " held packet(s)");
+            held.forEach(this::runFlowMatch);
         }
-
     }
 
     /**
@@ -816,6 +952,42 @@ public abstract class AbstractCore {
         return isAcceptedIdAddress(packet.getDst());
     }
 
+    /**
+     * Sets the lowest level of the messages put in the log queue. The
+     * messages below it are discarded by the node, without being built.
+     *
+     * @param level the lowest level logged
+     */
+    public final void setLogLevel(final Level level) {
+        logLevel = level;
+    }
+
+    /**
+     * Checks if a message of a given level would be put in the log queue.
+     *
+     * @param level the level of the message
+     * @return true if the message is logged
+     */
+    public final boolean isLoggable(final Level level) {
+        Level min = logLevel;
+        return level.intValue() >= min.intValue()
+                && min != Level.OFF;
+    }
+
+    /**
+     * Adds a message in the log queue of the node. The message is built only
+     * if its level is logged.
+     *
+     * @param level the level of the log message
+     * @param msg builds the text of the log message
+     */
+    protected final void log(final Level level,
+            final Supplier<String> msg) {
+        if (isLoggable(level)) {
+            enqueueLog(level, msg.get());
+        }
+    }
+
     /**
      * Adds a message in the log queue of the node.
      *
@@ -823,6 +995,37 @@ public abstract class AbstractCore {
      * @param logMessage the text of the log message
      */
     protected final void log(final Level level, final String logMessage) {
+        if (isLoggable(level)) {
+            enqueueLog(level, logMessage);
+        }
+    }
+
+    /**
+     * Adds a message in the log queue of the node only if there is room,
+     * without waiting. Used by the thread receiving the radio packets, which
+     * must never stall behind the log.
+     *
+     * @param level the level of the log message
+     * @param msg builds the text of the log message
+     */
+    private void offerLog(final Level level, final Supplier<String> msg) {
+        if (isLoggable(level)) {
+            logQueue.offer(new Pair<>(level, msg.get()));
+        }
+    }
+
+    /**
+     * Puts a message in the log queue of the node.
+     *
+     * @param level the level of the log message
+     * @param logMessage the text of the log message
+     */
+    private void enqueueLog(final Level level, final String logMessage) {
+        if (isDriven()) {
+            // the queue is emptied by the same thread, waiting would hang it
+            logQueue.offer(new Pair<>(level, logMessage));
+            return;
+        }
         try {
             logQueue.put(new Pair<>(level, logMessage));
         } catch (InterruptedException ex) {
@@ -850,6 +1053,7 @@ public abstract class AbstractCore {
                 break;
             case REPORT_PERIOD:
                 cntReportMax = mergeBytes(value[0], value[1]);
+                neighborTable.setMaxAge(Math.max(1, 2 * cntReportMax));
                 break;
             case RULE_TTL:
                 cntUpdtableMax = idValue;
@@ -864,7 +1068,9 @@ public abstract class AbstractCore {
                 acceptedId.add(new NodeAddress(value));
                 break;
             case REM_ALIAS:
-                acceptedId.remove(idValue);
+                if (idValue < acceptedId.size()) {
+                    acceptedId.remove(idValue);
+                }
                 break;
             case REM_RULE:
                 if (idValue != 0) {
@@ -878,6 +1084,9 @@ public abstract class AbstractCore {
                 reset();
                 break;
             case ADD_FUNCTION:
+                if (functionBuffer == null) {
+                    functionBuffer = new HashMap<>();
+                }
                 if (functionBuffer.get(idValue) == null) {
                     functionBuffer.put(idValue, new LinkedList<>());
                 }
@@ -895,13 +1104,19 @@ public abstract class AbstractCore {
                         System.arraycopy(n, 0, func, pointer, n.length);
                         pointer += n.length;
                     }
-                    functions.put(idValue, createServiceInterface(func));
-                    log(Level.INFO, "New Function Added at pos.: " + idValue);
+                    getFunctions().put(idValue, createServiceInterface(func));
+                    log(Level.INFO, () -> "New Function Added at pos.: "
+                            + idValue);
                     functionBuffer.remove(idValue);
+                    if (functionBuffer.isEmpty()) {
+                        functionBuffer = null;
+                    }
                 }
                 break;
             case REM_FUNCTION:
-                functions.remove(idValue);
+                if (functions != null) {
+                    functions.remove(idValue);
+                }
                 break;
             default:
                 break;
@@ -952,8 +1167,9 @@ public abstract class AbstractCore {
                 break;
             case GET_RULE:
                 int i = Byte.toUnsignedInt(value[0]);
-                if (i < flowTable.size()) {
-                    FlowTableEntry fte = flowTable.get(i);
+                IndexedFlowTable ft = flowTable.snapshot();
+                if (i < ft.size()) {
+                    FlowTableEntry fte = ft.get(i);
                     byte[] tmp = fte.toByteArray();
                     packet.setParams(ByteBuffer.allocate(tmp.length + 1)
                             .put((byte) i).put(tmp).array(), -1);
@@ -998,7 +1214,28 @@ public abstract class AbstractCore {
      */
     protected final void radioTX(final NetworkPacket np) {
         np.decrementTtl();
-        txQueue.add(np);
+        txScheduler.offer(np);
+    }
+
+    /**
+     * Runs a function and schedules the packets it sent.
+     *
+     * @param f the function
+     * @param args the arguments of the function
+     * @param np the NetworkPacket that triggered the function
+     */
+    protected final void runFunction(final FunctionInterface f,
+            final byte[] args, final NetworkPacket np) {
+        try {
+            f.function(getSensors(), flowTable, neighborTable,
+                    statusRegister.asArrayList(), acceptedId,
+                    ftQueue, txQueue, args, np);
+        } finally {
+            NetworkPacket out;
+            while ((out = txQueue.poll()) != null) {
+                txScheduler.offer(out);
+            }
+        }
     }
 
     /**
@@ -1007,38 +1244,62 @@ public abstract class AbstractCore {
     protected abstract void reset();
 
     /**
-     * Checks if a packet has a match in the FlowTable.
+     * Checks if a packet has a match in the FlowTable. Both the actions and
+     * the pending requests can keep the packet, so a pooled packet is copied
+     * here, once.
      *
-     * @param packet the packet to be mached
+     * @param packet the packet to be mached, possibly pooled
      */
     protected final void runFlowMatch(final NetworkPacket packet) {
-        int i = 0;
-        boolean matched = false;
-        for (FlowTableEntry fte : flowTable) {
-            i++;
-            if (matchRule(fte, packet)) {
-                log(Level.FINE, "Matched Rule #" + i + " " + fte.toString());
-                matched = true;
-                fte.getActions().stream().forEach((a) -> {
-                    runAction(a, packet);
-                });
-                fte.getStats().increaseCounter();
-                break;
+        NetworkPacket p = unpooled(packet);
+        IndexedFlowTable ft = flowTable.snapshot();
+        int i = ft.find(p, ruleMatcher);
+        if (i != -1) {
+            FlowTableEntry fte = ft.get(i);
+            log(Level.FINE, () -> "Matched Rule #" + (i + 1) + " " + fte);
+            fte.getActions().stream().forEach((a) -> {
+                runAction(a, p);
+            });
+            flowTable.hit(fte);
+        } else {
+            switch (pendingRequests.miss(p)) {
+                case REQUEST:
+                    sendRequest(p);
+                    break;
+                case DROPPED:
+                    log(Level.FINE, () -> "Pending flow full, dropping "
+                            + p);
+                    break;
+                default:
+                    break;
             }
         }
+    }
 
-        if (!matched) {
-            // send a rule request
-            RequestPacket[] rps = RequestPacket.createPackets((byte) myNet,
-                    myAddress, getActualSinkAddress(), requestId++,
-                    packet.toByteArray());
+    /**
+     * Asks the controller a rule for a packet.
+     *
+     * @param packet the packet that did not match any rule
+     */
+    private void sendRequest(final NetworkPacket packet) {
+        RequestPacket[] rps = RequestPacket.createPackets((byte) myNet,
+                myAddress, getActualSinkAddress(), nextRequestId(),
+                packet.toByteArray());
 
-            for (RequestPacket rp : rps) {
-                controllerTX(rp);
-            }
+        for (RequestPacket rp : rps) {
+            controllerTX(rp);
         }
     }
 
+    /**
+     * Gets the id of a new request.
+     *
+     * @return the id, wrapping around after 255
+     */
+    private byte nextRequestId() {
+        return (byte) requestId.getAndIncrement();
+    }
+
     /**
      * Adds the Source address of a Beacon packet to the neighbor table.
      * @param bp the incoming beacon packet
@@ -1114,6 +1375,19 @@ public abstract class AbstractCore {
         }
     }
 
+    /**
+     * Returns a packet that can be kept after rxHandler returns. The actions
+     * of the flow table and the pending requests can store a packet, while a
+     * pooled packet is released as soon as it has been handled, so a copy is
+     * returned.
+     *
+     * @param packet the incoming NetworkPacket
+     * @return packet itself or a copy of it if it is pooled
+     */
+    private NetworkPacket unpooled(final NetworkPacket packet) {
+        return pool.isPooled(packet) ? new NetworkPacket(packet) : packet;
+    }
+
     /**
      * Processes an incoming OpenPathPacket.
      * @param packet the incoming OpenPath packet
@@ -1216,7 +1490,7 @@ public abstract class AbstractCore {
             try {
                 while (true) {
                     NetworkPacket np = ftQueue.take();
-                    rxQueue.put(new Pair<>(np, MAX_RSSI));
+                    rxQueue.offer(np, MAX_RSSI);
                 }
             } catch (InterruptedException ex) {
                 log(Level.SEVERE, ex.toString());
@@ -1233,8 +1507,7 @@ public abstract class AbstractCore {
         public void run() {
             try {
                 while (true) {
-                    Pair<NetworkPacket, Integer> p = rxQueue.take();
-                    rxHandler(p.getKey(), p.getValue());
+                    rxQueue.take(AbstractCore.this::handle);
                 }
             } catch (InterruptedException ex) {
                 log(Level.SEVERE, ex.toString());
@@ -1243,10 +1516,10 @@ public abstract class AbstractCore {
     }
 
     /**
-     * Gets the list of the accepted Network Addresses.
-     * @return the list of the accepted Network Addresses
+     * Gets the set of the accepted Network Addresses.
+     * @return the set of the accepted Network Addresses
      */
-    public final List<NodeAddress> getAcceptedId() {
+    public final AliasList getAcceptedId() {
         return acceptedId;
     }
 
@@ -1254,10 +1527,19 @@ public abstract class AbstractCore {
      * Gets the FlowTable of the Node.
      * @return the flow table of the node
      */
-    public final List<FlowTableEntry> getFlowTable() {
+    public final FlowTable getFlowTable() {
         return flowTable;
     }
 
+    /**
+     * Gets the flows of the Node waiting for a rule. Its limits and timeouts
+     * can be changed at any time, the timeouts are counted in seconds.
+     * @return the pending requests of the node
+     */
+    public final PendingRequestTable getPendingRequests() {
+        return pendingRequests;
+    }
+
     /**
      * Gets the FlowTable incoming packets queue.
      * @return the FlowTable incoming packets queue
@@ -1271,15 +1553,27 @@ public abstract class AbstractCore {
      * @return an HashMap containing the installed Functions
      */
     public final HashMap<Integer, FunctionInterface> getFunctions() {
+        if (functions == null) {
+            functions = new HashMap<>();
+        }
         return functions;
     }
 
+    /**
+     * Gets an installed Function.
+     * @param id the id of the Function
+     * @return the Function, or null if there is no Function with that id
+     */
+    public final FunctionInterface getFunction(final int id) {
+        return functions != null ? functions.get(id) : null;
+    }
+
     /**
      * Gets the set of the NodeAddresses of the nodes at 1-hop distance from the
      * node itself.
      * @return the list of neighbors
      */
-    public final Set<Neighbor> getNeighborTable() {
+    public final NeighborTable getNeighborTable() {
         return neighborTable;
     }
 
@@ -1305,24 +1599,76 @@ public abstract class AbstractCore {
      * @return an HashMap containing the measured values
      */
     public final HashMap<String, Object> getSensors() {
+        if (sensors == null) {
+            sensors = new HashMap<>();
+        }
         return sensors;
     }
 
     /**
-     * Gets the queue of the outgoing packets.
+     * Gets the queue where the functions put the packets to be sent.
      *
-     * @return the queue of the outgoing packets
+     * @return the queue of the packets sent by the functions
      */
     public final ArrayBlockingQueue<NetworkPacket> getTxQueue() {
         return txQueue;
     }
 
+    /**
+     * Gets the scheduler of the outgoing packets, to configure its classes
+     * or read its drop counters.
+     *
+     * @return the scheduler of the outgoing packets
+     */
+    public final TxScheduler getTxScheduler() {
+        return txScheduler;
+    }
+
+    /**
+     * Gets the queue of the incoming packets, to configure its drop policy
+     * and water marks or read its drop counters.
+     *
+     * @return the queue of the incoming packets
+     */
+    public final AdmissionQueue getRxQueue() {
+        return rxQueue;
+    }
+
+    /**
+     * Gets the ReportTracker of the node.
+     *
+     * @return the ReportTracker, or null if every report is full
+     */
+    public final ReportTracker getReportTracker() {
+        return reportTracker;
+    }
+
+    /**
+     * Sets the ReportTracker of the node. With a ReportTracker the node sends
+     * delta reports and suppresses the reports of an unchanged neighborhood,
+     * without it every report contains all the neighbors.
+     *
+     * @param tracker the ReportTracker, or null
+     */
+    public final void setReportTracker(final ReportTracker tracker) {
+        reportTracker = tracker;
+    }
+
+    /**
+     * Gets the pool used to recycle the packets of the node.
+     *
+     * @return the PacketPool of the node
+     */
+    public final PacketPool getPacketPool() {
+        return pool;
+    }
+
     /**
      * Gets the status register of the node.
      *
      * @return the status register of the node.
      */
-    public final ArrayList<Integer> getStatusRegister() {
+    public final StatusRegister getStatusRegister() {
         return statusRegister;
     }
 
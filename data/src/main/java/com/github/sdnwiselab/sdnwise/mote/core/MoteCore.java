@@ -31,7 +31,6 @@ import com.github.sdnwiselab.sdnwise.packet.DataPacket;
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.DFLT_TTL_MAX;
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.DST_INDEX;
-import com.github.sdnwiselab.sdnwise.util.Neighbor;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
 import java.nio.charset.Charset;
 import java.util.logging.Level;
@@ -61,7 +60,7 @@ public class MoteCore extends AbstractCore {
 
     @Override
     public final void dataCallback(final DataPacket dp) {
-        if (getFunctions().get(1) == null) {
+        if (getFunction(1) == null) {
             log(Level.INFO, new String(dp.getData(),
                     Charset.forName("UTF-8")));
             dp.setSrc(getMyAddress())
@@ -69,15 +68,7 @@ public class MoteCore extends AbstractCore {
                     .setTtl((byte) getRuleTtl());
             runFlowMatch(dp);
         } else {
-            getFunctions().get(1).function(getSensors(),
-                    getFlowTable(),
-                    getNeighborTable(),
-                    getStatusRegister(),
-                    getAcceptedId(),
-                    getFtQueue(),
-                    getTxQueue(),
-                    new byte[0],
-                    dp);
+            runFunction(getFunction(1), new byte[0], dp);
         }
     }
 
@@ -106,9 +97,9 @@ public class MoteCore extends AbstractCore {
                 getFlowTable().get(0).getStats().restoreTtl();
                 getFlowTable().get(0).getWindows().get(0)
                         .setRhs(bp.getSinkAddress().intValue());
+                getFlowTable().refresh(0);
             }
-            Neighbor nb = new Neighbor(bp.getSrc(), rssi, bp.getBattery());
-            getNeighborTable().add(nb);
+            getNeighborTable().update(bp.getSrc(), rssi, bp.getBattery());
         }
     }
 
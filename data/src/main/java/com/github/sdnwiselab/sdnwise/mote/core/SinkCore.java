@@ -22,12 +22,12 @@ import com.github.sdnwiselab.sdnwise.packet.BeaconPacket;
 import com.github.sdnwiselab.sdnwise.packet.ConfigPacket;
 import com.github.sdnwiselab.sdnwise.packet.DataPacket;
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
-import com.github.sdnwiselab.sdnwise.util.Neighbor;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 /**
@@ -59,6 +59,12 @@ public class SinkCore extends AbstractCore {
     private final ArrayBlockingQueue<NetworkPacket> txControllerQueue
             = new ArrayBlockingQueue<>(QUEUE_SIZE);
 
+    /**
+     * Number of packets for the Control plane dropped because the queue was
+     * full.
+     */
+    private final AtomicLong controllerDropped = new AtomicLong();
+
     /**
      * Creates a new Sink node. The Sink node is the only node directly conneted
      * to the control plane.
@@ -104,14 +110,36 @@ public class SinkCore extends AbstractCore {
 
     @Override
     public final void controllerTX(final NetworkPacket pck) {
+        if (isDriven()) {
+            // the thread of a driven node is shared with other nodes, it
+            // must not wait for a connection that may never drain the queue
+            if (txControllerQueue.offer(pck)) {
+                log(Level.FINE, () -> "CTX " + pck);
+            } else {
+                controllerDropped.incrementAndGet();
+                log(Level.WARNING, () -> "CTX dropped " + pck);
+            }
+            return;
+        }
         try {
             txControllerQueue.put(pck);
-            log(Level.FINE, "CTX " + pck);
+            log(Level.FINE, () -> "CTX " + pck);
         } catch (InterruptedException ex) {
             log(Level.SEVERE, ex.toString());
         }
     }
 
+    /**
+     * Gets the number of packets for the Control plane dropped because the
+     * queue was full. Packets are only dropped when the node is driven by an
+     * event loop, otherwise the node waits for the queue to have room.
+     *
+     * @return the number of packets dropped
+     */
+    public final long getControllerDropped() {
+        return controllerDropped.get();
+    }
+
     /**
      * Gets a packet to be send to the Control plane.
      *
@@ -164,7 +192,6 @@ public class SinkCore extends AbstractCore {
 
     @Override
     protected final void rxBeacon(final BeaconPacket bp, final int rssi) {
-        Neighbor nb = new Neighbor(bp.getSrc(), rssi, bp.getBattery());
-        getNeighborTable().add(nb);
+        getNeighborTable().update(bp.getSrc(), rssi, bp.getBattery());
     }
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Collects the logs of many nodes in a lock free ring buffer and hands them
+ * to a target Handler from a single writer thread, in batches. The threads
+ * of the nodes never block on a log: when the buffer is full the record is
+ * dropped and counted.
+ * <p>
+ * The target is only used by the writer thread, so it does not need to be
+ * thread safe. It is flushed every time the buffer is empty and closed with
+ * this handler. The messages with parameters are formatted before being
+ * buffered, because the parameters, like pooled packets, may change before
+ * the writer thread handles them. The records keep the name of their logger,
+ * that tells the node they come from.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AsyncLogSink extends Handler {
+
+    /**
+     * Default number of records in the buffer.
+     */
+    public static final int DFLT_CAPACITY = 1 << 16;
+
+    /**
+     * How long the writer thread waits when the buffer is empty.
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * The buffered records. A null slot is free.
+     */
+    private final AtomicReferenceArray<LogRecord> ring;
+
+    /**
+     * The length of the ring minus 1.
+     */
+    private final int mask;
+
+    /**
+     * The number of records claimed by the producers.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The number of records handled by the writer thread.
+     */
+    private volatile long head;
+
+    /**
+     * The number of records dropped because the buffer was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The Handler writing the records.
+     */
+    private final Handler target;
+
+    /**
+     * Formats the messages with parameters.
+     */
+    private final Formatter messages = new SimpleFormatter();
+
+    /**
+     * The writer thread.
+     */
+    private final Thread writer;
+
+    /**
+     * True until the handler is closed.
+     */
+    private volatile boolean open = true;
+
+    /**
+     * Creates an AsyncLogSink buffering DFLT_CAPACITY records.
+     *
+     * @param t the Handler writing the records
+     */
+    public AsyncLogSink(final Handler t) {
+        this(t, DFLT_CAPACITY);
+    }
+
+    /**
+     * Creates an AsyncLogSink and starts its writer thread.
+     *
+     * @param t the Handler writing the records
+     * @param capacity the number of records in the buffer, a power of two
+     */
+    public AsyncLogSink(final Handler t, final int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Invalid capacity: "
+                    + capacity);
+        }
+        target = t;
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        writer = new Thread(this::write, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void publish(final LogRecord record) {
+        if (!open || !isLoggable(record)) {
+            return;
+        }
+        Object[] params = record.getParameters();
+        if (params != null && params.length > 0) {
+            record.setMessage(messages.formatMessage(record));
+            record.setParameters(null);
+        }
+        long t;
+        do {
+            t = tail.get();
+            if (t - head > mask) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        ring.lazySet((int) t & mask, record);
+    }
+
+    @Override
+    public void flush() {
+        // the target is flushed by the writer thread when the buffer is empty
+    }
+
+    /**
+     * Stops the writer thread once all the buffered records are written,
+     * then closes the target.
+     */
+    @Override
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of records dropped because the buffer was full.
+     *
+     * @return the number of dropped records
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of records waiting to be written.
+     *
+     * @return the number of buffered records
+     */
+    public int size() {
+        return (int) (tail.get() - head);
+    }
+
+    /**
+     * Hands the records to the target until the handler is closed.
+     */
+    private void write() {
+        boolean dirty = false;
+        while (true) {
+            boolean closing = !open;
+            int n = drain();
+            if (n > 0) {
+                dirty = true;
+                continue;
+            }
+            if (dirty) {
+                target.flush();
+                dirty = false;
+            }
+            if (closing && tail.get() == head) {
+                target.close();
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+    }
+
+    /**
+     * Hands the published records to the target, in order.
+     *
+     * @return the number of records handled
+     */
+    private int drain() {
+        int n = 0;
+        long h = head;
+        while (true) {
+            int slot = (int) h & mask;
+            LogRecord r = ring.get(slot);
+            if (r == null) {
+                // not claimed yet, or claimed and not yet published
+                break;
+            }
+            ring.lazySet(slot, null);
+            h++;
+            head = h;
+            try {
+                target.publish(r);
+            } catch (RuntimeException ex) {
+                reportError(null, ex, ErrorManager.WRITE_FAILURE);
+            }
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.logger;
+
+import com.github.sdnwiselab.sdnwise.util.SimplerFormatter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Routes the logs of many nodes running in the same process to a file per
+ * logger, named after the logger as the files written by a node on its own.
+ * Only the most recently used files are kept open, so the number of file
+ * descriptors does not grow with the number of nodes.
+ * <p>
+ * The logs of the measures, whose loggers start with {@value #MEASURES},
+ * are formatted by a MoteFormatter, the others by a SimplerFormatter showing
+ * the name of the logger without extension. A file is truncated the first
+ * time it is written by the router. The files are buffered and flushed for
+ * the records of level WARNING or higher, when they are closed and when the
+ * router is flushed.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class LogRouter extends Handler {
+
+    /**
+     * The prefix of the loggers of the measures.
+     */
+    public static final String MEASURES = "M_";
+
+    /**
+     * The file of the records without a logger name.
+     */
+    private static final String UNNAMED = "unnamed.log";
+
+    /**
+     * Default number of files kept open.
+     */
+    public static final int DFLT_MAX_OPEN = 64;
+
+    /**
+     * The directory of the files.
+     */
+    private final Path dir;
+
+    /**
+     * The maximum number of files kept open.
+     */
+    private final int maxOpen;
+
+    /**
+     * The open files, the least recently used first.
+     */
+    private final LinkedHashMap<String, Writer> open =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The files written so far.
+     */
+    private final Set<String> written = new HashSet<>();
+
+    /**
+     * The formatter of each logger.
+     */
+    private final Map<String, Formatter> formatters = new HashMap<>();
+
+    /**
+     * The formatter of the measures.
+     */
+    private final Formatter measures = new MoteFormatter();
+
+    /**
+     * Creates a LogRouter keeping DFLT_MAX_OPEN files open.
+     *
+     * @param d the directory of the files, created if missing
+     * @throws IOException if the directory cannot be created
+     */
+    public LogRouter(final Path d) throws IOException {
+        this(d, DFLT_MAX_OPEN);
+    }
+
+    /**
+     * Creates a LogRouter.
+     *
+     * @param d the directory of the files, created if missing
+     * @param max the maximum number of files kept open
+     * @throws IOException if the directory cannot be created
+     */
+    public LogRouter(final Path d, final int max) throws IOException {
+        if (max < 1) {
+            throw new IllegalArgumentException("Invalid number of files: "
+                    + max);
+        }
+        dir = Files.createDirectories(d);
+        maxOpen = max;
+    }
+
+    @Override
+    public synchronized void publish(final LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        String name = record.getLoggerName();
+        if (name == null || name.isEmpty()) {
+            name = UNNAMED;
+        }
+        String msg;
+        try {
+            msg = formatter(name).format(record);
+        } catch (RuntimeException ex) {
+            reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        try {
+            Writer w = writer(name);
+            w.write(msg);
+            if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                w.flush();
+            }
+        } catch (IOException ex) {
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        for (Writer w : open.values()) {
+            try {
+                w.flush();
+            } catch (IOException ex) {
+                reportError(null, ex, ErrorManager.FLUSH_FAILURE);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Writer w : open.values()) {
+            try {
+                w.close();
+            } catch (IOException ex) {
+                reportError(null, ex, ErrorManager.CLOSE_FAILURE);
+            }
+        }
+        open.clear();
+    }
+
+    /**
+     * Gets the formatter of a logger.
+     *
+     * @param name the name of the logger
+     * @return the formatter
+     */
+    private Formatter formatter(final String name) {
+        if (name.startsWith(MEASURES)) {
+            return measures;
+        }
+        return formatters.computeIfAbsent(name, n -> {
+            int dot = n.lastIndexOf(".log");
+            return new SimplerFormatter(dot > 0 ? n.substring(0, dot) : n);
+        });
+    }
+
+    /**
+     * Gets the open file of a logger, opening it and closing the least
+     * recently used one if needed.
+     *
+     * @param name the name of the logger
+     * @return the file
+     * @throws IOException if the file cannot be opened
+     */
+    private Writer writer(final String name) throws IOException {
+        Writer w = open.get(name);
+        if (w != null) {
+            return w;
+        }
+        if (open.size() >= maxOpen) {
+            Iterator<Writer> it = open.values().iterator();
+            Writer eldest = it.next();
+            it.remove();
+            eldest.close();
+        }
+        StandardOpenOption mode = written.add(name)
+                ? StandardOpenOption.TRUNCATE_EXISTING
+                : StandardOpenOption.APPEND;
+        w = Files.newBufferedWriter(dir.resolve(name),
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, mode);
+        open.put(name, w);
+        return w;
+    }
+}
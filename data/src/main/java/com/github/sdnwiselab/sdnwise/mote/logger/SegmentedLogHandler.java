@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Writes the logs of many nodes in two series of files: the measures, whose
+ * loggers start with {@value LogRouter#MEASURES}, in measures.N.log and all
+ * the other logs in motes.N.log. A file is closed and the next one of the
+ * series is started when it reaches the segment size.
+ * <p>
+ * The measures are written as by a MoteFormatter. The other logs are written
+ * as by a SimplerFormatter, with the name of the logger without extension as
+ * the source, so the lines of a node can be found in the shared files. This
+ * class is not thread safe and is meant to be the target of an
+ * AsyncLogSink.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class SegmentedLogHandler extends Handler {
+
+    /**
+     * Default size of a file in bytes.
+     */
+    public static final long DFLT_SEGMENT_SIZE = 64L << 20;
+
+    /**
+     * The directory of the files.
+     */
+    private final Path dir;
+
+    /**
+     * The size of a file.
+     */
+    private final long segmentSize;
+
+    /**
+     * The series of the logs and of the measures.
+     */
+    private final Series logs = new Series("motes"),
+            measures = new Series("measures");
+
+    /**
+     * Formats the measures.
+     */
+    private final Formatter measureFormatter = new MoteFormatter();
+
+    /**
+     * The format of the date in the logs.
+     */
+    private final SimpleDateFormat date = new SimpleDateFormat("HH:mm:ss");
+
+    /**
+     * Creates a SegmentedLogHandler with files of DFLT_SEGMENT_SIZE bytes.
+     *
+     * @param d the directory of the files, created if missing
+     * @throws IOException if the directory cannot be created
+     */
+    public SegmentedLogHandler(final Path d) throws IOException {
+        this(d, DFLT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a SegmentedLogHandler.
+     *
+     * @param d the directory of the files, created if missing
+     * @param size the size of a file in bytes
+     * @throws IOException if the directory cannot be created
+     */
+    public SegmentedLogHandler(final Path d, final long size)
+            throws IOException {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+        dir = Files.createDirectories(d);
+        segmentSize = size;
+    }
+
+    @Override
+    public void publish(final LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        String name = record.getLoggerName();
+        if (name == null) {
+            name = "";
+        }
+        try {
+            if (name.startsWith(LogRouter.MEASURES)) {
+                measures.write(measureFormatter.format(record));
+            } else {
+                logs.write(format(record, name));
+            }
+        } catch (IOException ex) {
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    @Override
+    public void flush() {
+        logs.flush();
+        measures.flush();
+    }
+
+    @Override
+    public void close() {
+        logs.close();
+        measures.close();
+    }
+
+    /**
+     * Formats a log as a SimplerFormatter does.
+     *
+     * @param record the log
+     * @param name the name of the logger
+     * @return the line of the log
+     */
+    private String format(final LogRecord record, final String name) {
+        int dot = name.lastIndexOf(".log");
+        StringBuilder sb = new StringBuilder(64)
+                .append(date.format(new Date(record.getMillis())))
+                .append(" [").append(record.getLevel()).append("][")
+                .append(name, 0, dot > 0 ? dot : name.length())
+                .append("] ").append(measureFormatter.formatMessage(record));
+        if (record.getThrown() != null) {
+            sb.append(' ').append(record.getThrown());
+        }
+        return sb.append('\n').toString();
+    }
+
+    /**
+     * A series of files.
+     */
+    private final class Series {
+
+        /**
+         * The prefix of the names of the files.
+         */
+        private final String prefix;
+
+        /**
+         * The current file, null until the first write.
+         */
+        private Writer out;
+
+        /**
+         * The number of the current file.
+         */
+        private int index = -1;
+
+        /**
+         * The number of characters written in the current file.
+         */
+        private long written;
+
+        /**
+         * Creates a Series.
+         *
+         * @param p the prefix of the names of the files
+         */
+        Series(final String p) {
+            prefix = p;
+        }
+
+        /**
+         * Writes a text, starting a new file if the current one is full.
+         *
+         * @param s the text
+         * @throws IOException if the text cannot be written
+         */
+        void write(final String s) throws IOException {
+            if (out == null || written >= segmentSize) {
+                close();
+                index++;
+                written = 0;
+                out = Files.newBufferedWriter(
+                        dir.resolve(prefix + "." + index + ".log"),
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            out.write(s);
+            written += s.length();
+        }
+
+        /**
+         * Flushes the current file.
+         */
+        void flush() {
+            if (out != null) {
+                try {
+                    out.flush();
+                } catch (IOException ex) {
+                    reportError(null, ex, ErrorManager.FLUSH_FAILURE);
+                }
+            }
+        }
+
+        /**
+         * Closes the current file.
+         */
+        void close() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                    reportError(null, ex, ErrorManager.CLOSE_FAILURE);
+                }
+                out = null;
+            }
+        }
+    }
+}
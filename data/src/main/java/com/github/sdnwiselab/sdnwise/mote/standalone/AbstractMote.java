@@ -22,32 +22,47 @@ import com.github.sdnwiselab.sdnwise.mote.core.Pair;
 import com.github.sdnwiselab.sdnwise.mote.logger.MoteFormatter;
 import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
 import static com.github.sdnwiselab.sdnwise.packet.NetworkPacket.DATA;
+import com.github.sdnwiselab.sdnwise.util.AddressMap;
+import com.github.sdnwiselab.sdnwise.util.MetricsWriter;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
 import com.github.sdnwiselab.sdnwise.util.SimplerFormatter;
+import com.github.sdnwiselab.sdnwise.util.Topology;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
+ * Models a node as a standalone application. The neighbors are read from a
+ * neighbor file, or from a topology file shared by all the nodes of the
+ * process, and the packets are exchanged through a RadioMedium, by default UDP
+ * sockets.
+ * <p>
+ * A node either runs its own threads, when run is called, or is driven by a
+ * MoteRuntime or a Simulation shared with many other nodes, when it is added
+ * to one of them. A driven node works in steps, and the driver counts its
+ * seconds.
+ *
  * @author Sebastiano Milardo
  */
 public abstract class AbstractMote implements Runnable {
@@ -57,9 +72,10 @@ public abstract class AbstractMote implements Runnable {
      */
     private static final int SECOND_IN_MILLIS = 1000;
     /**
-     * Buffer for incoming packets.
+     * Maximum number of packets handled by a step of a driven node, so that
+     * a busy node does not starve the others.
      */
-    private final byte[] buf = new byte[NetworkPacket.MAX_PACKET_LENGTH];
+    private static final int STEP_PACKETS = 64;
     /**
      * Logging level.
      */
@@ -68,36 +84,75 @@ public abstract class AbstractMote implements Runnable {
      * Loggers.
      */
     private Logger logger, measureLogger;
+    /**
+     * Receives the logs of the node instead of its own files, if not null.
+     */
+    private Handler logHandler;
+    /**
+     * Receives the measures of the node instead of its measure log, if not
+     * null.
+     */
+    private MetricsWriter metrics;
+    /**
+     * The number of the current second, starting from 0.
+     */
+    private int seconds;
     /**
      * The path to the file containing info on the neighbors.
      */
     private final String neighborFilePath;
     /**
-     * The list of neighbors.
+     * The topology containing the node, read instead of the neighbor file if
+     * not null.
+     */
+    private Topology topology;
+    /**
+     * The list of neighbors. Filled before the receiving and sending threads
+     * are started and never modified afterwards.
      */
-    private Map<NodeAddress, FakeInfo> neighbourList;
+    private final AddressMap<FakeInfo> neighbourList = new AddressMap<>();
     /**
      * Listening UDP port.
      */
     private final int port;
     /**
-     * Statistics.
+     * Statistics of the sent packets.
      */
-    private int receivedBytes, receivedDataBytes, sentBytes, sentDataBytes;
+    private int sentBytes, sentDataBytes;
     /**
-     * Node Socket. Models the wireless connection.
+     * Statistics of the received packets. A RadioMedium may deliver packets
+     * from the threads of the senders.
      */
-    private DatagramSocket socket;
+    private final AtomicInteger receivedBytes = new AtomicInteger(),
+            receivedDataBytes = new AtomicInteger();
+    /**
+     * Models the wireless connection.
+     */
+    private RadioMedium medium;
     /**
      * The Core of the Node.
      */
     private AbstractCore core;
+    /**
+     * Executes the steps of a driven node, null if the node runs its own
+     * threads.
+     */
+    private Executor driver;
+    /**
+     * True while a step of the node is scheduled or running.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    /**
+     * Seconds elapsed and not yet handled by a step.
+     */
+    private final AtomicInteger ticks = new AtomicInteger();
 
     /**
      * Creates a new AbstractMote.
      *
      * @param p the UDP listening port
-     * @param nfp the path to the neighbor file
+     * @param nfp the path to the neighbor file, or null if the neighbors are
+     * found by the RadioMedium
      * @param lvl the logging level of the node
      */
     public AbstractMote(
@@ -105,24 +160,38 @@ public abstract class AbstractMote implements Runnable {
             final String nfp,
             final String lvl) {
         this.neighborFilePath = nfp;
-        this.neighbourList = new HashMap<>();
         this.port = p;
         this.level = Level.parse(lvl);
     }
 
     /**
      * Logs information regarding the address, the battery level, number of
-     * FlowTable entries, byte sent/received.
+     * FlowTable entries, byte sent/received. If a MetricsWriter is set, the
+     * information is written there instead of the measure log.
      */
     public final void logger() {
+        MetricsWriter m = metrics;
+        if (m != null) {
+            try {
+                m.record(seconds, core.getMyAddress(),
+                        core.getBattery().getLevel(),
+                        core.getBattery().getByteLevel(),
+                        core.getFlowTableSize(), sentBytes,
+                        receivedBytes.get(), sentDataBytes,
+                        receivedDataBytes.get());
+            } catch (IOException | IllegalStateException ex) {
+                logger.log(Level.SEVERE, ex.toString());
+            }
+            return;
+        }
         measureLogger.log(Level.FINEST,
                 "{0};{1};{2};{3};{4};{5};{6};{7};",
                 new Object[]{core.getMyAddress(),
                     String.valueOf(core.getBattery().getLevel()),
                     String.valueOf(core.getBattery().getByteLevel()),
                     core.getFlowTableSize(),
-                    sentBytes, receivedBytes,
-                    sentDataBytes, receivedDataBytes});
+                    sentBytes, receivedBytes.get(),
+                    sentDataBytes, receivedDataBytes.get()});
     }
 
     /**
@@ -146,13 +215,22 @@ public abstract class AbstractMote implements Runnable {
         NodeAddress tmpNxHop = np.getNxh();
         NodeAddress tmpDst = np.getDst();
 
-        if (tmpDst.isBroadcast() || tmpNxHop.isBroadcast()) {
+        // encoded once and shared by all the neighbors
+        byte[] raw = np.toByteArray();
+        try {
+            if (medium.transmit(this, raw, np.getLen())) {
+                return;
+            }
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, null, ex);
+            return;
+        }
 
-            neighbourList.entrySet().stream()
-                    .map((isa) -> new DatagramPacket(np.toByteArray(),
-                    np.getLen(), isa.getValue().inetAddress)).forEach((pck) -> {
+        if (tmpDst.isBroadcast() || tmpNxHop.isBroadcast()) {
+            neighbourList.forEach((addr, isa) -> {
                 try {
-                    socket.send(pck);
+                    medium.send(this, addr, isa.inetAddress, raw,
+                            np.getLen());
                 } catch (IOException ex) {
                     logger.log(Level.SEVERE, null, ex);
                 }
@@ -161,10 +239,8 @@ public abstract class AbstractMote implements Runnable {
             FakeInfo isa = neighbourList.get(tmpNxHop);
             if (isa != null) {
                 try {
-                    DatagramPacket pck = new DatagramPacket(np.toByteArray(),
-                            np.getLen(), isa.inetAddress);
-                    socket.send(pck);
-
+                    medium.send(this, tmpNxHop, isa.inetAddress, raw,
+                            np.getLen());
                 } catch (IOException ex) {
                     logger.log(Level.SEVERE, null, ex);
                 }
@@ -172,75 +248,351 @@ public abstract class AbstractMote implements Runnable {
         }
     }
 
+    /**
+     * Starts the node and runs its threads. Returns when the battery of the
+     * node is depleted. Unless a RadioMedium has been set, the node uses its
+     * own UDP socket, closed when this method returns.
+     */
     @Override
     public final void run() {
+        RadioMedium own = null;
         try {
+            init();
+            core.start();
+            if (medium == null) {
+                own = new UdpRadioMedium();
+                medium = own;
+            }
+            medium.attach(this);
 
-            measureLogger = initLogger(Level.FINEST, "M_" + core.getMyAddress()
-                + ".log", new MoteFormatter());
+            new Timer().schedule(new TaskTimer(), SECOND_IN_MILLIS,
+                    SECOND_IN_MILLIS);
+            startThreads();
+            openConnections();
 
-            logger = initLogger(level, core.getMyAddress()
-                + ".log", new SimplerFormatter(core.getMyAddress().toString()));
+            while (core.getBattery().getByteLevel() > 0) {
+                Thread.sleep(SECOND_IN_MILLIS);
+            }
+        } catch (IOException | InterruptedException | RuntimeException ex) {
+            logger.log(Level.SEVERE, ex.toString());
+        } finally {
+            if (own != null) {
+                try {
+                    own.close();
+                } catch (IOException ex) {
+                    logger.log(Level.SEVERE, ex.toString());
+                }
+            }
+        }
+    }
 
-            Path path = Paths.get(neighborFilePath);
-            BufferedReader reader;
+    /**
+     * Sets a Handler receiving the logs of the node, usually shared with the
+     * other nodes of the process, instead of the files opened by the node.
+     * The records carry the name of the logger, that is the name of the file
+     * the node would write. It must be called before the node is started.
+     *
+     * @param h the Handler, or null to write the files of the node
+     */
+    public final void setLogHandler(final Handler h) {
+        logHandler = h;
+    }
 
-            if (!Files.exists(path)) {
-                logger.log(Level.INFO, "External Config file not found. "
-                        + "Loading default values.");
-                InputStream in = getClass()
-                        .getResourceAsStream("/" + neighborFilePath);
-                reader = new BufferedReader(new InputStreamReader(in));
-            } else {
-                reader = new BufferedReader(new FileReader(neighborFilePath));
-            }
+    /**
+     * Sets a MetricsWriter receiving the measures taken every second by the
+     * node, usually shared with the other nodes of the run, instead of the
+     * measure log.
+     *
+     * @param w the MetricsWriter, or null to use the measure log
+     */
+    public final void setMetricsWriter(final MetricsWriter w) {
+        metrics = w;
+    }
 
-            try (Stream<String> lines = reader.lines()) {
-                neighbourList = lines.parallel()
-                        .map(line -> line.trim())
-                        .filter(line -> !line.isEmpty())
-                        .map(line -> line.split(","))
-                        .map(e -> new Object() {
-                            private final NodeAddress addr =
-                                    new NodeAddress(e[0]);
-                            private final FakeInfo fk = new FakeInfo(
-                                    new InetSocketAddress(e[1],
-                                            Integer.parseInt(e[2])
-                                    ), Integer.parseInt(e[3])
-                            );
-                        }
-                        ).collect(Collectors
-                                .toConcurrentMap(e -> e.addr, e -> e.fk));
-            }
+    /**
+     * Sets the topology containing the node, usually shared with the other
+     * nodes of the process, to be read instead of the neighbor file. It must
+     * be called before the node is started.
+     *
+     * @param t the Topology, or null to read the neighbor file
+     */
+    public final void setTopology(final Topology t) {
+        topology = t;
+    }
 
-            DatagramPacket packet = new DatagramPacket(buf, buf.length);
-            socket = new DatagramSocket(port);
+    /**
+     * Sets the RadioMedium used by the node when it runs its own threads. It
+     * must be called before run.
+     *
+     * @param m the RadioMedium, possibly shared with other nodes
+     */
+    public final void setRadioMedium(final RadioMedium m) {
+        medium = m;
+    }
 
-            new Timer().schedule(new TaskTimer(), SECOND_IN_MILLIS,
-                    SECOND_IN_MILLIS);
-            startThreads();
+    /**
+     * Starts the core of the node, that will be driven by a MoteRuntime or a
+     * Simulation, and attaches the node to a RadioMedium.
+     *
+     * @param ex executes the steps of the node, one at a time
+     * @param m the RadioMedium of the driver
+     * @throws IOException if the neighbor file cannot be read or the radio
+     * cannot be opened
+     */
+    final void attach(final Executor ex, final RadioMedium m)
+            throws IOException {
+        if (driver != null) {
+            throw new IllegalStateException("Node already attached");
+        }
+        init();
+        driver = ex;
+        medium = m;
+        core.start(this::schedule);
+        m.attach(this);
+        openConnections();
+    }
 
-            while (core.getBattery().getByteLevel() > 0) {
-                socket.receive(packet);
-                NetworkPacket np = new NetworkPacket(packet.getData());
-                int rssi = MAX_RSSI;
-                if (np.isSdnWise()) {
-                    logger.log(Level.FINE, "RRX {0}", np);
-                    FakeInfo fk = neighbourList.get(np.getSrc());
-                    if (fk != null) {
-                        rssi = fk.rssi;
-                    } else {
-                        rssi = MAX_RSSI;
-                    }
-
-                    if (DATA == np.getTyp()) {
-                        receivedDataBytes += np.getPayloadSize();
-                    }
+    /**
+     * Gets the address of the node on the radio medium.
+     *
+     * @return the address of the node
+     */
+    final NodeAddress getAddress() {
+        return core.getMyAddress();
+    }
+
+    /**
+     * Gets the addresses of the neighbors read from the neighbor file.
+     *
+     * @return the addresses of the neighbors
+     */
+    final List<NodeAddress> getNeighbors() {
+        List<NodeAddress> out = new ArrayList<>(neighbourList.size());
+        neighbourList.forEach((addr, isa) -> out.add(addr));
+        return out;
+    }
+
+    /**
+     * Gets the UDP port of the node.
+     *
+     * @return the UDP port of the node
+     */
+    final int getPort() {
+        return port;
+    }
+
+    /**
+     * Gives a packet received by the radio to the node, unless its battery
+     * is depleted. The array can be reused as soon as the method returns.
+     *
+     * @param data the array containing the packet
+     * @param off the offset of the packet in data
+     * @param len the length of the packet
+     */
+    final void deliver(final byte[] data, final int off, final int len) {
+        deliver(data, off, len, -1);
+    }
+
+    /**
+     * Gives a packet received by the radio to the node, with the RSSI
+     * measured by the radio, unless its battery is depleted.
+     *
+     * @param data the array containing the packet
+     * @param off the offset of the packet in data
+     * @param len the length of the packet
+     * @param rssi the RSSI of the packet, or -1 to use the one in the
+     * neighbor file
+     */
+    final void deliver(final byte[] data, final int off, final int len,
+            final int rssi) {
+        if (isAlive()) {
+            rx(data, off, len, rssi);
+        }
+    }
+
+    /**
+     * Checks if the battery of the node is not depleted.
+     *
+     * @return true if the node is alive
+     */
+    final boolean isAlive() {
+        return core.getBattery().getByteLevel() > 0;
+    }
+
+    /**
+     * Signals that a second has elapsed to a driven node.
+     */
+    final void tick() {
+        ticks.incrementAndGet();
+        schedule();
+    }
+
+    /**
+     * Schedules a step of a driven node, unless one is already scheduled.
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            driver.execute(this::step);
+        }
+    }
+
+    /**
+     * Runs the elapsed seconds and handles a batch of incoming packets,
+     * sending the outgoing packets and logging the messages of the core.
+     */
+    private void step() {
+        try {
+            for (int t = ticks.getAndSet(0); t > 0; t--) {
+                try {
+                    second();
+                } catch (RuntimeException ex) {
+                    // a failing second must not skip the following ones
+                    logger.log(Level.SEVERE, ex.toString());
                 }
-                core.rxRadioPacket(np, rssi);
             }
-        } catch (IOException | RuntimeException ex) {
+            flush();
+            for (int n = 0; n < STEP_PACKETS && core.handleNext(); n++) {
+                flush();
+            }
+        } catch (RuntimeException ex) {
             logger.log(Level.SEVERE, ex.toString());
+        } finally {
+            scheduled.set(false);
+            if (ticks.get() > 0 || core.hasWork()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Sends the outgoing packets and logs the messages of the core of a
+     * driven node.
+     */
+    private void flush() {
+        NetworkPacket np;
+        while ((np = core.pollNetworkPacketToBeSend()) != null) {
+            radioTX(np);
+            core.getPacketPool().release(np);
+        }
+        Pair<Level, String> tmp;
+        while ((tmp = core.pollLogToBePrinted()) != null) {
+            logger.log(tmp.getKey(), tmp.getValue());
+        }
+    }
+
+    /**
+     * Gives a received datagram to the core.
+     *
+     * @param data the array containing the datagram
+     * @param off the offset of the datagram in data
+     * @param len the length of the datagram
+     * @param measured the RSSI of the datagram, or -1 to use the one in the
+     * neighbor file
+     */
+    private void rx(final byte[] data, final int off, final int len,
+            final int measured) {
+        NetworkPacket np = core.getPacketPool().acquire(data, off, len);
+        int rssi = measured >= 0 ? measured : MAX_RSSI;
+        if (np.isSdnWise()) {
+            logger.log(Level.FINE, "RRX {0}", np);
+            receivedBytes.addAndGet(np.getLen());
+            FakeInfo fk = neighbourList.get(np.getSrc());
+            if (fk != null && measured < 0) {
+                rssi = fk.rssi;
+            }
+
+            if (DATA == np.getTyp()) {
+                receivedDataBytes.addAndGet(np.getPayloadSize());
+            }
+        }
+        core.rxRadioPacket(np, rssi);
+    }
+
+    /**
+     * Runs the clock of the node for one second.
+     */
+    private void second() {
+        if (core.getBattery().getByteLevel() > 0) {
+            try {
+                core.timer();
+            } finally {
+                core.getBattery().keepAlive(1);
+            }
+        }
+        logger();
+        seconds++;
+    }
+
+    /**
+     * Initializes the loggers and reads the topology or the neighbor file,
+     * if any.
+     *
+     * @throws IOException if the neighbor file cannot be read
+     */
+    private void init() throws IOException {
+        measureLogger = initLogger(Level.FINEST, "M_" + core.getMyAddress()
+            + ".log", new MoteFormatter());
+
+        logger = initLogger(level, core.getMyAddress()
+            + ".log", new SimplerFormatter(core.getMyAddress().toString()));
+        core.setLogLevel(level);
+
+        if (topology != null) {
+            readTopology(topology);
+            return;
+        }
+        if (neighborFilePath == null) {
+            return;
+        }
+        if (Topology.isTopologyFile(neighborFilePath)) {
+            readTopology(Topology.map(Paths.get(neighborFilePath)));
+            return;
+        }
+        Path path = Paths.get(neighborFilePath);
+        BufferedReader reader;
+
+        if (!Files.exists(path)) {
+            logger.log(Level.INFO, "External Config file not found. "
+                    + "Loading default values.");
+            InputStream in = getClass()
+                    .getResourceAsStream("/" + neighborFilePath);
+            reader = new BufferedReader(new InputStreamReader(in));
+        } else {
+            reader = new BufferedReader(new FileReader(neighborFilePath));
+        }
+
+        try (Stream<String> lines = reader.lines()) {
+            lines.map(line -> line.trim())
+                    .filter(line -> !line.isEmpty())
+                    .map(line -> line.split(","))
+                    .forEachOrdered(e -> neighbourList.put(
+                            new NodeAddress(e[0]), new FakeInfo(
+                                    new InetSocketAddress(e[1],
+                                            Integer.parseInt(e[2])
+                                    ), Integer.parseInt(e[3])
+                            )));
+        }
+    }
+
+    /**
+     * Reads the neighbors of the node from a topology. Every neighbor
+     * listens on the loopback address.
+     *
+     * @param topo the topology
+     * @throws IOException if the node is not in the topology
+     */
+    private void readTopology(final Topology topo) throws IOException {
+        int i = topo.indexOf(core.getMyAddress());
+        if (i < 0) {
+            throw new IOException("Node " + core.getMyAddress()
+                    + " not in the topology");
+        }
+        InetAddress host = InetAddress.getLoopbackAddress();
+        for (int k = 0; k < topo.getDegree(i); k++) {
+            int j = topo.getNeighbor(i, k);
+            neighbourList.put(topo.getAddress(j), new FakeInfo(
+                    new InetSocketAddress(host, topo.getPort(j)),
+                    topo.getRssi(i, k)));
         }
     }
 
@@ -258,6 +610,11 @@ public abstract class AbstractMote implements Runnable {
             final Formatter formatter) {
         Logger log = Logger.getLogger(file);
         log.setLevel(lvl);
+        if (logHandler != null) {
+            log.addHandler(logHandler);
+            log.setUseParentHandlers(false);
+            return log;
+        }
         try {
             FileHandler fh;
             File dir = new File("logs");
@@ -275,11 +632,19 @@ public abstract class AbstractMote implements Runnable {
     /**
      * Starts the threads of the Node.
      */
-    protected void startThreads() {
+    private void startThreads() {
         new Thread(new SenderRunnable()).start();
         new Thread(new LoggerRunnable()).start();
     }
 
+    /**
+     * Opens the connections of the Node other than its radio. Called once
+     * the core is started, whether the node runs its own threads or not.
+     */
+    protected void openConnections() {
+        // Nothing to do here
+    }
+
     /**
      * Simulates neighbors info.
      */
@@ -333,7 +698,9 @@ public abstract class AbstractMote implements Runnable {
         public void run() {
             try {
                 while (true) {
-                    radioTX(core.getNetworkPacketToBeSend());
+                    NetworkPacket np = core.getNetworkPacketToBeSend();
+                    radioTX(np);
+                    core.getPacketPool().release(np);
                 }
             } catch (InterruptedException ex) {
                 logger.log(Level.SEVERE, ex.toString());
@@ -348,11 +715,7 @@ public abstract class AbstractMote implements Runnable {
 
         @Override
         public void run() {
-            if (core.getBattery().getByteLevel() > 0) {
-                core.timer();
-                core.getBattery().keepAlive(1);
-            }
-            logger();
+            second();
         }
     }
 
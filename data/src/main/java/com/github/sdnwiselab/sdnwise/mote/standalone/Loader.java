@@ -16,8 +16,26 @@
  */
 package com.github.sdnwiselab.sdnwise.mote.standalone;
 
+import com.github.sdnwiselab.sdnwise.flowtable.EvictionPolicy;
+import com.github.sdnwiselab.sdnwise.flowtable.PendingRequestTable;
+import com.github.sdnwiselab.sdnwise.mote.logger.AsyncLogSink;
+import com.github.sdnwiselab.sdnwise.mote.logger.LogRouter;
+import com.github.sdnwiselab.sdnwise.mote.logger.SegmentedLogHandler;
+import com.github.sdnwiselab.sdnwise.packet.AdmissionQueue.DropPolicy;
+import com.github.sdnwiselab.sdnwise.packet.ReportTracker;
+import com.github.sdnwiselab.sdnwise.util.AddressSet;
+import com.github.sdnwiselab.sdnwise.util.MetricsWriter;
 import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import com.github.sdnwiselab.sdnwise.util.Topology;
+import com.github.sdnwiselab.sdnwise.util.TopologyGenerator;
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Handler;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -28,11 +46,47 @@ import org.apache.commons.cli.ParseException;
 
 /**
  * Representation of a command line parser that instanciate an SDN-WISE node.
+ * <p>
+ * In batch mode all the nodes of a topology file are started in this
+ * process on a shared MoteRuntime, exchanging their packets in memory. Their
+ * logs are buffered by a single AsyncLogSink and written to a few shared
+ * files, or to the usual per node files. Given a virtual duration, the
+ * nodes are instead run by a Simulation in virtual time, and the process
+ * ends when the duration has been simulated.
+ * The sinks are connected to the same controller and get consecutive DPIDs,
+ * MAC addresses and switch ports starting from the given ones.
  *
  * @author Sebastiano Milardo
  */
 public final class Loader {
 
+    /**
+     * A second in milliseconds.
+     */
+    private static final int SECOND_IN_MILLIS = 1000;
+
+    /**
+     * The highest Network ID and the highest UDP port.
+     */
+    private static final int MAX_NET = 255, MAX_PORT = 65535;
+
+    /**
+     * The radix of the identifiers of the sinks.
+     */
+    private static final int HEX = 16;
+
+    /**
+     * The syntax of the command line.
+     */
+    static final String USAGE = "sdn-wise-data -n id (-a address -p port"
+            + " -t filename | -b filename [-g spec] [-s addresses]"
+            + " [-w threads | -v seconds [-r seed] [-pt partitions]"
+            + " [-rm [spec]]] [-lp])"
+            + " [-l level]"
+            + " [-fs entries [-fe policy]] [-rp policy]"
+            + " [-rd [spec]] [-pr spec] [-m filename]"
+            + " [-c ip:port -sd dpid -sm mac -sp port]";
+
     /**
      * This is a util class. No public constructor.
      */
@@ -44,17 +98,138 @@ public final class Loader {
      * @param args the command line arguments
      */
     public static void main(final String[] args) {
+        Options options = options();
+
+        // create the parser
+        CommandLineParser parser = new DefaultParser();
+        try {
+            CommandLine line = parser.parse(options, args);
+            AbstractMote node;
+
+            byte cmdNet = (byte) number(line, "n", 0, 0, MAX_NET);
+
+            String cmdLevel;
+
+            if (!line.hasOption("l")) {
+                cmdLevel = "SEVERE";
+            } else {
+                cmdLevel = line.getOptionValue("l");
+            }
+
+            if (line.hasOption("b")) {
+                runBatch(line, cmdNet, cmdLevel);
+                return;
+            }
+
+            for (String opt : new String[]{"a", "p", "t"}) {
+                if (!line.hasOption(opt)) {
+                    throw new ParseException("-" + opt + " option missing");
+                }
+            }
+            NodeAddress cmdAddress = new NodeAddress((int) number(line, "a",
+                    0, 0, NodeAddress.ADDRESS_SPACE - 1));
+            int cmdPort = (int) number(line, "p", 0, 0, MAX_PORT);
+            String cmdTopo = line.getOptionValue("t");
+
+            if (line.hasOption("c")) {
+
+                checkSinkOptions(line);
+
+                String cmdSDpid = line.getOptionValue("sd");
+                String cmdSMac = line.getOptionValue("sm");
+                long cmdSPort = number(line, "sp", 0, 0, Long.MAX_VALUE);
+                node = new Sink(cmdNet, cmdAddress, cmdPort,
+                        option(line, "c", Loader::controller), cmdTopo,
+                        cmdLevel, cmdSDpid, cmdSMac, cmdSPort);
+            } else {
+                node = new Mote(cmdNet, cmdAddress, cmdPort, cmdTopo,
+                        cmdLevel);
+            }
+
+            MetricsWriter metrics = openMetrics(line);
+            configure(node, line, metrics);
+
+            Thread th = new Thread(node);
+            th.start();
+            th.join();
+            if (metrics != null) {
+                metrics.close();
+            }
+        } catch (InterruptedException | ParseException ex) {
+            System.out.println("Parsing failed.  Reason: " + ex.getMessage());
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp(USAGE, options);
+        } catch (IOException ex) {
+            System.out.println("Starting failed.  Reason: "
+                    + ex.getMessage());
+        }
+    }
+
+    /**
+     * Gets the options of the command line.
+     *
+     * @return the options
+     */
+    static Options options() {
         Options options = new Options();
         options.addOption(Option.builder("n").argName("net").hasArg().required()
                 .desc("Network ID of the node").numberOfArgs(1).build());
         options.addOption(Option.builder("a").argName("address").hasArg()
-                .required().desc("Address of the node <0-65535>")
+                .desc("Address of the node <0-65535>")
                 .numberOfArgs(1).build());
         options.addOption(Option.builder("p").argName("port").hasArg()
-                .required().desc("Listening UDP port").numberOfArgs(1).build());
+                .desc("Listening UDP port. Base port of the generated "
+                        + "topology in batch mode").numberOfArgs(1).build());
         options.addOption(Option.builder("t").argName("filename").hasArg()
-                .required().desc("Use given file for neighbors discovery")
+                .desc("Use given file for neighbors discovery")
+                .numberOfArgs(1).build());
+        options.addOption(Option.builder("b").argName("filename").hasArg()
+                .desc("Start all the nodes of the given topology file "
+                        + "(BATCH MODE)").numberOfArgs(1).build());
+        options.addOption(Option.builder("g").argName("spec").hasArg()
+                .desc("Generate the topology file first. Values: "
+                        + "grid:ROWS:COLS:SPACING, line:N:SPACING, "
+                        + "tree:N:FANOUT:SPACING, "
+                        + "random:N:WIDTH:HEIGHT[:RANGE], "
+                        + "clustered:CLUSTERS:N:WIDTH:HEIGHT:RADIUS[:RANGE]"
+                        + ". (BATCH ONLY)").numberOfArgs(1).build());
+        options.addOption(Option.builder("s").argName("addresses").hasArg()
+                .desc("Comma separated addresses of the sinks. Default: the"
+                        + " first node. (BATCH ONLY)")
+                .numberOfArgs(1).build());
+        options.addOption(Option.builder("m").argName("filename").hasArg()
+                .desc("Write the measures of the nodes to the given binary "
+                        + "file instead of their measure logs")
+                .numberOfArgs(1).build());
+        options.addOption(Option.builder("lp")
+                .desc("Write a log file per node instead of a few shared "
+                        + "files. (BATCH ONLY)").build());
+        options.addOption(Option.builder("w").argName("threads").hasArg()
+                .desc("Number of worker threads. Default: one per "
+                        + "processor. (BATCH ONLY)")
+                .numberOfArgs(1).build());
+        options.addOption(Option.builder("v").argName("seconds").hasArg()
+                .desc("Simulate the given seconds in virtual time instead of "
+                        + "running in real time. (BATCH ONLY)")
+                .numberOfArgs(1).build());
+        options.addOption(Option.builder("r").argName("seed").hasArg()
+                .desc("Seed of the random values of the simulation. Two "
+                        + "runs with the same seed are identical. Default: "
+                        + "0. (SIMULATION ONLY)")
+                .numberOfArgs(1).build());
+        options.addOption(Option.builder("pt").argName("partitions")
+                .hasArg().desc("Number of partitions of the simulation, each"
+                        + " one run by its own thread. The result does not "
+                        + "depend on it. Default: 1. (SIMULATION ONLY)")
                 .numberOfArgs(1).build());
+        options.addOption(Option.builder("rm").argName("spec").hasArg()
+                .desc("Connect the nodes with a spatial radio model, at the "
+                        + "positions of the topology, instead of its links. "
+                        + "Values: EXPONENT[:SHADOWING[:TX_POWER]], the path"
+                        + " loss exponent, the shadowing in dB and the "
+                        + "transmission power in dBm. Default: 3:4:0. "
+                        + "(SIMULATION ONLY)")
+                .numberOfArgs(1).optionalArg(true).build());
         options.addOption(Option.builder("c").argName("ip:port").hasArg()
                 .desc("IP address and TCP port of the controller. (SINK ONLY)")
                 .numberOfArgs(1).build());
@@ -72,59 +247,566 @@ public final class Loader {
                 .desc("Use given log level. Values: SEVERE, WARNING, INFO, "
                         + "CONFIG, FINE, FINER, FINEST.")
                 .numberOfArgs(1).optionalArg(true).build());
+        options.addOption(Option.builder("fs").argName("entries").hasArg()
+                .desc("Maximum number of entries in the flow table. "
+                        + "Unlimited if not set.")
+                .numberOfArgs(1).build());
+        options.addOption(Option.builder("fe").argName("policy").hasArg()
+                .desc("Eviction policy of a full flow table. Values: LRU, "
+                        + "LFU, TTL. Default: LRU.")
+                .numberOfArgs(1).build());
+        options.addOption(Option.builder("rp").argName("policy").hasArg()
+                .desc("Drop policy of a full incoming queue. Values: "
+                        + "TAIL_DROP, RED, DROP_OLDEST. Default: TAIL_DROP.")
+                .numberOfArgs(1).build());
+        options.addOption(Option.builder("rd").argName("spec").hasArg()
+                .desc("Send delta reports only when the neighbors change. "
+                        + "Values: THRESHOLD[:HEARTBEAT[:KEEPALIVE]], the "
+                        + "periods counted in report periods. Default: "
+                        + "5:2:10.")
+                .numberOfArgs(1).optionalArg(true).build());
+        options.addOption(Option.builder("pr").argName("spec").hasArg()
+                .desc("Timeout of the requests sent to the controller on a "
+                        + "flow table miss. Values: "
+                        + "TIMEOUT[:RETRIES[:FLOWS[:BUFFER]]], the seconds "
+                        + "before the first retry, doubled at each retry, "
+                        + "the retries, the pending flows and the packets "
+                        + "held for each flow. Default: 2:3:32:10.")
+                .numberOfArgs(1).build());
+        return options;
+    }
 
-        // create the parser
-        CommandLineParser parser = new DefaultParser();
+    /**
+     * Starts all the nodes of a topology file on a shared MoteRuntime and
+     * waits until their batteries are depleted, or simulates them for the
+     * requested virtual duration.
+     *
+     * @param line the parsed command line
+     * @param net the Network ID of the nodes
+     * @param level the log level of the nodes
+     * @throws ParseException if an option is not valid
+     * @throws IOException if the topology cannot be read or written
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static void runBatch(final CommandLine line, final byte net,
+            final String level) throws ParseException, IOException,
+            InterruptedException {
+        Topology topo = topology(line);
+        AsyncLogSink logs = new AsyncLogSink(logHandler(line,
+                Paths.get("logs")));
+        // the nodes usually run until the process is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(logs::close));
+        MetricsWriter metrics = openMetrics(line);
         try {
-            CommandLine line = parser.parse(options, args);
-            Thread th;
+            List<AbstractMote> nodes = createNodes(line, net, level, topo,
+                    logs, metrics);
+            if (line.hasOption("v")) {
+                simulate(line, topo, nodes);
+            } else {
+                run(line, nodes);
+            }
+        } finally {
+            logs.close();
+            if (metrics != null) {
+                metrics.close();
+            }
+        }
+    }
 
-            byte cmdNet = (byte) Integer.parseInt(line.getOptionValue("n"));
-            NodeAddress cmdAddress = new NodeAddress(Integer.parseInt(
-                    line.getOptionValue("a")));
-            int cmdPort = Integer.parseInt(line.getOptionValue("p"));
-            String cmdTopo = line.getOptionValue("t");
+    /**
+     * Gets the topology of a batch, generating it first if requested.
+     *
+     * @param line the parsed command line
+     * @return the topology
+     * @throws ParseException if an option is not valid
+     * @throws IOException if the topology cannot be read or written
+     */
+    static Topology topology(final CommandLine line) throws ParseException,
+            IOException {
+        String file = line.getOptionValue("b");
+        if (!Topology.isTopologyFile(file)) {
+            throw new ParseException("-b filename must end with "
+                    + Topology.FILE_EXTENSION);
+        }
+        if (line.hasOption("s") && !line.hasOption("c")) {
+            throw new ParseException("-s option requires -c");
+        }
+        if (line.hasOption("g")) {
+            Topology t = generate(line.getOptionValue("g"),
+                    (int) number(line, "p", 0, 0, MAX_PORT));
+            t.write(Paths.get(file));
+            return t;
+        }
+        try {
+            return Topology.map(Paths.get(file));
+        } catch (IllegalArgumentException ex) {
+            throw new ParseException("Invalid topology " + file + ": "
+                    + ex.getMessage());
+        }
+    }
 
-            String cmdLevel;
+    /**
+     * Creates the handler writing the logs of a batch: a file per node or a
+     * few shared files.
+     *
+     * @param line the parsed command line
+     * @param dir the directory of the files
+     * @return the handler
+     * @throws IOException if the directory cannot be created
+     */
+    static Handler logHandler(final CommandLine line, final Path dir)
+            throws IOException {
+        return line.hasOption("lp") ? new LogRouter(dir)
+                : new SegmentedLogHandler(dir);
+    }
 
-            if (!line.hasOption("l")) {
-                cmdLevel = "SEVERE";
+    /**
+     * Creates and configures the nodes of a batch, in the order of the
+     * topology. The sinks get consecutive DPIDs, MAC addresses and switch
+     * ports.
+     *
+     * @param line the parsed command line
+     * @param net the Network ID of the nodes
+     * @param level the log level of the nodes
+     * @param topo the topology of the nodes
+     * @param logs the handler of the logs of the nodes
+     * @param metrics the MetricsWriter of the run, or null
+     * @return the nodes
+     * @throws ParseException if an option is not valid
+     */
+    static List<AbstractMote> createNodes(final CommandLine line,
+            final byte net, final String level, final Topology topo,
+            final Handler logs, final MetricsWriter metrics)
+            throws ParseException {
+        AddressSet sinks = new AddressSet();
+        InetSocketAddress ctrl = null;
+        long switchPort = 0;
+        if (line.hasOption("c")) {
+            checkSinkOptions(line);
+            ctrl = option(line, "c", Loader::controller);
+            if (line.hasOption("s")) {
+                sinks = option(line, "s", Loader::addresses);
+            } else if (topo.size() > 0) {
+                sinks.add(topo.getAddress(0));
+            }
+            for (NodeAddress a : sinks) {
+                if (topo.indexOf(a) < 0) {
+                    throw new ParseException("Sink " + a
+                            + " not in the topology");
+                }
+            }
+            switchPort = number(line, "sp", 0, 0,
+                    Long.MAX_VALUE - sinks.size());
+        }
+        List<AbstractMote> nodes = new ArrayList<>(topo.size());
+        int k = 0;
+        for (int i = 0; i < topo.size(); i++) {
+            NodeAddress addr = topo.getAddress(i);
+            AbstractMote node;
+            if (sinks.contains(addr.intValue())) {
+                int n = k;
+                node = new Sink(net, addr, topo.getPort(i), ctrl, null,
+                        level, option(line, "sd", s -> nextId(s, n)),
+                        option(line, "sm", s -> nextId(s, n)),
+                        switchPort + k);
+                k++;
             } else {
-                cmdLevel = line.getOptionValue("l");
+                node = new Mote(net, addr, topo.getPort(i), null, level);
             }
+            node.setTopology(topo);
+            configure(node, line, metrics);
+            node.setLogHandler(logs);
+            nodes.add(node);
+        }
+        return nodes;
+    }
 
-            if (line.hasOption("c")) {
+    /**
+     * Runs the nodes of a batch on a shared MoteRuntime until their
+     * batteries are depleted.
+     *
+     * @param line the parsed command line
+     * @param nodes the nodes
+     * @throws ParseException if an option is not valid
+     * @throws IOException if a node cannot be started
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static void run(final CommandLine line,
+            final List<AbstractMote> nodes) throws ParseException,
+            IOException, InterruptedException {
+        try (MoteRuntime runtime = start(line, nodes)) {
+            while (runtime.getAlive() > 0) {
+                Thread.sleep(SECOND_IN_MILLIS);
+            }
+        }
+    }
 
-                if (!line.hasOption("sd")) {
-                    throw new ParseException("-sd option missing");
-                }
-                if (!line.hasOption("sp")) {
-                    throw new ParseException("-sp option missing");
-                }
-                if (!line.hasOption("sm")) {
-                    throw new ParseException("-sm option missing");
-                }
+    /**
+     * Starts the nodes of a batch on a new MoteRuntime.
+     *
+     * @param line the parsed command line
+     * @param nodes the nodes
+     * @return the MoteRuntime running the nodes
+     * @throws ParseException if an option is not valid
+     * @throws IOException if a node cannot be started
+     */
+    static MoteRuntime start(final CommandLine line,
+            final List<AbstractMote> nodes) throws ParseException,
+            IOException {
+        int threads = (int) number(line, "w",
+                Runtime.getRuntime().availableProcessors(), 1,
+                Integer.MAX_VALUE);
+        MoteRuntime runtime = new MoteRuntime(threads,
+                new LocalRadioMedium());
+        try {
+            for (AbstractMote node : nodes) {
+                runtime.add(node);
+            }
+        } catch (IOException | RuntimeException ex) {
+            runtime.close();
+            throw ex;
+        }
+        return runtime;
+    }
 
-                String cmdSDpid = line.getOptionValue("sd");
-                String cmdSMac = line.getOptionValue("sm");
-                long cmdSPort = Long.parseLong(line.getOptionValue("sp"));
-                String[] ipport = line.getOptionValue("c").split(":");
-                th = new Thread(new Sink(cmdNet, cmdAddress, cmdPort,
-                        new InetSocketAddress(ipport[0], Integer
-                                .parseInt(ipport[1])), cmdTopo, cmdLevel,
-                        cmdSDpid, cmdSMac, cmdSPort));
+    /**
+     * Runs the nodes of a batch in virtual time for the requested duration
+     * and prints the number of events executed. With a spatial radio model,
+     * it also prints the packets received and lost.
+     *
+     * @param line the parsed command line
+     * @param topo the topology of the nodes
+     * @param nodes the nodes, in the order of the topology
+     * @throws ParseException if an option is not valid
+     * @throws IOException if a node cannot be started
+     */
+    private static void simulate(final CommandLine line, final Topology topo,
+            final List<AbstractMote> nodes) throws ParseException,
+            IOException {
+        long seconds = number(line, "v", 0, 0,
+                Long.MAX_VALUE / Simulation.SECOND);
+        Simulation sim = new Simulation(number(line, "r", 0,
+                Long.MIN_VALUE, Long.MAX_VALUE), Simulation.DFLT_LINK_DELAY,
+                Simulation.DFLT_JITTER, (int) number(line, "pt", 1, 1,
+                        Math.max(1, nodes.size())));
+        boolean spatial = line.hasOption("rm");
+        if (spatial) {
+            sim.setRadioModel(radioModel(line.getOptionValue("rm")));
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            if (spatial) {
+                sim.add(nodes.get(i), topo.getX(i), topo.getY(i));
             } else {
-                th = new Thread(new Mote(cmdNet, cmdAddress, cmdPort, cmdTopo,
-                        cmdLevel));
+                sim.add(nodes.get(i));
             }
-            th.start();
-            th.join();
-        } catch (InterruptedException | ParseException ex) {
-            System.out.println("Parsing failed.  Reason: " + ex.getMessage());
-            HelpFormatter formatter = new HelpFormatter();
-            formatter.printHelp("sdn-wise-data -n id -a address -p port"
-                    + " -t filename [-l level] [-sd dpid -sm mac -sp port]",
-                    options);
         }
+        long events = sim.run(seconds * Simulation.SECOND);
+        System.out.println("Simulated " + seconds + " s of " + nodes.size()
+                + " nodes: " + events + " events");
+        if (spatial) {
+            System.out.println("Packets received: "
+                    + sim.getReceivedPackets() + ", lost: "
+                    + sim.getLostPackets());
+        }
+    }
+
+    /**
+     * Creates a SpatialRadioModel from its description.
+     *
+     * @param spec the path loss exponent, the shadowing and the
+     * transmission power separated by colons, each one optional, or null for
+     * the defaults
+     * @return the SpatialRadioModel
+     * @throws ParseException if the description is not valid
+     */
+    private static SpatialRadioModel radioModel(final String spec)
+            throws ParseException {
+        SpatialRadioModel m = new SpatialRadioModel();
+        if (spec == null) {
+            return m;
+        }
+        String[] p = spec.split(":");
+        try {
+            if (p.length > 3) {
+                throw new IllegalArgumentException("too many values");
+            }
+            m.setPathLoss(SpatialRadioModel.DFLT_REF_LOSS,
+                    Double.parseDouble(p[0]));
+            if (p.length > 1) {
+                m.setShadowing(Double.parseDouble(p[1]));
+            }
+            if (p.length > 2) {
+                m.setTxPower(Double.parseDouble(p[2]));
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new ParseException("Invalid radio model " + spec + ": "
+                    + ex.getMessage());
+        }
+        return m;
+    }
+
+    /**
+     * Gets the integer value of an option.
+     *
+     * @param line the parsed command line
+     * @param opt the option
+     * @param dflt the value if the option is not set
+     * @param min the lowest valid value
+     * @param max the highest valid value
+     * @return the value of the option
+     * @throws ParseException if the value is not an integer between min and
+     * max
+     */
+    private static long number(final CommandLine line, final String opt,
+            final long dflt, final long min, final long max)
+            throws ParseException {
+        if (!line.hasOption(opt)) {
+            return dflt;
+        }
+        String s = line.getOptionValue(opt);
+        try {
+            long v = Long.parseLong(s.trim());
+            if (v >= min && v <= max) {
+                return v;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        throw new ParseException("Invalid -" + opt + " value: " + s);
+    }
+
+    /**
+     * Gets the value of an option converted by a function.
+     *
+     * @param <T> the type of the value
+     * @param line the parsed command line
+     * @param opt the option
+     * @param f converts the value of the option, null if the option has no
+     * value
+     * @return the converted value
+     * @throws ParseException if the function rejects the value
+     */
+    private static <T> T option(final CommandLine line, final String opt,
+            final Function<String, T> f) throws ParseException {
+        String s = line.getOptionValue(opt);
+        try {
+            return f.apply(s);
+        } catch (IllegalArgumentException ex) {
+            throw new ParseException("Invalid -" + opt + " value " + s + ": "
+                    + ex.getMessage());
+        }
+    }
+
+    /**
+     * Opens the metrics file, if requested. The file is also closed when
+     * the process is stopped.
+     *
+     * @param line the parsed command line
+     * @return the MetricsWriter or null if no metrics file is requested
+     * @throws IOException if the file cannot be written
+     */
+    private static MetricsWriter openMetrics(final CommandLine line)
+            throws IOException {
+        if (!line.hasOption("m")) {
+            return null;
+        }
+        MetricsWriter metrics = new MetricsWriter(
+                Paths.get(line.getOptionValue("m")));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                metrics.close();
+            } catch (IOException ex) {
+                System.err.println(ex.getMessage());
+            }
+        }));
+        return metrics;
+    }
+
+    /**
+     * Applies the flow table, incoming queue, report, pending request and
+     * metrics options to a node.
+     *
+     * @param node the node
+     * @param line the parsed command line
+     * @param metrics the MetricsWriter of the run, or null
+     * @throws ParseException if an option is not valid
+     */
+    private static void configure(final AbstractMote node,
+            final CommandLine line, final MetricsWriter metrics)
+            throws ParseException {
+        node.setMetricsWriter(metrics);
+        if (line.hasOption("fs")) {
+            node.getCore().getFlowTable().setCapacity(
+                    (int) number(line, "fs", 0, 1, Integer.MAX_VALUE),
+                    line.hasOption("fe")
+                    ? option(line, "fe", EvictionPolicy::fromString)
+                    : EvictionPolicy.LRU);
+        }
+        if (line.hasOption("rp")) {
+            node.getCore().getRxQueue().setPolicy(option(line, "rp",
+                    s -> DropPolicy.valueOf(s.toUpperCase())));
+        }
+        if (line.hasOption("rd")) {
+            node.getCore().setReportTracker(
+                    option(line, "rd", Loader::reportTracker));
+        }
+        if (line.hasOption("pr")) {
+            PendingRequestTable table = node.getCore().getPendingRequests();
+            option(line, "pr", s -> setPendingRequests(table, s));
+        }
+    }
+
+    /**
+     * Sets the limits of a PendingRequestTable from their description.
+     *
+     * @param table the PendingRequestTable
+     * @param spec the timeout, the retries, the maximum number of flows and
+     * the size of the buffer of a flow separated by colons, each one but the
+     * first optional
+     * @return the PendingRequestTable
+     */
+    private static PendingRequestTable setPendingRequests(
+            final PendingRequestTable table, final String spec) {
+        int[] v = {PendingRequestTable.DFLT_TIMEOUT,
+            PendingRequestTable.DFLT_MAX_RETRIES,
+            PendingRequestTable.DFLT_MAX_FLOWS,
+            PendingRequestTable.DFLT_BUFFER_SIZE};
+        String[] p = spec.split(":");
+        if (p.length > v.length) {
+            throw new IllegalArgumentException("Invalid pending requests "
+                    + "spec: " + spec);
+        }
+        for (int i = 0; i < p.length; i++) {
+            v[i] = Integer.parseInt(p[i]);
+        }
+        table.setTimeout(v[0], v[1]);
+        table.setMaxFlows(v[2]);
+        table.setBufferSize(v[3]);
+        return table;
+    }
+
+    /**
+     * Gets the address of the controller from its description.
+     *
+     * @param ipport the IP address and the TCP port separated by a colon
+     * @return the address of the controller
+     */
+    private static InetSocketAddress controller(final String ipport) {
+        int i = ipport.lastIndexOf(':');
+        if (i < 0) {
+            throw new IllegalArgumentException("port missing");
+        }
+        return new InetSocketAddress(ipport.substring(0, i),
+                Integer.parseInt(ipport.substring(i + 1)));
+    }
+
+    /**
+     * Gets a set of addresses from their description.
+     *
+     * @param list the addresses separated by commas
+     * @return the addresses
+     */
+    private static AddressSet addresses(final String list) {
+        AddressSet set = new AddressSet();
+        for (String a : list.split(",")) {
+            int v = Integer.parseInt(a.trim());
+            if (v < 0 || v >= NodeAddress.ADDRESS_SPACE) {
+                throw new IllegalArgumentException("Invalid address: " + v);
+            }
+            set.add(v);
+        }
+        return set;
+    }
+
+    /**
+     * Creates a ReportTracker from its description.
+     *
+     * @param spec the threshold, heartbeat and keep alive separated by
+     * colons, each one optional, or null for the defaults
+     * @return the ReportTracker
+     */
+    private static ReportTracker reportTracker(final String spec) {
+        int[] v = {ReportTracker.DEFAULT_THRESHOLD,
+            ReportTracker.DEFAULT_HEARTBEAT, ReportTracker.DEFAULT_KEEP_ALIVE};
+        if (spec != null) {
+            String[] p = spec.split(":");
+            if (p.length > v.length) {
+                throw new IllegalArgumentException("Invalid report spec: "
+                        + spec);
+            }
+            for (int i = 0; i < p.length; i++) {
+                v[i] = Integer.parseInt(p[i]);
+            }
+        }
+        return new ReportTracker(v[0], v[1], Math.max(v[1], v[2]));
+    }
+
+    /**
+     * Checks that the options of a sink are present.
+     *
+     * @param line the parsed command line
+     * @throws ParseException if an option is missing
+     */
+    private static void checkSinkOptions(final CommandLine line)
+            throws ParseException {
+        for (String opt : new String[]{"sd", "sp", "sm"}) {
+            if (!line.hasOption(opt)) {
+                throw new ParseException("-" + opt + " option missing");
+            }
+        }
+    }
+
+    /**
+     * Generates a topology from its description.
+     *
+     * @param spec the description of the topology, as accepted by
+     * TopologyGenerator.generate
+     * @param basePort the port of the node with address 0
+     * @return the Topology
+     * @throws ParseException if the description is not valid
+     */
+    private static Topology generate(final String spec, final int basePort)
+            throws ParseException {
+        try {
+            return new TopologyGenerator(0).setBasePort(basePort)
+                    .generate(spec);
+        } catch (IllegalArgumentException ex) {
+            throw new ParseException("Invalid topology " + spec + ": "
+                    + ex.getMessage());
+        }
+    }
+
+    /**
+     * Gets the identifier following another one by a given amount, keeping
+     * its length and its colons, as in a MAC address. The digits are
+     * incremented from the last one with carry, so an identifier of any
+     * length can be incremented.
+     *
+     * @param id the hexadecimal identifier
+     * @param k the amount to add, not negative
+     * @return the k-th identifier after id, in lower case
+     * @throws IllegalArgumentException if id is not hexadecimal or if the
+     * result does not fit in the length of id
+     */
+    static String nextId(final String id, final int k) {
+        char[] c = id.toCharArray();
+        long carry = k;
+        for (int i = c.length - 1; i >= 0; i--) {
+            if (c[i] == ':') {
+                continue;
+            }
+            int d = Character.digit(c[i], HEX);
+            if (d < 0) {
+                throw new IllegalArgumentException("not hexadecimal");
+            }
+            long v = d + carry;
+            c[i] = Character.forDigit((int) (v % HEX), HEX);
+            carry = v / HEX;
+        }
+        if (carry != 0) {
+            throw new IllegalArgumentException("no identifier " + k
+                    + " after " + id);
+        }
+        return new String(c);
     }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Models a RadioMedium connecting the nodes running in the same JVM. A
+ * packet is copied from the array of the sender straight into a pooled
+ * packet of the receiver, so neither the kernel nor a socket is involved.
+ * The socket addresses of the neighbor file are ignored, the neighbors are
+ * found by their NodeAddress, and the packets sent to a node that is not
+ * attached are lost.
+ * <p>
+ * The packets are delivered in the thread of the sender.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class LocalRadioMedium implements RadioMedium {
+
+    /**
+     * The attached nodes.
+     */
+    private final Map<NodeAddress, AbstractMote> motes =
+            new ConcurrentHashMap<>();
+
+    @Override
+    public void attach(final AbstractMote mote) {
+        if (motes.putIfAbsent(mote.getAddress(), mote) != null) {
+            throw new IllegalArgumentException("Address already attached: "
+                    + mote.getAddress());
+        }
+    }
+
+    @Override
+    public void close() {
+        motes.clear();
+    }
+
+    @Override
+    public void send(final AbstractMote src, final NodeAddress dst,
+            final InetSocketAddress isa, final byte[] raw, final int len) {
+        AbstractMote m = motes.get(dst);
+        if (m != null) {
+            m.deliver(raw, 0, len);
+        }
+    }
+
+    /**
+     * Gets the number of attached nodes.
+     *
+     * @return the number of attached nodes
+     */
+    public int size() {
+        return motes.size();
+    }
+}
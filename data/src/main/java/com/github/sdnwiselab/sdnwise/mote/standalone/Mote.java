@@ -29,7 +29,7 @@ import com.github.sdnwiselab.sdnwise.util.NodeAddress;
 public class Mote extends AbstractMote {
 
     /**
-     * Creates and starts a new Mote application.
+     * Creates a new Mote application.
      *
      * @param net the Network Id of the node
      * @param myAddress the address of the node
@@ -44,6 +44,6 @@ public class Mote extends AbstractMote {
             final String logLevel) {
         super(port, neighboursPath, logLevel);
         Dischargeable battery = new Battery();
-        setCore(new MoteCore(net, myAddress, battery)).start();
+        setCore(new MoteCore(net, myAddress, battery));
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many nodes in the same JVM with a fixed number of threads. A node
+ * running on its own uses six threads, so only a few hundred nodes fit in a
+ * JVM.
+ * <p>
+ * The work of each node is done in steps executed by a shared pool of
+ * worker threads: a node is scheduled when it receives a packet or when a
+ * second elapses, and it is never run by two workers at the same time. The
+ * seconds of all the nodes are counted by a single scheduler thread. The
+ * nodes exchange their packets through a RadioMedium shared by the whole
+ * runtime.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class MoteRuntime implements AutoCloseable {
+
+    /**
+     * A second in milliseconds.
+     */
+    private static final int SECOND_IN_MILLIS = 1000;
+    /**
+     * Runs the steps of the nodes.
+     */
+    private final ExecutorService workers;
+    /**
+     * Counts the seconds of the nodes.
+     */
+    private final ScheduledExecutorService clock;
+    /**
+     * The medium connecting the nodes.
+     */
+    private final RadioMedium medium;
+    /**
+     * The nodes added to the runtime.
+     */
+    private final List<AbstractMote> motes = new CopyOnWriteArrayList<>();
+    /**
+     * True until the runtime is closed.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Creates a MoteRuntime using a worker thread for each processor and UDP
+     * sockets as RadioMedium.
+     *
+     * @throws IOException if the RadioMedium cannot be created
+     */
+    public MoteRuntime() throws IOException {
+        this(Runtime.getRuntime().availableProcessors(),
+                new UdpRadioMedium());
+    }
+
+    /**
+     * Creates a MoteRuntime.
+     *
+     * @param threads the number of worker threads
+     * @param m the medium connecting the nodes, closed with the runtime
+     */
+    public MoteRuntime(final int threads, final RadioMedium m) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: "
+                    + threads);
+        }
+        medium = m;
+        workers = Executors.newFixedThreadPool(threads, named("mote-worker"));
+        clock = Executors.newSingleThreadScheduledExecutor(
+                named("mote-clock"));
+        clock.scheduleAtFixedRate(() -> motes.forEach(AbstractMote::tick),
+                SECOND_IN_MILLIS, SECOND_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a ThreadFactory naming its threads.
+     *
+     * @param name the prefix of the names of the threads
+     * @return the ThreadFactory
+     */
+    private static ThreadFactory named(final String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> new Thread(r, name + "-" + count.incrementAndGet());
+    }
+
+    /**
+     * Starts a node and drives it from now on. The node must not be run on
+     * its own.
+     *
+     * @param mote the node
+     * @throws IOException if the neighbor file of the node cannot be read or
+     * its radio cannot be opened
+     */
+    public void add(final AbstractMote mote) throws IOException {
+        if (!running) {
+            throw new IllegalStateException("Runtime closed");
+        }
+        mote.attach(this::execute, medium);
+        motes.add(mote);
+    }
+
+    /**
+     * Stops driving the nodes and closes the RadioMedium. Pending steps are
+     * discarded.
+     *
+     * @throws IOException if the RadioMedium cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        clock.shutdownNow();
+        workers.shutdownNow();
+        medium.close();
+    }
+
+    /**
+     * Gets the RadioMedium connecting the nodes.
+     *
+     * @return the RadioMedium of the runtime
+     */
+    public RadioMedium getRadioMedium() {
+        return medium;
+    }
+
+    /**
+     * Gets the number of nodes driven by the runtime.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return motes.size();
+    }
+
+    /**
+     * Gets the number of nodes whose battery is not depleted.
+     *
+     * @return the number of nodes alive
+     */
+    public int getAlive() {
+        int n = 0;
+        for (AbstractMote m : motes) {
+            if (m.isAlive()) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Executes a step of a node.
+     *
+     * @param step the step
+     */
+    void execute(final Runnable step) {
+        try {
+            workers.execute(step);
+        } catch (RejectedExecutionException ex) {
+            // the runtime has been closed, the step is discarded
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Models the wireless medium shared by the emulated nodes. A node sends a
+ * packet to each of the neighbors listed in its neighbor file, and the
+ * medium gives the packet to the receiving node, that applies the RSSI
+ * read from its own neighbor file. A medium knowing the positions of the
+ * nodes can instead find the receivers of a packet by itself.
+ *
+ * @author Sebastiano Milardo
+ */
+public interface RadioMedium extends AutoCloseable {
+
+    /**
+     * Connects a node to the medium. From now on the packets sent to the
+     * node are delivered to it.
+     *
+     * @param mote the node
+     * @throws IOException if the radio of the node cannot be opened
+     */
+    void attach(AbstractMote mote) throws IOException;
+
+    /**
+     * Closes the medium and the radios of the attached nodes.
+     *
+     * @throws IOException if a radio cannot be closed
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Sends a packet to a neighbor. The array is not modified and can be
+     * shared by the packets sent to several neighbors, but it can be reused
+     * by the sender only when this method returns.
+     *
+     * @param src the sending node
+     * @param dst the address of the neighbor
+     * @param isa the socket address of the neighbor in the neighbor file
+     * @param raw the array containing the packet
+     * @param len the length of the packet
+     * @throws IOException if the packet cannot be sent
+     */
+    void send(AbstractMote src, NodeAddress dst, InetSocketAddress isa,
+            byte[] raw, int len) throws IOException;
+
+    /**
+     * Transmits a packet to all the nodes able to hear the sender, if the
+     * medium can find them. Otherwise the sender sends the packet to its
+     * neighbors with send. The array is handled as in send.
+     *
+     * @param src the sending node
+     * @param raw the array containing the packet
+     * @param len the length of the packet
+     * @return true if the packet has been transmitted, false if it has to be
+     * sent to the neighbors in the neighbor file
+     * @throws IOException if the packet cannot be transmitted
+     */
+    default boolean transmit(final AbstractMote src, final byte[] raw,
+            final int len) throws IOException {
+        return false;
+    }
+}
@@ -0,0 +1,951 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import com.github.sdnwiselab.sdnwise.mote.standalone.SpatialRadioModel.Link;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs many nodes in virtual time. The seconds of the nodes, the steps
+ * handling their packets and the deliveries of the radio are events
+ * executed in time order, so a network lifetime takes only the time needed
+ * to compute it.
+ * <p>
+ * The nodes exchange their packets through the RadioMedium of the
+ * simulation, that delivers each packet after a link delay plus a random
+ * jitter. The neighbors are found by NodeAddress as in LocalRadioMedium.
+ * Each node has a random clock phase.
+ * <p>
+ * The nodes added with a position are instead connected by a
+ * SpatialRadioModel. Every packet they send is heard by all the nodes in
+ * range, each one after the link delay and for the airtime of the packet.
+ * The packets heard at the same time by a node interfere, and each packet is
+ * received with the probability given by its signal to interference plus
+ * noise ratio. A node whose battery is depleted stops receiving at once and
+ * is removed from the links of its neighbors a link delay later. The radios
+ * are not half duplex and the interference of the nodes out of range is
+ * neglected.
+ * <p>
+ * The nodes can be split in partitions, each one with its own event queue
+ * run by its own thread. The partitions are built at the first run by
+ * cutting a breadth first visit of the neighbor graph, so that most links
+ * stay inside a partition. The simulation is conservative: the partitions
+ * run in windows as long as the link delay, that is the lookahead, and a
+ * packet sent to another partition during a window is always delivered
+ * after the end of the window.
+ * <p>
+ * The random values of each node come from a generator created from the
+ * seed and the position of the node, and the events happening at the same
+ * time are ordered by the node that scheduled them and by the order it
+ * scheduled them in. So two simulations of the same nodes with the same
+ * seed execute the same events, whatever the number of partitions. This
+ * does not hold for the packets coming from outside the simulation, like
+ * the ones sent by the controller to a Sink, which are handled at the
+ * current virtual time of the node.
+ * <p>
+ * The times are in nanoseconds.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class Simulation {
+
+    /**
+     * A second in nanoseconds.
+     */
+    public static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Default link delay and jitter.
+     */
+    public static final long DFLT_LINK_DELAY = TimeUnit.MILLISECONDS
+            .toNanos(1), DFLT_JITTER = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Spreads the seeds of the nodes.
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The medium connecting the nodes.
+     */
+    private final Medium medium = new Medium();
+
+    /**
+     * The nodes of the simulation, in the order they were added.
+     */
+    private final List<Node> nodes = new ArrayList<>();
+
+    /**
+     * The nodes with a position, in the order they were placed.
+     */
+    private final List<Node> placed = new ArrayList<>();
+
+    /**
+     * The model of the links between the nodes with a position.
+     */
+    private SpatialRadioModel model;
+
+    /**
+     * The partitions, built at the first run.
+     */
+    private final Partition[] partitions;
+
+    /**
+     * The events scheduled before the partitions are built.
+     */
+    private final Queue<Event> staged = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Seed, delay of every transmission and maximum random delay added to
+     * it.
+     */
+    private final long seed, linkDelay, jitter;
+
+    /**
+     * The time reached by the last run.
+     */
+    private volatile long now;
+
+    /**
+     * True once the nodes have been split in partitions.
+     */
+    private boolean partitioned;
+
+    /**
+     * True while the partitions are running.
+     */
+    private volatile boolean running;
+
+    /**
+     * The number of events scheduled from outside the simulation.
+     */
+    private final AtomicLong external = new AtomicLong();
+
+    /**
+     * Creates a sequential Simulation with the default link delay and
+     * jitter.
+     *
+     * @param s the seed of the random values
+     */
+    public Simulation(final long s) {
+        this(s, DFLT_LINK_DELAY, DFLT_JITTER, 1);
+    }
+
+    /**
+     * Creates a sequential Simulation.
+     *
+     * @param s the seed of the random values
+     * @param delay the delay of every transmission, at least 1
+     * @param maxJitter the maximum random delay added to a transmission
+     */
+    public Simulation(final long s, final long delay,
+            final long maxJitter) {
+        this(s, delay, maxJitter, 1);
+    }
+
+    /**
+     * Creates a Simulation.
+     *
+     * @param s the seed of the random values
+     * @param delay the delay of every transmission, at least 1
+     * @param maxJitter the maximum random delay added to a transmission
+     * @param n the number of partitions, each one run by its own thread
+     */
+    public Simulation(final long s, final long delay,
+            final long maxJitter, final int n) {
+        if (delay < 1 || maxJitter < 0) {
+            throw new IllegalArgumentException("Invalid delay: " + delay
+                    + ", jitter: " + maxJitter);
+        }
+        if (n < 1) {
+            throw new IllegalArgumentException("Invalid partitions: " + n);
+        }
+        seed = s;
+        linkDelay = delay;
+        jitter = maxJitter;
+        partitions = new Partition[n];
+        for (int i = 0; i < n; i++) {
+            partitions[i] = new Partition();
+        }
+    }
+
+    /**
+     * Starts a node and drives it from now on. Its first second elapses
+     * after one second plus a random phase. The node must not be run on its
+     * own, and nodes cannot be added while the simulation is running.
+     *
+     * @param mote the node
+     * @throws IOException if the neighbor file of the node cannot be read
+     */
+    public synchronized void add(final AbstractMote mote) throws IOException {
+        join(mote);
+    }
+
+    /**
+     * Starts a node placed in a given position and drives it from now on.
+     * Its neighbors are found by the radio model of the simulation, so the
+     * node usually has no neighbor file.
+     *
+     * @param mote the node
+     * @param x the x coordinate of the node in meters
+     * @param y the y coordinate of the node in meters
+     * @throws IOException if the neighbor file of the node cannot be read
+     */
+    public synchronized void add(final AbstractMote mote, final double x,
+            final double y) throws IOException {
+        if (model == null) {
+            throw new IllegalStateException("No radio model set");
+        }
+        Node node = join(mote);
+        node.spatial = model.place(x, y);
+        placed.add(node);
+        for (Link l : model.links(node.spatial, seed)) {
+            // to be computed again with the new node
+            placed.get(l.node).links = null;
+        }
+    }
+
+    /**
+     * Sets the model of the links between the nodes added with a position.
+     * It must be called before adding any node.
+     *
+     * @param m the radio model, not shared with other simulations
+     */
+    public synchronized void setRadioModel(final SpatialRadioModel m) {
+        if (!nodes.isEmpty()) {
+            throw new IllegalStateException("Nodes already added");
+        }
+        if (m.size() > 0) {
+            throw new IllegalArgumentException("Radio model already used");
+        }
+        model = m;
+    }
+
+    /**
+     * Gets the number of packets received by the nodes added with a
+     * position, since the beginning of the simulation.
+     *
+     * @return the number of packets received
+     */
+    public synchronized long getReceivedPackets() {
+        long n = 0;
+        for (Partition p : partitions) {
+            n += p.received;
+        }
+        return n;
+    }
+
+    /**
+     * Gets the number of packets heard by the nodes added with a position
+     * but lost because of noise or collisions, since the beginning of the
+     * simulation.
+     *
+     * @return the number of packets lost
+     */
+    public synchronized long getLostPackets() {
+        long n = 0;
+        for (Partition p : partitions) {
+            n += p.lost;
+        }
+        return n;
+    }
+
+    /**
+     * Creates a node and schedules its first second.
+     *
+     * @param mote the node
+     * @return the node of the simulation
+     * @throws IOException if the neighbor file of the node cannot be read
+     */
+    private Node join(final AbstractMote mote) throws IOException {
+        Node node = new Node(mote, nodes.size());
+        if (partitioned) {
+            Partition p = partitions[0];
+            for (Partition q : partitions) {
+                if (q.size < p.size) {
+                    p = q;
+                }
+            }
+            node.part = p;
+            p.size++;
+        }
+        medium.put(node);
+        mote.attach(step -> node.schedule(node, 0, step), medium);
+        nodes.add(node);
+        long phase = (long) (node.random.nextDouble() * SECOND);
+        node.schedule(node, SECOND + phase, new Runnable() {
+            @Override
+            public void run() {
+                mote.tick();
+                node.schedule(node, SECOND, this);
+            }
+        });
+        return node;
+    }
+
+    /**
+     * Schedules an action on a node. The action is executed by the thread
+     * of the partition of the node, so it must only use that node.
+     *
+     * @param mote the node
+     * @param delay the time from now when the action is executed
+     * @param action the action
+     */
+    public void at(final AbstractMote mote, final long delay,
+            final Runnable action) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Negative delay: " + delay);
+        }
+        Node node = medium.get(mote.getAddress());
+        if (node == null || node.mote != mote) {
+            throw new IllegalArgumentException("Node not in the simulation");
+        }
+        node.schedule(null, delay, action);
+    }
+
+    /**
+     * Gets the number of partitions.
+     *
+     * @return the number of partitions
+     */
+    public int getPartitions() {
+        return partitions.length;
+    }
+
+    /**
+     * Gets the RadioMedium of the simulation.
+     *
+     * @return the RadioMedium connecting the nodes
+     */
+    public RadioMedium getRadioMedium() {
+        return medium;
+    }
+
+    /**
+     * Gets the virtual time reached by the last run.
+     *
+     * @return the time elapsed since the beginning of the simulation
+     */
+    public long getTime() {
+        return now;
+    }
+
+    /**
+     * Gets the nodes of the simulation.
+     *
+     * @return the nodes in the order they were added
+     */
+    public synchronized List<AbstractMote> getMotes() {
+        List<AbstractMote> out = new ArrayList<>(nodes.size());
+        nodes.forEach(n -> out.add(n.mote));
+        return out;
+    }
+
+    /**
+     * Executes the events until a given time. The time is then advanced to
+     * the given time.
+     *
+     * @param duration the time to be simulated from now
+     * @return the number of events executed
+     */
+    public synchronized long run(final long duration) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Negative duration: "
+                    + duration);
+        }
+        if (!partitioned) {
+            partition();
+        }
+        long end = now + duration;
+        long count = 0;
+        running = true;
+        try {
+            if (partitions.length == 1) {
+                count = partitions[0].run(end + 1, true);
+            } else {
+                ExecutorService workers = Executors.newFixedThreadPool(
+                        partitions.length);
+                try {
+                    count = runParallel(workers, end);
+                } finally {
+                    workers.shutdownNow();
+                }
+            }
+        } finally {
+            running = false;
+        }
+        for (Partition p : partitions) {
+            p.now = end;
+        }
+        now = end;
+        return count;
+    }
+
+    /**
+     * Runs the partitions in windows as long as the lookahead.
+     *
+     * @param workers the threads of the partitions
+     * @param end the time when the simulation stops
+     * @return the number of events executed
+     */
+    private long runParallel(final ExecutorService workers, final long end) {
+        List<Callable<Long>> tasks = new ArrayList<>(partitions.length);
+        long[] window = new long[1];
+        for (Partition p : partitions) {
+            tasks.add(() -> p.run(window[0], false));
+        }
+        long count = 0;
+        while (true) {
+            long next = Long.MAX_VALUE;
+            for (Partition p : partitions) {
+                p.merge();
+                next = Math.min(next, p.next());
+            }
+            if (next > end) {
+                return count;
+            }
+            // nothing sent in [next, next + linkDelay) can arrive before
+            // its end, so the partitions can run it independently
+            window[0] = Math.min(next + linkDelay, end + 1);
+            try {
+                for (Future<Long> f : workers.invokeAll(tasks)) {
+                    count += f.get();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return count;
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Splits the nodes in partitions of the same size, cutting a breadth
+     * first visit of the neighbor graph, and moves the events scheduled so
+     * far to their partitions.
+     */
+    private void partition() {
+        List<Node> order = new ArrayList<>(nodes.size());
+        boolean[] visited = new boolean[nodes.size()];
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        for (Node root : nodes) {
+            if (visited[root.index]) {
+                continue;
+            }
+            visited[root.index] = true;
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                Node n = queue.poll();
+                order.add(n);
+                for (Node m : n.neighbors()) {
+                    if (!visited[m.index]) {
+                        visited[m.index] = true;
+                        queue.add(m);
+                    }
+                }
+            }
+        }
+        int per = (order.size() + partitions.length - 1)
+                / partitions.length;
+        for (int i = 0; i < order.size(); i++) {
+            Partition p = partitions[i / Math.max(per, 1)];
+            order.get(i).part = p;
+            p.size++;
+        }
+        for (Partition p : partitions) {
+            p.now = now;
+        }
+        partitioned = true;
+        Event e;
+        while ((e = staged.poll()) != null) {
+            e.target.part.events.add(e);
+        }
+    }
+
+    /**
+     * A node of the simulation.
+     */
+    private final class Node {
+
+        /**
+         * The node.
+         */
+        private final AbstractMote mote;
+
+        /**
+         * The position of the node in the simulation.
+         */
+        private final int index;
+
+        /**
+         * Generates the random values of the node.
+         */
+        private final Random random;
+
+        /**
+         * The number of events scheduled by the node so far.
+         */
+        private long scheduled;
+
+        /**
+         * The partition of the node, null until the partitions are built.
+         */
+        private volatile Partition part;
+
+        /**
+         * The index of the node in the radio model, -1 if it has no
+         * position.
+         */
+        private int spatial = -1;
+
+        /**
+         * The links towards the nodes hearing this node, null until they
+         * are computed.
+         */
+        private List<Link> links;
+
+        /**
+         * The packets being heard by the node.
+         */
+        private final List<Reception> heard = new ArrayList<>(0);
+
+        /**
+         * When the battery of the node was found depleted, Long.MAX_VALUE if
+         * the node is alive.
+         */
+        private volatile long diedAt = Long.MAX_VALUE;
+
+        /**
+         * Creates a Node.
+         *
+         * @param m the node
+         * @param i the position of the node in the simulation
+         */
+        Node(final AbstractMote m, final int i) {
+            mote = m;
+            index = i;
+            random = new Random(seed + GOLDEN_GAMMA * (i + 1));
+        }
+
+        /**
+         * Gets the current time of the node.
+         *
+         * @return the time of the partition of the node
+         */
+        long time() {
+            Partition p = part;
+            return p != null ? p.now : now;
+        }
+
+        /**
+         * Records the time when the battery of the node is depleted. Called
+         * by the partition after each event of the node.
+         */
+        void checkAlive() {
+            if (diedAt == Long.MAX_VALUE && !mote.isAlive()) {
+                diedAt = time();
+            }
+        }
+
+        /**
+         * Gets the neighbors of the node, from the radio model or from the
+         * neighbor file.
+         *
+         * @return the neighbors of the node in the simulation
+         */
+        List<Node> neighbors() {
+            List<Node> out = new ArrayList<>();
+            if (spatial >= 0) {
+                for (Link l : links()) {
+                    out.add(placed.get(l.node));
+                }
+            } else {
+                for (NodeAddress a : mote.getNeighbors()) {
+                    Node m = medium.get(a);
+                    if (m != null) {
+                        out.add(m);
+                    }
+                }
+            }
+            return out;
+        }
+
+        /**
+         * Gets the links of a node with a position, removing the ones
+         * towards the nodes dead for at least a link delay. A death more
+         * recent may not be visible yet from another partition.
+         *
+         * @return the links towards the nodes hearing this node
+         */
+        List<Link> links() {
+            if (links == null) {
+                links = model.links(spatial, seed);
+            }
+            long t = time() - linkDelay;
+            links.removeIf(l -> placed.get(l.node).diedAt < t);
+            return links;
+        }
+
+        /**
+         * Starts hearing a packet, that interferes with the other packets
+         * being heard until its end.
+         *
+         * @param raw the array containing the packet, not modified
+         * @param len the length of the packet
+         * @param dBm the power of the packet
+         */
+        void hear(final byte[] raw, final int len, final double dBm) {
+            if (diedAt != Long.MAX_VALUE) {
+                return;
+            }
+            Reception r = new Reception(SpatialRadioModel.toMilliWatt(dBm));
+            for (Reception o : heard) {
+                o.current += r.power;
+                o.worst = Math.max(o.worst, o.current);
+                r.current += o.power;
+            }
+            r.worst = r.current;
+            heard.add(r);
+            schedule(this, model.airtime(len), () -> {
+                heard.remove(r);
+                for (Reception o : heard) {
+                    o.current -= r.power;
+                }
+                double sinr = r.power / (model.noise() + r.worst);
+                if (random.nextDouble() < model.prr(sinr, len)) {
+                    part.received++;
+                    mote.deliver(raw, 0, len, model.rssi(dBm));
+                } else {
+                    part.lost++;
+                }
+            });
+        }
+
+        /**
+         * Schedules an action on this node. An action scheduled by a node
+         * running in its partition, or by the thread calling the methods of
+         * the simulation between two runs, is reproducible.
+         *
+         * @param src the node scheduling the action, or null if it comes
+         * from outside the simulation
+         * @param delay the time from the current time of src, or of this
+         * node if src is null, when the action is executed
+         * @param action the action
+         */
+        void schedule(final Node src, final long delay,
+                final Runnable action) {
+            Thread current = Thread.currentThread();
+            Event e;
+            if (src != null && (running ? src.part.runner == current
+                    : src.part == null || src.part.runner == null)) {
+                long t = src.part != null ? src.part.now : now;
+                e = new Event(t + delay, src.index, src.scheduled++, this,
+                        action);
+            } else {
+                long t = part != null ? part.now : now;
+                e = new Event(t + delay, -1, external.getAndIncrement(),
+                        this, action);
+            }
+            Partition p = part;
+            if (p == null) {
+                staged.add(e);
+            } else if (p.runner == current) {
+                p.events.add(e);
+            } else {
+                // another partition, merged before the end of the window
+                p.inbox.add(e);
+            }
+        }
+    }
+
+    /**
+     * A set of nodes with its own event queue.
+     */
+    private static final class Partition {
+
+        /**
+         * The events to be executed.
+         */
+        private final PriorityQueue<Event> events = new PriorityQueue<>();
+
+        /**
+         * The events scheduled by other threads.
+         */
+        private final Queue<Event> inbox = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The thread running the partition, null between two windows.
+         */
+        private volatile Thread runner;
+
+        /**
+         * The time of the event being executed.
+         */
+        private volatile long now;
+
+        /**
+         * The number of nodes in the partition.
+         */
+        private int size;
+
+        /**
+         * The packets received and lost by the nodes with a position.
+         */
+        private long received, lost;
+
+        /**
+         * Moves the events scheduled by other threads to the event queue.
+         * An event coming from outside the simulation late is executed now.
+         */
+        void merge() {
+            Event e;
+            while ((e = inbox.poll()) != null) {
+                events.add(e.time >= now ? e : new Event(now, e.src, e.seq,
+                        e.target, e.action));
+            }
+        }
+
+        /**
+         * Gets the time of the next event.
+         *
+         * @return the time of the next event or Long.MAX_VALUE if there are
+         * no events
+         */
+        long next() {
+            Event e = events.peek();
+            return e != null ? e.time : Long.MAX_VALUE;
+        }
+
+        /**
+         * Executes the events preceding a given time.
+         *
+         * @param limit the time of the first event not to be executed
+         * @param alone true if no other partition is running, so that the
+         * events scheduled by other threads can be merged at any time
+         * @return the number of events executed
+         */
+        long run(final long limit, final boolean alone) {
+            runner = Thread.currentThread();
+            long count = 0;
+            try {
+                while (true) {
+                    if (alone && !inbox.isEmpty()) {
+                        merge();
+                    }
+                    Event e = events.peek();
+                    if (e == null || e.time >= limit) {
+                        return count;
+                    }
+                    events.poll();
+                    now = e.time;
+                    e.action.run();
+                    e.target.checkAlive();
+                    count++;
+                }
+            } finally {
+                runner = null;
+            }
+        }
+    }
+
+    /**
+     * An action scheduled at a given time on a node.
+     */
+    private static final class Event implements Comparable<Event> {
+
+        /**
+         * When the action is executed and the order it was scheduled in by
+         * its source.
+         */
+        private final long time, seq;
+
+        /**
+         * The position of the node that scheduled the action, -1 if it comes
+         * from outside the simulation.
+         */
+        private final int src;
+
+        /**
+         * The node the action is executed on.
+         */
+        private final Node target;
+
+        /**
+         * The action.
+         */
+        private final Runnable action;
+
+        /**
+         * Creates an Event.
+         *
+         * @param t when the action is executed
+         * @param s the position of the node that scheduled the action
+         * @param q the order of the event among the ones scheduled by s
+         * @param n the node the action is executed on
+         * @param a the action
+         */
+        Event(final long t, final int s, final long q, final Node n,
+                final Runnable a) {
+            time = t;
+            src = s;
+            seq = q;
+            target = n;
+            action = a;
+        }
+
+        @Override
+        public int compareTo(final Event o) {
+            int c = Long.compare(time, o.time);
+            if (c == 0) {
+                c = Integer.compare(src, o.src);
+            }
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    /**
+     * A packet being heard by a node.
+     */
+    private static final class Reception {
+
+        /**
+         * The power of the packet in mW.
+         */
+        private final double power;
+
+        /**
+         * The power of the other packets heard now and the highest one since
+         * the start of the packet, in mW.
+         */
+        private double current, worst;
+
+        /**
+         * Creates a Reception.
+         *
+         * @param p the power of the packet in mW
+         */
+        Reception(final double p) {
+            power = p;
+        }
+    }
+
+    /**
+     * Delivers the packets as events of the simulation.
+     */
+    private final class Medium implements RadioMedium {
+
+        /**
+         * The attached nodes.
+         */
+        private final Map<NodeAddress, Node> attached =
+                new ConcurrentHashMap<>();
+
+        /**
+         * Adds a node, before it is attached.
+         *
+         * @param node the node
+         */
+        void put(final Node node) {
+            if (attached.putIfAbsent(node.mote.getAddress(), node) != null) {
+                throw new IllegalArgumentException(
+                        "Address already attached: "
+                        + node.mote.getAddress());
+            }
+        }
+
+        /**
+         * Gets a node.
+         *
+         * @param addr the address of the node
+         * @return the node or null if there is no node with that address
+         */
+        Node get(final NodeAddress addr) {
+            return attached.get(addr);
+        }
+
+        @Override
+        public void attach(final AbstractMote mote) {
+            // the nodes are put before they are attached
+        }
+
+        @Override
+        public void close() {
+            attached.clear();
+        }
+
+        @Override
+        public void send(final AbstractMote src, final NodeAddress dst,
+                final InetSocketAddress isa, final byte[] raw,
+                final int len) {
+            Node to = attached.get(dst);
+            if (to == null) {
+                return;
+            }
+            Node from = src != null ? attached.get(src.getAddress()) : null;
+            long delay = linkDelay;
+            if (from != null && jitter > 0) {
+                delay += (long) (from.random.nextDouble() * jitter);
+            }
+            byte[] copy = Arrays.copyOf(raw, len);
+            to.schedule(from, delay, () -> to.mote.deliver(copy, 0, len));
+        }
+
+        @Override
+        public boolean transmit(final AbstractMote src, final byte[] raw,
+                final int len) {
+            Node from = attached.get(src.getAddress());
+            if (from == null || from.spatial < 0) {
+                return false;
+            }
+            if (from.diedAt != Long.MAX_VALUE) {
+                return true;
+            }
+            long delay = linkDelay;
+            if (jitter > 0) {
+                delay += (long) (from.random.nextDouble() * jitter);
+            }
+            // shared by all the receivers, that only read it
+            byte[] copy = Arrays.copyOf(raw, len);
+            for (Link l : from.links()) {
+                Node to = placed.get(l.node);
+                double dBm = l.power;
+                to.schedule(from, delay, () -> to.hear(copy, len, dBm));
+            }
+            return true;
+        }
+    }
+}
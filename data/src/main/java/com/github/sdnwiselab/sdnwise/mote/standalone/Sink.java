@@ -55,7 +55,7 @@ public class Sink extends AbstractMote {
     private Socket tcpSocket;
 
     /**
-     * Creates and starts a new Sink application.
+     * Creates a new Sink application.
      *
      * @param net the Network Id of the node
      * @param myAddress the address of the node
@@ -75,13 +75,12 @@ public class Sink extends AbstractMote {
         super(port, neighboursPath, logLevel);
         ctrl = controller;
         Dischargeable battery = new SinkBattery();
-        setCore(new SinkCore(net, myAddress, battery, dpid, mac, sPort, ctrl))
-                .start();
+        setCore(new SinkCore(net, myAddress, battery, dpid, mac, sPort,
+                ctrl));
     }
 
     @Override
-    protected final void startThreads() {
-        super.startThreads();
+    protected final void openConnections() {
         try {
             tcpSocket = new Socket(ctrl.getAddress(), ctrl.getPort());
             new Thread(new TcpListener()).start();
@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import static com.github.sdnwiselab.sdnwise.mote.core.AbstractCore.MAX_RSSI;
+import static com.github.sdnwiselab.sdnwise.mote.core.Constants.SDN_WISE_DFLT_RSSI_MIN;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the links between nodes placed on a plane. The power received on
+ * a link follows a log-distance path loss plus a log-normal shadowing, drawn
+ * once per pair of nodes so that links are symmetric and reproducible. A
+ * link exists if its power is not below the sensitivity of the radio.
+ * <p>
+ * The nodes are kept in a grid of cells as large as the longest possible
+ * link, so the links of a node are found among the nodes in the nine cells
+ * around it. The probability of receiving a packet is computed from its
+ * signal to interference plus noise ratio with the bit error rate of the
+ * IEEE 802.15.4 O-QPSK modulation.
+ * <p>
+ * The parameters can be changed only before placing the first node. The
+ * distances are in meters and the powers in dBm. This class is not thread
+ * safe, but links can be read concurrently while no node is placed.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class SpatialRadioModel {
+
+    /**
+     * Default transmission power and path loss at one meter.
+     */
+    public static final double DFLT_TX_POWER = 0, DFLT_REF_LOSS = 40;
+
+    /**
+     * Default path loss exponent and standard deviation of the shadowing.
+     */
+    public static final double DFLT_EXPONENT = 3, DFLT_SHADOWING = 4;
+
+    /**
+     * Default sensitivity and noise floor.
+     */
+    public static final double DFLT_SENSITIVITY = -95, DFLT_NOISE = -100;
+
+    /**
+     * Default bit rate in bit/s and length of the physical header in bytes.
+     */
+    public static final int DFLT_BIT_RATE = 250_000, DFLT_PHY_HEADER = 6;
+
+    /**
+     * The shadowing is limited to this number of standard deviations.
+     */
+    private static final double MAX_DEVIATIONS = 3;
+
+    /**
+     * Spreads the seeds of the links.
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Radio parameters.
+     */
+    private double txPower = DFLT_TX_POWER, refLoss = DFLT_REF_LOSS,
+            exponent = DFLT_EXPONENT, shadowing = DFLT_SHADOWING,
+            sensitivity = DFLT_SENSITIVITY, noise = DFLT_NOISE;
+
+    /**
+     * Radio parameters.
+     */
+    private int bitRate = DFLT_BIT_RATE, phyHeader = DFLT_PHY_HEADER;
+
+    /**
+     * The coordinates of the placed nodes.
+     */
+    private double[] xs = new double[64], ys = new double[64];
+
+    /**
+     * The number of placed nodes.
+     */
+    private int size;
+
+    /**
+     * The side of a cell of the grid, 0 until the first node is placed.
+     */
+    private double cell;
+
+    /**
+     * The nodes in each cell of the grid.
+     */
+    private final Map<Long, List<Integer>> grid = new HashMap<>();
+
+    /**
+     * Sets the transmission power.
+     *
+     * @param dBm the power of every transmission
+     * @return this SpatialRadioModel
+     */
+    public SpatialRadioModel setTxPower(final double dBm) {
+        checkEmpty();
+        txPower = dBm;
+        return this;
+    }
+
+    /**
+     * Sets the path loss.
+     *
+     * @param ref the path loss at one meter in dB
+     * @param exp the path loss exponent, greater than 0
+     * @return this SpatialRadioModel
+     */
+    public SpatialRadioModel setPathLoss(final double ref, final double exp) {
+        checkEmpty();
+        if (!(exp > 0)) {
+            throw new IllegalArgumentException("Invalid exponent: " + exp);
+        }
+        refLoss = ref;
+        exponent = exp;
+        return this;
+    }
+
+    /**
+     * Sets the standard deviation of the shadowing.
+     *
+     * @param sigma the standard deviation in dB, 0 to disable shadowing
+     * @return this SpatialRadioModel
+     */
+    public SpatialRadioModel setShadowing(final double sigma) {
+        checkEmpty();
+        if (!(sigma >= 0)) {
+            throw new IllegalArgumentException("Invalid shadowing: " + sigma);
+        }
+        shadowing = sigma;
+        return this;
+    }
+
+    /**
+     * Sets the sensitivity of the radio. The packets received with a lower
+     * power are not detected at all.
+     *
+     * @param dBm the sensitivity
+     * @return this SpatialRadioModel
+     */
+    public SpatialRadioModel setSensitivity(final double dBm) {
+        checkEmpty();
+        sensitivity = dBm;
+        return this;
+    }
+
+    /**
+     * Sets the power of the background noise.
+     *
+     * @param dBm the noise floor
+     * @return this SpatialRadioModel
+     */
+    public SpatialRadioModel setNoiseFloor(final double dBm) {
+        checkEmpty();
+        noise = dBm;
+        return this;
+    }
+
+    /**
+     * Sets the bit rate of the radio.
+     *
+     * @param bps the bit rate in bit/s, greater than 0
+     * @return this SpatialRadioModel
+     */
+    public SpatialRadioModel setBitRate(final int bps) {
+        checkEmpty();
+        if (bps <= 0) {
+            throw new IllegalArgumentException("Invalid bit rate: " + bps);
+        }
+        bitRate = bps;
+        return this;
+    }
+
+    /**
+     * Gets the longest distance a packet can travel.
+     *
+     * @return the range in meters
+     */
+    public double getRange() {
+        return Math.pow(10, (txPower - refLoss
+                + MAX_DEVIATIONS * shadowing - sensitivity)
+                / (10 * exponent));
+    }
+
+    /**
+     * Gets the number of placed nodes.
+     *
+     * @return the number of placed nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Places a node.
+     *
+     * @param x the x coordinate of the node
+     * @param y the y coordinate of the node
+     * @return the index of the node in the model
+     */
+    int place(final double x, final double y) {
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            throw new IllegalArgumentException("Invalid position: " + x
+                    + ", " + y);
+        }
+        if (size == 0) {
+            cell = Math.max(getRange(), Double.MIN_NORMAL);
+        }
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        grid.computeIfAbsent(key(cellOf(x), cellOf(y)),
+                k -> new ArrayList<>()).add(size);
+        return size++;
+    }
+
+    /**
+     * Computes the links of a node.
+     *
+     * @param i the index of the node
+     * @param seed the seed of the shadowing
+     * @return the links towards the nodes receiving the node
+     */
+    List<Link> links(final int i, final long seed) {
+        List<Link> out = new ArrayList<>();
+        long cx = cellOf(xs[i]), cy = cellOf(ys[i]);
+        for (long dx = -1; dx <= 1; dx++) {
+            for (long dy = -1; dy <= 1; dy++) {
+                List<Integer> c = grid.get(key(cx + dx, cy + dy));
+                if (c == null) {
+                    continue;
+                }
+                for (int j : c) {
+                    if (j != i) {
+                        double p = power(i, j, seed);
+                        if (p >= sensitivity) {
+                            out.add(new Link(j, p));
+                        }
+                    }
+                }
+            }
+        }
+        out.sort((a, b) -> Integer.compare(a.node, b.node));
+        return out;
+    }
+
+    /**
+     * Computes the power received on a link.
+     *
+     * @param i the index of a node
+     * @param j the index of the other node
+     * @param seed the seed of the shadowing
+     * @return the power in dBm, the same in both directions
+     */
+    double power(final int i, final int j, final long seed) {
+        double d = Math.max(1, Math.hypot(xs[i] - xs[j], ys[i] - ys[j]));
+        double p = txPower - refLoss - 10 * exponent * Math.log10(d);
+        if (shadowing > 0) {
+            long pair = ((long) Math.min(i, j) << 32) | Math.max(i, j);
+            double g = new Random(seed + GOLDEN_GAMMA * pair).nextGaussian();
+            g = Math.max(-MAX_DEVIATIONS, Math.min(MAX_DEVIATIONS, g));
+            p += g * shadowing;
+        }
+        return p;
+    }
+
+    /**
+     * Gets the power of the background noise.
+     *
+     * @return the noise floor in mW
+     */
+    double noise() {
+        return toMilliWatt(noise);
+    }
+
+    /**
+     * Computes the probability of receiving a packet.
+     *
+     * @param sinr the signal to interference plus noise ratio, not in dB
+     * @param len the length of the packet in bytes
+     * @return the probability of receiving all the bits of the packet
+     */
+    double prr(final double sinr, final int len) {
+        // IEEE 802.15.4 2.4 GHz O-QPSK, 16-ary orthogonal symbols
+        double sum = 0;
+        double binomial = 16;
+        for (int k = 2; k <= 16; k++) {
+            binomial = binomial * (16 - k + 1) / k;
+            double term = binomial * Math.exp(20 * sinr * (1.0 / k - 1));
+            sum += (k & 1) == 0 ? term : -term;
+        }
+        double ber = Math.min(0.5, Math.max(0, 8.0 / 15 / 16 * sum));
+        return Math.pow(1 - ber, 8 * (len + phyHeader));
+    }
+
+    /**
+     * Computes the time needed to transmit a packet.
+     *
+     * @param len the length of the packet in bytes
+     * @return the time in nanoseconds
+     */
+    long airtime(final int len) {
+        return TimeUnit.SECONDS.toNanos(8L * (len + phyHeader)) / bitRate;
+    }
+
+    /**
+     * Converts a power to the RSSI used by the nodes. The sensitivity is
+     * mapped to the default minimum RSSI accepted by a node.
+     *
+     * @param dBm the power
+     * @return the RSSI, from 0 to MAX_RSSI
+     */
+    int rssi(final double dBm) {
+        long v = SDN_WISE_DFLT_RSSI_MIN + Math.round(dBm - sensitivity);
+        return (int) Math.max(0, Math.min(MAX_RSSI, v));
+    }
+
+    /**
+     * Converts a power from dBm to mW.
+     *
+     * @param dBm the power in dBm
+     * @return the power in mW
+     */
+    static double toMilliWatt(final double dBm) {
+        return Math.pow(10, dBm / 10);
+    }
+
+    /**
+     * Checks that no node is placed yet.
+     */
+    private void checkEmpty() {
+        if (size > 0) {
+            throw new IllegalStateException("Nodes already placed");
+        }
+    }
+
+    /**
+     * Gets the cell containing a coordinate.
+     *
+     * @param v the coordinate
+     * @return the cell coordinate
+     */
+    private long cellOf(final double v) {
+        return (long) Math.floor(v / cell);
+    }
+
+    /**
+     * Gets the key of a cell in the grid.
+     *
+     * @param cx the x coordinate of the cell
+     * @param cy the y coordinate of the cell
+     * @return the key of the cell
+     */
+    private static long key(final long cx, final long cy) {
+        return (cx << 32) ^ (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A link towards a node receiving another node.
+     */
+    static final class Link {
+
+        /**
+         * The index of the receiving node.
+         */
+        final int node;
+
+        /**
+         * The received power in dBm.
+         */
+        final double power;
+
+        /**
+         * Creates a Link.
+         *
+         * @param n the index of the receiving node
+         * @param p the received power in dBm
+         */
+        Link(final int n, final double p) {
+            node = n;
+            power = p;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015 SDN-WISE
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Models a RadioMedium made of UDP sockets, so that the nodes can run in
+ * different JVMs or hosts. Each node listens on its UDP port and sends its
+ * packets to the socket addresses of its neighbor file.
+ * <p>
+ * The sockets are non blocking and a single thread receives the packets of
+ * all the attached nodes.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class UdpRadioMedium implements RadioMedium {
+
+    /**
+     * To avoid garbage collection of the logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger("UDP");
+    /**
+     * The sockets of the attached nodes.
+     */
+    private final Map<AbstractMote, DatagramChannel> channels =
+            new ConcurrentHashMap<>();
+    /**
+     * The nodes whose socket has not been registered with the selector yet.
+     */
+    private final Queue<AbstractMote> toRegister =
+            new ConcurrentLinkedQueue<>();
+    /**
+     * Waits for the datagrams received by the nodes.
+     */
+    private final Selector selector;
+    /**
+     * Runs the selector.
+     */
+    private final Thread receiver;
+    /**
+     * Buffer for incoming packets, used only by the receiver thread.
+     */
+    private final byte[] buf = new byte[NetworkPacket.MAX_PACKET_LENGTH];
+    /**
+     * True until the medium is closed.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Creates a UdpRadioMedium and starts its receiver thread.
+     *
+     * @throws IOException if the selector cannot be opened
+     */
+    public UdpRadioMedium() throws IOException {
+        selector = Selector.open();
+        receiver = new Thread(this::select, "udp-radio");
+        receiver.start();
+    }
+
+    @Override
+    public void attach(final AbstractMote mote) throws IOException {
+        if (!running) {
+            throw new IllegalStateException("Medium closed");
+        }
+        DatagramChannel ch = DatagramChannel.open();
+        try {
+            ch.configureBlocking(false);
+            ch.bind(new InetSocketAddress(mote.getPort()));
+        } catch (IOException ex) {
+            ch.close();
+            throw ex;
+        }
+        if (channels.putIfAbsent(mote, ch) != null) {
+            ch.close();
+            throw new IllegalArgumentException("Node already attached");
+        }
+        toRegister.add(mote);
+        selector.wakeup();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            receiver.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (DatagramChannel ch : channels.values()) {
+            ch.close();
+        }
+        channels.clear();
+        selector.close();
+    }
+
+    @Override
+    public void send(final AbstractMote src, final NodeAddress dst,
+            final InetSocketAddress isa, final byte[] raw, final int len)
+            throws IOException {
+        DatagramChannel ch = channels.get(src);
+        if (ch == null) {
+            throw new IllegalStateException("Node not attached");
+        }
+        // a datagram that does not fit in the socket buffer is lost
+        ch.send(ByteBuffer.wrap(raw, 0, len), isa);
+    }
+
+    /**
+     * Receives the datagrams of all the nodes until the medium is closed.
+     */
+    private void select() {
+        ByteBuffer bb = ByteBuffer.wrap(buf);
+        while (running) {
+            try {
+                selector.select();
+                AbstractMote m;
+                while ((m = toRegister.poll()) != null) {
+                    channels.get(m).register(selector, SelectionKey.OP_READ,
+                            m);
+                }
+                Iterator<SelectionKey> it =
+                        selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    AbstractMote mote = (AbstractMote) key.attachment();
+                    try {
+                        DatagramChannel ch = (DatagramChannel) key.channel();
+                        for (bb.clear(); ch.receive(bb) != null; bb.clear()) {
+                            deliver(mote, bb.position());
+                        }
+                    } catch (IOException ex) {
+                        LOGGER.log(Level.SEVERE, null, ex);
+                        key.cancel();
+                    }
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Gives a received datagram to a node. A malformed datagram is logged
+     * and dropped, so that it does not stop the thread serving all the
+     * nodes.
+     *
+     * @param mote the receiving node
+     * @param len the length of the datagram in buf
+     */
+    private void deliver(final AbstractMote mote, final int len) {
+        try {
+            mote.deliver(buf, 0, len);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Datagram of {0} bytes dropped: {1}",
+                    new Object[]{len, ex});
+        }
+    }
+}
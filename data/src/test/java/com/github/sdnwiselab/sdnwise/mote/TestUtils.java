@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote;
+
+import com.github.sdnwiselab.sdnwise.util.Topology;
+import com.github.sdnwiselab.sdnwise.util.TopologyGenerator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.stream.Stream;
+
+/**
+ * Fixtures shared by the tests of the motes.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class TestUtils {
+
+    /**
+     * The distance between the nodes of a grid.
+     */
+    private static final double GRID_SPACING = 60;
+
+    /**
+     * Private constructor.
+     */
+    private TestUtils() {
+        // Nothing to do here
+    }
+
+    /**
+     * Deletes a directory and its content.
+     *
+     * @param dir the directory
+     * @throws IOException if a file cannot be deleted
+     */
+    public static void deleteAll(final Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths
+                    .sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    /**
+     * Writes a grid of nodes to a temporary topology file. Every node is
+     * connected to its neighbors and to the ones on its diagonals.
+     *
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @return the path of the topology file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path grid(final int rows, final int cols)
+            throws IOException {
+        Path topo = Files.createTempFile("grid", Topology.FILE_EXTENSION);
+        new TopologyGenerator(0).grid(rows, cols, GRID_SPACING).write(topo);
+        return topo;
+    }
+
+    /**
+     * A Handler discarding the logs of the nodes. The tests looking at some
+     * records override publish.
+     */
+    public static class Quiet extends Handler {
+
+        @Override
+        public void publish(final LogRecord lr) {
+            // Nothing to do here
+        }
+
+        @Override
+        public void flush() {
+            // Nothing to do here
+        }
+
+        @Override
+        public void close() {
+            // Nothing to do here
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.core;
+
+import com.github.sdnwiselab.sdnwise.mote.battery.SinkBattery;
+import com.github.sdnwiselab.sdnwise.packet.DataPacket;
+import com.github.sdnwiselab.sdnwise.packet.RegProxyPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the SinkCore class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class SinkCoreTest {
+
+    /**
+     * Test of controllerTX method when the node is driven and nothing sends
+     * the packets to the Control plane, of class SinkCore.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test(timeout = 10000)
+    public void testControllerTX() throws InterruptedException {
+        int extra = 5;
+        SinkCore instance = new SinkCore((byte) 1, new NodeAddress(1),
+                new SinkBattery(), "00000001", "00:01:02:03:04:05", 1,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 1));
+        // the Sink registers with the Control plane when started
+        instance.start(() -> { });
+        for (int i = 0; i < AbstractCore.QUEUE_SIZE + extra - 1; i++) {
+            instance.controllerTX(new DataPacket(1, new NodeAddress(2),
+                    new NodeAddress(1), new byte[1]));
+        }
+        assertEquals(extra, instance.getControllerDropped());
+        assertTrue(instance.getControllerPacketTobeSend()
+                instanceof RegProxyPacket);
+        for (int i = 1; i < AbstractCore.QUEUE_SIZE; i++) {
+            assertTrue(instance.getControllerPacketTobeSend()
+                    instanceof DataPacket);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.logger;
+
+import com.github.sdnwiselab.sdnwise.mote.TestUtils.Quiet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the AsyncLogSink class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class AsyncLogSinkTest {
+
+    /**
+     * Test of publish method with concurrent producers, of class
+     * AsyncLogSink.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test(timeout = 20000)
+    public void testPublish() throws InterruptedException {
+        int motes = 4, records = 5000;
+        Target target = new Target(null);
+        AsyncLogSink instance = new AsyncLogSink(target);
+        List<Thread> producers = new ArrayList<>();
+        for (int m = 0; m < motes; m++) {
+            String name = m + ".log";
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < records; i++) {
+                    instance.publish(record(name, "{0}", String.valueOf(i)));
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread t : producers) {
+            t.join();
+        }
+        instance.close();
+        assertEquals(0, instance.getDropped());
+        assertEquals(motes * records, target.records.size());
+        Map<String, Integer> next = new HashMap<>();
+        for (LogRecord r : target.records) {
+            int expected = next.getOrDefault(r.getLoggerName(), 0);
+            assertEquals(String.valueOf(expected), r.getMessage());
+            next.put(r.getLoggerName(), expected + 1);
+        }
+        assertEquals(motes, next.size());
+    }
+
+    /**
+     * Test of getDropped method, of class AsyncLogSink.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test(timeout = 20000)
+    public void testGetDropped() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Target target = new Target(release);
+        AsyncLogSink instance = new AsyncLogSink(target, 4);
+        // the writer thread takes the first record and blocks on it
+        instance.publish(record("1.log", "first"));
+        target.entered.await();
+        for (int i = 0; i < 7; i++) {
+            instance.publish(record("1.log", "next " + i));
+        }
+        assertEquals(3, instance.getDropped());
+        assertEquals(4, instance.size());
+        release.countDown();
+        instance.close();
+        assertEquals(5, target.records.size());
+        assertEquals("next 3", target.records.get(4).getMessage());
+        assertEquals(3, instance.getDropped());
+    }
+
+    /**
+     * Test of close method, of class AsyncLogSink.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test(timeout = 20000)
+    public void testClose() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Target target = new Target(release);
+        AsyncLogSink instance = new AsyncLogSink(target);
+        instance.publish(record("1.log", "first"));
+        target.entered.await();
+        for (int i = 0; i < 100; i++) {
+            instance.publish(record("1.log", "queued " + i));
+        }
+        assertEquals(100, instance.size());
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        releaser.start();
+        // close waits for the queued records to be written
+        assertFalse(target.closed);
+        instance.close();
+        assertTrue(target.closed);
+        assertEquals(0, instance.size());
+        assertEquals(101, target.records.size());
+        assertEquals("queued 99", target.records.get(100).getMessage());
+        instance.publish(record("1.log", "late"));
+        assertEquals(101, target.records.size());
+        releaser.join();
+    }
+
+    /**
+     * Creates a log record.
+     *
+     * @param logger the name of the logger
+     * @param msg the message
+     * @param params the parameters of the message
+     * @return the record
+     */
+    private static LogRecord record(final String logger, final String msg,
+            final Object... params) {
+        LogRecord r = new LogRecord(Level.INFO, msg);
+        r.setLoggerName(logger);
+        r.setParameters(params);
+        return r;
+    }
+
+    /**
+     * A Handler keeping the records it receives, that can block on the
+     * first one.
+     */
+    private static final class Target extends Quiet {
+
+        /**
+         * The records received, in order.
+         */
+        private final List<LogRecord> records = new ArrayList<>();
+
+        /**
+         * Counted down when the first record is received.
+         */
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        /**
+         * Awaited on the first record, or null.
+         */
+        private final CountDownLatch release;
+
+        /**
+         * True once closed.
+         */
+        private volatile boolean closed;
+
+        /**
+         * Creates a Target.
+         *
+         * @param r awaited on the first record, or null not to block
+         */
+        Target(final CountDownLatch r) {
+            release = r;
+        }
+
+        @Override
+        public void publish(final LogRecord record) {
+            records.add(record);
+            entered.countDown();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
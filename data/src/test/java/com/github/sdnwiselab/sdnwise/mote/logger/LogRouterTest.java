@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.logger;
+
+import static com.github.sdnwiselab.sdnwise.mote.TestUtils.deleteAll;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the LogRouter class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class LogRouterTest {
+
+    /**
+     * Test of publish method, of class LogRouter.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    public void testPublish() throws IOException {
+        Path dir = Files.createTempDirectory("router");
+        try {
+            Files.write(dir.resolve("0.1.log"),
+                    "left by a previous run\n".getBytes(
+                            StandardCharsets.UTF_8));
+            LogRouter instance = new LogRouter(dir);
+            instance.publish(record("0.1.log", "hello"));
+            instance.publish(record("M_0.1.log", "1;2;3"));
+            instance.close();
+            List<String> lines = lines(dir, "0.1.log");
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).endsWith("[INFO][0.1] hello"));
+            assertEquals(Arrays.asList("1;2;3"), lines(dir, "M_0.1.log"));
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    /**
+     * Test of publish method when the files kept open are fewer than the
+     * loggers, of class LogRouter.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    public void testPublishEvicted() throws IOException {
+        Path dir = Files.createTempDirectory("router");
+        try {
+            LogRouter instance = new LogRouter(dir, 2);
+            int rounds = 5, loggers = 3;
+            for (int r = 0; r < rounds; r++) {
+                for (int n = 0; n < loggers; n++) {
+                    // each logger evicts the least recently used file
+                    instance.publish(record("M_" + n + ".log", "line " + r));
+                }
+            }
+            instance.close();
+            for (int n = 0; n < loggers; n++) {
+                List<String> lines = lines(dir, "M_" + n + ".log");
+                assertEquals(rounds, lines.size());
+                for (int r = 0; r < rounds; r++) {
+                    assertEquals("line " + r, lines.get(r));
+                }
+            }
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    /**
+     * Creates a log record.
+     *
+     * @param logger the name of the logger
+     * @param msg the message
+     * @return the record
+     */
+    static LogRecord record(final String logger, final String msg) {
+        LogRecord r = new LogRecord(Level.INFO, msg);
+        r.setLoggerName(logger);
+        return r;
+    }
+
+    /**
+     * Reads the lines of a file.
+     *
+     * @param dir the directory of the file
+     * @param name the name of the file
+     * @return the lines
+     * @throws IOException if the file cannot be read
+     */
+    static List<String> lines(final Path dir, final String name)
+            throws IOException {
+        return Files.readAllLines(dir.resolve(name), StandardCharsets.UTF_8);
+    }
+}
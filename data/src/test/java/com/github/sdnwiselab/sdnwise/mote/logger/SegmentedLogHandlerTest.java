@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.logger;
+
+import static com.github.sdnwiselab.sdnwise.mote.TestUtils.deleteAll;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the SegmentedLogHandler class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class SegmentedLogHandlerTest {
+
+    /**
+     * Test of publish method when a file reaches the segment size, of class
+     * SegmentedLogHandler.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    public void testPublish() throws IOException {
+        Path dir = Files.createTempDirectory("segments");
+        try {
+            // each measure is 10 characters long, so a segment holds 4
+            SegmentedLogHandler instance = new SegmentedLogHandler(dir, 40);
+            for (int i = 0; i < 10; i++) {
+                instance.publish(LogRouterTest.record("M_0.1.log",
+                        "measure " + i));
+            }
+            instance.publish(LogRouterTest.record("0.1.log", "hello"));
+            instance.publish(LogRouterTest.record("0.2.log", "world"));
+            instance.close();
+            List<String> all = new ArrayList<>();
+            int[] sizes = {4, 4, 2};
+            for (int s = 0; s < sizes.length; s++) {
+                List<String> segment = LogRouterTest.lines(dir,
+                        "measures." + s + ".log");
+                assertEquals(sizes[s], segment.size());
+                all.addAll(segment);
+            }
+            assertFalse(Files.exists(dir.resolve("measures.3.log")));
+            for (int i = 0; i < all.size(); i++) {
+                assertEquals("measure " + i, all.get(i));
+            }
+            List<String> logs = LogRouterTest.lines(dir, "motes.0.log");
+            assertEquals(2, logs.size());
+            assertTrue(logs.get(0).endsWith("[INFO][0.1] hello"));
+            assertTrue(logs.get(1).endsWith("[INFO][0.2] world"));
+        } finally {
+            deleteAll(dir);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import static com.github.sdnwiselab.sdnwise.mote.TestUtils.deleteAll;
+import com.github.sdnwiselab.sdnwise.mote.logger.AsyncLogSink;
+import com.github.sdnwiselab.sdnwise.mote.logger.LogRouter;
+import com.github.sdnwiselab.sdnwise.mote.logger.SegmentedLogHandler;
+import com.github.sdnwiselab.sdnwise.packet.NetworkPacket;
+import com.github.sdnwiselab.sdnwise.packet.RegProxyPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import com.github.sdnwiselab.sdnwise.util.Topology;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests for the Loader class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class LoaderTest {
+
+    /**
+     * The base port of the generated topologies.
+     */
+    private static final int BASE_PORT = 20000;
+
+    /**
+     * Test of nextId method, of class Loader.
+     */
+    @Test
+    public void testNextId() {
+        assertEquals("00000001", Loader.nextId("00000001", 0));
+        assertEquals("0000000a", Loader.nextId("00000001", 9));
+        assertEquals("00:01:02:03:05:00",
+                Loader.nextId("00:01:02:03:04:ff", 1));
+        assertEquals("0a:00", Loader.nextId("09:FF", 1));
+        assertEquals("000000000000000000000100",
+                Loader.nextId("0000000000000000000000ff", 1));
+        assertInvalidId("ff:ff", 1);
+        assertInvalidId("fffffffffffffffffffff", 1);
+        assertInvalidId("00:0g", 1);
+    }
+
+    /**
+     * Test of options method, of class Loader.
+     *
+     * @throws ParseException if the command line is not valid
+     * @throws IOException if the topology cannot be written
+     */
+    @Test
+    public void testOptions() throws ParseException, IOException {
+        CommandLine line = parse("-n", "1", "-b", "net.topo", "-g",
+                "line:3:10", "-lp", "-w", "2", "-l", "INFO");
+        assertEquals("net.topo", line.getOptionValue("b"));
+        assertEquals("line:3:10", line.getOptionValue("g"));
+        assertEquals("2", line.getOptionValue("w"));
+        assertTrue(line.hasOption("lp"));
+        assertFalse(line.hasOption("c"));
+        assertInvalid(() -> parse("-b", "net.topo"));
+        assertInvalid(() -> Loader.topology(parse("-n", "1", "-b",
+                "net.txt")));
+        assertInvalid(() -> Loader.topology(parse("-n", "1", "-b",
+                "net.topo", "-s", "1")));
+        assertInvalid(() -> Loader.topology(parse("-n", "1", "-b",
+                "net.topo", "-g", "ring:3:10")));
+    }
+
+    /**
+     * Test of main method with invalid options, of class Loader.
+     */
+    @Test
+    public void testUsage() {
+        String out = main("-n", "1", "-x");
+        assertTrue(out.startsWith("Parsing failed.  Reason: "));
+        assertTrue(out.contains("usage: sdn-wise-data"));
+        assertTrue(out.contains("-b"));
+        out = main("-n", "300", "-b", "net.topo");
+        assertTrue(out.startsWith("Parsing failed.  Reason: Invalid -n "
+                + "value: 300"));
+        assertTrue(out.contains("usage: sdn-wise-data"));
+    }
+
+    /**
+     * Test of topology method when a topology is generated again in the
+     * same file, of class Loader.
+     *
+     * @throws ParseException if the command line is not valid
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    public void testTopology() throws ParseException, IOException {
+        Path dir = Files.createTempDirectory("loader");
+        try {
+            String file = dir.resolve("net" + Topology.FILE_EXTENSION)
+                    .toString();
+            Loader.topology(parse("-n", "1", "-b", file, "-g",
+                    "grid:30:30:10"));
+            Topology first = Loader.topology(parse("-n", "1", "-b", file));
+            Topology second = Loader.topology(parse("-n", "1", "-b", file,
+                    "-g", "line:3:10"));
+            assertEquals(3, second.size());
+            assertEquals(3, Loader.topology(parse("-n", "1", "-b", file))
+                    .size());
+            assertEquals(900, first.size());
+            assertEquals(new NodeAddress(900), first.getAddress(899));
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    /**
+     * Test of createNodes method, of class Loader.
+     *
+     * @throws ParseException if the command line is not valid
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    public void testCreateNodes() throws ParseException, IOException {
+        Path dir = Files.createTempDirectory("loader");
+        try {
+            CommandLine line = parse(batch(dir, "127.0.0.1:1"));
+            Topology topo = Loader.topology(line);
+            assertEquals(5, topo.size());
+            assertEquals(BASE_PORT + 5, topo.getPort(4));
+            List<AbstractMote> nodes = Loader.createNodes(line, (byte) 1,
+                    "INFO", topo, null, null);
+            assertEquals(topo.size(), nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                assertEquals(topo.getAddress(i),
+                        nodes.get(i).getCore().getMyAddress());
+                assertEquals(i == 0 || i == 2,
+                        nodes.get(i) instanceof Sink);
+                assertEquals(i != 0 && i != 2,
+                        nodes.get(i) instanceof Mote);
+            }
+            Handler perNode = Loader.logHandler(line, dir.resolve("logs"));
+            Handler shared = Loader.logHandler(parse("-n", "1", "-b",
+                    "x.topo"), dir.resolve("logs"));
+            perNode.close();
+            shared.close();
+            assertTrue(perNode instanceof LogRouter);
+            assertTrue(shared instanceof SegmentedLogHandler);
+            assertInvalid(() -> Loader.createNodes(parse(batch(dir,
+                    "127.0.0.1:1", "-s", "1,9")), (byte) 1, "INFO", topo,
+                    null, null));
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    /**
+     * Test of start method, of class Loader, with a small generated
+     * topology run in this process.
+     *
+     * @throws ParseException if the command line is not valid
+     * @throws IOException if the files cannot be written
+     */
+    @Test(timeout = 20000)
+    public void testStart() throws ParseException, IOException {
+        Path dir = Files.createTempDirectory("loader");
+        try (ServerSocket ctrl = new ServerSocket(0, 50,
+                InetAddress.getLoopbackAddress())) {
+            ctrl.setSoTimeout(10000);
+            CommandLine line = parse(batch(dir, "127.0.0.1:"
+                    + ctrl.getLocalPort()));
+            Topology topo = Loader.topology(line);
+            AsyncLogSink logs = new AsyncLogSink(Loader.logHandler(line,
+                    dir.resolve("logs")));
+            List<AbstractMote> nodes = Loader.createNodes(line, (byte) 1,
+                    "INFO", topo, logs, null);
+            List<Socket> sinks = new ArrayList<>();
+            try (MoteRuntime runtime = Loader.start(line, nodes)) {
+                assertEquals(topo.size(), runtime.size());
+                assertEquals(topo.size(), runtime.getAlive());
+                // the sinks register to the controller in the topology order
+                for (int k = 0; k < 2; k++) {
+                    sinks.add(ctrl.accept());
+                    RegProxyPacket rp = new RegProxyPacket(new NetworkPacket(
+                            new DataInputStream(sinks.get(k)
+                                    .getInputStream())));
+                    assertEquals(k == 0 ? "000000ff" : "00000100",
+                            rp.getDpid());
+                    assertEquals(k == 0 ? "00:01:02:03:04:ff"
+                            : "00:01:02:03:05:00", rp.getMac());
+                    assertEquals(5 + k, rp.getPort());
+                }
+            } finally {
+                logs.close();
+                for (Socket s : sinks) {
+                    s.close();
+                }
+            }
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    /**
+     * Test of the routing of the logs of each node to its own file, of class
+     * Loader.
+     *
+     * @throws ParseException if the command line is not valid
+     * @throws IOException if the files cannot be written
+     */
+    @Test(timeout = 20000)
+    public void testLogRouting() throws ParseException, IOException {
+        Path dir = Files.createTempDirectory("loader");
+        try {
+            CommandLine line = parse("-n", "1", "-b", dir.resolve("net"
+                    + Topology.FILE_EXTENSION).toString(), "-g",
+                    "line:4:10", "-p", String.valueOf(BASE_PORT), "-lp",
+                    "-w", "2", "-l", "INFO");
+            Topology topo = Loader.topology(line);
+            Path logDir = dir.resolve("logs");
+            AsyncLogSink logs = new AsyncLogSink(Loader.logHandler(line,
+                    logDir));
+            List<AbstractMote> nodes = Loader.createNodes(line, (byte) 1,
+                    "INFO", topo, logs, null);
+            try (MoteRuntime runtime = Loader.start(line, nodes)) {
+                for (AbstractMote node : nodes) {
+                    String name = node.getCore().getMyAddress() + ".log";
+                    Logger.getLogger(name).warning("hello " + name);
+                }
+            } finally {
+                logs.close();
+            }
+            for (AbstractMote node : nodes) {
+                String name = node.getCore().getMyAddress() + ".log";
+                String text = new String(Files.readAllBytes(
+                        logDir.resolve(name)), StandardCharsets.UTF_8);
+                assertTrue(text.contains("hello " + name));
+                for (AbstractMote other : nodes) {
+                    String o = other.getCore().getMyAddress() + ".log";
+                    assertEquals(o.equals(name), text.contains("hello " + o));
+                }
+            }
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    /**
+     * Gets the arguments of a batch of five nodes on a line, the first and
+     * the third one being sinks.
+     *
+     * @param dir the directory of the topology file
+     * @param ctrl the address of the controller
+     * @param more more arguments
+     * @return the arguments
+     */
+    private static String[] batch(final Path dir, final String ctrl,
+            final String... more) {
+        List<String> args = new ArrayList<>(Arrays.asList("-n", "1", "-b",
+                dir.resolve("net" + Topology.FILE_EXTENSION).toString(),
+                "-g", "line:5:10", "-p", String.valueOf(BASE_PORT), "-lp",
+                "-w", "2", "-c", ctrl, "-s", "1,3", "-sd", "000000ff",
+                "-sm", "00:01:02:03:04:ff", "-sp", "5"));
+        if (more.length > 0) {
+            args.removeAll(Arrays.asList("-s", "1,3"));
+            args.addAll(Arrays.asList(more));
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * Parses a command line with the options of Loader.
+     *
+     * @param args the arguments
+     * @return the parsed command line
+     * @throws ParseException if the command line is not valid
+     */
+    private static CommandLine parse(final String... args)
+            throws ParseException {
+        return new DefaultParser().parse(Loader.options(), args);
+    }
+
+    /**
+     * Runs Loader and returns what it prints.
+     *
+     * @param args the arguments
+     * @return the standard output of Loader
+     */
+    private static String main(final String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream old = System.out;
+        System.setOut(new PrintStream(out, true));
+        try {
+            Loader.main(args);
+        } finally {
+            System.setOut(old);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks that an identifier cannot be incremented.
+     *
+     * @param id the identifier
+     * @param k the amount to add
+     */
+    private static void assertInvalidId(final String id, final int k) {
+        try {
+            Loader.nextId(id, k);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage() != null);
+        }
+    }
+
+    /**
+     * Checks that an action throws a ParseException.
+     *
+     * @param action the action
+     */
+    private static void assertInvalid(final Action action) {
+        try {
+            action.run();
+            fail("ParseException expected");
+        } catch (ParseException ex) {
+            assertTrue(ex.getMessage() != null);
+        } catch (IOException ex) {
+            fail(ex.toString());
+        }
+    }
+
+    /**
+     * An action that may throw a ParseException.
+     */
+    private interface Action {
+
+        /**
+         * Runs the action.
+         *
+         * @throws ParseException if the command line is not valid
+         * @throws IOException if a file cannot be read or written
+         */
+        void run() throws ParseException, IOException;
+    }
+}
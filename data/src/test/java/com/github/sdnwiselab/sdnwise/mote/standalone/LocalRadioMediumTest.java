@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import com.github.sdnwiselab.sdnwise.mote.TestUtils.Quiet;
+import com.github.sdnwiselab.sdnwise.packet.DataPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests for the LocalRadioMedium class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class LocalRadioMediumTest {
+
+    /**
+     * The payload of the packets sent by the tests.
+     */
+    private static final String PAYLOAD = "hello";
+
+    /**
+     * The RSSI of the links of the tests.
+     */
+    private static final int RSSI = 200;
+
+    /**
+     * Test of send method, of class LocalRadioMedium.
+     *
+     * @throws Exception if the nodes cannot be started
+     */
+    @Test(timeout = 10000)
+    public void testSend() throws Exception {
+        assertEquals(Collections.singletonList(PAYLOAD), exchange(
+                new LocalRadioMedium(), 11, 0, 12, 0));
+    }
+
+    /**
+     * Sends a data packet between two nodes run by a MoteRuntime and waits
+     * for the receiver to get it.
+     *
+     * @param medium the medium connecting the nodes
+     * @param src the address of the sender
+     * @param srcPort the port of the sender
+     * @param dst the address of the receiver
+     * @param dstPort the port of the receiver
+     * @return the payloads received by the receiver
+     * @throws IOException if the nodes cannot be started
+     * @throws InterruptedException if the thread is interrupted
+     */
+    static List<String> exchange(final RadioMedium medium, final int src,
+            final int srcPort, final int dst, final int dstPort)
+            throws IOException, InterruptedException {
+        NodeAddress a = new NodeAddress(src);
+        NodeAddress b = new NodeAddress(dst);
+        Path fa = neighbors(b, dstPort);
+        Path fb = neighbors(a, srcPort);
+        List<String> received = new CopyOnWriteArrayList<>();
+        try (MoteRuntime rt = new MoteRuntime(1, medium)) {
+            Mote ma = new Mote((byte) 1, a, srcPort, fa.toString(), "INFO");
+            Mote mb = new Mote((byte) 1, b, dstPort, fb.toString(), "INFO");
+            rt.add(ma);
+            rt.add(mb);
+            // the receiver logs the payload of the data packets for it
+            Logger.getLogger(b + ".log").addHandler(new Quiet() {
+                @Override
+                public void publish(final LogRecord lr) {
+                    if (PAYLOAD.equals(lr.getMessage())) {
+                        received.add(lr.getMessage());
+                    }
+                }
+            });
+            DataPacket dp = new DataPacket(1, a, b,
+                    PAYLOAD.getBytes(StandardCharsets.UTF_8));
+            dp.setNxh(b);
+            ma.radioTX(dp);
+            while (received.isEmpty()) {
+                Thread.sleep(10);
+            }
+        } finally {
+            Files.delete(fa);
+            Files.delete(fb);
+        }
+        return received;
+    }
+
+    /**
+     * Writes a neighbor file containing a single neighbor.
+     *
+     * @param addr the address of the neighbor
+     * @param port the port of the neighbor
+     * @return the path of the neighbor file
+     * @throws IOException if the file cannot be written
+     */
+    private static Path neighbors(final NodeAddress addr, final int port)
+            throws IOException {
+        Path p = Files.createTempFile("neighbors", ".txt");
+        Files.write(p, Collections.singletonList(addr + ",localhost," + port
+                + "," + RSSI), StandardCharsets.UTF_8);
+        return p;
+    }
+}
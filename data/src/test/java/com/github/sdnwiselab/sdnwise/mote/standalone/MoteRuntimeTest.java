@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import com.github.sdnwiselab.sdnwise.mote.TestUtils.Quiet;
+import static com.github.sdnwiselab.sdnwise.mote.TestUtils.grid;
+import com.github.sdnwiselab.sdnwise.mote.battery.Battery;
+import com.github.sdnwiselab.sdnwise.mote.core.MoteCore;
+import com.github.sdnwiselab.sdnwise.packet.BeaconPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import com.github.sdnwiselab.sdnwise.util.Topology;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * Tests for the MoteRuntime class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class MoteRuntimeTest {
+
+    /**
+     * The number of rows and columns of the grid of nodes.
+     */
+    private static final int ROWS = 15, COLS = 20;
+
+    /**
+     * The number of worker threads of the runtimes.
+     */
+    private static final int THREADS = 3;
+
+    /**
+     * The nanoseconds a Probe is held by a thread.
+     */
+    private static final long PAUSE = 100000;
+
+    /**
+     * Test of add method, of class MoteRuntime: every node gets each second
+     * and is never run by two workers at the same time.
+     *
+     * @throws Exception if the nodes cannot be started
+     */
+    @Test(timeout = 60000)
+    public void testAdd() throws Exception {
+        int tickers = 4, rounds = 25;
+        Path topo = grid(ROWS, COLS);
+        Steps steps = new Steps();
+        try (MoteRuntime instance = new MoteRuntime(THREADS,
+                new LocalRadioMedium())) {
+            List<AbstractMote> motes = start(instance, topo, steps);
+            assertEquals(ROWS * COLS, instance.size());
+            // the seconds counted by these threads race with the clock and
+            // with each other on the same node
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < tickers; i++) {
+                threads.add(new Thread(() -> {
+                    for (AbstractMote m : motes) {
+                        for (int r = 0; r < rounds; r++) {
+                            m.tick();
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread t : threads) {
+                t.join();
+            }
+            // every node got each second once the clock stops racing
+            while (settled(steps.probes) < tickers * rounds) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, steps.overlaps.get());
+            assertTrue(steps.threads.size() <= THREADS);
+            for (Thread t : steps.threads) {
+                assertTrue(t.getName().startsWith("mote-worker-"));
+            }
+        } finally {
+            Files.delete(topo);
+        }
+    }
+
+    /**
+     * Test of add method when an idle node receives a packet, of class
+     * MoteRuntime: the packet is handled without waiting for the next
+     * second.
+     *
+     * @throws Exception if the nodes cannot be started
+     */
+    @Test(timeout = 60000)
+    public void testAddWakeUp() throws Exception {
+        Path topo = grid(ROWS, COLS);
+        Steps steps = new Steps();
+        try (MoteRuntime instance = new MoteRuntime(THREADS,
+                new LocalRadioMedium())) {
+            List<AbstractMote> motes = start(instance, topo, steps);
+            AbstractMote mote = motes.get(motes.size() / 2);
+            Probe probe = steps.probes.get(motes.size() / 2);
+            NodeAddress src = new NodeAddress(ROWS * COLS + 1);
+            // waits for a second to elapse, then for the node to be idle
+            int second = probe.seconds.get();
+            while (probe.seconds.get() == second) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            second = probe.seconds.get();
+            assertNull(mote.getCore().getNeighborTable().get(src));
+            byte[] raw = new BeaconPacket(1, src, new NodeAddress(1), 1, 1)
+                    .toByteArray();
+            mote.deliver(raw, 0, raw.length, 0xFF);
+            long deadline = System.currentTimeMillis() + 500;
+            while (mote.getCore().getNeighborTable().get(src) == null
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertNotNull(mote.getCore().getNeighborTable().get(src));
+            assertEquals(second, probe.seconds.get());
+        } finally {
+            Files.delete(topo);
+        }
+    }
+
+    /**
+     * Test of close method, of class MoteRuntime.
+     *
+     * @throws Exception if the nodes cannot be started
+     */
+    @Test(timeout = 60000)
+    public void testClose() throws Exception {
+        Path topo = grid(ROWS, COLS);
+        Steps steps = new Steps();
+        Set<Thread> before = threads();
+        LocalRadioMedium medium = new LocalRadioMedium();
+        MoteRuntime instance = new MoteRuntime(THREADS, medium);
+        try {
+            List<AbstractMote> motes = start(instance, topo, steps);
+            while (settled(steps.probes) < 1) {
+                Thread.sleep(10);
+            }
+            Set<Thread> started = threads();
+            started.removeAll(before);
+            int clocks = 0;
+            for (Thread t : started) {
+                if (t.getName().startsWith("mote-clock-")) {
+                    clocks++;
+                }
+            }
+            assertEquals(1, clocks);
+            assertTrue(started.containsAll(steps.threads));
+
+            instance.close();
+            for (Thread t : started) {
+                t.join(5000);
+                assertFalse(t.getName(), t.isAlive());
+            }
+            assertEquals(0, medium.size());
+            int[] seconds = new int[motes.size()];
+            for (int i = 0; i < seconds.length; i++) {
+                seconds[i] = steps.probes.get(i).seconds.get();
+            }
+            // neither the clock nor a late packet run the nodes anymore
+            motes.get(0).tick();
+            byte[] raw = new BeaconPacket(1, new NodeAddress(1),
+                    new NodeAddress(1), 1, 1).toByteArray();
+            motes.get(1).deliver(raw, 0, raw.length, 0xFF);
+            Thread.sleep(1500);
+            for (int i = 0; i < seconds.length; i++) {
+                assertEquals(seconds[i], steps.probes.get(i).seconds.get());
+            }
+            try {
+                instance.add(new Mote((byte) 1, new NodeAddress(1), 0, null,
+                        "SEVERE"));
+                fail("Node added to a closed runtime");
+            } catch (IllegalStateException ex) {
+                assertTrue(ex.getMessage().contains("closed"));
+            }
+        } finally {
+            instance.close();
+            Files.delete(topo);
+        }
+    }
+
+    /**
+     * Adds a node for each entry of a topology to a runtime, each with a
+     * Probe as battery.
+     *
+     * @param rt the runtime
+     * @param topo the path of the topology file
+     * @param steps collects the Probes of the nodes, in order
+     * @return the nodes, in the order of the topology
+     * @throws IOException if the nodes cannot be started
+     */
+    private static List<AbstractMote> start(final MoteRuntime rt,
+            final Path topo, final Steps steps) throws IOException {
+        Topology t = Topology.map(topo);
+        List<AbstractMote> motes = new ArrayList<>();
+        for (int i = 0; i < t.size(); i++) {
+            AbstractMote m = new AbstractMote(t.getPort(i), topo.toString(),
+                    "SEVERE") {
+            };
+            Probe p = new Probe(steps);
+            m.setCore(new MoteCore((byte) 1, t.getAddress(i), p));
+            m.setLogHandler(new Quiet());
+            steps.probes.add(p);
+            rt.add(m);
+            motes.add(m);
+        }
+        return motes;
+    }
+
+    /**
+     * Gets the seconds run by all the nodes, if they all ran the same
+     * number of seconds.
+     *
+     * @param probes the Probes of the nodes
+     * @return the seconds run by every node, or -1 if some nodes are late
+     */
+    private static int settled(final List<Probe> probes) {
+        int s = probes.get(0).seconds.get();
+        for (Probe p : probes) {
+            if (p.seconds.get() != s) {
+                return -1;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Gets the live threads of the MoteRuntimes.
+     *
+     * @return the threads
+     */
+    private static Set<Thread> threads() {
+        Set<Thread> out = new HashSet<>();
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("mote-")) {
+                out.add(t);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * What the Probes of a runtime have seen.
+     */
+    private static final class Steps {
+
+        /**
+         * The Probes of the nodes, in the order of the nodes.
+         */
+        private final List<Probe> probes = new ArrayList<>();
+
+        /**
+         * The threads that ran the nodes.
+         */
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        /**
+         * The times a node was run by two threads at the same time.
+         */
+        private final AtomicInteger overlaps = new AtomicInteger();
+    }
+
+    /**
+     * A Battery telling when it is used by a step of its node.
+     */
+    private static final class Probe extends Battery {
+
+        /**
+         * What the Probes of the runtime have seen.
+         */
+        private final Steps steps;
+
+        /**
+         * The seconds run by the node.
+         */
+        private final AtomicInteger seconds = new AtomicInteger();
+
+        /**
+         * True while a thread is using the battery.
+         */
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        /**
+         * Creates a Probe.
+         *
+         * @param s what the Probes of the runtime have seen
+         */
+        Probe(final Steps s) {
+            steps = s;
+        }
+
+        @Override
+        public Battery keepAlive(final int n) {
+            enter();
+            try {
+                seconds.incrementAndGet();
+                return super.keepAlive(n);
+            } finally {
+                busy.set(false);
+            }
+        }
+
+        @Override
+        public Battery transmitRadio(final int nBytes) {
+            enter();
+            try {
+                return super.transmitRadio(nBytes);
+            } finally {
+                busy.set(false);
+            }
+        }
+
+        /**
+         * Marks the battery as used by the current thread, counting an
+         * overlap if another thread is using it.
+         */
+        private void enter() {
+            steps.threads.add(Thread.currentThread());
+            if (!busy.compareAndSet(false, true)) {
+                steps.overlaps.incrementAndGet();
+            }
+            // widens the window in which an overlap can be seen
+            LockSupport.parkNanos(PAUSE);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import com.github.sdnwiselab.sdnwise.mote.TestUtils.Quiet;
+import static com.github.sdnwiselab.sdnwise.mote.TestUtils.grid;
+import com.github.sdnwiselab.sdnwise.mote.battery.SinkBattery;
+import com.github.sdnwiselab.sdnwise.mote.core.SinkCore;
+import com.github.sdnwiselab.sdnwise.util.MetricsReader;
+import com.github.sdnwiselab.sdnwise.util.MetricsWriter;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import com.github.sdnwiselab.sdnwise.util.Topology;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the Simulation class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class SimulationTest {
+
+    /**
+     * The virtual duration of the runs.
+     */
+    private static final long DURATION = 60 * Simulation.SECOND;
+
+    /**
+     * The position of the bytes sent in the rows returned by run.
+     */
+    private static final int SENT = 3;
+
+    /**
+     * The position of the bytes received in the rows returned by run.
+     */
+    private static final int RECEIVED = 4;
+
+    /**
+     * Test of run method, of class Simulation, with the same seed twice.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    public void testSameSeed() throws IOException {
+        Path topo = grid(3, 3);
+        try {
+            List<String> first = run(topo, 42, 1);
+            List<String> second = run(topo, 42, 1);
+            assertEquals(first, second);
+            int sending = 0, receiving = 0;
+            for (String row : first) {
+                String[] fields = row.split(":");
+                if (Long.parseLong(fields[SENT]) > 0) {
+                    sending++;
+                }
+                if (Long.parseLong(fields[RECEIVED]) > 0) {
+                    receiving++;
+                }
+            }
+            // the sink and the nodes that joined it have sent packets, and
+            // their neighbors have received them
+            assertTrue(sending > 1);
+            assertTrue(receiving > 1);
+        } finally {
+            Files.delete(topo);
+        }
+    }
+
+    /**
+     * Test of run method, of class Simulation, with one partition and with
+     * many partitions and the same seed.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Test
+    public void testPartitions() throws IOException {
+        Path topo = grid(3, 3);
+        try {
+            List<String> sequential = run(topo, 7, 1);
+            assertEquals(sequential, run(topo, 7, 3));
+            assertEquals(sequential, run(topo, 7, 9));
+        } finally {
+            Files.delete(topo);
+        }
+    }
+
+    /**
+     * Simulates the nodes of a topology, the first one being a sink not
+     * connected to a controller, and collects their measures.
+     *
+     * @param topo the path of the topology file
+     * @param seed the seed of the simulation
+     * @param partitions the number of partitions of the simulation
+     * @return the measures of every node and second, sorted
+     * @throws IOException if the files cannot be read or written
+     */
+    static List<String> run(final Path topo, final long seed,
+            final int partitions) throws IOException {
+        Topology t = Topology.map(topo);
+        String file = topo.toString();
+        Simulation sim = new Simulation(seed, Simulation.DFLT_LINK_DELAY,
+                Simulation.DFLT_JITTER, partitions);
+        Path metrics = Files.createTempFile("sim", ".bin");
+        try {
+            try (MetricsWriter w = new MetricsWriter(metrics)) {
+                for (int i = 0; i < t.size(); i++) {
+                    AbstractMote m = i == 0 ? sink(t.getAddress(i), file)
+                            : new Mote((byte) 1, t.getAddress(i),
+                                    t.getPort(i), file, "SEVERE");
+                    m.setLogHandler(new Quiet());
+                    m.setMetricsWriter(w);
+                    sim.add(m);
+                }
+                sim.run(DURATION);
+            }
+            List<String> rows = new ArrayList<>();
+            new MetricsReader(metrics).forEach((sec, addr, bat, lvl, ft, snt,
+                    rcv, sntD, rcvD) -> rows.add(addr + ":" + lvl + ":" + ft
+                    + ":" + snt + ":" + rcv + ":" + sntD + ":" + rcvD + ":"
+                    + bat + ":" + sec));
+            Collections.sort(rows);
+            return rows;
+        } finally {
+            Files.delete(metrics);
+        }
+    }
+
+    /**
+     * Creates a sink whose packets for the controller are never sent.
+     *
+     * @param addr the address of the sink
+     * @param file the path of the topology file
+     * @return the sink
+     */
+    static AbstractMote sink(final NodeAddress addr, final String file) {
+        AbstractMote m = new AbstractMote(0, file, "SEVERE") {
+        };
+        m.setCore(new SinkCore((byte) 1, addr, new SinkBattery(), "00:01",
+                "00:00:00:00:00:01", 1, new InetSocketAddress(
+                        InetAddress.getLoopbackAddress(), 1)));
+        return m;
+    }
+}
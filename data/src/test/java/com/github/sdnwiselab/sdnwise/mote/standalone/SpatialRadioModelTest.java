@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import com.github.sdnwiselab.sdnwise.mote.TestUtils.Quiet;
+import com.github.sdnwiselab.sdnwise.mote.standalone.SpatialRadioModel.Link;
+import com.github.sdnwiselab.sdnwise.packet.DataPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.io.IOException;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests for the SpatialRadioModel class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class SpatialRadioModelTest {
+
+    /**
+     * The length of the packets sent by the tests.
+     */
+    private static final int LEN = 11;
+
+    /**
+     * The address of no node of the tests.
+     */
+    private static final int NOBODY = 99;
+
+    /**
+     * Test of power and links methods, of class SpatialRadioModel.
+     */
+    @Test
+    public void testPathLoss() {
+        SpatialRadioModel instance = new SpatialRadioModel()
+                .setShadowing(0);
+        int a = instance.place(0, 0);
+        int b = instance.place(10, 0);
+        int c = instance.place(0, 40);
+        int d = instance.place(-100, -100);
+        assertEquals(-70, instance.power(a, b, 0), 1e-9);
+        assertEquals(instance.power(b, a, 0), instance.power(a, b, 0), 0);
+        assertTrue(instance.power(a, b, 0) > instance.power(a, c, 0));
+        assertTrue(instance.power(a, c, 0) > instance.power(a, d, 0));
+        List<Link> links = instance.links(a, 0);
+        assertEquals(2, links.size());
+        assertEquals(b, links.get(0).node);
+        assertEquals(c, links.get(1).node);
+        assertTrue(instance.getRange() < Math.hypot(100, 100));
+    }
+
+    /**
+     * Test of prr method, of class SpatialRadioModel.
+     */
+    @Test
+    public void testPrr() {
+        SpatialRadioModel instance = new SpatialRadioModel();
+        assertTrue(instance.prr(SpatialRadioModel.toMilliWatt(10), LEN)
+                > 0.999);
+        assertTrue(instance.prr(SpatialRadioModel.toMilliWatt(-10), LEN)
+                < 1e-6);
+        assertTrue(instance.prr(1, LEN) > instance.prr(1, LEN * 10));
+    }
+
+    /**
+     * Test of a collision between two packets, simulated with a
+     * SpatialRadioModel. A packet heard with a much stronger one is lost.
+     *
+     * @throws IOException if a node cannot be added
+     */
+    @Test
+    public void testCollision() throws IOException {
+        Simulation sim = new Simulation(0, Simulation.DFLT_LINK_DELAY, 0);
+        // the two senders are out of range of each other
+        sim.setRadioModel(new SpatialRadioModel().setShadowing(0)
+                .setSensitivity(-85));
+        Mote r = mote(1);
+        Mote far = mote(2);
+        Mote near = mote(3);
+        sim.add(r, 0, 0);
+        sim.add(far, 30, 0);
+        sim.add(near, -5, 0);
+
+        send(sim, far, Simulation.SECOND / 2);
+        sim.run(Simulation.SECOND);
+        assertEquals(1, sim.getReceivedPackets());
+        assertEquals(0, sim.getLostPackets());
+
+        send(sim, far, Simulation.SECOND / 2);
+        send(sim, near, Simulation.SECOND / 2);
+        sim.run(Simulation.SECOND);
+        assertEquals(2, sim.getReceivedPackets());
+        assertEquals(1, sim.getLostPackets());
+    }
+
+    /**
+     * Test of the losses of weak links, simulated twice with a
+     * SpatialRadioModel and the same seed.
+     *
+     * @throws IOException if a node cannot be added
+     */
+    @Test
+    public void testLossRate() throws IOException {
+        long[] first = losses(3);
+        assertTrue(first[0] > 0);
+        assertTrue(first[1] > 0);
+        assertArrayEquals(first, losses(3));
+    }
+
+    /**
+     * Simulates a node sending packets to nodes at the edge of its range.
+     *
+     * @param seed the seed of the simulation
+     * @return the packets received and lost
+     * @throws IOException if a node cannot be added
+     */
+    private static long[] losses(final long seed) throws IOException {
+        Simulation sim = new Simulation(seed);
+        sim.setRadioModel(new SpatialRadioModel().setNoiseFloor(-83));
+        Mote src = mote(1);
+        sim.add(src, 0, 0);
+        for (int i = 0; i < 4; i++) {
+            double angle = i * Math.PI / 2;
+            double d = 20 + 5 * i;
+            sim.add(mote(i + 2), d * Math.cos(angle), d * Math.sin(angle));
+        }
+        for (int i = 0; i < 100; i++) {
+            send(sim, src, Simulation.SECOND + i * Simulation.SECOND / 10);
+        }
+        sim.run(20 * Simulation.SECOND);
+        return new long[]{sim.getReceivedPackets(), sim.getLostPackets()};
+    }
+
+    /**
+     * Creates a node with no neighbor file and no logs.
+     *
+     * @param addr the address of the node
+     * @return the node
+     */
+    private static Mote mote(final int addr) {
+        Mote m = new Mote((byte) 1, new NodeAddress(addr), 0, null,
+                "SEVERE");
+        m.setLogHandler(new Quiet());
+        return m;
+    }
+
+    /**
+     * Schedules the transmission of a data packet. The packet is heard by
+     * all the nodes in range, but it is addressed to none of them, so that
+     * they do not answer.
+     *
+     * @param sim the simulation
+     * @param src the sending node
+     * @param delay the time from now of the transmission
+     */
+    private static void send(final Simulation sim, final Mote src,
+            final long delay) {
+        NodeAddress to = new NodeAddress(NOBODY);
+        sim.at(src, delay, () -> src.radioTX(new DataPacket(1,
+                src.getAddress(), to, new byte[]{1}).setNxh(to)));
+    }
+}
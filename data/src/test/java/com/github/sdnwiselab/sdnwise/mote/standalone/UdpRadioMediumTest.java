@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Seby
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.sdnwiselab.sdnwise.mote.standalone;
+
+import com.github.sdnwiselab.sdnwise.mote.TestUtils.Quiet;
+import com.github.sdnwiselab.sdnwise.packet.DataPacket;
+import com.github.sdnwiselab.sdnwise.util.NodeAddress;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests for the UdpRadioMedium class.
+ *
+ * @author Sebastiano Milardo
+ */
+public final class UdpRadioMediumTest {
+
+    /**
+     * Test of send method, of class UdpRadioMedium.
+     *
+     * @throws Exception if the sockets cannot be opened
+     */
+    @Test(timeout = 10000)
+    public void testSend() throws Exception {
+        int portA;
+        int portB;
+        try (DatagramSocket s = new DatagramSocket(0);
+                DatagramSocket t = new DatagramSocket(0)) {
+            portA = s.getLocalPort();
+            portB = t.getLocalPort();
+        }
+        List<String> received = LocalRadioMediumTest.exchange(
+                new UdpRadioMedium(), 21, portA, 22, portB);
+        assertEquals(1, received.size());
+    }
+
+    /**
+     * Test of the receiver thread, of class UdpRadioMedium, with a malformed
+     * datagram followed by a valid one.
+     *
+     * @throws Exception if the sockets cannot be opened
+     */
+    @Test(timeout = 10000)
+    public void testMalformedDatagram() throws Exception {
+        int port;
+        try (DatagramSocket s = new DatagramSocket(0)) {
+            port = s.getLocalPort();
+        }
+        NodeAddress addr = new NodeAddress(7);
+        Mote mote = new Mote((byte) 1, addr, port, null, "SEVERE");
+        mote.setLogHandler(new Quiet());
+        try (UdpRadioMedium medium = new UdpRadioMedium();
+                DatagramSocket s = new DatagramSocket()) {
+            // the steps are never run, so the packets stay in the queue
+            mote.attach(r -> { }, medium);
+            InetAddress host = InetAddress.getLoopbackAddress();
+            s.send(new DatagramPacket(new byte[]{1, 2, 3}, 3, host, port));
+            DataPacket np = new DataPacket(1, new NodeAddress(2), addr,
+                    new byte[]{42});
+            np.setNxh(addr);
+            byte[] raw = np.toByteArray();
+            s.send(new DatagramPacket(raw, raw.length, host, port));
+            while (mote.getCore().getRxQueue().size() == 0) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, mote.getCore().getRxQueue().size());
+        }
+    }
+}